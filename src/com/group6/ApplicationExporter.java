@@ -0,0 +1,280 @@
+package com.group6;
+
+import com.group6.btoproject.*;
+import com.group6.users.UserMaritalStatus;
+import com.group6.utils.BashColors;
+import com.group6.utils.ColumnarWriter;
+import com.group6.utils.ColumnarWriter.Column;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * ApplicationExporter exports applications, withdrawals, officer registrations and
+ * booking receipts for offline analytics, as {@link ColumnarWriter} tables.
+ * <p>
+ * Each table is a directory of the export directory, with one file per column.
+ * Ids and names are dictionary encoded, and statuses are run-length encoded.
+ * Projects are read from a {@link BTOProjectSnapshot}, so the export is consistent even while
+ * projects are changed, and receipts are streamed from the booking receipt log. Only one row
+ * group per table is held in memory, however many rows are exported.
+ * </p>
+ * Run from the command line, projects are exported as of the application's last checkpoint.
+ * Run with optional args: [projects file] [booking receipt log directory] [export directory] [row group size].
+ */
+public class ApplicationExporter {
+
+    /**
+     * Name of the applications table.
+     */
+    public static final String APPLICATIONS = "applications";
+    /**
+     * Name of the withdrawals table.
+     */
+    public static final String WITHDRAWALS = "withdrawals";
+    /**
+     * Name of the officer registrations table.
+     */
+    public static final String OFFICER_REGISTRATIONS = "officer-registrations";
+    /**
+     * Name of the booking receipts table.
+     */
+    public static final String BOOKING_RECEIPTS = "booking-receipts";
+
+    private static final List<Column> APPLICATION_COLUMNS = List.of(
+            Column.string("project_id"),
+            Column.string("project_name"),
+            Column.string("application_id"),
+            Column.string("applicant_user_id"),
+            Column.enumeration("type_id", BTOProjectTypeID.class),
+            Column.enumeration("status", BTOApplicationStatus.class)
+    );
+    private static final List<Column> WITHDRAWAL_COLUMNS = List.of(
+            Column.string("project_id"),
+            Column.string("withdrawal_id"),
+            Column.string("application_id"),
+            Column.enumeration("status", BTOApplicationWithdrawalStatus.class),
+            Column.int64("requested_on")
+    );
+    private static final List<Column> OFFICER_REGISTRATION_COLUMNS = List.of(
+            Column.string("project_id"),
+            Column.string("registration_id"),
+            Column.string("officer_user_id"),
+            Column.enumeration("status", HDBOfficerRegistrationStatus.class)
+    );
+    private static final List<Column> BOOKING_RECEIPT_COLUMNS = List.of(
+            Column.string("receipt_id"),
+            Column.string("project_id"),
+            Column.string("application_id"),
+            Column.string("user_id"),
+            Column.string("applicant_name"),
+            Column.string("nric"),
+            Column.enumeration("marital_status", UserMaritalStatus.class),
+            Column.string("project_name"),
+            Column.string("project_neighbourhood"),
+            Column.enumeration("type_id", BTOProjectTypeID.class),
+            Column.int64("date_of_booking"),
+            Column.float64("price")
+    );
+
+    /**
+     * Number of rows and row groups written to each table.
+     *
+     * @param applications         number of applications.
+     * @param withdrawals          number of withdrawals.
+     * @param officerRegistrations number of officer registrations.
+     * @param bookingReceipts      number of booking receipts.
+     * @param rowGroups            number of row groups, over all tables.
+     */
+    public record Export(long applications, long withdrawals, long officerRegistrations,
+            long bookingReceipts, long rowGroups) {
+
+        /**
+         * Number of rows, over all tables.
+         *
+         * @return number of rows.
+         */
+        public long rows() {
+            return applications + withdrawals + officerRegistrations + bookingReceipts;
+        }
+    }
+
+    /**
+     * Entry point to exporting applications.
+     *
+     * @param args CLI args
+     */
+    public static void main(String[] args) {
+        final String projectsFile = args.length > 0 ? args[0] : "projects.txt";
+        final String receiptLogDirectory = args.length > 1 ? args[1] : "booking-receipts";
+        final File exportDirectory = new File(args.length > 2 ? args[2] : "export");
+        final int rowGroupSize = args.length > 3 ? Integer.parseInt(args[3]) : ColumnarWriter.DEFAULT_ROW_GROUP_SIZE;
+
+        final BTOProjectStorage projectStorage = new BTOProjectStorage(projectsFile);
+        final BTOProjectManager projectManager = new BTOProjectManager(projectStorage, null);
+        // The mutation log is not replayed, replaying cuts off records the application may still be writing.
+        projectManager.setProjects(projectStorage.loadAll());
+        final BTOBookingReceiptLog receiptLog = new BTOBookingReceiptLog(receiptLogDirectory);
+        try {
+            receiptLog.open();
+            projectManager.setBookingReceiptLog(receiptLog);
+
+            final long start = System.nanoTime();
+            final Export export = export(projectManager, exportDirectory, rowGroupSize);
+            final double seconds = Math.max((System.nanoTime() - start) / 1e9, 1e-9);
+            System.out.println(BashColors.format(String.format(
+                    "[Export] Wrote %d applications, %d withdrawals, %d officer registrations and %d booking receipts"
+                            + " in %d row groups to %s in %.2f s (%.0f rows/s)",
+                    export.applications(), export.withdrawals(), export.officerRegistrations(),
+                    export.bookingReceipts(), export.rowGroups(), exportDirectory.getPath(), seconds,
+                    export.rows() / seconds), BashColors.GREEN));
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println(BashColors.format("[Export] Failed to export to " + exportDirectory.getPath() + ": "
+                    + e.getMessage(), BashColors.RED));
+            System.exit(1);
+        } finally {
+            try {
+                receiptLog.close();
+            } catch (IOException e) {
+                System.err.println(BashColors.format("Error closing booking receipts: " + e.getMessage(), BashColors.RED));
+            }
+        }
+    }
+
+    /**
+     * Export every application, withdrawal, officer registration and booking receipt of a
+     * project manager to tables in a directory.
+     *
+     * @param projectManager project manager to export.
+     * @param directory      directory to write the tables to.
+     * @param rowGroupSize   maximum number of rows per row group.
+     * @return number of rows written.
+     * @throws IOException if a table cannot be written.
+     */
+    public static Export export(BTOProjectManager projectManager, File directory, int rowGroupSize)
+            throws IOException {
+        final long applications;
+        final long withdrawals;
+        final long officerRegistrations;
+        long rowGroups = 0;
+        try (BTOProjectSnapshot snapshot = projectManager.openSnapshot();
+                ColumnarWriter applicationWriter = new ColumnarWriter(
+                        new File(directory, APPLICATIONS), APPLICATION_COLUMNS, rowGroupSize);
+                ColumnarWriter withdrawalWriter = new ColumnarWriter(
+                        new File(directory, WITHDRAWALS), WITHDRAWAL_COLUMNS, rowGroupSize);
+                ColumnarWriter registrationWriter = new ColumnarWriter(
+                        new File(directory, OFFICER_REGISTRATIONS), OFFICER_REGISTRATION_COLUMNS, rowGroupSize)) {
+            // In id order, so the project id statistics of each row group cover few projects.
+            final List<BTOProject> projects = new ArrayList<>(snapshot.getProjects());
+            projects.sort(Comparator.comparing(BTOProject::getId));
+            for (BTOProject project : projects) {
+                snapshot.read(project, (frozen) -> {
+                    try {
+                        writeProject(frozen, applicationWriter, withdrawalWriter, registrationWriter);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return null;
+                });
+            }
+            applicationWriter.commit();
+            withdrawalWriter.commit();
+            registrationWriter.commit();
+            applications = applicationWriter.getRowCount();
+            withdrawals = withdrawalWriter.getRowCount();
+            officerRegistrations = registrationWriter.getRowCount();
+            rowGroups += applicationWriter.getRowGroupCount() + withdrawalWriter.getRowGroupCount()
+                    + registrationWriter.getRowGroupCount();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        try (ColumnarWriter receiptWriter = new ColumnarWriter(
+                new File(directory, BOOKING_RECEIPTS), BOOKING_RECEIPT_COLUMNS, rowGroupSize)) {
+            final Optional<BTOBookingReceiptLog> receiptLog = projectManager.getBookingReceiptLog();
+            if (receiptLog.isPresent()) {
+                receiptLog.get().forEach((receipt) -> {
+                    try {
+                        writeBookingReceipt(receipt, receiptWriter);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } else {
+                for (BTOBookingReceipt receipt : projectManager.getBookingReceipts()) {
+                    writeBookingReceipt(receipt, receiptWriter);
+                }
+            }
+            receiptWriter.commit();
+            rowGroups += receiptWriter.getRowGroupCount();
+            return new Export(applications, withdrawals, officerRegistrations, receiptWriter.getRowCount(), rowGroups);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Write a project's applications, withdrawals and officer registrations.
+     *
+     * @param project            project, as of the snapshot.
+     * @param applicationWriter  writer of the applications table.
+     * @param withdrawalWriter   writer of the withdrawals table.
+     * @param registrationWriter writer of the officer registrations table.
+     * @throws IOException if a row group cannot be written.
+     */
+    private static void writeProject(BTOProject project, ColumnarWriter applicationWriter,
+            ColumnarWriter withdrawalWriter, ColumnarWriter registrationWriter) throws IOException {
+        for (BTOApplication application : project.getApplications()) {
+            applicationWriter.setString(0, project.getId());
+            applicationWriter.setString(1, project.getName());
+            applicationWriter.setString(2, application.getId());
+            applicationWriter.setString(3, application.getApplicantUserId());
+            applicationWriter.setEnum(4, application.getTypeId());
+            applicationWriter.setEnum(5, application.getStatus());
+            applicationWriter.endRow();
+        }
+        for (BTOApplicationWithdrawal withdrawal : project.getWithdrawals()) {
+            withdrawalWriter.setString(0, project.getId());
+            withdrawalWriter.setString(1, withdrawal.getId());
+            withdrawalWriter.setString(2, withdrawal.getApplicationId());
+            withdrawalWriter.setEnum(3, withdrawal.getStatus());
+            withdrawalWriter.setLong(4, withdrawal.getRequestedOn());
+            withdrawalWriter.endRow();
+        }
+        for (HDBOfficerRegistration registration : project.getHdbOfficerRegistrations()) {
+            registrationWriter.setString(0, project.getId());
+            registrationWriter.setString(1, registration.getId());
+            registrationWriter.setString(2, registration.getOfficerUserId());
+            registrationWriter.setEnum(3, registration.getStatus());
+            registrationWriter.endRow();
+        }
+    }
+
+    /**
+     * Write a booking receipt.
+     *
+     * @param receipt receipt.
+     * @param writer  writer of the booking receipts table.
+     * @throws IOException if a row group cannot be written.
+     */
+    private static void writeBookingReceipt(BTOBookingReceipt receipt, ColumnarWriter writer) throws IOException {
+        writer.setString(0, receipt.getId());
+        writer.setString(1, receipt.getProjectId());
+        writer.setString(2, receipt.getApplicationId());
+        writer.setString(3, receipt.getUserId());
+        writer.setString(4, receipt.getApplicantName());
+        writer.setString(5, receipt.getNric());
+        writer.setEnum(6, receipt.getMaritalStatus());
+        writer.setString(7, receipt.getProjectName());
+        writer.setString(8, receipt.getProjectNeighbourhood());
+        writer.setEnum(9, receipt.getTypeID());
+        writer.setLong(10, receipt.getDateOfBooking());
+        writer.setDouble(11, receipt.getPrice());
+        writer.endRow();
+    }
+}
@@ -0,0 +1,207 @@
+package com.group6;
+
+import com.group6.btoproject.*;
+import com.group6.users.RoleBasedUser;
+import com.group6.users.User;
+import com.group6.users.UserManager;
+import com.group6.users.UserStorage;
+import com.group6.utils.BashColors;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically saves projects and users in the background.
+ * Booking receipts are appended to the project manager's {@link BTOBookingReceiptLog}
+ * when they are generated, so they are not part of checkpoints.
+ * <p>
+ * A checkpoint runs once {@link #dirtyThreshold} changes have been made since the
+ * last checkpoint, or once {@link #intervalMillis} milliseconds have passed with at
+ * least one change. Changes are mutations made through the managers, and changes made
+ * directly on a project, see {@link BTOProjectManager#getProjectChangeCount()}.
+ * </p>
+ * <p>
+ * The project manager is only locked to open a {@link BTOProjectSnapshot}, changed projects
+ * are then encoded from the snapshot while views keep changing them. The user manager is
+ * only locked while users are copied. Files are written after the locks are released, so
+ * views are not stalled while a checkpoint is written. A user saved by
+ * {@link UserManager#updateUser(User)} after the copy was taken is not overwritten by the
+ * copy, see {@link UserStorage#saveAll(List, long)}.
+ * </p>
+ * <p>
+ * Files are written the way their storage saves them: with incremental saves, each changed
+ * project or user record is appended to its {@link com.group6.utils.RecordFile} and the old
+ * record is marked dead, and files that are rewritten as a whole are written to a temporary
+ * file and renamed over the old one. Either way, a crash leaves every record intact except
+ * possibly the one being written, which is dropped on the next load. Once the files are
+ * saved, mutation log records contained in the checkpoint are discarded.
+ * </p>
+ */
+public class Checkpointer implements Closeable {
+
+    private final BTOProjectManager projectManager;
+    private final UserManager userManager;
+    private final BTOProjectStorage projectStorage;
+    private final UserStorage userStorage;
+    private final long intervalMillis;
+    private final long dirtyThreshold;
+    private ScheduledExecutorService scheduler;
+    private long checkpointedProjectMutations;
+    private long checkpointedProjectChanges;
+    private long checkpointedUserMutations;
+    private long lastCheckpointMillis = System.currentTimeMillis();
+
+    /**
+     * Constructor for Checkpointer.
+     *
+     * @param projectManager project manager to save.
+     * @param userManager    user manager to save.
+     * @param projectStorage storage to save projects to.
+     * @param userStorage    storage to save users to.
+     * @param intervalMillis maximum time between a mutation and its checkpoint.
+     * @param dirtyThreshold number of mutations that triggers a checkpoint
+     *                       before the interval has passed.
+     */
+    public Checkpointer(BTOProjectManager projectManager, UserManager userManager,
+            BTOProjectStorage projectStorage, UserStorage userStorage,
+            long intervalMillis, long dirtyThreshold) {
+        if (intervalMillis <= 0 || dirtyThreshold <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval and dirty threshold must be positive.");
+        }
+        if (projectManager.getBookingReceiptLog().isEmpty()) {
+            throw new IllegalArgumentException("Booking receipts must be stored in a booking receipt log.");
+        }
+        this.projectManager = projectManager;
+        this.userManager = userManager;
+        this.projectStorage = projectStorage;
+        this.userStorage = userStorage;
+        this.intervalMillis = intervalMillis;
+        this.dirtyThreshold = dirtyThreshold;
+        this.checkpointedProjectMutations = projectManager.getMutationCount();
+        this.checkpointedProjectChanges = projectManager.getProjectChangeCount();
+        this.checkpointedUserMutations = userManager.getMutationCount();
+    }
+
+    /**
+     * Start checking for checkpoints in the background.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            final Thread thread = new Thread(runnable, "bto-checkpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long pollMillis = Math.min(intervalMillis, 1000);
+        scheduler.scheduleWithFixedDelay(this::checkpointIfNeeded, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Number of changes since the last checkpoint.
+     * A mutation made through the project manager usually changes a project too, so
+     * it may be counted twice.
+     *
+     * @return number of changes.
+     */
+    public synchronized long getDirtyCount() {
+        return projectManager.getMutationCount() - checkpointedProjectMutations
+                + projectManager.getProjectChangeCount() - checkpointedProjectChanges
+                + userManager.getMutationCount() - checkpointedUserMutations;
+    }
+
+    private void checkpointIfNeeded() {
+        final long dirtyCount = getDirtyCount();
+        if (dirtyCount >= dirtyThreshold
+                || (dirtyCount > 0 && System.currentTimeMillis() - lastCheckpointMillis >= intervalMillis)) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Save a checkpoint now.
+     *
+     * @return true if the checkpoint was saved.
+     */
+    public synchronized boolean checkpoint() {
+        final Optional<BTOMutationLog> mutationLog = projectManager.getMutationLog();
+
+        // Snapshot the projects while holding the manager's lock, then encode them without it.
+        final BTOProjectStorage.Changes projects;
+        final long projectMutations;
+        final long projectChanges;
+        final long logPosition;
+        final BTOProjectSnapshot snapshot;
+        synchronized (projectManager) {
+            projectMutations = projectManager.getMutationCount();
+            // Read before opening the snapshot, so every change counted is in the snapshot.
+            projectChanges = projectManager.getProjectChangeCount();
+            logPosition = mutationLog.map(BTOMutationLog::size).orElse(0L);
+            snapshot = projectManager.openSnapshot();
+        }
+        try (snapshot) {
+            projects = projectStorage.collectChanges(snapshot);
+        } catch (IOException e) {
+            System.err.println(BashColors.format("Error saving checkpoint: " + e.getMessage(), BashColors.RED));
+            return false;
+        }
+
+        final List<User> users = new ArrayList<>();
+        final long userMutations;
+        final long userSaveStamp;
+        synchronized (userManager) {
+            userMutations = userManager.getMutationCount();
+            // Read before copying, users saved after this are newer than their copies.
+            userSaveStamp = userStorage.getSaveStamp();
+            for (User user : userManager.getUsers().values()) {
+                if (user instanceof RoleBasedUser roleBasedUser) {
+                    users.add(new RoleBasedUser(roleBasedUser.getRole(), user.getId(), user.getName(),
+                            user.getNric(), user.getAge(), user.getMaritalStatus(), user.getPassword()));
+                }
+            }
+        }
+
+        // Write without holding any lock.
+        try {
+            projectStorage.saveChanges(projects);
+        } catch (IOException e) {
+            System.err.println(BashColors.format("Error saving checkpoint: " + e.getMessage(), BashColors.RED));
+            return false;
+        }
+        userStorage.saveAll(users, userSaveStamp);
+        final long position = logPosition;
+        mutationLog.ifPresent((log) -> log.discardBefore(position));
+
+        checkpointedProjectMutations = projectMutations;
+        checkpointedProjectChanges = projectChanges;
+        checkpointedUserMutations = userMutations;
+        lastCheckpointMillis = System.currentTimeMillis();
+        return true;
+    }
+
+    /**
+     * Stop checking for checkpoints, waiting for a running checkpoint to finish.
+     */
+    @Override
+    public void close() {
+        final ScheduledExecutorService scheduler;
+        synchronized (this) {
+            scheduler = this.scheduler;
+            this.scheduler = null;
+        }
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.group6.btoproject.*;
 import com.group6.users.*;
 import com.group6.utils.BashColors;
 
+import java.io.File;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.ArrayList;
@@ -44,8 +45,12 @@ public class DefaultFileGenerator {
         loadProjects(btoSystem);
 
         userStorage.saveAll(new ArrayList<>(userManager.getUsers().values()));
+        // Users are moved from the role files to a new users.txt on the next start.
+        new File("users.txt").delete();
         projectStorage.saveAll(new ArrayList<>(projectManager.getProjects().values()));
         receiptsStorage.saveAll(new ArrayList<>(projectManager.getBookingReceipts()));
+        // Discard mutations logged against the previous files.
+        new BTOMutationLog("projects.log").reset();
     }
 
     /**
@@ -0,0 +1,244 @@
+package com.group6;
+
+import com.group6.btoproject.*;
+import com.group6.utils.BashColors;
+import com.group6.utils.RecordFile;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * LegacyFileMigrator converts files saved by older versions, which are a single
+ * serialized list, to the current formats.
+ * <p>
+ * Projects are converted to a {@link RecordFile}, and booking receipts are moved into a
+ * {@link BTOBookingReceiptLog}. Each object is encoded and written as soon as it is
+ * deserialized, so the encoded records are never held in memory. The converted data is
+ * then read back to check that the record count and a checksum of every record match
+ * what was written.
+ * Old project files are kept with a .legacy suffix.
+ * </p>
+ * <p>
+ * Memory is not bounded: a legacy file is a single serialized list written without
+ * resetting the stream, so {@link ObjectInputStream} keeps every object it has read,
+ * including each project's children, until the whole file is read. The heap needed grows
+ * with the size of the legacy file, about as much as loading the whole list, e.g. a
+ * 100 MB projects file needs a heap of about 384 MB.
+ * </p>
+ * Run with optional args: [projects file] [booking receipts file] [booking receipt log directory].
+ */
+public class LegacyFileMigrator {
+
+    private static final String LEGACY_SUFFIX = ".legacy";
+
+    /**
+     * Result of migrating a file.
+     *
+     * @param recordCount     number of records written.
+     * @param payloadChecksum CRC32C of every record, in the order they were written.
+     */
+    private record Migration(long recordCount, long payloadChecksum) {
+    }
+
+    /**
+     * Handles an object as soon as it is deserialized.
+     *
+     * @param <T> type of object.
+     */
+    @FunctionalInterface
+    private interface ObjectHandler<T> {
+        void handle(T object) throws IOException;
+    }
+
+    /**
+     * Entry point to migrating legacy files.
+     *
+     * @param args CLI args
+     */
+    public static void main(String[] args) {
+        final String projectsFile = args.length > 0 ? args[0] : "projects.txt";
+        final String receiptsFile = args.length > 1 ? args[1] : "booking-receipts.txt";
+        final String receiptLogDirectory = args.length > 2 ? args[2] : "booking-receipts";
+        System.out.println(
+                BashColors.format("Migrating legacy files in " + System.getProperty("user.dir"), BashColors.BOLD)
+        );
+
+        boolean isSuccessful = true;
+        try {
+            migrateProjects(new File(projectsFile));
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println(BashColors.format("[Migration] Failed to migrate " + projectsFile + ": "
+                    + e.getMessage(), BashColors.RED));
+            isSuccessful = false;
+        }
+        try {
+            migrateBookingReceipts(new File(receiptsFile), receiptLogDirectory);
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println(BashColors.format("[Migration] Failed to migrate " + receiptsFile + ": "
+                    + e.getMessage(), BashColors.RED));
+            isSuccessful = false;
+        }
+        if (!isSuccessful) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Convert a legacy project file to a record file, keeping the old file with a .legacy suffix.
+     * The record file is written next to the old file and only replaces it once verified.
+     *
+     * @param file legacy project file.
+     * @throws IOException            if the file cannot be converted, or verification fails.
+     * @throws ClassNotFoundException if the file contains unknown classes.
+     */
+    public static void migrateProjects(File file) throws IOException, ClassNotFoundException {
+        if (!isLegacyFile(file)) {
+            System.out.println(BashColors.format("[Migration] " + file.getName()
+                    + " is not a legacy file, skipping", BashColors.YELLOW));
+            return;
+        }
+        final long start = System.nanoTime();
+        final File migratedFile = new File(file.getPath() + ".migrating");
+        final RecordFile recordFile = new RecordFile(migratedFile.getPath());
+        final Migration migration;
+        try (RecordFile.Writer writer = recordFile.openWriter()) {
+            final CRC32C payloadChecksum = new CRC32C();
+            readLegacyFile(file, BTOProject.class, (project) -> {
+                final byte[] payload = BTOProjectCodec.encode(project);
+                writer.write(project.getId(), payload);
+                payloadChecksum.update(payload);
+            });
+            writer.commit();
+            migration = new Migration(writer.getRecordCount(), payloadChecksum.getValue());
+        }
+
+        final RecordFile.Verification verification = recordFile.verify();
+        if (verification.recordCount() != migration.recordCount()
+                || verification.payloadChecksum() != migration.payloadChecksum()) {
+            throw new IOException("Verification failed, wrote " + migration.recordCount() + " projects but read "
+                    + verification.recordCount() + " back. " + migratedFile.getName() + " was kept for inspection.");
+        }
+        // Copy rather than move the old file, so the file always exists. A crash before the
+        // record file replaces it leaves the old file in place, to be migrated again.
+        final File legacyFile = new File(file.getPath() + LEGACY_SUFFIX);
+        Files.copy(file.toPath(), legacyFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        try (FileChannel channel = FileChannel.open(legacyFile.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(migratedFile.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        report(file, "projects", migration, start);
+    }
+
+    /**
+     * Move receipts from a legacy booking receipt file into an empty booking receipt log.
+     * The old file is kept with a .legacy suffix, so the application does not import it again.
+     *
+     * @param file         legacy booking receipt file.
+     * @param logDirectory directory of the booking receipt log.
+     * @throws IOException            if the file cannot be converted, or verification fails.
+     * @throws ClassNotFoundException if the file contains unknown classes.
+     */
+    public static void migrateBookingReceipts(File file, String logDirectory)
+            throws IOException, ClassNotFoundException {
+        if (!isLegacyFile(file)) {
+            System.out.println(BashColors.format("[Migration] " + file.getName()
+                    + " is not a legacy file, skipping", BashColors.YELLOW));
+            return;
+        }
+        final long start = System.nanoTime();
+        final Migration migration;
+        try (BTOBookingReceiptLog receiptLog = new BTOBookingReceiptLog(logDirectory)) {
+            final long existing = receiptLog.open();
+            if (existing > 0) {
+                throw new IOException(logDirectory + " already has " + existing + " receipts.");
+            }
+            final CRC32C payloadChecksum = new CRC32C();
+            final long[] recordCount = { 0 };
+            readLegacyFile(file, BTOBookingReceipt.class, (receipt) -> {
+                receiptLog.append(receipt, false);
+                payloadChecksum.update(BTOBookingReceiptCodec.encode(receipt));
+                recordCount[0]++;
+            });
+            receiptLog.force();
+            migration = new Migration(recordCount[0], payloadChecksum.getValue());
+        }
+
+        try (BTOBookingReceiptLog receiptLog = new BTOBookingReceiptLog(logDirectory)) {
+            final CRC32C payloadChecksum = new CRC32C();
+            final long recordCount = receiptLog.open();
+            receiptLog.forEach((receipt) -> payloadChecksum.update(BTOBookingReceiptCodec.encode(receipt)));
+            if (recordCount != migration.recordCount() || payloadChecksum.getValue() != migration.payloadChecksum()) {
+                throw new IOException("Verification failed, wrote " + migration.recordCount() + " receipts but read "
+                        + recordCount + " back from " + logDirectory + ".");
+            }
+        }
+        Files.move(file.toPath(), new File(file.getPath() + LEGACY_SUFFIX).toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        report(file, "booking receipts", migration, start);
+    }
+
+    /**
+     * Check if a file is a serialized Java object stream.
+     *
+     * @param file file to check.
+     * @return true if the file starts with the object stream header.
+     */
+    private static boolean isLegacyFile(File file) {
+        if (!file.exists() || file.length() < 4) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readShort() == ObjectStreamConstants.STREAM_MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Read a serialized list, handing each element of the given type to the handler as soon as
+     * it is deserialized. Handled elements are left out of the list, so it stays empty, but the
+     * stream still holds every object it read until it is closed, see {@link LegacyFileMigrator}.
+     *
+     * @param file    legacy file.
+     * @param type    type of the list elements.
+     * @param handler handler of the elements.
+     * @param <T>     type of the list elements.
+     */
+    private static <T> void readLegacyFile(File file, Class<T> type, ObjectHandler<T> handler)
+            throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file))) {
+            {
+                enableResolveObject(true);
+            }
+
+            @Override
+            protected Object resolveObject(Object obj) throws IOException {
+                if (type.isInstance(obj)) {
+                    handler.handle(type.cast(obj));
+                    return null;
+                }
+                return obj;
+            }
+        }) {
+            ois.readObject();
+        }
+    }
+
+    /**
+     * Print the number of records migrated and the throughput.
+     */
+    private static void report(File file, String name, Migration migration, long startNanos) {
+        final double seconds = Math.max((System.nanoTime() - startNanos) / 1e9, 1e-9);
+        final long legacyBytes = new File(file.getPath() + LEGACY_SUFFIX).length();
+        System.out.println(BashColors.format(String.format(
+                "[Migration] Migrated %d %s from %s in %.2f s (%.0f records/s, %.1f MB/s), verified",
+                migration.recordCount(), name, file.getName(), seconds,
+                migration.recordCount() / seconds, legacyBytes / seconds / (1024 * 1024)), BashColors.GREEN));
+    }
+}
@@ -3,17 +3,26 @@ package com.group6;
 import com.group6.btoproject.*;
 import com.group6.users.*;
 import com.group6.utils.BashColors;
+import com.group6.utils.Storage;
 import com.group6.views.MenuView;
 import com.group6.views.ViewContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Main entry point for the BTO application.
  */
 public class Main {
 
+    private static final long CHECKPOINT_INTERVAL_MILLIS = 30_000;
+    private static final long CHECKPOINT_DIRTY_THRESHOLD = 50;
+
     /**
      * Entry to the application.
      *
@@ -29,30 +38,129 @@ public class Main {
         final UserStorage userStorage = new UserStorage(
                 "applicants.txt",
                 "officers.txt",
-                "managers.txt"
+                "managers.txt",
+                "users.txt"
         );
-        final BTOProjectStorage projectStorage = new BTOProjectStorage(
-                "projects.txt"
+        // Mapped files cannot be replaced while mapped on Windows, see MappedBTOProjectStorage.
+        final boolean isWindows = System.getProperty("os.name").toLowerCase().startsWith("windows");
+        final BTOProjectStorage projectStorage = isWindows
+                ? new BTOProjectStorage("projects.txt")
+                : new MappedBTOProjectStorage("projects.txt");
+        // Project children are only loaded once a project is used.
+        projectStorage.setLazyLoading(true);
+        projectStorage.setIncrementalSaves(true);
+        final BTOBookingReceiptLog receiptLog = new BTOBookingReceiptLog(
+                "booking-receipts"
         );
+        // Only read, to move receipts saved by older versions into the log.
         final BTOBookingReceiptStorage receiptsStorage = new BTOBookingReceiptStorage(
                 "booking-receipts.txt"
         );
 
+        final BTOMutationLog mutationLog = new BTOMutationLog(
+                "projects.log"
+        );
+
+        // Load all files concurrently, and only wire the managers once everything is loaded.
+        final long startupStart = System.nanoTime();
+        final ExecutorService loaders = Executors.newFixedThreadPool(3);
+        final CompletableFuture<List<User>> users = loadAsync("Users", userStorage, loaders);
+        final CompletableFuture<List<BTOProject>> projects = loadAsync("BTO Projects", projectStorage, loaders);
+        final CompletableFuture<Void> receipts = CompletableFuture.runAsync(() -> openReceiptLog(receiptLog, receiptsStorage), loaders);
+        CompletableFuture.allOf(users, projects, receipts).join();
+        loaders.shutdown();
+        System.out.println(BashColors.format("[Startup] Loaded all data in " + elapsedMillis(startupStart) + " ms", BashColors.YELLOW));
+
         final BTOProjectManager projectManager = new BTOProjectManager(projectStorage, receiptsStorage);
-        projectManager.setProjects(projectStorage.loadAll());
-        projectManager.setReceipts(receiptsStorage.loadAll());
+        projectManager.setProjects(projects.join());
+        projectManager.setBookingReceiptLog(receiptLog);
+        // Replay mutations made since the last snapshot, then start logging.
+        final int replayed = mutationLog.replay(projectManager);
+        if (replayed > 0) {
+            System.out.println(BashColors.format("[Mutation Log] Replayed " + replayed + " mutations", BashColors.YELLOW));
+        }
+        projectManager.setMutationLog(mutationLog);
 
         final UserManager userManager = new UserManager(userStorage);
-        userManager.setUsers(userStorage.loadAll());
+        userManager.setUsers(users.join());
         final BTOSystem btoSystem = new BTOSystem(projectManager, userManager);
 
+        // Save in the background while the application is running.
+        final Checkpointer checkpointer = new Checkpointer(projectManager, userManager,
+                projectStorage, userStorage,
+                CHECKPOINT_INTERVAL_MILLIS, CHECKPOINT_DIRTY_THRESHOLD);
+        checkpointer.start();
+
         final ViewContext ctx = new ViewContext(btoSystem, new Scanner(System.in));
         ctx.startFromView(new MenuView());
 
         // Save on close
+        checkpointer.close();
         userStorage.saveAll(new ArrayList<>(userManager.getUsers().values()));
-        projectStorage.saveAll(new ArrayList<>(projectManager.getProjects().values()));
-        receiptsStorage.saveAll(new ArrayList<>(projectManager.getBookingReceipts()));
+        try {
+            projectStorage.saveChanges(projectStorage.collectChanges(projectManager.getProjects().values()));
+            // Snapshots now contain every logged mutation.
+            mutationLog.reset();
+        } catch (IOException e) {
+            // Keep the log, it is replayed on the next start.
+            System.err.println(BashColors.format("Error saving projects: " + e.getMessage(), BashColors.RED));
+        }
+        mutationLog.close();
+        try {
+            receiptLog.close();
+        } catch (IOException e) {
+            System.err.println(BashColors.format("Error closing booking receipts: " + e.getMessage(), BashColors.RED));
+        }
+    }
+
+    /**
+     * Load all data from a storage on the executor, and report how long it took.
+     *
+     * @param name     name of the data, for the report.
+     * @param storage  storage to load from.
+     * @param executor executor to load on.
+     * @param <T>      type of data.
+     * @return future of the loaded data.
+     */
+    private static <T> CompletableFuture<List<T>> loadAsync(String name, Storage<T> storage, ExecutorService executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            final long start = System.nanoTime();
+            final List<T> data = storage.loadAll();
+            System.out.println(BashColors.format(
+                    "[Startup] Loaded " + data.size() + " " + name + " in " + elapsedMillis(start) + " ms",
+                    BashColors.YELLOW));
+            return data;
+        }, executor);
+    }
+
+    /**
+     * Open the booking receipt log, and report how long it took.
+     * Receipts saved by older versions are appended to the log, and their file is then kept
+     * with a .legacy suffix, see {@link BTOBookingReceiptStorage#moveToLegacy()}.
+     *
+     * @param receiptLog      log to open.
+     * @param receiptsStorage storage receipts were saved to by older versions.
+     */
+    private static void openReceiptLog(BTOBookingReceiptLog receiptLog, BTOBookingReceiptStorage receiptsStorage) {
+        final long start = System.nanoTime();
+        try {
+            long count = receiptLog.open();
+            // Receipts already in the log are skipped, so an import cut short by a crash
+            // carries on from where it stopped on the next start.
+            if (receiptsStorage.exists()) {
+                count += receiptLog.appendAll(receiptsStorage.read());
+                receiptsStorage.moveToLegacy();
+            }
+            System.out.println(BashColors.format(
+                    "[Startup] Loaded " + count + " Booking Receipts in " + elapsedMillis(start) + " ms",
+                    BashColors.YELLOW));
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println(BashColors.format("Error loading booking receipts: " + e.getMessage(), BashColors.RED));
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
     }
 
-}
\ No newline at end of file
+}
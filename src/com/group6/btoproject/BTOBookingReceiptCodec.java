@@ -0,0 +1,141 @@
+package com.group6.btoproject;
+
+import com.group6.users.UserMaritalStatus;
+import com.group6.utils.BinaryReader;
+import com.group6.utils.BinaryWriter;
+
+import java.io.IOException;
+
+/**
+ * Binary encoding of {@link BTOBookingReceipt}, replacing java.io serialization.
+ * Uses the same versioned, tagged layout as {@link BTOProjectCodec}.
+ */
+public final class BTOBookingReceiptCodec {
+
+    /**
+     * Current schema version, written at the start of every record.
+     */
+    public static final int SCHEMA_VERSION = 1;
+
+    private static final int RECEIPT_ID = 1;
+    private static final int RECEIPT_APPLICATION_ID = 2;
+    private static final int RECEIPT_PROJECT_ID = 3;
+    private static final int RECEIPT_USER_ID = 4;
+    private static final int RECEIPT_APPLICANT_NAME = 5;
+    private static final int RECEIPT_PROJECT_NAME = 6;
+    private static final int RECEIPT_PROJECT_NEIGHBOURHOOD = 7;
+    private static final int RECEIPT_NRIC = 8;
+    private static final int RECEIPT_MARITAL_STATUS = 9;
+    private static final int RECEIPT_TYPE_ID = 10;
+    private static final int RECEIPT_DATE_OF_BOOKING = 11;
+    private static final int RECEIPT_PRICE = 12;
+
+    private BTOBookingReceiptCodec() {
+    }
+
+    /**
+     * Encode a receipt.
+     *
+     * @param receipt receipt.
+     * @return encoded receipt.
+     */
+    public static byte[] encode(BTOBookingReceipt receipt) {
+        final BinaryWriter writer = new BinaryWriter(192);
+        encode(writer, receipt);
+        return writer.toByteArray();
+    }
+
+    /**
+     * Encode a receipt into a writer.
+     *
+     * @param writer  writer.
+     * @param receipt receipt.
+     */
+    public static void encode(BinaryWriter writer, BTOBookingReceipt receipt) {
+        writer.writeByte(SCHEMA_VERSION);
+        writer.writeIdField(RECEIPT_ID, receipt.getId());
+        writer.writeIdField(RECEIPT_APPLICATION_ID, receipt.getApplicationId());
+        writer.writeIdField(RECEIPT_PROJECT_ID, receipt.getProjectId());
+        writer.writeIdField(RECEIPT_USER_ID, receipt.getUserId());
+        writer.writeStringField(RECEIPT_APPLICANT_NAME, receipt.getApplicantName());
+        writer.writeStringField(RECEIPT_PROJECT_NAME, receipt.getProjectName());
+        writer.writeStringField(RECEIPT_PROJECT_NEIGHBOURHOOD, receipt.getProjectNeighbourhood());
+        writer.writeStringField(RECEIPT_NRIC, receipt.getNric());
+        writer.writeEnumField(RECEIPT_MARITAL_STATUS, receipt.getMaritalStatus());
+        writer.writeEnumField(RECEIPT_TYPE_ID, receipt.getTypeID());
+        writer.writeLongField(RECEIPT_DATE_OF_BOOKING, receipt.getDateOfBooking());
+        writer.writeDoubleField(RECEIPT_PRICE, receipt.getPrice());
+        writer.endStruct();
+    }
+
+    /**
+     * Decode a receipt.
+     *
+     * @param bytes encoded receipt.
+     * @return receipt.
+     * @throws IOException if the data is malformed.
+     */
+    public static BTOBookingReceipt decode(byte[] bytes) throws IOException {
+        return decode(new BinaryReader(bytes));
+    }
+
+    /**
+     * Decode a receipt from a reader.
+     *
+     * @param reader reader positioned at the start of the record.
+     * @return receipt.
+     * @throws IOException if the data is malformed.
+     */
+    public static BTOBookingReceipt decode(BinaryReader reader) throws IOException {
+        final int version = reader.readByte();
+        if (version < 1) {
+            throw new IOException("Unsupported receipt schema version " + version + ".");
+        }
+
+        String id = null;
+        String applicationId = null;
+        String projectId = null;
+        String userId = null;
+        String applicantName = null;
+        String projectName = null;
+        String projectNeighbourhood = null;
+        String nric = null;
+        UserMaritalStatus maritalStatus = null;
+        BTOProjectTypeID typeId = null;
+        long dateOfBooking = 0;
+        double price = 0;
+
+        int key;
+        while ((key = reader.readKey()) != BinaryWriter.END) {
+            switch (BinaryReader.tagOf(key)) {
+                case RECEIPT_ID -> id = reader.readIdField(key);
+                case RECEIPT_APPLICATION_ID -> applicationId = reader.readIdField(key);
+                case RECEIPT_PROJECT_ID -> projectId = reader.readIdField(key);
+                case RECEIPT_USER_ID -> userId = reader.readIdField(key);
+                case RECEIPT_APPLICANT_NAME -> applicantName = reader.readStringField(key);
+                case RECEIPT_PROJECT_NAME -> projectName = reader.readStringField(key);
+                case RECEIPT_PROJECT_NEIGHBOURHOOD -> projectNeighbourhood = reader.readStringField(key);
+                case RECEIPT_NRIC -> nric = reader.readStringField(key);
+                case RECEIPT_MARITAL_STATUS -> maritalStatus = reader.readEnumField(key, UserMaritalStatus.values());
+                case RECEIPT_TYPE_ID -> typeId = reader.readEnumField(key, BTOProjectTypeID.values());
+                case RECEIPT_DATE_OF_BOOKING -> dateOfBooking = reader.readLongField(key);
+                case RECEIPT_PRICE -> price = reader.readDoubleField(key);
+                default -> reader.skipField(key);
+            }
+        }
+        if (id == null || userId == null) {
+            throw new IOException("Receipt record is missing its id or user.");
+        }
+
+        final BTOBookingReceipt receipt = new BTOBookingReceipt(id, applicationId, projectId, userId);
+        receipt.setApplicantName(applicantName);
+        receipt.setProjectName(projectName);
+        receipt.setProjectNeighbourhood(projectNeighbourhood);
+        receipt.setNric(nric);
+        receipt.setMaritalStatus(maritalStatus);
+        receipt.setTypeID(typeId);
+        receipt.setDateOfBooking(dateOfBooking);
+        receipt.setPrice(price);
+        return receipt;
+    }
+}
@@ -0,0 +1,188 @@
+package com.group6.btoproject;
+
+import com.group6.utils.SegmentedLog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Append-only store of {@link BTOBookingReceipt} objects.
+ * <p>
+ * Receipts are never changed once generated, so each one is appended to a
+ * {@link SegmentedLog} keyed by the receipt's user id, encoded with {@link BTOBookingReceiptCodec}.
+ * A user's receipts are read through the segment indexes, so receipts are not held in memory,
+ * and neither startup nor saving gets slower as booking history grows.
+ * </p>
+ * See {@link BTOProjectManager#setBookingReceiptLog(BTOBookingReceiptLog)}.
+ */
+public class BTOBookingReceiptLog implements Closeable {
+
+    /**
+     * Default size in bytes after which a new segment is started.
+     */
+    public static final long SEGMENT_SIZE_LIMIT = 4 * 1024 * 1024;
+
+    private final SegmentedLog log;
+
+    /**
+     * Constructor for BTOBookingReceiptLog.
+     *
+     * @param directory name of the directory to store the log in.
+     */
+    public BTOBookingReceiptLog(String directory) {
+        this(directory, SEGMENT_SIZE_LIMIT);
+    }
+
+    /**
+     * Constructor for BTOBookingReceiptLog.
+     *
+     * @param directory        name of the directory to store the log in.
+     * @param segmentSizeLimit size in bytes after which a new segment is started.
+     */
+    public BTOBookingReceiptLog(String directory, long segmentSizeLimit) {
+        this.log = new SegmentedLog(directory, segmentSizeLimit);
+    }
+
+    /**
+     * Open the log, loading its indexes.
+     *
+     * @return number of receipts in the log.
+     * @throws IOException if the log cannot be read.
+     */
+    public long open() throws IOException {
+        log.open();
+        return log.size();
+    }
+
+    /**
+     * Number of receipts in the log.
+     *
+     * @return number of receipts.
+     * @throws IOException if the log cannot be read.
+     */
+    public long size() throws IOException {
+        return log.size();
+    }
+
+    /**
+     * Append a receipt, forcing it to disk.
+     *
+     * @param receipt receipt to append.
+     * @throws IOException if the receipt cannot be written.
+     */
+    public void append(BTOBookingReceipt receipt) throws IOException {
+        log.append(receipt.getUserId(), BTOBookingReceiptCodec.encode(receipt));
+    }
+
+    /**
+     * Append a receipt.
+     *
+     * @param receipt receipt to append.
+     * @param force   true to force the receipt to disk, otherwise call {@link #force()}
+     *                after appending a batch of receipts.
+     * @throws IOException if the receipt cannot be written.
+     */
+    public void append(BTOBookingReceipt receipt, boolean force) throws IOException {
+        log.append(receipt.getUserId(), BTOBookingReceiptCodec.encode(receipt), force);
+    }
+
+    /**
+     * Force appended receipts to disk.
+     *
+     * @throws IOException if the receipts cannot be forced.
+     */
+    public void force() throws IOException {
+        log.force();
+    }
+
+    /**
+     * Append receipts that are not in the log yet, such as receipts loaded
+     * from a {@link BTOBookingReceiptStorage} file.
+     * <p>
+     * Each user's receipts are read from the log once, and the appended receipts
+     * are forced to disk together at the end.
+     * </p>
+     *
+     * @param receipts receipts to append.
+     * @return number of receipts appended.
+     * @throws IOException if the log cannot be read or written.
+     */
+    public synchronized int appendAll(List<BTOBookingReceipt> receipts) throws IOException {
+        final Map<String, Set<String>> receiptIdsByUser = new HashMap<>();
+        int appended = 0;
+        for (BTOBookingReceipt receipt : receipts) {
+            Set<String> receiptIds = receiptIdsByUser.get(receipt.getUserId());
+            if (receiptIds == null) {
+                receiptIds = new HashSet<>();
+                for (BTOBookingReceipt existing : getBookingReceipts(receipt.getUserId())) {
+                    receiptIds.add(existing.getId());
+                }
+                receiptIdsByUser.put(receipt.getUserId(), receiptIds);
+            }
+            if (receiptIds.add(receipt.getId())) {
+                append(receipt, false);
+                appended++;
+            }
+        }
+        if (appended > 0) {
+            force();
+        }
+        return appended;
+    }
+
+    /**
+     * Check if a receipt is in the log, by id.
+     *
+     * @param receipt receipt to check.
+     * @return true if a receipt with the same id and user is in the log.
+     * @throws IOException if the log cannot be read.
+     */
+    public boolean contains(BTOBookingReceipt receipt) throws IOException {
+        return getBookingReceipts(receipt.getUserId()).stream()
+                .anyMatch((existing) -> existing.getId().equals(receipt.getId()));
+    }
+
+    /**
+     * Get all booking receipts of a user, in the order they were generated.
+     *
+     * @param userId id of the user.
+     * @return receipts of the user.
+     * @throws IOException if the log cannot be read.
+     */
+    public List<BTOBookingReceipt> getBookingReceipts(String userId) throws IOException {
+        final List<byte[]> payloads = log.read(userId);
+        final List<BTOBookingReceipt> receipts = new ArrayList<>(payloads.size());
+        for (byte[] payload : payloads) {
+            receipts.add(BTOBookingReceiptCodec.decode(payload));
+        }
+        return receipts;
+    }
+
+    /**
+     * Read every receipt, in the order they were generated.
+     * Receipts are streamed from the log, one at a time.
+     *
+     * @param consumer consumer of the receipts.
+     * @throws IOException if the log cannot be read.
+     */
+    public void forEach(Consumer<BTOBookingReceipt> consumer) throws IOException {
+        log.forEach((userId, payload) -> consumer.accept(BTOBookingReceiptCodec.decode(payload)));
+    }
+
+    /**
+     * Close the log.
+     *
+     * @throws IOException if the log cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+}
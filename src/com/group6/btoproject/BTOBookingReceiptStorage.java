@@ -1,18 +1,40 @@
 package com.group6.btoproject;
 
 import com.group6.utils.BashColors;
+import com.group6.utils.BlockCompressedFile;
+import com.group6.utils.ChunkedDecoder;
+import com.group6.utils.RecordFile;
 import com.group6.utils.Storage;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
 
 /**
  * Storage class for {@link BTOBookingReceipt} objects.
+ * <p>
+ * Receipts are stored as one record per receipt in a {@link RecordFile},
+ * encoded with {@link BTOBookingReceiptCodec}.
+ * Files in the old format (a single serialized list) are still read, and
+ * are converted on the next save.
+ * </p>
+ * With compression, the file is written as a {@link BlockCompressedFile} snapshot instead,
+ * and every save rewrites the whole file.
  */
 public class BTOBookingReceiptStorage implements Storage<BTOBookingReceipt> {
 
+    private static final String LEGACY_SUFFIX = ".legacy";
+
     private final String filename;
+    private final RecordFile recordFile;
+    private final BlockCompressedFile compressedFile;
+    private boolean compressed = false;
 
     /**
      * Constructor for BTOBookingReceiptStorage.
@@ -21,6 +43,37 @@ public class BTOBookingReceiptStorage implements Storage<BTOBookingReceipt> {
      */
     public BTOBookingReceiptStorage(String filename) {
         this.filename = filename;
+        this.recordFile = new RecordFile(filename);
+        this.compressedFile = new BlockCompressedFile(filename, Deflater.BEST_SPEED);
+    }
+
+    /**
+     * Compressed getter.
+     *
+     * @return {@link #compressed}
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Compressed setter.
+     * Files are loaded in either format, this only decides the format of the next save.
+     *
+     * @param compressed true to save the file as a compressed snapshot.
+     */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    /**
+     * Check if the file exists and is not empty.
+     *
+     * @return true if there is a file to load.
+     */
+    public boolean exists() {
+        final File file = new File(filename);
+        return file.exists() && file.length() > 0;
     }
 
     /**
@@ -30,28 +83,81 @@ public class BTOBookingReceiptStorage implements Storage<BTOBookingReceipt> {
      */
     @Override
     public List<BTOBookingReceipt> loadAll() {
+        if (!exists()) {
+            System.out.println(BashColors.format("[Booking Receipts] No data found in " + filename, BashColors.RED));
+            return new ArrayList<>();
+        }
+        try {
+            return read();
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println("Error loading booking receipts: " + e.getMessage());
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Reads all booking receipts from the file.
+     * Unlike {@link #loadAll()}, errors are thrown, so the caller can tell an
+     * unreadable file from an empty one.
+     *
+     * @return A list of booking receipts, empty if there is no file.
+     * @throws IOException            if the file cannot be read.
+     * @throws ClassNotFoundException if an old format file contains unknown classes.
+     */
+    public List<BTOBookingReceipt> read() throws IOException, ClassNotFoundException {
         File file = new File(filename);
         List<BTOBookingReceipt> receipts = new ArrayList<>();
+        if (!exists()) {
+            return receipts;
+        }
+        if (recordFile.isRecordFile()) {
+            final Map<String, byte[]> records = recordFile.readAll();
+            recordFile.getLastRecovery().ifPresent((recovery) -> System.out.println(BashColors.format(
+                    "[Booking Receipts] Recovered " + filename + ": dropped " + recovery.droppedRecords()
+                            + " damaged receipts and " + recovery.truncatedBytes()
+                            + " bytes of a partially saved receipt",
+                    BashColors.RED)));
+            receipts.addAll(ChunkedDecoder.decodeAll(new ArrayList<>(records.values()),
+                    BTOBookingReceiptCodec::decode));
+        } else if (compressedFile.isBlockCompressedFile()) {
+            receipts.addAll(ChunkedDecoder.decodeAll(new ArrayList<>(compressedFile.readAll().values()),
+                    BTOBookingReceiptCodec::decode));
+        } else {
+            receipts.addAll(loadLegacy(file));
+        }
+        return receipts;
+    }
+
+    /**
+     * Keep the file with a .legacy suffix, once its receipts have been moved
+     * into a {@link BTOBookingReceiptLog}, so they are not imported again.
+     *
+     * @throws IOException if the file cannot be renamed.
+     */
+    public void moveToLegacy() throws IOException {
+        Files.move(Paths.get(filename), Paths.get(filename + LEGACY_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+    }
 
-        if (file.exists() && file.length() > 0) {
-            try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-                Object obj = ois.readObject();
-                if (obj instanceof List<?>) {
-                    List<?> list = (List<?>) obj;
-                    for (Object item : list) {
-                        if (item instanceof BTOBookingReceipt) {
-                            receipts.add((BTOBookingReceipt) item);
-                        }
+    /**
+     * Loads receipts saved in the old format, a single serialized list.
+     *
+     * @param file file to load from.
+     * @return A list of booking receipts.
+     */
+    private List<BTOBookingReceipt> loadLegacy(File file) throws IOException, ClassNotFoundException {
+        List<BTOBookingReceipt> receipts = new ArrayList<>();
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
+            Object obj = ois.readObject();
+            if (obj instanceof List<?>) {
+                List<?> list = (List<?>) obj;
+                for (Object item : list) {
+                    if (item instanceof BTOBookingReceipt) {
+                        receipts.add((BTOBookingReceipt) item);
                     }
                 }
-            } catch (IOException | ClassNotFoundException e) {
-                System.err.println("Error loading booking receipts: " + e.getMessage());
-                e.printStackTrace();
             }
-        } else {
-            System.out.println(BashColors.format("[Booking Receipts] No data found in " + filename, BashColors.RED));
         }
-
         return receipts;
     }
 
@@ -62,8 +168,12 @@ public class BTOBookingReceiptStorage implements Storage<BTOBookingReceipt> {
      */
     @Override
     public void saveAll(List<BTOBookingReceipt> data) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filename))) {
-            oos.writeObject(data);
+        try {
+            final Map<String, byte[]> records = new LinkedHashMap<>();
+            for (BTOBookingReceipt receipt : data) {
+                records.put(receipt.getId(), BTOBookingReceiptCodec.encode(receipt));
+            }
+            writeAll(records);
         } catch (IOException e) {
             System.err.println("Error saving booking receipts: " + e.getMessage());
             e.printStackTrace();
@@ -78,23 +188,38 @@ public class BTOBookingReceiptStorage implements Storage<BTOBookingReceipt> {
      */
     @Override
     public void save(BTOBookingReceipt data) {
-        List<BTOBookingReceipt> existingReceipts = loadAll();
-
-        // Check if the receipt with the same ID already exists
-        boolean updated = false;
-        for (int i = 0; i < existingReceipts.size(); i++) {
-            if (existingReceipts.get(i).getId().equals(data.getId())) {
-                existingReceipts.set(i, data);
-                updated = true;
-                break;
+        try {
+            if (compressed) {
+                final Map<String, byte[]> records = new LinkedHashMap<>();
+                for (BTOBookingReceipt receipt : loadAll()) {
+                    records.put(receipt.getId(), BTOBookingReceiptCodec.encode(receipt));
+                }
+                records.put(data.getId(), BTOBookingReceiptCodec.encode(data));
+                writeAll(records);
+                return;
             }
+            final File file = new File(filename);
+            if (file.exists() && file.length() > 0 && !recordFile.isRecordFile()) {
+                saveAll(compressedFile.isBlockCompressedFile() ? loadAll() : loadLegacy(file));
+            }
+            recordFile.put(data.getId(), BTOBookingReceiptCodec.encode(data));
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println("Error saving booking receipts: " + e.getMessage());
+            e.printStackTrace();
         }
+    }
 
-        // If not found, add it as a new receipt
-        if (!updated) {
-            existingReceipts.add(data);
+    /**
+     * Replaces the whole file, compressed or as a record file.
+     *
+     * @param records records to write, keyed by receipt id.
+     */
+    private void writeAll(Map<String, byte[]> records) throws IOException {
+        if (compressed) {
+            compressedFile.writeAll(records);
+            recordFile.clearIndex();
+        } else {
+            recordFile.writeAll(records);
         }
-
-        saveAll(existingReceipts);
     }
 }
@@ -29,13 +29,15 @@ public class BTOEnquiry implements Serializable {
     private BTOEnquiryMessage responseMessage;
 
     /**
+     * Protected, only accessible by classes in the same package.
+     * Use {@link #create(BTOEnquiryMessage, BTOEnquiryMessage)} for new enquiries.
      * Constructor for Enquiry.
      *
      * @param id              id of the enquiry.
      * @param senderMessage   sender message.
      * @param responseMessage response message. NULLABLE!
      */
-    private BTOEnquiry(String id, BTOEnquiryMessage senderMessage, BTOEnquiryMessage responseMessage) {
+    protected BTOEnquiry(String id, BTOEnquiryMessage senderMessage, BTOEnquiryMessage responseMessage) {
         this.id = id;
         this.senderMessage = senderMessage;
         this.responseMessage = responseMessage;
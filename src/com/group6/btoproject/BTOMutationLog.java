@@ -0,0 +1,511 @@
+package com.group6.btoproject;
+
+import com.group6.utils.BashColors;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of {@link BTOProjectManager} mutations.
+ * <p>
+ * Every successful mutation is appended as a small record so that a session
+ * is not lost if the application stops before the snapshots are saved. On startup,
+ * the log is replayed on top of the last snapshot with {@link #replay(BTOProjectManager)}.
+ * Once a new snapshot is saved, the log can be cleared with {@link #reset()}, or
+ * with {@link #discardBefore(long)} if mutations may have been logged since the
+ * snapshot was taken.
+ * </p>
+ * <p>
+ * Records are written straight to the file channel, but fsync is batched: the log is
+ * forced to disk once {@link #maxUnsyncedRecords} records are pending, or by a background
+ * flusher every {@link #syncIntervalMillis} milliseconds, whichever comes first.
+ * </p>
+ * Record layout: [int payload length][int CRC32 of payload][payload].
+ * Only mutations made through the manager are logged, edits made directly on a
+ * {@link BTOProject} (name, application window, enquiries, ...) are only saved by the next
+ * snapshot. Replaying a record already contained in the snapshot is skipped, so a project
+ * that was added and then edited keeps its edits rather than being replaced by the added copy.
+ */
+public class BTOMutationLog implements Closeable {
+
+    private static final byte PROJECT_ADDED = 1;
+    private static final byte PROJECT_DELETED = 2;
+    private static final byte APPLICATION_ADDED = 3;
+    private static final byte APPLICATION_STATUS_CHANGED = 4;
+    private static final byte OFFICER_REGISTRATION_ADDED = 5;
+    private static final byte OFFICER_REGISTRATION_STATUS_CHANGED = 6;
+    private static final byte WITHDRAWAL_ADDED = 7;
+    private static final byte WITHDRAWAL_STATUS_CHANGED = 8;
+    private static final byte BOOKING_RECEIPT_ADDED = 9;
+
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private final File file;
+    private final long syncIntervalMillis;
+    private final int maxUnsyncedRecords;
+    private FileChannel channel;
+    private ScheduledExecutorService flusher;
+    private int unsyncedRecords = 0;
+
+    /**
+     * Constructor for BTOMutationLog.
+     * Syncs every 100 ms or every 64 records.
+     *
+     * @param filename The name of the log file.
+     */
+    public BTOMutationLog(String filename) {
+        this(filename, 100, 64);
+    }
+
+    /**
+     * Constructor for BTOMutationLog.
+     *
+     * @param filename           The name of the log file.
+     * @param syncIntervalMillis Max time a record may stay unsynced.
+     * @param maxUnsyncedRecords Max number of records that may stay unsynced.
+     */
+    public BTOMutationLog(String filename, long syncIntervalMillis, int maxUnsyncedRecords) {
+        this.file = new File(filename);
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.maxUnsyncedRecords = maxUnsyncedRecords;
+    }
+
+    /**
+     * Replays the log on top of the manager's current state.
+     * A torn or corrupted tail (e.g. from a crash mid-write) is truncated: a record with a
+     * bad length or checksum, or cut short, and everything after it.
+     * A record that passes its checksum but cannot be applied is logged and skipped, and is
+     * never truncated, nor are the records after it.
+     *
+     * @param manager manager to apply the records to.
+     * @return number of records replayed.
+     */
+    public synchronized int replay(BTOProjectManager manager) {
+        if (!file.exists() || file.length() == 0) {
+            return 0;
+        }
+
+        int replayed = 0;
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            final long fileLength = file.length();
+            final CRC32 crc = new CRC32();
+            while (validLength + RECORD_HEADER_SIZE <= fileLength) {
+                final int length = in.readInt();
+                final int checksum = in.readInt();
+                if (length <= 0 || validLength + RECORD_HEADER_SIZE + length > fileLength) {
+                    break;
+                }
+                final byte[] payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                try {
+                    apply(manager, payload);
+                    replayed++;
+                } catch (IOException | RuntimeException e) {
+                    System.err.println(BashColors.format("[Mutation Log] Skipped a record at byte " + validLength
+                            + " of " + file.getName() + " that could not be applied: " + e.getMessage(),
+                            BashColors.RED));
+                }
+                validLength += RECORD_HEADER_SIZE + length;
+            }
+        } catch (IOException e) {
+            System.err.println(BashColors.format("Error replaying mutation log: " + e.getMessage(), BashColors.RED));
+        }
+
+        if (validLength < file.length()) {
+            System.out.println(BashColors.format("[Mutation Log] Dropped " + (file.length() - validLength)
+                    + " bytes of incomplete records from " + file.getName(), BashColors.YELLOW));
+            try (FileChannel truncateChannel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                truncateChannel.truncate(validLength);
+            } catch (IOException e) {
+                System.err.println(BashColors.format("Error truncating mutation log: " + e.getMessage(), BashColors.RED));
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * Applies a single record to the manager.
+     * Records that refer to missing projects or entities that already exist are skipped,
+     * including added projects that are already in the snapshot.
+     *
+     * @param manager manager to apply the record to.
+     * @param payload record payload.
+     */
+    private void apply(BTOProjectManager manager, byte[] payload) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        final byte type = in.readByte();
+        if (type == PROJECT_ADDED) {
+            final BTOProject project = BTOProjectCodec.decode(readBytes(in));
+            if (manager.getProject(project.getId()).isEmpty()) {
+                manager.setProjects(List.of(project));
+            }
+            return;
+        }
+        if (type == BOOKING_RECEIPT_ADDED) {
+            manager.restoreBookingReceipt(BTOBookingReceiptCodec.decode(readBytes(in)));
+            return;
+        }
+
+        final Optional<BTOProject> projectOpt = manager.getProject(in.readUTF());
+        if (projectOpt.isEmpty()) {
+            return;
+        }
+        final BTOProject project = projectOpt.get();
+        switch (type) {
+            case PROJECT_DELETED -> manager.removeProject(project.getId());
+            case APPLICATION_ADDED -> {
+                final String id = in.readUTF();
+                final String applicantUserId = in.readUTF();
+                final BTOProjectTypeID typeId = BTOProjectTypeID.valueOf(in.readUTF());
+                final BTOApplicationStatus status = BTOApplicationStatus.valueOf(in.readUTF());
+                manager.restoreApplication(project, new BTOApplication(id, applicantUserId, typeId, status));
+            }
+            case APPLICATION_STATUS_CHANGED -> {
+                final String id = in.readUTF();
+                final BTOApplicationStatus status = BTOApplicationStatus.valueOf(in.readUTF());
+                project.getApplication(id)
+                        .ifPresent((application) -> manager.restoreApplicationStatus(project, application, status));
+            }
+            case OFFICER_REGISTRATION_ADDED -> {
+                final String id = in.readUTF();
+                final String officerUserId = in.readUTF();
+                final HDBOfficerRegistrationStatus status = HDBOfficerRegistrationStatus.valueOf(in.readUTF());
+                manager.restoreOfficerRegistration(project, new HDBOfficerRegistration(id, officerUserId, status));
+            }
+            case OFFICER_REGISTRATION_STATUS_CHANGED -> {
+                final String id = in.readUTF();
+                final HDBOfficerRegistrationStatus status = HDBOfficerRegistrationStatus.valueOf(in.readUTF());
+                project.getOfficerRegistration(id)
+                        .ifPresent((registration) -> project.setOfficerRegistrationStatus(registration, status));
+            }
+            case WITHDRAWAL_ADDED -> {
+                final String id = in.readUTF();
+                final String applicationId = in.readUTF();
+                final BTOApplicationWithdrawalStatus status = BTOApplicationWithdrawalStatus.valueOf(in.readUTF());
+                final long requestedOn = in.readLong();
+                if (project.getWithdrawal(id).isEmpty()) {
+                    project.addWithdrawal(new BTOApplicationWithdrawal(id, applicationId, status, requestedOn));
+                }
+            }
+            case WITHDRAWAL_STATUS_CHANGED -> {
+                final String id = in.readUTF();
+                final BTOApplicationWithdrawalStatus status = BTOApplicationWithdrawalStatus.valueOf(in.readUTF());
+                project.getWithdrawal(id).ifPresent((withdrawal) -> project.setWithdrawalStatus(withdrawal, status));
+            }
+            default -> throw new IOException("Unknown mutation log record type " + type + ".");
+        }
+    }
+
+    /**
+     * Record a newly added project.
+     *
+     * @param project project added.
+     */
+    protected void projectAdded(BTOProject project) {
+        append(PROJECT_ADDED, (out) -> writeBytes(out, BTOProjectCodec.encode(project)));
+    }
+
+    /**
+     * Record a deleted project.
+     *
+     * @param projectId id of the deleted project.
+     */
+    protected void projectDeleted(String projectId) {
+        append(PROJECT_DELETED, (out) -> out.writeUTF(projectId));
+    }
+
+    /**
+     * Record a newly added application.
+     *
+     * @param projectId   project id.
+     * @param application application added.
+     */
+    protected void applicationAdded(String projectId, BTOApplication application) {
+        append(APPLICATION_ADDED, (out) -> {
+            out.writeUTF(projectId);
+            out.writeUTF(application.getId());
+            out.writeUTF(application.getApplicantUserId());
+            out.writeUTF(application.getTypeId().name());
+            out.writeUTF(application.getStatus().name());
+        });
+    }
+
+    /**
+     * Record an application status change.
+     *
+     * @param projectId     project id.
+     * @param applicationId application id.
+     * @param status        new status.
+     */
+    protected void applicationStatusChanged(String projectId, String applicationId, BTOApplicationStatus status) {
+        append(APPLICATION_STATUS_CHANGED, (out) -> {
+            out.writeUTF(projectId);
+            out.writeUTF(applicationId);
+            out.writeUTF(status.name());
+        });
+    }
+
+    /**
+     * Record a newly added officer registration.
+     *
+     * @param projectId    project id.
+     * @param registration registration added.
+     */
+    protected void officerRegistrationAdded(String projectId, HDBOfficerRegistration registration) {
+        append(OFFICER_REGISTRATION_ADDED, (out) -> {
+            out.writeUTF(projectId);
+            out.writeUTF(registration.getId());
+            out.writeUTF(registration.getOfficerUserId());
+            out.writeUTF(registration.getStatus().name());
+        });
+    }
+
+    /**
+     * Record an officer registration status change.
+     *
+     * @param projectId      project id.
+     * @param registrationId registration id.
+     * @param status         new status.
+     */
+    protected void officerRegistrationStatusChanged(String projectId, String registrationId,
+            HDBOfficerRegistrationStatus status) {
+        append(OFFICER_REGISTRATION_STATUS_CHANGED, (out) -> {
+            out.writeUTF(projectId);
+            out.writeUTF(registrationId);
+            out.writeUTF(status.name());
+        });
+    }
+
+    /**
+     * Record a newly added withdrawal.
+     *
+     * @param projectId  project id.
+     * @param withdrawal withdrawal added.
+     */
+    protected void withdrawalAdded(String projectId, BTOApplicationWithdrawal withdrawal) {
+        append(WITHDRAWAL_ADDED, (out) -> {
+            out.writeUTF(projectId);
+            out.writeUTF(withdrawal.getId());
+            out.writeUTF(withdrawal.getApplicationId());
+            out.writeUTF(withdrawal.getStatus().name());
+            out.writeLong(withdrawal.getRequestedOn());
+        });
+    }
+
+    /**
+     * Record a withdrawal status change.
+     *
+     * @param projectId    project id.
+     * @param withdrawalId withdrawal id.
+     * @param status       new status.
+     */
+    protected void withdrawalStatusChanged(String projectId, String withdrawalId,
+            BTOApplicationWithdrawalStatus status) {
+        append(WITHDRAWAL_STATUS_CHANGED, (out) -> {
+            out.writeUTF(projectId);
+            out.writeUTF(withdrawalId);
+            out.writeUTF(status.name());
+        });
+    }
+
+    /**
+     * Record a newly generated booking receipt.
+     *
+     * @param receipt receipt generated.
+     */
+    protected void bookingReceiptAdded(BTOBookingReceipt receipt) {
+        append(BOOKING_RECEIPT_ADDED, (out) -> writeBytes(out, BTOBookingReceiptCodec.encode(receipt)));
+    }
+
+    /**
+     * Writes the record body of a log record.
+     */
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Append a record to the log.
+     *
+     * @param type   record type.
+     * @param writer writes the rest of the record.
+     */
+    private synchronized void append(byte type, RecordWriter writer) {
+        try {
+            final ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(128);
+            final DataOutputStream out = new DataOutputStream(payloadBytes);
+            out.writeByte(type);
+            writer.write(out);
+            out.flush();
+
+            final byte[] payload = payloadBytes.toByteArray();
+            final CRC32 crc = new CRC32();
+            crc.update(payload);
+            final ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length);
+            record.putInt(payload.length);
+            record.putInt((int) crc.getValue());
+            record.put(payload);
+            record.flip();
+
+            final FileChannel channel = getChannel();
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            unsyncedRecords++;
+            if (unsyncedRecords >= maxUnsyncedRecords) {
+                sync();
+            }
+        } catch (IOException e) {
+            System.err.println(BashColors.format("Error writing mutation log: " + e.getMessage(), BashColors.RED));
+        }
+    }
+
+    /**
+     * Opens the log for appending, starting the background flusher.
+     *
+     * @return the log channel.
+     */
+    private FileChannel getChannel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            flusher = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+                final Thread thread = new Thread(runnable, "bto-mutation-log-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::sync, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        return channel;
+    }
+
+    /**
+     * Force all appended records to disk.
+     */
+    public synchronized void sync() {
+        if (channel == null || unsyncedRecords == 0) {
+            return;
+        }
+        try {
+            channel.force(false);
+            unsyncedRecords = 0;
+        } catch (IOException e) {
+            System.err.println(BashColors.format("Error syncing mutation log: " + e.getMessage(), BashColors.RED));
+        }
+    }
+
+    /**
+     * Clear the log. Call this once a snapshot containing every logged
+     * mutation has been saved.
+     */
+    public synchronized void reset() {
+        try {
+            if (channel != null) {
+                channel.truncate(0);
+                channel.force(true);
+                unsyncedRecords = 0;
+            } else if (file.exists()) {
+                new FileOutputStream(file).close();
+            }
+        } catch (IOException e) {
+            System.err.println(BashColors.format("Error resetting mutation log: " + e.getMessage(), BashColors.RED));
+        }
+    }
+
+    /**
+     * Size of the log in bytes. Records logged after this call start at or
+     * after the returned position.
+     *
+     * @return size of the log.
+     */
+    public synchronized long size() {
+        try {
+            return channel != null ? channel.size() : file.length();
+        } catch (IOException e) {
+            return file.length();
+        }
+    }
+
+    /**
+     * Discard records before a position returned by {@link #size()}.
+     * Call this once a snapshot containing every mutation logged before that
+     * position has been saved. The remaining records are copied to a new log,
+     * which is then renamed over the log.
+     *
+     * @param position position returned by {@link #size()}.
+     */
+    public synchronized void discardBefore(long position) {
+        final long size = size();
+        if (position >= size) {
+            reset();
+            return;
+        }
+        if (position <= 0) {
+            return;
+        }
+        close();
+        final File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            try (FileChannel source = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                    FileChannel target = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long copied = 0;
+                while (copied < size - position) {
+                    copied += source.transferTo(position + copied, size - position - copied, target);
+                }
+                target.force(true);
+            }
+            Files.move(tempFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println(BashColors.format("Error discarding mutation log records: " + e.getMessage(), BashColors.RED));
+        }
+    }
+
+    /**
+     * Syncs and closes the log.
+     */
+    @Override
+    public synchronized void close() {
+        sync();
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher = null;
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println(BashColors.format("Error closing mutation log: " + e.getMessage(), BashColors.RED));
+            }
+            channel = null;
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -3,8 +3,10 @@ package com.group6.btoproject;
 import com.group6.users.User;
 import com.group6.users.UserMaritalStatus;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * BTO Project class.
@@ -35,6 +37,42 @@ public class BTOProject implements Serializable {
 
     private boolean isVisibleToPublic = true;
 
+    // Loads enquiries, applications, officer registrations and withdrawals on first access.
+    // Null once they are loaded. See BTOProjectStorage#setLazyLoading(boolean).
+    private transient volatile Consumer<BTOProject> childrenLoader;
+    private transient boolean isHydrating = false;
+    // User ids of the applicants and registered officers, read from the saved header so
+    // managers can index this project before its children are loaded. Null if the record
+    // did not have them, and once the children are loaded.
+    private transient volatile Set<String> savedChildUserIds;
+    // Bumped on every change, so storages can tell which projects need saving.
+    private transient volatile long version = 0;
+    // Snapshots of the manager this project is in, copied into before a change.
+    private transient volatile BTOProjectSnapshot.Registry snapshotRegistry;
+    // Epoch of the newest snapshot this project was copied for, see BTOProjectSnapshot.
+    private transient long copiedEpoch = 0;
+    // Window index of the manager this project is in, told after the window or officers change.
+    private transient volatile BTOProjectWindowIndex windowIndex;
+    // Manager this project is in, told before the project is renamed and after every change.
+    private transient volatile BTOProjectManager projectManager;
+    // Map<Project Type Id, Number of applications by BTOApplicationStatus ordinal>
+    // Not saved, rebuilt from the applications on first use after loading.
+    private transient EnumMap<BTOProjectTypeID, int[]> applicationCounts;
+    // Indexes of the children, kept alongside the lists. Not saved, rebuilt on first use
+    // after loading, see #ensureIndexed(). Null until then.
+    // Map<Application Id, Application>
+    private transient Map<String, BTOApplication> applicationsById;
+    // Map<Applicant User Id, Applications of the applicant, in list order>
+    private transient Map<String, List<BTOApplication>> applicationsByApplicant;
+    // Map<Registration Id, Officer Registration>
+    private transient Map<String, HDBOfficerRegistration> registrationsById;
+    // Map<Officer User Id, Registrations of the officer, in list order>
+    private transient Map<String, List<HDBOfficerRegistration>> registrationsByOfficer;
+    // Map<Withdrawal Id, Withdrawal>
+    private transient Map<String, BTOApplicationWithdrawal> withdrawalsById;
+    // Map<Application Id, Withdrawals of the application, in list order>
+    private transient Map<String, List<BTOApplicationWithdrawal>> withdrawalsByApplication;
+
     /**
      * Constructor for BTOProject.
      *
@@ -68,9 +106,19 @@ public class BTOProject implements Serializable {
      * Name setter.
      *
      * @param name name
+     * @throws RuntimeException If another project of the manager has the name.
      */
-    public void setName(String name) {
-        this.name = name;
+    public void setName(String name) throws RuntimeException {
+        // Outside this project's lock, the manager locks itself before its projects.
+        final BTOProjectManager manager = projectManager;
+        if (manager != null) {
+            manager.renameProject(this, name);
+        }
+        synchronized (this) {
+            beforeChange();
+            this.name = name;
+            markChanged();
+        }
     }
 
     /**
@@ -87,8 +135,10 @@ public class BTOProject implements Serializable {
      *
      * @param neighbourhood neighbourhood
      */
-    public void setNeighbourhood(String neighbourhood) {
+    public synchronized void setNeighbourhood(String neighbourhood) {
+        beforeChange();
         this.neighbourhood = neighbourhood;
+        markChanged();
     }
 
     /**
@@ -125,6 +175,7 @@ public class BTOProject implements Serializable {
      * @return {@link #enquiries}
      */
     public List<BTOEnquiry> getEnquiries() {
+        ensureHydrated();
         return Collections.unmodifiableList(enquiries);
     }
 
@@ -137,6 +188,7 @@ public class BTOProject implements Serializable {
      * @return {@link #applications}
      */
     public List<BTOApplication> getApplications() {
+        ensureHydrated();
         return Collections.unmodifiableList(applications);
     }
 
@@ -147,8 +199,17 @@ public class BTOProject implements Serializable {
      *
      * @param application application to add.
      */
-    protected void addApplication(BTOApplication application) {
+    protected synchronized void addApplication(BTOApplication application) {
+        beforeChange();
+        ensureHydrated();
         applications.add(application);
+        if (applicationsById != null) {
+            indexApplication(application);
+        }
+        if (applicationCounts != null) {
+            countApplication(application.getTypeId(), application.getStatus(), 1);
+        }
+        markChanged();
     }
 
     /**
@@ -159,6 +220,7 @@ public class BTOProject implements Serializable {
      * @return {@link #hdbOfficerRegistrations}
      */
     public List<HDBOfficerRegistration> getHdbOfficerRegistrations() {
+        ensureHydrated();
         return Collections.unmodifiableList(hdbOfficerRegistrations);
     }
 
@@ -170,6 +232,7 @@ public class BTOProject implements Serializable {
      * @return {@link #withdrawals}
      */
     public List<BTOApplicationWithdrawal> getWithdrawals() {
+        ensureHydrated();
         return Collections.unmodifiableList(withdrawals);
     }
 
@@ -179,10 +242,9 @@ public class BTOProject implements Serializable {
      * @param withdrawalId withdrawal id.
      * @return the withdrawal tied to the withdrawal id.
      */
-    public Optional<BTOApplicationWithdrawal> getWithdrawal(String withdrawalId) {
-        return withdrawals.stream()
-                .filter(withdrawal -> withdrawal.getId().equals(withdrawalId))
-                .findFirst();
+    public synchronized Optional<BTOApplicationWithdrawal> getWithdrawal(String withdrawalId) {
+        ensureIndexed();
+        return Optional.ofNullable(withdrawalsById.get(withdrawalId));
     }
 
     /**
@@ -190,9 +252,11 @@ public class BTOProject implements Serializable {
      *
      * @param projectTypes project type to add.
      */
-    public void setProjectTypes(Map<BTOProjectTypeID, BTOProjectType> projectTypes) {
+    public synchronized void setProjectTypes(Map<BTOProjectTypeID, BTOProjectType> projectTypes) {
+        beforeChange();
         this.projectTypes.clear();
         this.projectTypes.putAll(projectTypes);
+        markChanged();
     }
 
     /**
@@ -200,8 +264,10 @@ public class BTOProject implements Serializable {
      *
      * @param projectType project type to add.
      */
-    public void setProjectType(BTOProjectType projectType) {
+    public synchronized void setProjectType(BTOProjectType projectType) {
+        beforeChange();
         projectTypes.put(projectType.getId(), projectType);
+        markChanged();
     }
 
     /**
@@ -209,10 +275,10 @@ public class BTOProject implements Serializable {
      * @param applicantUserId applicant user id.
      * @return true if the applicant is booked for this project.
      */
-    public boolean isApplicantBooked(String applicantUserId) {
-        return applications.stream()
-                .anyMatch((application) -> application.getApplicantUserId().equals(applicantUserId)
-                        && application.getStatus() == BTOApplicationStatus.BOOKED);
+    public synchronized boolean isApplicantBooked(String applicantUserId) {
+        ensureIndexed();
+        return applicationsByApplicant.getOrDefault(applicantUserId, List.of()).stream()
+                .anyMatch((application) -> application.getStatus() == BTOApplicationStatus.BOOKED);
     }
 
     /**
@@ -222,14 +288,44 @@ public class BTOProject implements Serializable {
      * @throws RuntimeException if the project type does not exist.
      */
     public int getBookedCountForType(BTOProjectTypeID typeId) throws RuntimeException {
+        return getApplicationCountForType(typeId, BTOApplicationStatus.BOOKED);
+    }
+
+    /**
+     *
+     * @param typeId type id.
+     * @param status application status.
+     * @return count of applications of the type with the status.
+     * @throws RuntimeException if the project type does not exist.
+     */
+    public synchronized int getApplicationCountForType(BTOProjectTypeID typeId, BTOApplicationStatus status)
+            throws RuntimeException {
         final BTOProjectType projectType = projectTypes.get(typeId);
         if (projectType == null) {
             throw new RuntimeException("Project type, " + typeId + " does not exist.");
         }
-        return (int) applications.stream()
-                .filter((app) -> app.getStatus() == BTOApplicationStatus.BOOKED
-                        && Objects.equals(app.getTypeId(), typeId))
-                .count();
+        ensureHydrated();
+        if (applicationCounts == null) {
+            applicationCounts = new EnumMap<>(BTOProjectTypeID.class);
+            applications.forEach((application) -> countApplication(application.getTypeId(), application.getStatus(), 1));
+        }
+        final int[] counts = applicationCounts.get(typeId);
+        return counts == null ? 0 : counts[status.ordinal()];
+    }
+
+    /**
+     * Add to the count of applications of a type with a status.
+     *
+     * @param typeId type id, applications without one are not counted.
+     * @param status application status.
+     * @param delta  number to add.
+     */
+    private void countApplication(BTOProjectTypeID typeId, BTOApplicationStatus status, int delta) {
+        if (typeId == null || status == null) {
+            return;
+        }
+        applicationCounts.computeIfAbsent(typeId, (id) -> new int[BTOApplicationStatus.values().length])
+                [status.ordinal()] += delta;
     }
 
     /**
@@ -237,8 +333,11 @@ public class BTOProject implements Serializable {
      *
      * @param enquiry enquiry to add.
      */
-    public void addEnquiry(BTOEnquiry enquiry) {
+    public synchronized void addEnquiry(BTOEnquiry enquiry) {
+        beforeChange();
+        ensureHydrated();
         enquiries.add(enquiry);
+        markChanged();
     }
 
     /**
@@ -246,8 +345,36 @@ public class BTOProject implements Serializable {
      *
      * @param enquiryId enquiry id.
      */
-    public void deleteEnquiry(String enquiryId) {
-        enquiries.removeIf(enquiry -> enquiry.getId().equals(enquiryId));
+    public synchronized void deleteEnquiry(String enquiryId) {
+        beforeChange();
+        ensureHydrated();
+        if (enquiries.removeIf(enquiry -> enquiry.getId().equals(enquiryId))) {
+            markChanged();
+        }
+    }
+
+    /**
+     * Set the sender message of an enquiry in this project.
+     *
+     * @param enquiry       enquiry of this project.
+     * @param senderMessage new sender message.
+     */
+    public synchronized void setEnquirySenderMessage(BTOEnquiry enquiry, BTOEnquiryMessage senderMessage) {
+        beforeChange();
+        enquiry.setSenderMessage(senderMessage);
+        markChanged();
+    }
+
+    /**
+     * Set the response message of an enquiry in this project.
+     *
+     * @param enquiry         enquiry of this project.
+     * @param responseMessage new response message.
+     */
+    public synchronized void setEnquiryResponseMessage(BTOEnquiry enquiry, BTOEnquiryMessage responseMessage) {
+        beforeChange();
+        enquiry.setResponseMessage(responseMessage);
+        markChanged();
     }
 
     /**
@@ -256,8 +383,27 @@ public class BTOProject implements Serializable {
      * @param applicationId application id. enquiry id.
      * @return the bto application tied to the application id..
      */
-    public Optional<BTOApplication> getApplication(String applicationId) {
-        return applications.stream().filter((application) -> application.getId().equals(applicationId)).findFirst();
+    public synchronized Optional<BTOApplication> getApplication(String applicationId) {
+        ensureIndexed();
+        return Optional.ofNullable(applicationsById.get(applicationId));
+    }
+
+    /**
+     * Do not expose this method outside of this package to avoid
+     * undefined states.
+     * Set the status of an application of this project.
+     *
+     * @param application application of this project.
+     * @param status      new status.
+     */
+    protected synchronized void setApplicationStatus(BTOApplication application, BTOApplicationStatus status) {
+        beforeChange();
+        if (applicationCounts != null) {
+            countApplication(application.getTypeId(), application.getStatus(), -1);
+            countApplication(application.getTypeId(), status, 1);
+        }
+        application.setStatus(status);
+        markChanged();
     }
 
     /**
@@ -266,7 +412,21 @@ public class BTOProject implements Serializable {
      * @param registration officer registration to add.
      */
     protected void addHDBOfficerRegistration(HDBOfficerRegistration registration) {
-        hdbOfficerRegistrations.add(registration);
+        final boolean isLoading;
+        synchronized (this) {
+            beforeChange();
+            ensureHydrated();
+            hdbOfficerRegistrations.add(registration);
+            if (registrationsById != null) {
+                indexOfficerRegistration(registration);
+            }
+            markChanged();
+            // Loaded registrations are read by the window index when it adds the project.
+            isLoading = isHydrating;
+        }
+        if (!isLoading) {
+            updateWindowIndexOfficer(registration.getOfficerUserId());
+        }
     }
 
     /**
@@ -275,10 +435,27 @@ public class BTOProject implements Serializable {
      * @param registrationId registration id.
      * @return the hdb officer registration tied to the registration id.
      */
-    public Optional<HDBOfficerRegistration> getOfficerRegistration(String registrationId) {
-        return hdbOfficerRegistrations.stream()
-                .filter((registration) -> registration.getId().equals(registrationId))
-                .findFirst();
+    public synchronized Optional<HDBOfficerRegistration> getOfficerRegistration(String registrationId) {
+        ensureIndexed();
+        return Optional.ofNullable(registrationsById.get(registrationId));
+    }
+
+    /**
+     * Do not expose this method outside of this package to avoid
+     * undefined states.
+     * Set the status of an officer registration of this project.
+     *
+     * @param registration officer registration of this project.
+     * @param status       new status.
+     */
+    protected void setOfficerRegistrationStatus(HDBOfficerRegistration registration,
+            HDBOfficerRegistrationStatus status) {
+        synchronized (this) {
+            beforeChange();
+            registration.setStatus(status);
+            markChanged();
+        }
+        updateWindowIndexOfficer(registration.getOfficerUserId());
     }
 
     /**
@@ -288,16 +465,14 @@ public class BTOProject implements Serializable {
      * @param applicantUserId applicant user id.
      * @return active application.
      */
-    public Optional<BTOApplication> getActiveApplication(String applicantUserId) {
-        return applications.stream()
+    public synchronized Optional<BTOApplication> getActiveApplication(String applicantUserId) {
+        ensureIndexed();
+        return applicationsByApplicant.getOrDefault(applicantUserId, List.of()).stream()
                 .filter(application -> {
-                    if (application.getApplicantUserId().equals(applicantUserId)) {
-                        final BTOApplicationStatus status = application.getStatus();
-                        return status == BTOApplicationStatus.PENDING
-                                || status == BTOApplicationStatus.SUCCESSFUL
-                                || status == BTOApplicationStatus.BOOKED;
-                    }
-                    return false;
+                    final BTOApplicationStatus status = application.getStatus();
+                    return status == BTOApplicationStatus.PENDING
+                            || status == BTOApplicationStatus.SUCCESSFUL
+                            || status == BTOApplicationStatus.BOOKED;
                 })
                 .findFirst();
     }
@@ -309,15 +484,13 @@ public class BTOProject implements Serializable {
      * @param officerUserId officer user id.
      * @return active officer registration.
      */
-    public Optional<HDBOfficerRegistration> getActiveOfficerRegistration(String officerUserId) {
-        return hdbOfficerRegistrations.stream()
+    public synchronized Optional<HDBOfficerRegistration> getActiveOfficerRegistration(String officerUserId) {
+        ensureIndexed();
+        return registrationsByOfficer.getOrDefault(officerUserId, List.of()).stream()
                 .filter(registration -> {
-                    if (registration.getOfficerUserId().equals(officerUserId)) {
-                        final HDBOfficerRegistrationStatus status = registration.getStatus();
-                        return status == HDBOfficerRegistrationStatus.SUCCESSFUL
-                                || status == HDBOfficerRegistrationStatus.PENDING;
-                    }
-                    return false;
+                    final HDBOfficerRegistrationStatus status = registration.getStatus();
+                    return status == HDBOfficerRegistrationStatus.SUCCESSFUL
+                            || status == HDBOfficerRegistrationStatus.PENDING;
                 })
                 .findFirst();
     }
@@ -328,9 +501,10 @@ public class BTOProject implements Serializable {
      * @param officerUserId officer user id.
      * @return true if the user is a successfully registered officer.
      */
-    public boolean isManagingOfficer(String officerUserId) {
-        return getManagingOfficerRegistrations().stream()
-                .anyMatch(registration -> registration.getOfficerUserId().equals(officerUserId));
+    public synchronized boolean isManagingOfficer(String officerUserId) {
+        ensureIndexed();
+        return registrationsByOfficer.getOrDefault(officerUserId, List.of()).stream()
+                .anyMatch(registration -> registration.getStatus() == HDBOfficerRegistrationStatus.SUCCESSFUL);
     }
 
     /**
@@ -349,6 +523,7 @@ public class BTOProject implements Serializable {
      * @return list of managing officer registrations that are successful.
      */
     public List<HDBOfficerRegistration> getManagingOfficerRegistrations() {
+        ensureHydrated();
         return hdbOfficerRegistrations.stream()
                 .filter(registration -> registration.getStatus() == HDBOfficerRegistrationStatus.SUCCESSFUL)
                 .toList();
@@ -361,15 +536,10 @@ public class BTOProject implements Serializable {
      * @param applicationId application id.
      * @return active withdrawal.
      */
-    public Optional<BTOApplicationWithdrawal> getActiveWithdrawal(String applicationId) {
-        return withdrawals.stream()
-                .filter(withdrawal -> {
-                    if (withdrawal.getApplicationId().equals(applicationId)) {
-                        final BTOApplicationWithdrawalStatus status = withdrawal.getStatus();
-                        return status == BTOApplicationWithdrawalStatus.PENDING;
-                    }
-                    return false;
-                })
+    public synchronized Optional<BTOApplicationWithdrawal> getActiveWithdrawal(String applicationId) {
+        ensureIndexed();
+        return withdrawalsByApplication.getOrDefault(applicationId, List.of()).stream()
+                .filter(withdrawal -> withdrawal.getStatus() == BTOApplicationWithdrawalStatus.PENDING)
                 .findFirst();
     }
 
@@ -379,12 +549,9 @@ public class BTOProject implements Serializable {
      * @param applicationId application id.
      * @return withdrawals for application.
      */
-    public List<BTOApplicationWithdrawal> getWithdrawals(String applicationId) {
-        return withdrawals.stream()
-                .filter(withdrawal -> {
-                    return withdrawal.getApplicationId().equals(applicationId);
-                })
-                .toList();
+    public synchronized List<BTOApplicationWithdrawal> getWithdrawals(String applicationId) {
+        ensureIndexed();
+        return List.copyOf(withdrawalsByApplication.getOrDefault(applicationId, List.of()));
     }
 
     /**
@@ -392,8 +559,238 @@ public class BTOProject implements Serializable {
      *
      * @param withdrawal withdrawal to add.
      */
-    protected void addWithdrawal(BTOApplicationWithdrawal withdrawal) {
+    protected synchronized void addWithdrawal(BTOApplicationWithdrawal withdrawal) {
+        beforeChange();
+        ensureHydrated();
         withdrawals.add(withdrawal);
+        if (withdrawalsById != null) {
+            indexWithdrawal(withdrawal);
+        }
+        markChanged();
+    }
+
+    /**
+     * Build the indexes of the children, if they are not built.
+     * They are not saved, so they are built on first use after loading.
+     * Called while holding this project's lock.
+     */
+    private void ensureIndexed() {
+        ensureHydrated();
+        if (applicationsById != null) {
+            return;
+        }
+        applicationsById = new HashMap<>();
+        applicationsByApplicant = new HashMap<>();
+        applications.forEach(this::indexApplication);
+        registrationsById = new HashMap<>();
+        registrationsByOfficer = new HashMap<>();
+        hdbOfficerRegistrations.forEach(this::indexOfficerRegistration);
+        withdrawalsById = new HashMap<>();
+        withdrawalsByApplication = new HashMap<>();
+        withdrawals.forEach(this::indexWithdrawal);
+    }
+
+    private void indexApplication(BTOApplication application) {
+        // Like the lists, lookups by id find the first child with the id.
+        applicationsById.putIfAbsent(application.getId(), application);
+        applicationsByApplicant.computeIfAbsent(application.getApplicantUserId(), (userId) -> new ArrayList<>(1))
+                .add(application);
+    }
+
+    private void indexOfficerRegistration(HDBOfficerRegistration registration) {
+        registrationsById.putIfAbsent(registration.getId(), registration);
+        registrationsByOfficer.computeIfAbsent(registration.getOfficerUserId(), (userId) -> new ArrayList<>(1))
+                .add(registration);
+    }
+
+    private void indexWithdrawal(BTOApplicationWithdrawal withdrawal) {
+        withdrawalsById.putIfAbsent(withdrawal.getId(), withdrawal);
+        withdrawalsByApplication.computeIfAbsent(withdrawal.getApplicationId(), (applicationId) -> new ArrayList<>(1))
+                .add(withdrawal);
+    }
+
+    /**
+     * Do not expose this method outside of this package.
+     * Set a loader that adds this project's enquiries, applications, officer
+     * registrations and withdrawals on first access, instead of having them
+     * in memory from the start.
+     *
+     * @param childrenLoader loader, called at most once.
+     */
+    protected void setChildrenLoader(Consumer<BTOProject> childrenLoader) {
+        this.childrenLoader = childrenLoader;
+    }
+
+    /**
+     * Check if this project's enquiries, applications, officer registrations
+     * and withdrawals are loaded.
+     *
+     * @return true if they are loaded.
+     */
+    public boolean isHydrated() {
+        return childrenLoader == null;
+    }
+
+    /**
+     * Get the user ids of the applicants and registered officers saved with this
+     * project, read without loading its children.
+     * Empty if they were not saved, or once the children are loaded.
+     *
+     * @return saved user ids.
+     */
+    public Optional<Set<String>> getSavedChildUserIds() {
+        return Optional.ofNullable(savedChildUserIds);
+    }
+
+    /**
+     * Do not expose this method outside of this package.
+     * Set the user ids of the applicants and registered officers saved with this project.
+     *
+     * @param savedChildUserIds saved user ids, or null if they were not saved.
+     */
+    protected void setSavedChildUserIds(Set<String> savedChildUserIds) {
+        this.savedChildUserIds = savedChildUserIds == null ? null : Collections.unmodifiableSet(savedChildUserIds);
+    }
+
+    /**
+     * Run the children loader if it has not run yet.
+     * The loader stays set until it succeeds, so a failed load is retried on
+     * the next access.
+     */
+    private void ensureHydrated() {
+        if (childrenLoader == null) {
+            return;
+        }
+        synchronized (this) {
+            // isHydrating: the loader itself adds the children through this class.
+            if (childrenLoader == null || isHydrating) {
+                return;
+            }
+            isHydrating = true;
+            // Loading children is not a change.
+            final long loadedVersion = version;
+            try {
+                childrenLoader.accept(this);
+                childrenLoader = null;
+                savedChildUserIds = null;
+            } finally {
+                version = loadedVersion;
+                isHydrating = false;
+            }
+        }
+    }
+
+    /**
+     * Do not expose this method outside of this package to avoid
+     * undefined states.
+     * Set the status of a withdrawal of this project.
+     *
+     * @param withdrawal withdrawal of this project.
+     * @param status     new status.
+     */
+    protected synchronized void setWithdrawalStatus(BTOApplicationWithdrawal withdrawal, BTOApplicationWithdrawalStatus status) {
+        beforeChange();
+        withdrawal.setStatus(status);
+        markChanged();
+    }
+
+    /**
+     * Version getter.
+     * The version changes every time this project or one of its children changes.
+     * It is not saved, projects start at version 0 when loaded.
+     *
+     * @return {@link #version}
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Bump the version after a change, and count it in the manager.
+     */
+    private void markChanged() {
+        version++;
+        final BTOProjectManager manager = projectManager;
+        if (manager != null && !isHydrating) {
+            manager.countProjectChange();
+        }
+    }
+
+    /**
+     * Do not expose this method outside of this package.
+     * Set the snapshots of the manager this project is in, see {@link BTOProjectSnapshot}.
+     *
+     * @param snapshotRegistry snapshots of the manager.
+     */
+    protected void setSnapshotRegistry(BTOProjectSnapshot.Registry snapshotRegistry) {
+        this.snapshotRegistry = snapshotRegistry;
+    }
+
+    /**
+     * Do not expose this method outside of this package.
+     * Set the window index of the manager this project is in, see {@link BTOProjectWindowIndex}.
+     *
+     * @param windowIndex window index, or null once the project is removed from it.
+     */
+    protected void setWindowIndex(BTOProjectWindowIndex windowIndex) {
+        this.windowIndex = windowIndex;
+    }
+
+    /**
+     * Do not expose this method outside of this package.
+     * Set the manager this project is in, so its name index follows renames.
+     *
+     * @param projectManager manager, or null once the project is removed from it.
+     */
+    protected void setProjectManager(BTOProjectManager projectManager) {
+        this.projectManager = projectManager;
+    }
+
+    /**
+     * Tell the window index that an officer's registrations changed.
+     * Called without holding this project's lock.
+     *
+     * @param officerUserId officer user id.
+     */
+    private void updateWindowIndexOfficer(String officerUserId) {
+        final BTOProjectWindowIndex index = windowIndex;
+        if (index != null) {
+            index.updateOfficer(this, officerUserId);
+        }
+    }
+
+    /**
+     * Copy this project into open snapshots that have not seen a change to it yet.
+     * Called while holding this project's lock, before every change.
+     */
+    private void beforeChange() {
+        final BTOProjectSnapshot.Registry registry = snapshotRegistry;
+        // Loading children is not a change.
+        if (registry == null || isHydrating) {
+            return;
+        }
+        final long latestEpoch = registry.getLatestEpoch();
+        if (latestEpoch > copiedEpoch) {
+            registry.preserve(this, copiedEpoch);
+            copiedEpoch = latestEpoch;
+        }
+    }
+
+    /**
+     * Do not expose this method outside of this package.
+     * Deep copy this project through {@link BTOProjectCodec}, keeping its version.
+     *
+     * @return copy of this project.
+     */
+    protected synchronized BTOProject copy() {
+        final BTOProject copy;
+        try {
+            copy = BTOProjectCodec.decode(BTOProjectCodec.encode(this));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to copy project " + id + ": " + e.getMessage(), e);
+        }
+        copy.version = version;
+        return copy;
     }
 
     /**
@@ -423,11 +820,20 @@ public class BTOProject implements Serializable {
      *                          application close date.
      */
     public void setApplicationWindow(Date applicationOpenDate, Date applicationCloseDate) throws RuntimeException {
-        if (applicationOpenDate.after(applicationCloseDate)) {
-            throw new IllegalArgumentException("Application open date cannot be after application close date.");
+        synchronized (this) {
+            beforeChange();
+            if (applicationOpenDate.after(applicationCloseDate)) {
+                throw new IllegalArgumentException("Application open date cannot be after application close date.");
+            }
+            this.applicationOpenTimestamp = applicationOpenDate.getTime();
+            this.applicationCloseTimestamp = applicationCloseDate.getTime();
+            markChanged();
+        }
+        // Outside this project's lock, the index locks itself before the project.
+        final BTOProjectWindowIndex index = windowIndex;
+        if (index != null) {
+            index.updateWindow(this);
         }
-        this.applicationOpenTimestamp = applicationOpenDate.getTime();
-        this.applicationCloseTimestamp = applicationCloseDate.getTime();
     }
 
     /**
@@ -454,7 +860,8 @@ public class BTOProject implements Serializable {
      *
      * @param officerLimit officer limit.
      */
-    public void setOfficerLimit(int officerLimit) throws RuntimeException {
+    public synchronized void setOfficerLimit(int officerLimit) throws RuntimeException {
+        beforeChange();
         if (officerLimit < 0) {
             throw new IllegalArgumentException("Officer limit cannot be negative.");
         }
@@ -462,6 +869,7 @@ public class BTOProject implements Serializable {
             throw new IllegalArgumentException("Officer limit cannot exceed " + OFFICER_LIMIT + ".");
         }
         this.officerLimit = officerLimit;
+        markChanged();
     }
 
     /**
@@ -477,8 +885,10 @@ public class BTOProject implements Serializable {
      *
      * @param visibleToPublic visible to public
      */
-    public void setVisibleToPublic(boolean visibleToPublic) {
+    public synchronized void setVisibleToPublic(boolean visibleToPublic) {
+        beforeChange();
         isVisibleToPublic = visibleToPublic;
+        markChanged();
     }
 
     /**
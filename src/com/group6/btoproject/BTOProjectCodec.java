@@ -0,0 +1,457 @@
+package com.group6.btoproject;
+
+import com.group6.utils.BinaryReader;
+import com.group6.utils.BinaryWriter;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Binary encoding of {@link BTOProject}, replacing java.io serialization.
+ * <p>
+ * A record is a schema version byte followed by a struct of tagged fields
+ * (see {@link BinaryWriter}). Readers skip fields with unknown tags and
+ * leave missing fields at their defaults, so fields can be added without
+ * breaking older or newer files. Tags must never be reused, and enums are
+ * stored as ordinals, so new enum constants must be added at the end.
+ * </p>
+ */
+public final class BTOProjectCodec {
+
+    /**
+     * Current schema version, written at the start of every record.
+     */
+    public static final int SCHEMA_VERSION = 1;
+
+    // BTOProject tags.
+    private static final int PROJECT_ID = 1;
+    private static final int PROJECT_NAME = 2;
+    private static final int PROJECT_NEIGHBOURHOOD = 3;
+    private static final int PROJECT_MANAGER_USER_ID = 4;
+    private static final int PROJECT_OFFICER_LIMIT = 5;
+    private static final int PROJECT_OPEN_TIMESTAMP = 6;
+    private static final int PROJECT_CLOSE_TIMESTAMP = 7;
+    private static final int PROJECT_VISIBLE_TO_PUBLIC = 8;
+    private static final int PROJECT_TYPE = 9;
+    private static final int PROJECT_ENQUIRY = 10;
+    private static final int PROJECT_APPLICATION = 11;
+    private static final int PROJECT_OFFICER_REGISTRATION = 12;
+    private static final int PROJECT_WITHDRAWAL = 13;
+    private static final int PROJECT_CHILD_USER_IDS = 14;
+
+    // BTOProjectType tags.
+    private static final int TYPE_ID = 1;
+    private static final int TYPE_PRICE = 2;
+    private static final int TYPE_MAX_QUANTITY = 3;
+
+    // Child user ids tags.
+    private static final int CHILD_USER_ID = 1;
+
+    // BTOEnquiry tags.
+    private static final int ENQUIRY_ID = 1;
+    private static final int ENQUIRY_SENDER_MESSAGE = 2;
+    private static final int ENQUIRY_RESPONSE_MESSAGE = 3;
+
+    // BTOEnquiryMessage tags.
+    private static final int MESSAGE_SENDER_USER_ID = 1;
+    private static final int MESSAGE_MESSAGE = 2;
+    private static final int MESSAGE_LAST_UPDATED = 3;
+
+    // BTOApplication tags.
+    private static final int APPLICATION_ID = 1;
+    private static final int APPLICATION_APPLICANT_USER_ID = 2;
+    private static final int APPLICATION_TYPE_ID = 3;
+    private static final int APPLICATION_STATUS = 4;
+
+    // HDBOfficerRegistration tags.
+    private static final int REGISTRATION_ID = 1;
+    private static final int REGISTRATION_OFFICER_USER_ID = 2;
+    private static final int REGISTRATION_STATUS = 3;
+
+    // BTOApplicationWithdrawal tags.
+    private static final int WITHDRAWAL_ID = 1;
+    private static final int WITHDRAWAL_APPLICATION_ID = 2;
+    private static final int WITHDRAWAL_STATUS = 3;
+    private static final int WITHDRAWAL_REQUESTED_ON = 4;
+
+    private BTOProjectCodec() {
+    }
+
+    /**
+     * Encode a project.
+     *
+     * @param project project.
+     * @return encoded project.
+     */
+    public static byte[] encode(BTOProject project) {
+        final BinaryWriter writer = new BinaryWriter();
+        encode(writer, project);
+        return writer.toByteArray();
+    }
+
+    /**
+     * Encode a project into a writer.
+     *
+     * @param writer  writer.
+     * @param project project.
+     */
+    public static void encode(BinaryWriter writer, BTOProject project) {
+        writer.writeByte(SCHEMA_VERSION);
+        writer.writeIdField(PROJECT_ID, project.getId());
+        writer.writeStringField(PROJECT_NAME, project.getName());
+        writer.writeStringField(PROJECT_NEIGHBOURHOOD, project.getNeighbourhood());
+        writer.writeIdField(PROJECT_MANAGER_USER_ID, project.getManagerUserId());
+        writer.writeIntField(PROJECT_OFFICER_LIMIT, project.getOfficerLimit());
+        writer.writeLongField(PROJECT_OPEN_TIMESTAMP, project.getApplicationOpenDate().getTime());
+        writer.writeLongField(PROJECT_CLOSE_TIMESTAMP, project.getApplicationCloseDate().getTime());
+        writer.writeBooleanField(PROJECT_VISIBLE_TO_PUBLIC, project.isVisibleToPublic());
+        for (BTOProjectType type : project.getProjectTypes()) {
+            final int position = writer.beginStruct(PROJECT_TYPE);
+            writer.writeEnumField(TYPE_ID, type.getId());
+            writer.writeDoubleField(TYPE_PRICE, type.getPrice());
+            writer.writeIntField(TYPE_MAX_QUANTITY, type.getMaxQuantity());
+            writer.endStruct(position);
+        }
+        for (BTOEnquiry enquiry : project.getEnquiries()) {
+            final int position = writer.beginStruct(PROJECT_ENQUIRY);
+            writer.writeIdField(ENQUIRY_ID, enquiry.getId());
+            encodeMessage(writer, ENQUIRY_SENDER_MESSAGE, enquiry.getSenderMessage());
+            enquiry.getResponseMessage()
+                    .ifPresent((message) -> encodeMessage(writer, ENQUIRY_RESPONSE_MESSAGE, message));
+            writer.endStruct(position);
+        }
+        final List<BTOApplication> applications = project.getApplications();
+        final List<HDBOfficerRegistration> registrations = project.getHdbOfficerRegistrations();
+        // Positions of the user id fields, copied into the child user ids below.
+        final int[] userIdPositions = new int[(applications.size() + registrations.size()) * 2];
+        int userIdCount = 0;
+        for (BTOApplication application : applications) {
+            final int position = writer.beginStruct(PROJECT_APPLICATION);
+            writer.writeIdField(APPLICATION_ID, application.getId());
+            userIdPositions[userIdCount * 2] = writer.size();
+            writer.writeIdField(APPLICATION_APPLICANT_USER_ID, application.getApplicantUserId());
+            userIdPositions[userIdCount++ * 2 + 1] = writer.size();
+            writer.writeEnumField(APPLICATION_TYPE_ID, application.getTypeId());
+            writer.writeEnumField(APPLICATION_STATUS, application.getStatus());
+            writer.endStruct(position);
+        }
+        for (HDBOfficerRegistration registration : registrations) {
+            final int position = writer.beginStruct(PROJECT_OFFICER_REGISTRATION);
+            writer.writeIdField(REGISTRATION_ID, registration.getId());
+            userIdPositions[userIdCount * 2] = writer.size();
+            writer.writeIdField(REGISTRATION_OFFICER_USER_ID, registration.getOfficerUserId());
+            userIdPositions[userIdCount++ * 2 + 1] = writer.size();
+            writer.writeEnumField(REGISTRATION_STATUS, registration.getStatus());
+            writer.endStruct(position);
+        }
+        for (BTOApplicationWithdrawal withdrawal : project.getWithdrawals()) {
+            final int position = writer.beginStruct(PROJECT_WITHDRAWAL);
+            writer.writeIdField(WITHDRAWAL_ID, withdrawal.getId());
+            writer.writeIdField(WITHDRAWAL_APPLICATION_ID, withdrawal.getApplicationId());
+            writer.writeEnumField(WITHDRAWAL_STATUS, withdrawal.getStatus());
+            writer.writeLongField(WITHDRAWAL_REQUESTED_ON, withdrawal.getRequestedOn());
+            writer.endStruct(position);
+        }
+        // Read with the header, so a lazily loaded project can be indexed without its children.
+        // Copied from the fields above rather than encoded again. A user with several
+        // applications is written more than once.
+        final int childUserIdsPosition = writer.beginStruct(PROJECT_CHILD_USER_IDS);
+        for (int i = 0; i < userIdCount; i++) {
+            writer.copyField(CHILD_USER_ID, userIdPositions[i * 2], userIdPositions[i * 2 + 1]);
+        }
+        writer.endStruct(childUserIdsPosition);
+        writer.endStruct();
+    }
+
+    private static void encodeMessage(BinaryWriter writer, int tag, BTOEnquiryMessage message) {
+        if (message == null) {
+            return;
+        }
+        final int position = writer.beginStruct(tag);
+        writer.writeIdField(MESSAGE_SENDER_USER_ID, message.getSenderUserId());
+        writer.writeStringField(MESSAGE_MESSAGE, message.getMessage());
+        writer.writeLongField(MESSAGE_LAST_UPDATED, message.getLastUpdated());
+        writer.endStruct(position);
+    }
+
+    /**
+     * Decode a project.
+     *
+     * @param bytes encoded project.
+     * @return project.
+     * @throws IOException if the data is malformed.
+     */
+    public static BTOProject decode(byte[] bytes) throws IOException {
+        return decode(new BinaryReader(bytes));
+    }
+
+    /**
+     * Decode a project from a reader.
+     *
+     * @param reader reader positioned at the start of the record.
+     * @return project.
+     * @throws IOException if the data is malformed.
+     */
+    public static BTOProject decode(BinaryReader reader) throws IOException {
+        final int start = reader.position();
+        final BTOProject project = decodeHeader(reader);
+        final int end = reader.position();
+        reader.position(start);
+        decodeChildren(reader, project);
+        // The children are loaded, so the saved user ids are not needed.
+        project.setSavedChildUserIds(null);
+        reader.position(end);
+        return project;
+    }
+
+    /**
+     * Decode only a project's header: everything except its enquiries,
+     * applications, officer registrations and withdrawals, which are skipped.
+     * See {@link #decodeChildren(BinaryReader, BTOProject)}.
+     * The user ids of the applicants and registered officers are read from the
+     * header, see {@link BTOProject#getSavedChildUserIds()}.
+     *
+     * @param reader reader positioned at the start of the record.
+     * @return project without children.
+     * @throws IOException if the data is malformed.
+     */
+    public static BTOProject decodeHeader(BinaryReader reader) throws IOException {
+        readVersion(reader);
+
+        String id = null;
+        String name = null;
+        String neighbourhood = null;
+        String managerUserId = null;
+        int officerLimit = 0;
+        long openTimestamp = 0;
+        long closeTimestamp = 0;
+        boolean visibleToPublic = true;
+        final Map<BTOProjectTypeID, BTOProjectType> types = new EnumMap<>(BTOProjectTypeID.class);
+        // Null for records saved before the user ids were.
+        Set<String> childUserIds = null;
+
+        int key;
+        while ((key = reader.readKey()) != BinaryWriter.END) {
+            switch (BinaryReader.tagOf(key)) {
+                case PROJECT_ID -> id = reader.readIdField(key);
+                case PROJECT_NAME -> name = reader.readStringField(key);
+                case PROJECT_NEIGHBOURHOOD -> neighbourhood = reader.readStringField(key);
+                case PROJECT_MANAGER_USER_ID -> managerUserId = reader.readIdField(key);
+                case PROJECT_OFFICER_LIMIT -> officerLimit = reader.readIntField(key);
+                case PROJECT_OPEN_TIMESTAMP -> openTimestamp = reader.readLongField(key);
+                case PROJECT_CLOSE_TIMESTAMP -> closeTimestamp = reader.readLongField(key);
+                case PROJECT_VISIBLE_TO_PUBLIC -> visibleToPublic = reader.readBooleanField(key);
+                case PROJECT_TYPE -> {
+                    reader.readStructField(key);
+                    final BTOProjectType type = decodeType(reader);
+                    types.put(type.getId(), type);
+                }
+                case PROJECT_CHILD_USER_IDS -> {
+                    reader.readStructField(key);
+                    childUserIds = decodeChildUserIds(reader);
+                }
+                default -> reader.skipField(key);
+            }
+        }
+        if (id == null || managerUserId == null) {
+            throw new IOException("Project record is missing its id or manager.");
+        }
+
+        final BTOProject project = new BTOProject(id, managerUserId);
+        project.setName(name);
+        project.setNeighbourhood(neighbourhood);
+        project.setOfficerLimit(officerLimit);
+        project.setApplicationWindow(new Date(openTimestamp), new Date(closeTimestamp));
+        project.setVisibleToPublic(visibleToPublic);
+        project.setProjectTypes(types);
+        project.setSavedChildUserIds(childUserIds);
+        return project;
+    }
+
+    /**
+     * Decode a project's enquiries, applications, officer registrations and
+     * withdrawals, and add them to a project decoded with {@link #decodeHeader(BinaryReader)}.
+     *
+     * @param reader  reader positioned at the start of the record.
+     * @param project project to add the children to.
+     * @throws IOException if the data is malformed.
+     */
+    public static void decodeChildren(BinaryReader reader, BTOProject project) throws IOException {
+        readVersion(reader);
+
+        final List<BTOEnquiry> enquiries = new ArrayList<>();
+        final List<BTOApplication> applications = new ArrayList<>();
+        final List<HDBOfficerRegistration> registrations = new ArrayList<>();
+        final List<BTOApplicationWithdrawal> withdrawals = new ArrayList<>();
+
+        int key;
+        while ((key = reader.readKey()) != BinaryWriter.END) {
+            switch (BinaryReader.tagOf(key)) {
+                case PROJECT_ENQUIRY -> {
+                    reader.readStructField(key);
+                    enquiries.add(decodeEnquiry(reader));
+                }
+                case PROJECT_APPLICATION -> {
+                    reader.readStructField(key);
+                    applications.add(decodeApplication(reader));
+                }
+                case PROJECT_OFFICER_REGISTRATION -> {
+                    reader.readStructField(key);
+                    registrations.add(decodeRegistration(reader));
+                }
+                case PROJECT_WITHDRAWAL -> {
+                    reader.readStructField(key);
+                    withdrawals.add(decodeWithdrawal(reader));
+                }
+                default -> reader.skipField(key);
+            }
+        }
+
+        // Only add once the whole record is decoded, so a malformed record adds nothing.
+        enquiries.forEach(project::addEnquiry);
+        applications.forEach(project::addApplication);
+        registrations.forEach(project::addHDBOfficerRegistration);
+        withdrawals.forEach(project::addWithdrawal);
+    }
+
+    private static void readVersion(BinaryReader reader) throws IOException {
+        final int version = reader.readByte();
+        if (version < 1) {
+            throw new IOException("Unsupported project schema version " + version + ".");
+        }
+    }
+
+    private static Set<String> decodeChildUserIds(BinaryReader reader) throws IOException {
+        final Set<String> userIds = new HashSet<>();
+        int key;
+        while ((key = reader.readKey()) != BinaryWriter.END) {
+            if (BinaryReader.tagOf(key) == CHILD_USER_ID) {
+                userIds.add(reader.readIdField(key));
+            } else {
+                reader.skipField(key);
+            }
+        }
+        return userIds;
+    }
+
+    private static BTOProjectType decodeType(BinaryReader reader) throws IOException {
+        BTOProjectTypeID id = null;
+        double price = 0;
+        int maxQuantity = 0;
+        int key;
+        while ((key = reader.readKey()) != BinaryWriter.END) {
+            switch (BinaryReader.tagOf(key)) {
+                case TYPE_ID -> id = reader.readEnumField(key, BTOProjectTypeID.values());
+                case TYPE_PRICE -> price = reader.readDoubleField(key);
+                case TYPE_MAX_QUANTITY -> maxQuantity = reader.readIntField(key);
+                default -> reader.skipField(key);
+            }
+        }
+        if (id == null) {
+            throw new IOException("Project type record is missing its id.");
+        }
+        return new BTOProjectType(id, price, maxQuantity);
+    }
+
+    private static BTOEnquiry decodeEnquiry(BinaryReader reader) throws IOException {
+        String id = null;
+        BTOEnquiryMessage senderMessage = null;
+        BTOEnquiryMessage responseMessage = null;
+        int key;
+        while ((key = reader.readKey()) != BinaryWriter.END) {
+            switch (BinaryReader.tagOf(key)) {
+                case ENQUIRY_ID -> id = reader.readIdField(key);
+                case ENQUIRY_SENDER_MESSAGE -> {
+                    reader.readStructField(key);
+                    senderMessage = decodeMessage(reader);
+                }
+                case ENQUIRY_RESPONSE_MESSAGE -> {
+                    reader.readStructField(key);
+                    responseMessage = decodeMessage(reader);
+                }
+                default -> reader.skipField(key);
+            }
+        }
+        if (id == null) {
+            throw new IOException("Enquiry record is missing its id.");
+        }
+        return new BTOEnquiry(id, senderMessage, responseMessage);
+    }
+
+    private static BTOEnquiryMessage decodeMessage(BinaryReader reader) throws IOException {
+        String senderUserId = null;
+        String message = null;
+        long lastUpdated = 0;
+        int key;
+        while ((key = reader.readKey()) != BinaryWriter.END) {
+            switch (BinaryReader.tagOf(key)) {
+                case MESSAGE_SENDER_USER_ID -> senderUserId = reader.readIdField(key);
+                case MESSAGE_MESSAGE -> message = reader.readStringField(key);
+                case MESSAGE_LAST_UPDATED -> lastUpdated = reader.readLongField(key);
+                default -> reader.skipField(key);
+            }
+        }
+        return new BTOEnquiryMessage(senderUserId, message, lastUpdated);
+    }
+
+    private static BTOApplication decodeApplication(BinaryReader reader) throws IOException {
+        String id = null;
+        String applicantUserId = null;
+        BTOProjectTypeID typeId = null;
+        BTOApplicationStatus status = BTOApplicationStatus.PENDING;
+        int key;
+        while ((key = reader.readKey()) != BinaryWriter.END) {
+            switch (BinaryReader.tagOf(key)) {
+                case APPLICATION_ID -> id = reader.readIdField(key);
+                case APPLICATION_APPLICANT_USER_ID -> applicantUserId = reader.readIdField(key);
+                case APPLICATION_TYPE_ID -> typeId = reader.readEnumField(key, BTOProjectTypeID.values());
+                case APPLICATION_STATUS -> status = reader.readEnumField(key, BTOApplicationStatus.values());
+                default -> reader.skipField(key);
+            }
+        }
+        if (id == null || applicantUserId == null) {
+            throw new IOException("Application record is missing its id or applicant.");
+        }
+        return new BTOApplication(id, applicantUserId, typeId, status);
+    }
+
+    private static HDBOfficerRegistration decodeRegistration(BinaryReader reader) throws IOException {
+        String id = null;
+        String officerUserId = null;
+        HDBOfficerRegistrationStatus status = HDBOfficerRegistrationStatus.PENDING;
+        int key;
+        while ((key = reader.readKey()) != BinaryWriter.END) {
+            switch (BinaryReader.tagOf(key)) {
+                case REGISTRATION_ID -> id = reader.readIdField(key);
+                case REGISTRATION_OFFICER_USER_ID -> officerUserId = reader.readIdField(key);
+                case REGISTRATION_STATUS -> status = reader.readEnumField(key, HDBOfficerRegistrationStatus.values());
+                default -> reader.skipField(key);
+            }
+        }
+        if (id == null || officerUserId == null) {
+            throw new IOException("Officer registration record is missing its id or officer.");
+        }
+        return new HDBOfficerRegistration(id, officerUserId, status);
+    }
+
+    private static BTOApplicationWithdrawal decodeWithdrawal(BinaryReader reader) throws IOException {
+        String id = null;
+        String applicationId = null;
+        BTOApplicationWithdrawalStatus status = BTOApplicationWithdrawalStatus.PENDING;
+        long requestedOn = 0;
+        int key;
+        while ((key = reader.readKey()) != BinaryWriter.END) {
+            switch (BinaryReader.tagOf(key)) {
+                case WITHDRAWAL_ID -> id = reader.readIdField(key);
+                case WITHDRAWAL_APPLICATION_ID -> applicationId = reader.readIdField(key);
+                case WITHDRAWAL_STATUS -> status = reader.readEnumField(key, BTOApplicationWithdrawalStatus.values());
+                case WITHDRAWAL_REQUESTED_ON -> requestedOn = reader.readLongField(key);
+                default -> reader.skipField(key);
+            }
+        }
+        if (id == null || applicationId == null) {
+            throw new IOException("Withdrawal record is missing its id or application.");
+        }
+        return new BTOApplicationWithdrawal(id, applicationId, status, requestedOn);
+    }
+}
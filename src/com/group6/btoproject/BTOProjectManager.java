@@ -1,10 +1,14 @@
 package com.group6.btoproject;
 
 import com.group6.users.User;
+import com.group6.utils.BashColors;
 import com.group6.utils.Storage;
-import com.group6.utils.Utils;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Represents a central point to manage/access projects of a
@@ -17,9 +21,51 @@ public class BTOProjectManager {
 
     // Map<String Id, BTOProject>
     private final Map<String, BTOProject> projects = new HashMap<>();
+    // Map<Project name in lower case, BTOProject>, see #normalizeName(String).
+    private final Map<String, BTOProject> projectsByName = new ConcurrentHashMap<>();
     private final List<BTOBookingReceipt> bookingReceipts = new LinkedList<>();
+    // Map<User Id, Receipts of the user in bookingReceipts, in the order they were added>
+    // Unused with a booking receipt log, which is keyed by user id itself.
+    private final Map<String, List<BTOBookingReceipt>> bookingReceiptsByUser = new ConcurrentHashMap<>();
     private final Storage<BTOProject> projectStorage;
     private final Storage<BTOBookingReceipt> bookingReceiptStorage;
+    private BTOBookingReceiptLog bookingReceiptLog;
+    private BTOMutationLog mutationLog;
+    private long mutationCount = 0;
+    // Changes made to projects of this manager, including those made directly on a project.
+    private final AtomicLong projectChangeCount = new AtomicLong();
+    private final BTOProjectSnapshot.Registry snapshotRegistry = new BTOProjectSnapshot.Registry();
+    // Map<Applicant User Id, Applications of the applicant, in the order they were indexed>
+    // Only has the applications of indexed projects, see #pendingProjects.
+    private final Map<String, List<IndexedApplication>> applicationsByApplicant = new ConcurrentHashMap<>();
+    // Map<Applicant User Id, Number of BOOKED applications of the applicant>
+    // Only applicants with a booked application in an indexed project are in it.
+    private final Map<String, Integer> bookedApplicationCounts = new ConcurrentHashMap<>();
+    // Map<Officer User Id, Registrations of the officer, in the order they were indexed>
+    // Only has the registrations of indexed projects, like the applicant index.
+    private final Map<String, List<BTOFullOfficerRegistration>> registrationsByOfficer = new ConcurrentHashMap<>();
+    // Application windows of the projects, by manager and by officer.
+    // Only has the officers of indexed projects, like the applicant index.
+    private final BTOProjectWindowIndex windowIndex = new BTOProjectWindowIndex();
+    // Lazily loaded projects whose applications and officer registrations are not indexed yet.
+    // A lookup for a user only loads and indexes the pending projects the user is in, found with
+    // the user ids saved in each project's header, see BTOProject#getSavedChildUserIds().
+    // Map<Pending project, Saved user ids, or null if the project was saved without them>
+    private final Map<BTOProject, Set<String>> pendingProjects = new HashMap<>();
+    // Map<User Id, Pending projects with an application or registration of the user>
+    private final Map<String, Set<BTOProject>> pendingProjectsByUser = new ConcurrentHashMap<>();
+    // Pending projects saved without user ids. Every lookup loads and indexes them.
+    private final Set<BTOProject> pendingProjectsWithoutUserIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * An application in {@link #applicationsByApplicant}.
+     * Holds the application itself, so status changes need no update to the index.
+     *
+     * @param project     project of the application.
+     * @param application application.
+     */
+    private record IndexedApplication(BTOProject project, BTOApplication application) {
+    }
 
     /**
      * Constructor for BTOProjectManager.
@@ -46,29 +92,529 @@ public class BTOProjectManager {
      *
      * @param projects The projects to set.
      */
-    public void setProjects(List<BTOProject> projects) {
+    public synchronized void setProjects(List<BTOProject> projects) {
         projects.forEach((project) -> {
-            this.projects.put(project.getId(), project);
+            project.setSnapshotRegistry(snapshotRegistry);
+            final BTOProject replaced = this.projects.put(project.getId(), project);
+            if (replaced != null) {
+                unindexProject(replaced);
+            }
+            indexProject(project);
         });
     }
 
+    /**
+     * Add a project to every index.
+     * The applications and officer registrations of a project that is not loaded yet are
+     * left pending, so adding it does not load it, see {@link #pendingProjects}.
+     *
+     * @param project project.
+     */
+    private synchronized void indexProject(BTOProject project) {
+        indexName(project);
+        windowIndex.add(project);
+        if (project.isHydrated()) {
+            indexChildren(project);
+            return;
+        }
+        // Null if the project was loaded since, it is then indexed by the next lookup.
+        final Set<String> userIds = project.getSavedChildUserIds().orElse(null);
+        pendingProjects.put(project, userIds);
+        if (userIds == null) {
+            pendingProjectsWithoutUserIds.add(project);
+            return;
+        }
+        for (String userId : userIds) {
+            pendingProjectsByUser.computeIfAbsent(userId, (id) -> ConcurrentHashMap.newKeySet()).add(project);
+        }
+    }
+
+    /**
+     * Remove a project from every index.
+     *
+     * @param project project.
+     */
+    private synchronized void unindexProject(BTOProject project) {
+        unindexName(project);
+        windowIndex.remove(project);
+        if (!removePending(project)) {
+            unindexApplications(project);
+            unindexOfficerRegistrations(project);
+        }
+    }
+
+    /**
+     * Add the applications and officer registrations of a project to the indexes.
+     *
+     * @param project project, loaded by this call if it is not yet.
+     */
+    private synchronized void indexChildren(BTOProject project) {
+        for (BTOApplication application : project.getApplications()) {
+            addToApplicantIndex(project, application);
+        }
+        for (HDBOfficerRegistration registration : project.getHdbOfficerRegistrations()) {
+            addToOfficerIndex(project, registration);
+            windowIndex.updateOfficer(project, registration.getOfficerUserId());
+        }
+    }
+
+    /**
+     * Remove a project from the pending projects.
+     *
+     * @param project project.
+     * @return true if the project was pending.
+     */
+    private synchronized boolean removePending(BTOProject project) {
+        if (!pendingProjects.containsKey(project)) {
+            return false;
+        }
+        final Set<String> userIds = pendingProjects.remove(project);
+        if (userIds == null) {
+            pendingProjectsWithoutUserIds.remove(project);
+            return true;
+        }
+        for (String userId : userIds) {
+            pendingProjectsByUser.computeIfPresent(userId, (id, pending) -> {
+                pending.remove(project);
+                return pending.isEmpty() ? null : pending;
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Load and index a project if it is pending.
+     * Called before a project's applications or officer registrations are indexed or changed,
+     * so the indexes never have part of a project.
+     *
+     * @param project project.
+     * @return true if the project was pending, and every child is now indexed.
+     */
+    private synchronized boolean indexIfPending(BTOProject project) {
+        if (!removePending(project)) {
+            return false;
+        }
+        indexChildren(project);
+        return true;
+    }
+
+    /**
+     * Load and index every pending project a user may have an application or officer
+     * registration in, before looking the user up in the indexes.
+     * Only loads the user's pending projects, and projects saved without user ids.
+     *
+     * @param userId user id.
+     */
+    private void indexPendingProjects(String userId) {
+        if (pendingProjectsWithoutUserIds.isEmpty() && !pendingProjectsByUser.containsKey(userId)) {
+            return;
+        }
+        synchronized (this) {
+            for (BTOProject project : List.copyOf(pendingProjectsWithoutUserIds)) {
+                indexIfPending(project);
+            }
+            for (BTOProject project : List.copyOf(pendingProjectsByUser.getOrDefault(userId, Set.of()))) {
+                indexIfPending(project);
+            }
+        }
+    }
+
+    /**
+     * Normalize a project name for {@link #projectsByName}.
+     * Names are compared ignoring case.
+     *
+     * @param name project name.
+     * @return normalized name.
+     */
+    private static String normalizeName(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Add a project to the name index, and have it tell this manager when it is renamed.
+     * Names are unique, but should older files have a clash, the first project keeps the name.
+     *
+     * @param project project.
+     */
+    private void indexName(BTOProject project) {
+        if (project.getName() != null) {
+            projectsByName.putIfAbsent(normalizeName(project.getName()), project);
+        }
+        project.setProjectManager(this);
+    }
+
+    /**
+     * Remove a project from the name index.
+     *
+     * @param project project.
+     */
+    private void unindexName(BTOProject project) {
+        if (project.getName() != null) {
+            projectsByName.remove(normalizeName(project.getName()), project);
+        }
+        project.setProjectManager(null);
+    }
+
+    /**
+     * Do not expose this method outside of this package.
+     * Move a project in the name index to its new name, before it is renamed.
+     * Called by {@link BTOProject#setName(String)}.
+     *
+     * @param project project of this manager.
+     * @param name    new name.
+     * @throws RuntimeException If another project has the name.
+     */
+    protected synchronized void renameProject(BTOProject project, String name) throws RuntimeException {
+        if (projects.get(project.getId()) != project) {
+            return;
+        }
+        final BTOProject existing = name == null ? null : projectsByName.get(normalizeName(name));
+        if (existing != null && existing != project) {
+            throw new RuntimeException("Project with name already exists.");
+        }
+        unindexName(project);
+        if (name != null) {
+            projectsByName.put(normalizeName(name), project);
+        }
+        project.setProjectManager(this);
+    }
+
+    /**
+     * Add a new application of a project to the applicant index.
+     * If the project is pending, it is indexed as a whole instead.
+     *
+     * @param project     project of the application.
+     * @param application application, already added to the project.
+     */
+    private synchronized void indexApplication(BTOProject project, BTOApplication application) {
+        if (!indexIfPending(project)) {
+            addToApplicantIndex(project, application);
+        }
+    }
+
+    /**
+     * Add an application to the applicant index.
+     * Lists in the index are replaced rather than changed, so they can be read without locking.
+     *
+     * @param project     project of the application.
+     * @param application application.
+     */
+    private synchronized void addToApplicantIndex(BTOProject project, BTOApplication application) {
+        applicationsByApplicant.compute(application.getApplicantUserId(), (userId, applications) -> {
+            final List<IndexedApplication> updated = applications == null
+                    ? new ArrayList<>()
+                    : new ArrayList<>(applications);
+            updated.add(new IndexedApplication(project, application));
+            return List.copyOf(updated);
+        });
+        if (application.getStatus() == BTOApplicationStatus.BOOKED) {
+            countBooked(application.getApplicantUserId(), 1);
+        }
+    }
+
+    /**
+     * Remove every application of an indexed project from the applicant index.
+     *
+     * @param project project.
+     */
+    private synchronized void unindexApplications(BTOProject project) {
+        for (BTOApplication application : project.getApplications()) {
+            applicationsByApplicant.computeIfPresent(application.getApplicantUserId(), (userId, applications) -> {
+                final List<IndexedApplication> remaining = applications.stream()
+                        .filter((indexed) -> indexed.project() != project)
+                        .toList();
+                return remaining.isEmpty() ? null : remaining;
+            });
+            if (application.getStatus() == BTOApplicationStatus.BOOKED) {
+                countBooked(application.getApplicantUserId(), -1);
+            }
+        }
+    }
+
+    /**
+     * Change the number of booked applications of an applicant.
+     * Called while holding this manager's lock, for an application of an indexed project.
+     *
+     * @param applicantUserId applicant user id.
+     * @param delta           change in the number of booked applications.
+     */
+    private void countBooked(String applicantUserId, int delta) {
+        bookedApplicationCounts.compute(applicantUserId, (userId, count) -> {
+            final int updated = (count == null ? 0 : count) + delta;
+            return updated > 0 ? updated : null;
+        });
+    }
+
+    /**
+     * Set the status of an application, keeping the booked application counts in step.
+     *
+     * @param project     project of the application.
+     * @param application application.
+     * @param status      new status.
+     */
+    private synchronized void changeApplicationStatus(BTOProject project, BTOApplication application,
+            BTOApplicationStatus status) {
+        // Index first, so the counts are taken from the status before the change.
+        indexIfPending(project);
+        final BTOApplicationStatus previousStatus = application.getStatus();
+        project.setApplicationStatus(application, status);
+        if (previousStatus == status) {
+            return;
+        }
+        if (previousStatus == BTOApplicationStatus.BOOKED) {
+            countBooked(application.getApplicantUserId(), -1);
+        } else if (status == BTOApplicationStatus.BOOKED) {
+            countBooked(application.getApplicantUserId(), 1);
+        }
+    }
+
+    /**
+     * Add a new officer registration of a project to the officer index.
+     * If the project is pending, it is indexed as a whole instead.
+     *
+     * @param project      project of the registration.
+     * @param registration registration, already added to the project.
+     */
+    private synchronized void indexOfficerRegistration(BTOProject project, HDBOfficerRegistration registration) {
+        if (!indexIfPending(project)) {
+            addToOfficerIndex(project, registration);
+        }
+    }
+
+    /**
+     * Add an officer registration to the officer index.
+     * Like the applicant index, lists are replaced rather than changed, and hold the
+     * registrations themselves, so status changes need no update to the index.
+     *
+     * @param project      project of the registration.
+     * @param registration registration.
+     */
+    private synchronized void addToOfficerIndex(BTOProject project, HDBOfficerRegistration registration) {
+        registrationsByOfficer.compute(registration.getOfficerUserId(), (userId, registrations) -> {
+            final List<BTOFullOfficerRegistration> updated = registrations == null
+                    ? new ArrayList<>()
+                    : new ArrayList<>(registrations);
+            updated.add(new BTOFullOfficerRegistration(project, registration));
+            return List.copyOf(updated);
+        });
+    }
+
+    /**
+     * Remove every officer registration of an indexed project from the officer index.
+     *
+     * @param project project.
+     */
+    private synchronized void unindexOfficerRegistrations(BTOProject project) {
+        for (HDBOfficerRegistration registration : project.getHdbOfficerRegistrations()) {
+            registrationsByOfficer.computeIfPresent(registration.getOfficerUserId(), (userId, registrations) -> {
+                final List<BTOFullOfficerRegistration> remaining = registrations.stream()
+                        .filter((indexed) -> indexed.getProject() != project)
+                        .toList();
+                return remaining.isEmpty() ? null : remaining;
+            });
+        }
+    }
+
+    /**
+     * Open a snapshot of every project, as they are now.
+     * Projects keep being changed while the snapshot is read, see {@link BTOProjectSnapshot}.
+     * Mutations are made while holding this manager's lock, so a snapshot opened while
+     * holding the lock contains exactly the mutations counted by {@link #getMutationCount()}.
+     *
+     * @return snapshot, to be closed once read.
+     */
+    public synchronized BTOProjectSnapshot openSnapshot() {
+        return snapshotRegistry.open(projects);
+    }
+
     /**
      * Receipts getters.
+     * With a {@link #bookingReceiptLog}, every receipt is read from the log.
      *
      * @return {@link #bookingReceipts}
      */
     public List<BTOBookingReceipt> getBookingReceipts() {
+        if (bookingReceiptLog != null) {
+            final List<BTOBookingReceipt> receipts = new ArrayList<>();
+            try {
+                bookingReceiptLog.forEach(receipts::add);
+            } catch (IOException e) {
+                System.err.println(BashColors.format("Error reading booking receipts: " + e.getMessage(), BashColors.RED));
+            }
+            return Collections.unmodifiableList(receipts);
+        }
         return Collections.unmodifiableList(bookingReceipts);
     }
 
+    /**
+     * Booking receipt log getter.
+     *
+     * @return {@link #bookingReceiptLog}
+     */
+    public Optional<BTOBookingReceiptLog> getBookingReceiptLog() {
+        return Optional.ofNullable(bookingReceiptLog);
+    }
+
+    /**
+     * Sets the log booking receipts are appended to.
+     * Receipts are then read from the log instead of being held in memory.
+     *
+     * @param bookingReceiptLog booking receipt log, or null to hold receipts in memory.
+     */
+    public synchronized void setBookingReceiptLog(BTOBookingReceiptLog bookingReceiptLog) {
+        this.bookingReceiptLog = bookingReceiptLog;
+    }
+
     /**
      * Sets the projects map.
      *
      * @param receipts The projects to set.
      */
-    public void setReceipts(List<BTOBookingReceipt> receipts) {
+    public synchronized void setReceipts(List<BTOBookingReceipt> receipts) {
         this.bookingReceipts.clear();
-        this.bookingReceipts.addAll(receipts);
+        this.bookingReceiptsByUser.clear();
+        receipts.forEach(this::addReceipt);
+    }
+
+    /**
+     * Add a receipt to {@link #bookingReceipts} and {@link #bookingReceiptsByUser}.
+     * Lists in the index are replaced rather than changed, so they can be read without locking.
+     *
+     * @param receipt receipt.
+     */
+    private synchronized void addReceipt(BTOBookingReceipt receipt) {
+        bookingReceipts.add(receipt);
+        bookingReceiptsByUser.compute(receipt.getUserId(), (userId, receipts) -> {
+            final List<BTOBookingReceipt> updated = receipts == null
+                    ? new ArrayList<>()
+                    : new ArrayList<>(receipts);
+            updated.add(receipt);
+            return List.copyOf(updated);
+        });
+    }
+
+    /**
+     * Restores a booking receipt, skipping it if it already exists.
+     * Used when replaying the {@link BTOMutationLog}.
+     *
+     * @param receipt receipt to restore.
+     */
+    protected void restoreBookingReceipt(BTOBookingReceipt receipt) {
+        if (bookingReceiptLog != null) {
+            try {
+                bookingReceiptLog.appendAll(List.of(receipt));
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to restore booking receipt: " + e.getMessage(), e);
+            }
+            return;
+        }
+        if (bookingReceiptsByUser.getOrDefault(receipt.getUserId(), List.of()).stream()
+                .noneMatch((existing) -> existing.getId().equals(receipt.getId()))) {
+            addReceipt(receipt);
+        }
+    }
+
+    /**
+     * Restores an application, skipping it if it already exists.
+     * Used when replaying the {@link BTOMutationLog}.
+     *
+     * @param project     project of the application.
+     * @param application application to restore.
+     */
+    protected synchronized void restoreApplication(BTOProject project, BTOApplication application) {
+        if (project.getApplication(application.getId()).isEmpty()) {
+            project.addApplication(application);
+            indexApplication(project, application);
+        }
+    }
+
+    /**
+     * Restores an officer registration, skipping it if it already exists.
+     * Used when replaying the {@link BTOMutationLog}.
+     *
+     * @param project      project of the registration.
+     * @param registration registration to restore.
+     */
+    protected synchronized void restoreOfficerRegistration(BTOProject project, HDBOfficerRegistration registration) {
+        if (project.getOfficerRegistration(registration.getId()).isEmpty()) {
+            project.addHDBOfficerRegistration(registration);
+            indexOfficerRegistration(project, registration);
+        }
+    }
+
+    /**
+     * Restores the status of an application.
+     * Used when replaying the {@link BTOMutationLog}.
+     *
+     * @param project     project of the application.
+     * @param application application of the project.
+     * @param status      status to restore.
+     */
+    protected void restoreApplicationStatus(BTOProject project, BTOApplication application,
+            BTOApplicationStatus status) {
+        changeApplicationStatus(project, application, status);
+    }
+
+    /**
+     * Mutation log getter.
+     *
+     * @return {@link #mutationLog}
+     */
+    public Optional<BTOMutationLog> getMutationLog() {
+        return Optional.ofNullable(mutationLog);
+    }
+
+    /**
+     * Sets the log every successful mutation is appended to.
+     * Set after replaying the log, otherwise replayed mutations are logged again.
+     *
+     * @param mutationLog mutation log, or null to stop logging.
+     */
+    public void setMutationLog(BTOMutationLog mutationLog) {
+        this.mutationLog = mutationLog;
+    }
+
+    /**
+     * Number of successful mutations since this manager was created.
+     * Mutations are made while holding this manager's lock, so this is
+     * consistent with the data when read while holding the lock.
+     *
+     * @return {@link #mutationCount}
+     */
+    public synchronized long getMutationCount() {
+        return mutationCount;
+    }
+
+    /**
+     * Number of changes made to projects of this manager since it was created, whether
+     * made through this manager or directly on a project, e.g. {@link BTOProject#setName(String)}.
+     * Unlike {@link #getMutationCount()}, changes are counted without this manager's lock.
+     *
+     * @return {@link #projectChangeCount}
+     */
+    public long getProjectChangeCount() {
+        return projectChangeCount.get();
+    }
+
+    /**
+     * Do not expose this method outside of this package.
+     * Count a change to a project of this manager.
+     * Called by {@link BTOProject} after every change, while holding the project's lock.
+     */
+    protected void countProjectChange() {
+        projectChangeCount.incrementAndGet();
+    }
+
+    /**
+     * Count a mutation and append it to the {@link #mutationLog}, if any.
+     *
+     * @param mutation mutation to record.
+     */
+    private void logMutation(Consumer<BTOMutationLog> mutation) {
+        mutationCount++;
+        if (mutationLog != null) {
+            mutation.accept(mutationLog);
+        }
     }
 
     /**
@@ -78,9 +624,10 @@ public class BTOProjectManager {
      * @return project with the name.
      */
     public Optional<BTOProject> getProjectByName(String name) {
-        return projects.values().stream()
-                .filter(project -> project.getName().equalsIgnoreCase(name))
-                .findFirst();
+        if (name == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(projectsByName.get(normalizeName(name)));
     }
 
     /**
@@ -98,27 +645,20 @@ public class BTOProjectManager {
      *
      * @param _project project to be added.
      */
-    public void addProject(BTOProject _project) throws RuntimeException {
-        if (projects.values().stream()
-                .anyMatch((project) -> project.getName().equals(_project.getName()))) {
+    public synchronized void addProject(BTOProject _project) throws RuntimeException {
+        if (getProjectByName(_project.getName()).isPresent()) {
             throw new RuntimeException("Project with name already exists.");
         }
 
-        String managerId = _project.getManagerUserId();
-        final List<BTOProject> managingProjects = getProjects().values().stream()
-                .filter((project) -> project.getManagerUserId().equals(managerId))
-                .toList();
-        final Date openDate = _project.getApplicationOpenDate();
-        final Date closeDate = _project.getApplicationCloseDate();
-        for (BTOProject project : managingProjects) {
-            if (Utils.isDateRangeIntersecting(
-                    openDate, closeDate,
-                    project.getApplicationOpenDate(), project.getApplicationCloseDate())) {
-                throw new RuntimeException("Manager already has a project with overlapping application window.");
-            }
+        if (!getOverlappingManagerProjects(_project.getManagerUserId(),
+                _project.getApplicationOpenDate(), _project.getApplicationCloseDate()).isEmpty()) {
+            throw new RuntimeException("Manager already has a project with overlapping application window.");
         }
 
+        _project.setSnapshotRegistry(snapshotRegistry);
         projects.put(_project.getId(), _project);
+        indexProject(_project);
+        logMutation((log) -> log.projectAdded(_project));
     }
 
     /**
@@ -127,12 +667,26 @@ public class BTOProjectManager {
      * @param projectId id of the project to be deleted.
      * @throws RuntimeException If the project is not found.
      */
-    public void deleteProject(String projectId) throws RuntimeException {
+    public synchronized void deleteProject(String projectId) throws RuntimeException {
         final Optional<BTOProject> projectOpt = getProject(projectId);
         if (projectOpt.isEmpty()) {
             throw new RuntimeException("Project not found.");
         }
-        projects.remove(projectId);
+        removeProject(projectId);
+        logMutation((log) -> log.projectDeleted(projectId));
+    }
+
+    /**
+     * Remove a project by id, without logging it.
+     * Used by {@link #deleteProject(String)} and when replaying the {@link BTOMutationLog}.
+     *
+     * @param projectId id of the project to be removed.
+     */
+    protected synchronized void removeProject(String projectId) {
+        final BTOProject project = projects.remove(projectId);
+        if (project != null) {
+            unindexProject(project);
+        }
     }
 
     /**
@@ -144,8 +698,8 @@ public class BTOProjectManager {
      * @return list of active projects for the user.
      */
     public List<BTOProject> getActiveProjectsForUser(String userId) {
-        return projects.values().stream()
-                .filter(p -> p.getActiveApplication(userId).isPresent())
+        return getAllActiveApplicationsForUser(userId).stream()
+                .map(BTOFullApplication::getProject)
                 .toList();
     }
 
@@ -201,13 +755,11 @@ public class BTOProjectManager {
      */
     public List<BTOFullApplication> getAllApplicationsForUser(String userId) {
         LinkedList<BTOFullApplication> result = new LinkedList<>();
-        projects.values().forEach(project -> {
-            project.getApplications().forEach(application -> {
-                if (application.getApplicantUserId().equals(userId)) {
-                    final List<BTOApplicationWithdrawal> withdrawals = project.getWithdrawals(application.getId());
-                    result.add(new BTOFullApplication(project, application, withdrawals));
-                }
-            });
+        indexPendingProjects(userId);
+        applicationsByApplicant.getOrDefault(userId, List.of()).forEach(indexed -> {
+            final BTOProject project = indexed.project();
+            final List<BTOApplicationWithdrawal> withdrawals = project.getWithdrawals(indexed.application().getId());
+            result.add(new BTOFullApplication(project, indexed.application(), withdrawals));
         });
         return result;
     }
@@ -220,15 +772,37 @@ public class BTOProjectManager {
      */
     public List<BTOFullApplication> getAllActiveApplicationsForUser(String userId) {
         LinkedList<BTOFullApplication> result = new LinkedList<>();
-        projects.values().forEach(project -> {
-            project.getActiveApplication(userId).ifPresent(application -> {
+        // Like BTOProject#getActiveApplication, only the first active application of each project.
+        final Set<BTOProject> seenProjects = new HashSet<>();
+        indexPendingProjects(userId);
+        applicationsByApplicant.getOrDefault(userId, List.of()).forEach(indexed -> {
+            final BTOProject project = indexed.project();
+            final BTOApplication application = indexed.application();
+            if (isActive(application.getStatus()) && seenProjects.add(project)) {
                 final List<BTOApplicationWithdrawal> withdrawals = project.getWithdrawals(application.getId());
                 result.add(new BTOFullApplication(project, application, withdrawals));
-            });
+            }
         });
         return result;
     }
 
+    private static boolean isActive(BTOApplicationStatus status) {
+        return status == BTOApplicationStatus.PENDING
+                || status == BTOApplicationStatus.SUCCESSFUL
+                || status == BTOApplicationStatus.BOOKED;
+    }
+
+    /**
+     * Check if an applicant has a booked application in any project.
+     *
+     * @param userId id of the user.
+     * @return true if the user has a booked application.
+     */
+    public boolean isApplicantBooked(String userId) {
+        indexPendingProjects(userId);
+        return bookedApplicationCounts.containsKey(userId);
+    }
+
     /**
      * Get all booked applications for a user.
      *
@@ -236,9 +810,16 @@ public class BTOProjectManager {
      * @return list of booked applications for the user.
      */
     public List<BTOFullApplication> getBookedApplicationsForUser(String userId) {
-        return getAllApplicationsForUser(userId).stream()
-                .filter(application -> application.getApplication().getStatus() == BTOApplicationStatus.BOOKED)
-                .toList();
+        final List<BTOFullApplication> result = new ArrayList<>();
+        indexPendingProjects(userId);
+        applicationsByApplicant.getOrDefault(userId, List.of()).forEach(indexed -> {
+            if (indexed.application().getStatus() == BTOApplicationStatus.BOOKED) {
+                final BTOProject project = indexed.project();
+                result.add(new BTOFullApplication(project, indexed.application(),
+                        project.getWithdrawals(indexed.application().getId())));
+            }
+        });
+        return Collections.unmodifiableList(result);
     }
 
     /**
@@ -262,7 +843,7 @@ public class BTOProjectManager {
      *                          - is SUCCESSFUL and has the same applicantUserId.
      *                          - is BOOKED and has the same applicantUserId.
      */
-    public void requestApply(String projectId, String applicantUserId, BTOProjectTypeID typeId)
+    public synchronized void requestApply(String projectId, String applicantUserId, BTOProjectTypeID typeId)
             throws RuntimeException {
         BTOProject project = projects.get(projectId);
         if (project == null) {
@@ -278,7 +859,7 @@ public class BTOProjectManager {
                     "Applicant is already booked for this project.");
         }
 
-        if (!getBookedApplicationsForUser(applicantUserId).isEmpty()) {
+        if (isApplicantBooked(applicantUserId)) {
             throw new RuntimeException("Applicant can only be booked for 1 project.");
         }
 
@@ -314,6 +895,8 @@ public class BTOProjectManager {
                 typeId,
                 BTOApplicationStatus.PENDING);
         project.addApplication(application);
+        indexApplication(project, application);
+        logMutation((log) -> log.applicationAdded(projectId, application));
     }
 
     /**
@@ -351,7 +934,7 @@ public class BTOProjectManager {
      *                          BOOKED/UNSUCCESSFUL.
      *                          - Is BOOKED and the new status is not UNSUCCESSFUL.
      */
-    public void transitionApplicationStatus(String projectId, String applicationId, BTOApplicationStatus status)
+    public synchronized void transitionApplicationStatus(String projectId, String applicationId, BTOApplicationStatus status)
             throws RuntimeException {
         final Optional<BTOProject> projectOpt = getProject(projectId);
         if (projectOpt.isEmpty()) {
@@ -398,13 +981,14 @@ public class BTOProjectManager {
             }
 
             if (status == BTOApplicationStatus.BOOKED) {
-                if (!getBookedApplicationsForUser(application.getApplicantUserId()).isEmpty()) {
+                if (isApplicantBooked(application.getApplicantUserId())) {
                     throw new RuntimeException("Applicant can only be booked for 1 project.");
                 }
             }
         }
 
-        application.setStatus(status);
+        changeApplicationStatus(project, application, status);
+        logMutation((log) -> log.applicationStatusChanged(projectId, applicationId, status));
     }
 
     /**
@@ -417,7 +1001,7 @@ public class BTOProjectManager {
      *                          already managing this project).
      *                          - is PENDING and has the same officerUserId.
      */
-    public void requestRegisterOfficer(String projectId, String userId) throws RuntimeException {
+    public synchronized void requestRegisterOfficer(String projectId, String userId) throws RuntimeException {
         final Optional<BTOProject> projectOpt = getProject(projectId);
         if (projectOpt.isEmpty()) {
             throw new RuntimeException("Project not found.");
@@ -443,21 +1027,9 @@ public class BTOProjectManager {
         // throw new RuntimeException("Registration window is closed.");
         // }
 
-        final Date startDate = project.getApplicationOpenDate();
-        final Date endDate = project.getApplicationCloseDate();
-        final List<BTOProject> managedByOfficer = this.getOfficerManagingProjects(userId);
-        for (BTOProject managedProject : managedByOfficer) {
-            Date _startDate = managedProject.getApplicationOpenDate();
-            Date _endDate = managedProject.getApplicationCloseDate();
-            if (Utils.isDateRangeIntersecting(
-                    startDate, endDate,
-                    _startDate, _endDate)) {
-                throw new RuntimeException("Officer is managing a project with an overlapping application window.");
-            }
-            // if (managedProject.isApplicationWindowOpen()) {
-            // throw new RuntimeException(
-            // "Officer is already managing another project that's currently open.");
-            // }
+        if (!getOverlappingOfficerManagingProjects(userId,
+                project.getApplicationOpenDate(), project.getApplicationCloseDate()).isEmpty()) {
+            throw new RuntimeException("Officer is managing a project with an overlapping application window.");
         }
 
         final int officerLimit = project.getOfficerLimit();
@@ -470,6 +1042,8 @@ public class BTOProjectManager {
                 userId,
                 HDBOfficerRegistrationStatus.PENDING);
         project.addHDBOfficerRegistration(registration);
+        indexOfficerRegistration(project, registration);
+        logMutation((log) -> log.officerRegistrationAdded(projectId, registration));
     }
 
     /**
@@ -501,7 +1075,7 @@ public class BTOProjectManager {
      *                          - Does NOT follow transition from PENDING TO
      *                          SUCCESSFUL/UNSUCCESSFUL.
      */
-    public void transitionOfficerRegistrationStatus(String projectId, String userId,
+    public synchronized void transitionOfficerRegistrationStatus(String projectId, String userId,
             HDBOfficerRegistrationStatus status)
             throws RuntimeException {
         final Optional<BTOProject> projectOpt = getProject(projectId);
@@ -534,21 +1108,14 @@ public class BTOProjectManager {
                         "Project Applicants with approved bookings may not register to manage this project.");
             }
 
-            final Date startDate = project.getApplicationOpenDate();
-            final Date endDate = project.getApplicationCloseDate();
-            final List<BTOProject> managedByOfficer = this.getOfficerManagingProjects(userId);
-            for (BTOProject managedProject : managedByOfficer) {
-                Date _startDate = managedProject.getApplicationOpenDate();
-                Date _endDate = managedProject.getApplicationCloseDate();
-                if (Utils.isDateRangeIntersecting(
-                        startDate, endDate,
-                        _startDate, _endDate)) {
-                    throw new RuntimeException("Officer is managing a project with an overlapping application window.");
-                }
+            if (!getOverlappingOfficerManagingProjects(userId,
+                    project.getApplicationOpenDate(), project.getApplicationCloseDate()).isEmpty()) {
+                throw new RuntimeException("Officer is managing a project with an overlapping application window.");
             }
         }
 
-        registration.setStatus(status);
+        project.setOfficerRegistrationStatus(registration, status);
+        logMutation((log) -> log.officerRegistrationStatusChanged(projectId, registration.getId(), status));
     }
 
     /**
@@ -558,7 +1125,7 @@ public class BTOProjectManager {
      * @param applicationId applicant id.
      * @throws RuntimeException If the application is not found.
      */
-    public void requestWithdrawApplication(String projectId, String applicationId) throws RuntimeException {
+    public synchronized void requestWithdrawApplication(String projectId, String applicationId) throws RuntimeException {
         final Optional<BTOProject> projectOpt = getProject(projectId);
         if (projectOpt.isEmpty()) {
             throw new RuntimeException("Project not found.");
@@ -595,6 +1162,7 @@ public class BTOProjectManager {
                 BTOApplicationWithdrawalStatus.PENDING,
                 System.currentTimeMillis());
         project.addWithdrawal(withdrawal);
+        logMutation((log) -> log.withdrawalAdded(projectId, withdrawal));
     }
 
     /**
@@ -623,7 +1191,7 @@ public class BTOProjectManager {
      *                          - Is not found.
      *                          - There is no pending withdrawal request.
      */
-    public void transitionWithdrawApplicationStatus(String projectId, String applicationId,
+    public synchronized void transitionWithdrawApplicationStatus(String projectId, String applicationId,
             BTOApplicationWithdrawalStatus status)
             throws RuntimeException {
         final Optional<BTOProject> projectOpt = getProject(projectId);
@@ -662,10 +1230,16 @@ public class BTOProjectManager {
         }
 
         if (status == BTOApplicationWithdrawalStatus.SUCCESSFUL) {
-            withdrawal.setStatus(BTOApplicationWithdrawalStatus.SUCCESSFUL);
-            application.setStatus(BTOApplicationStatus.UNSUCCESSFUL);
+            project.setWithdrawalStatus(withdrawal, BTOApplicationWithdrawalStatus.SUCCESSFUL);
+            changeApplicationStatus(project, application, BTOApplicationStatus.UNSUCCESSFUL);
+            logMutation((log) -> {
+                log.withdrawalStatusChanged(projectId, withdrawal.getId(), BTOApplicationWithdrawalStatus.SUCCESSFUL);
+                log.applicationStatusChanged(projectId, applicationId, BTOApplicationStatus.UNSUCCESSFUL);
+            });
         } else if (status == BTOApplicationWithdrawalStatus.UNSUCCESSFUL) {
-            withdrawal.setStatus(BTOApplicationWithdrawalStatus.UNSUCCESSFUL);
+            project.setWithdrawalStatus(withdrawal, BTOApplicationWithdrawalStatus.UNSUCCESSFUL);
+            logMutation((log) -> log.withdrawalStatusChanged(projectId, withdrawal.getId(),
+                    BTOApplicationWithdrawalStatus.UNSUCCESSFUL));
         } else {
             throw new RuntimeException("Invalid status.");
         }
@@ -711,16 +1285,8 @@ public class BTOProjectManager {
      * @return list of officer registrations for the user.
      */
     public List<BTOFullOfficerRegistration> getAllOfficerRegistrations(String officerUserId) {
-        List<BTOFullOfficerRegistration> result = new LinkedList<>();
-        projects.values().forEach(project -> {
-            project.getHdbOfficerRegistrations()
-                    .forEach((registration) -> {
-                        if (registration.getOfficerUserId().equals(officerUserId)) {
-                            result.add(new BTOFullOfficerRegistration(project, registration));
-                        }
-                    });
-        });
-        return result;
+        indexPendingProjects(officerUserId);
+        return registrationsByOfficer.getOrDefault(officerUserId, List.of());
     }
 
     /**
@@ -730,9 +1296,44 @@ public class BTOProjectManager {
      * @return list of officer registrations for the user.
      */
     public List<BTOProject> getOfficerManagingProjects(String officerUserId) {
-        return projects.values().stream()
-                .filter(project -> project.isManagingOfficer(officerUserId))
-                .toList();
+        indexPendingProjects(officerUserId);
+        return windowIndex.getOfficerProjects(officerUserId);
+    }
+
+    /**
+     * Get the projects an officer is managing with an application window that
+     * overlaps the given window.
+     *
+     * @param officerUserId id of the officer.
+     * @param openDate      open date of the window.
+     * @param closeDate     close date of the window.
+     * @return overlapping projects, by application window.
+     */
+    public List<BTOProject> getOverlappingOfficerManagingProjects(String officerUserId, Date openDate, Date closeDate) {
+        indexPendingProjects(officerUserId);
+        return windowIndex.getOfficerProjects(officerUserId, openDate, closeDate);
+    }
+
+    /**
+     * Get the projects of a manager.
+     *
+     * @param managerUserId id of the manager.
+     * @return projects of the manager, by application window.
+     */
+    public List<BTOProject> getManagerProjects(String managerUserId) {
+        return windowIndex.getManagerProjects(managerUserId);
+    }
+
+    /**
+     * Get the projects of a manager with an application window that overlaps the given window.
+     *
+     * @param managerUserId id of the manager.
+     * @param openDate      open date of the window.
+     * @param closeDate     close date of the window.
+     * @return overlapping projects, by application window.
+     */
+    public List<BTOProject> getOverlappingManagerProjects(String managerUserId, Date openDate, Date closeDate) {
+        return windowIndex.getManagerProjects(managerUserId, openDate, closeDate);
     }
 
     /**
@@ -742,9 +1343,9 @@ public class BTOProjectManager {
      * @return list of officer registrations for the user.
      */
     public List<BTOProject> getManagingProjects(String userId) {
-        return projects.values().stream()
-                .filter(project -> project.isManagingOfficer(userId) || project.getManagerUserId().equals(userId))
-                .toList();
+        final Set<BTOProject> result = new LinkedHashSet<>(getManagerProjects(userId));
+        result.addAll(getOfficerManagingProjects(userId));
+        return List.copyOf(result);
     }
 
     /**
@@ -754,7 +1355,7 @@ public class BTOProjectManager {
      * @param applicationId id of the application.
      * @param applicant    applicant user.
      */
-    public void generateBookingReceipt(String projectId, String applicationId, User applicant) throws RuntimeException {
+    public synchronized void generateBookingReceipt(String projectId, String applicationId, User applicant) throws RuntimeException {
         final Optional<BTOProject> projectOpt = getProject(projectId);
         if (projectOpt.isEmpty()) {
             throw new RuntimeException("Project cannot be found.");
@@ -793,7 +1394,16 @@ public class BTOProjectManager {
         receipt.setTypeID(type.getId());
         receipt.setMaritalStatus(applicant.getMaritalStatus());
 
-        bookingReceipts.add(receipt);
+        if (bookingReceiptLog != null) {
+            try {
+                bookingReceiptLog.append(receipt);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to save booking receipt: " + e.getMessage(), e);
+            }
+        } else {
+            addReceipt(receipt);
+        }
+        logMutation((log) -> log.bookingReceiptAdded(receipt));
     }
 
     /**
@@ -803,7 +1413,15 @@ public class BTOProjectManager {
      * @return list of booking receipts for the user.
      */
     public List<BTOBookingReceipt> getBookingReceipts(String userId) {
-        return bookingReceipts.stream().filter((receipt) -> receipt.getUserId().equals(userId)).toList();
+        if (bookingReceiptLog != null) {
+            try {
+                return bookingReceiptLog.getBookingReceipts(userId);
+            } catch (IOException e) {
+                System.err.println(BashColors.format("Error reading booking receipts: " + e.getMessage(), BashColors.RED));
+                return List.of();
+            }
+        }
+        return bookingReceiptsByUser.getOrDefault(userId, List.of());
     }
 
     /**
@@ -0,0 +1,166 @@
+package com.group6.btoproject;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A frozen view of the projects of a {@link BTOProjectManager}, as they were when the
+ * snapshot was opened with {@link BTOProjectManager#openSnapshot()}.
+ * <p>
+ * Opening a snapshot only copies the manager's map of projects. Each snapshot has an epoch,
+ * and a project is copied the first time it is changed after the newest open snapshot's epoch,
+ * before the change is made. The snapshot reads that copy, while writers keep changing the
+ * live project at full speed. Projects that have not changed since are read in place,
+ * holding only that project's lock while they are read.
+ * </p>
+ * Close the snapshot once done, so projects stop being copied for it.
+ */
+public class BTOProjectSnapshot implements AutoCloseable {
+
+    private final Registry registry;
+    private final long epoch;
+    // Map<Project Id, Project> of the manager when the snapshot was opened.
+    private final Map<String, BTOProject> projects;
+    // Map<Project Id, Copy made before the project's first change after the epoch>
+    private final Map<String, BTOProject> copies = new ConcurrentHashMap<>();
+
+    /**
+     * Open snapshots of a manager's projects.
+     * Projects check the {@link #latestEpoch} before every change, see {@link BTOProject}.
+     */
+    static final class Registry {
+        private final List<BTOProjectSnapshot> openSnapshots = new CopyOnWriteArrayList<>();
+        // Epoch of the newest snapshot opened, 0 if none was ever opened.
+        private volatile long latestEpoch = 0;
+
+        /**
+         * Open a snapshot of the given projects.
+         *
+         * @param projects projects of the manager, copied into the snapshot.
+         * @return snapshot.
+         */
+        synchronized BTOProjectSnapshot open(Map<String, BTOProject> projects) {
+            final BTOProjectSnapshot snapshot = new BTOProjectSnapshot(this, latestEpoch + 1, projects);
+            openSnapshots.add(snapshot);
+            latestEpoch = snapshot.epoch;
+            return snapshot;
+        }
+
+        /**
+         * LatestEpoch getter.
+         *
+         * @return {@link #latestEpoch}
+         */
+        long getLatestEpoch() {
+            return latestEpoch;
+        }
+
+        /**
+         * Copy a project that is about to change into every open snapshot that was opened
+         * after the project was last copied, and does not have a copy of it yet.
+         * Called while holding the project's lock.
+         *
+         * @param project     project about to change.
+         * @param copiedEpoch epoch the project was last copied for.
+         */
+        void preserve(BTOProject project, long copiedEpoch) {
+            BTOProject copy = null;
+            for (BTOProjectSnapshot snapshot : openSnapshots) {
+                if (snapshot.epoch <= copiedEpoch || snapshot.projects.get(project.getId()) != project
+                        || snapshot.copies.containsKey(project.getId())) {
+                    continue;
+                }
+                if (copy == null) {
+                    copy = project.copy();
+                }
+                snapshot.copies.put(project.getId(), copy);
+            }
+        }
+
+        private void close(BTOProjectSnapshot snapshot) {
+            openSnapshots.remove(snapshot);
+        }
+    }
+
+    private BTOProjectSnapshot(Registry registry, long epoch, Map<String, BTOProject> projects) {
+        this.registry = registry;
+        this.epoch = epoch;
+        this.projects = Collections.unmodifiableMap(new LinkedHashMap<>(projects));
+    }
+
+    /**
+     * Epoch getter. Later snapshots have larger epochs.
+     *
+     * @return {@link #epoch}
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Projects in the snapshot, as the live instances of the manager.
+     * Their fields may have changed since the snapshot was opened, so read them
+     * with {@link #read(BTOProject, Function)}.
+     *
+     * @return projects.
+     */
+    public Collection<BTOProject> getProjects() {
+        return projects.values();
+    }
+
+    /**
+     * Read a project as it was when the snapshot was opened.
+     * The project passed to the reader must not be changed, or kept after the reader returns.
+     *
+     * @param project project of the snapshot.
+     * @param reader  reader of the project.
+     * @param <R>     result type.
+     * @return result of the reader.
+     * @throws RuntimeException if the project is not in the snapshot.
+     */
+    public <R> R read(BTOProject project, Function<BTOProject, R> reader) throws RuntimeException {
+        if (projects.get(project.getId()) != project) {
+            throw new RuntimeException("Project " + project.getId() + " is not in the snapshot.");
+        }
+        // Holding the lock stops the project from being changed, or copied, while it is read.
+        synchronized (project) {
+            final BTOProject copy = copies.get(project.getId());
+            return reader.apply(copy != null ? copy : project);
+        }
+    }
+
+    /**
+     * Read every project as it was when the snapshot was opened.
+     *
+     * @param consumer consumer of the projects, see {@link #read(BTOProject, Function)}.
+     */
+    public void forEach(Consumer<BTOProject> consumer) {
+        for (BTOProject project : projects.values()) {
+            read(project, (frozen) -> {
+                consumer.accept(frozen);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Number of projects copied because they changed after the snapshot was opened.
+     *
+     * @return number of copies.
+     */
+    public int getCopyCount() {
+        return copies.size();
+    }
+
+    /**
+     * Close the snapshot. Projects are no longer copied for it.
+     */
+    @Override
+    public void close() {
+        registry.close(this);
+        copies.clear();
+    }
+}
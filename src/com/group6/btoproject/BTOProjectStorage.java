@@ -1,18 +1,91 @@
 package com.group6.btoproject;
 
 import com.group6.utils.BashColors;
+import com.group6.utils.BinaryReader;
+import com.group6.utils.BlockCompressedFile;
+import com.group6.utils.ChunkedDecoder;
+import com.group6.utils.RecordFile;
 import com.group6.utils.Storage;
 
 import java.io.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
 
 /**
  * Storage class for {@link BTOProject} objects.
+ * <p>
+ * Projects are stored as one record per project in a {@link RecordFile},
+ * so saving a single project only writes that project. Records are encoded
+ * with {@link BTOProjectCodec}.
+ * Files in the old format (a single serialized list) are still read, and
+ * are converted on the next save.
+ * If a save was interrupted, every intact project is still loaded, see {@link RecordFile}.
+ * </p>
+ * With lazy loading, {@link #loadAll()} only decodes each project's header and
+ * the enquiries, applications, officer registrations and withdrawals are read
+ * from the file the first time the project needs them.
+ * <p>
+ * With incremental saves, {@link #saveAll(List)} only writes projects whose
+ * {@link BTOProject#getVersion()} changed since they were last loaded or saved,
+ * and deletes projects that are no longer in the list.
+ * </p>
+ * With compression, the file is written as a {@link BlockCompressedFile} snapshot instead.
+ * Every save then rewrites the whole file, so incremental saves do not apply.
  */
 public class BTOProjectStorage implements Storage<BTOProject> {
 
     private final String filename;
+    private final RecordFile recordFile;
+    private final BlockCompressedFile compressedFile;
+    private boolean lazyLoading = false;
+    private boolean compressed = false;
+    private boolean incrementalSaves = false;
+    // Map<Project Id, Project instance and version in the file>
+    private final Map<String, SavedVersion> savedVersions = new HashMap<>();
+
+    /**
+     * Project instance and version last loaded from or saved to the file.
+     *
+     * @param project project instance.
+     * @param version version of the project.
+     */
+    private record SavedVersion(BTOProject project, long version) {
+    }
+
+    /**
+     * Projects to write to the file, collected with {@link #collectChanges(Collection)}
+     * or {@link #collectChanges(BTOProjectSnapshot)} and written with {@link #saveChanges(Changes)}.
+     */
+    public static class Changes {
+        // Map<Project Id, Encoded project>
+        private final Map<String, byte[]> updated = new LinkedHashMap<>();
+        private final Set<String> deleted = new HashSet<>();
+        private final Map<String, SavedVersion> versions = new HashMap<>();
+        private final boolean isRewrite;
+
+        private Changes(boolean isRewrite) {
+            this.isRewrite = isRewrite;
+        }
+
+        /**
+         * Number of projects to write.
+         *
+         * @return number of updated projects.
+         */
+        public int getUpdatedCount() {
+            return updated.size();
+        }
+
+        /**
+         * Number of projects to delete.
+         *
+         * @return number of deleted projects.
+         */
+        public int getDeletedCount() {
+            return deleted.size();
+        }
+    }
 
     /**
      * Constructor for BTOProjectStorage.
@@ -21,6 +94,73 @@ public class BTOProjectStorage implements Storage<BTOProject> {
      */
     public BTOProjectStorage(String filename) {
         this.filename = filename;
+        this.recordFile = new RecordFile(filename);
+        this.compressedFile = new BlockCompressedFile(filename, Deflater.BEST_SPEED);
+    }
+
+    /**
+     * RecordFile getter.
+     *
+     * @return {@link #recordFile}
+     */
+    protected RecordFile getRecordFile() {
+        return recordFile;
+    }
+
+    /**
+     * LazyLoading getter.
+     *
+     * @return {@link #lazyLoading}
+     */
+    public boolean isLazyLoading() {
+        return lazyLoading;
+    }
+
+    /**
+     * LazyLoading setter.
+     * Only applies to projects loaded from a record file or compressed file after this is set.
+     *
+     * @param lazyLoading true to load project children on first access.
+     */
+    public void setLazyLoading(boolean lazyLoading) {
+        this.lazyLoading = lazyLoading;
+    }
+
+    /**
+     * IncrementalSaves getter.
+     *
+     * @return {@link #incrementalSaves}
+     */
+    public boolean isIncrementalSaves() {
+        return incrementalSaves;
+    }
+
+    /**
+     * IncrementalSaves setter.
+     *
+     * @param incrementalSaves true to only write changed projects in {@link #saveAll(List)}.
+     */
+    public void setIncrementalSaves(boolean incrementalSaves) {
+        this.incrementalSaves = incrementalSaves;
+    }
+
+    /**
+     * Compressed getter.
+     *
+     * @return {@link #compressed}
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Compressed setter.
+     * Files are loaded in either format, this only decides the format of the next save.
+     *
+     * @param compressed true to save the file as a compressed snapshot.
+     */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
     }
 
     /**
@@ -34,15 +174,19 @@ public class BTOProjectStorage implements Storage<BTOProject> {
         List<BTOProject> projects = new ArrayList<>();
 
         if (file.exists() && file.length() > 0) {
-            try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-                Object obj = ois.readObject();
-                if (obj instanceof List<?>) {
-                    List<?> list = (List<?>) obj;
-                    for (Object item : list) {
-                        if (item instanceof BTOProject) {
-                            projects.add((BTOProject) item);
-                        }
-                    }
+            try {
+                if (recordFile.isRecordFile()) {
+                    final Map<String, byte[]> records = recordFile.readAll();
+                    reportRecovery();
+                    projects.addAll(ChunkedDecoder.decodeAll(new ArrayList<>(records.values()),
+                            (payload) -> decode(new BinaryReader(payload), this::loadChildren)));
+                } else if (compressedFile.isBlockCompressedFile()) {
+                    // Records cannot be read again one at a time, so lazy loading keeps the payloads.
+                    projects.addAll(ChunkedDecoder.decodeAll(new ArrayList<>(compressedFile.readAll().values()),
+                            (payload) -> decode(new BinaryReader(payload),
+                                    (project) -> loadChildren(project, payload))));
+                } else {
+                    projects.addAll(loadLegacy(file));
                 }
             } catch (IOException | ClassNotFoundException e) {
                 System.err.println(BashColors.format("Error loading data: " + e.getMessage(), BashColors.RED));
@@ -51,42 +195,334 @@ public class BTOProjectStorage implements Storage<BTOProject> {
             System.out.println(BashColors.format("[BTO Projects] No data found in " + filename, BashColors.RED));
         }
 
+        rememberSaved(projects);
+        return projects;
+    }
+
+    /**
+     * Print what had to be dropped to read the record file, if anything.
+     */
+    protected void reportRecovery() {
+        recordFile.getLastRecovery().ifPresent((recovery) -> System.out.println(BashColors.format(
+                "[BTO Projects] Recovered " + filename + ": dropped " + recovery.droppedRecords()
+                        + " damaged projects and " + recovery.truncatedBytes() + " bytes of a partially saved project",
+                BashColors.RED)));
+    }
+
+    /**
+     * Remember the versions of projects loaded from the file.
+     *
+     * @param projects loaded projects.
+     */
+    protected synchronized void rememberSaved(List<BTOProject> projects) {
+        savedVersions.clear();
+        for (BTOProject project : projects) {
+            // Lazily loaded projects saved without the user ids of their children are saved
+            // again, so they can be indexed without being loaded next time.
+            final boolean isMissingUserIds = !project.isHydrated() && project.getSavedChildUserIds().isEmpty();
+            savedVersions.put(project.getId(), new SavedVersion(project, isMissingUserIds ? -1 : project.getVersion()));
+        }
+    }
+
+    /**
+     * Decode a project record. With lazy loading, only the header is decoded
+     * and the children are left to the loader.
+     *
+     * @param reader         reader positioned at the start of the record.
+     * @param childrenLoader loader used with lazy loading.
+     * @return project.
+     * @throws IOException if the record is malformed.
+     */
+    protected BTOProject decode(BinaryReader reader, Consumer<BTOProject> childrenLoader) throws IOException {
+        if (!lazyLoading) {
+            return BTOProjectCodec.decode(reader);
+        }
+        final BTOProject project = BTOProjectCodec.decodeHeader(reader);
+        project.setChildrenLoader(childrenLoader);
+        return project;
+    }
+
+    /**
+     * Reads a project's record again and adds its children.
+     * A project is always hydrated before it is saved, so the record still
+     * has the children the project was loaded with.
+     *
+     * @param project project loaded with lazy loading.
+     * @throws RuntimeException if the record cannot be read.
+     */
+    private void loadChildren(BTOProject project) throws RuntimeException {
+        try {
+            final Optional<byte[]> payload = recordFile.get(project.getId());
+            if (payload.isPresent()) {
+                BTOProjectCodec.decodeChildren(new BinaryReader(payload.get()), project);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load project " + project.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Adds a project's children from its record.
+     *
+     * @param project project loaded with lazy loading.
+     * @param payload record of the project.
+     * @throws RuntimeException if the record is malformed.
+     */
+    private void loadChildren(BTOProject project, byte[] payload) throws RuntimeException {
+        try {
+            BTOProjectCodec.decodeChildren(new BinaryReader(payload), project);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load project " + project.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Loads projects saved in the old format, a single serialized list.
+     *
+     * @param file file to load from.
+     * @return A list of projects.
+     */
+    private List<BTOProject> loadLegacy(File file) throws IOException, ClassNotFoundException {
+        List<BTOProject> projects = new ArrayList<>();
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
+            Object obj = ois.readObject();
+            if (obj instanceof List<?>) {
+                List<?> list = (List<?>) obj;
+                for (Object item : list) {
+                    if (item instanceof BTOProject) {
+                        projects.add((BTOProject) item);
+                    }
+                }
+            }
+        }
         return projects;
     }
 
     /**
      * Saves all projects to the file.
+     * With incremental saves, only changed projects are written.
      *
      * @param data A list of projects to be saved.
      */
     @Override
     public void saveAll(List<BTOProject> data) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filename))) {
-            oos.writeObject(data);
+        try {
+            saveChanges(collectChanges(data));
         } catch (IOException e) {
             System.err.println(BashColors.format("Error saving data: " + e.getMessage(), BashColors.RED));
         }
     }
 
+    /**
+     * Encode the projects that need to be written to save all projects.
+     * With compression, without incremental saves, or if the file is not a record file yet,
+     * every project is encoded and the file will be rewritten.
+     * <p>
+     * Only this step reads the projects, so callers can hold a lock for just this step,
+     * then write the changes with {@link #saveChanges(Changes)} without the lock.
+     * </p>
+     *
+     * @param projects all projects.
+     * @return changes to write.
+     * @throws IOException if the file cannot be read.
+     */
+    public synchronized Changes collectChanges(Collection<BTOProject> projects) throws IOException {
+        final Changes changes = new Changes(compressed || !incrementalSaves || !recordFile.isRecordFile());
+        final Set<String> ids = new HashSet<>();
+        for (BTOProject project : projects) {
+            ids.add(project.getId());
+            collectChange(changes, project, project);
+        }
+        collectDeleted(changes, ids);
+        return changes;
+    }
+
+    /**
+     * Encode the projects that need to be written to save every project of a snapshot,
+     * as they were when the snapshot was opened, see {@link #collectChanges(Collection)}.
+     * Other threads may keep changing the projects while they are encoded.
+     *
+     * @param snapshot snapshot of all projects.
+     * @return changes to write.
+     * @throws IOException if the file cannot be read.
+     */
+    public synchronized Changes collectChanges(BTOProjectSnapshot snapshot) throws IOException {
+        final Changes changes = new Changes(compressed || !incrementalSaves || !recordFile.isRecordFile());
+        final Set<String> ids = new HashSet<>();
+        for (BTOProject project : snapshot.getProjects()) {
+            ids.add(project.getId());
+            snapshot.read(project, (frozen) -> {
+                collectChange(changes, project, frozen);
+                return null;
+            });
+        }
+        collectDeleted(changes, ids);
+        return changes;
+    }
+
+    /**
+     * Encode a project if it changed since it was last loaded or saved.
+     *
+     * @param changes changes to add to.
+     * @param project project instance.
+     * @param state   state of the project to save, the project itself or a snapshot of it.
+     */
+    private void collectChange(Changes changes, BTOProject project, BTOProject state) {
+        // Read the version first, a change made while encoding is saved next time.
+        final SavedVersion version = new SavedVersion(project, state.getVersion());
+        if (changes.isRewrite || !version.equals(savedVersions.get(project.getId()))) {
+            changes.updated.put(project.getId(), BTOProjectCodec.encode(state));
+            changes.versions.put(project.getId(), version);
+        }
+    }
+
+    /**
+     * Add projects in the file that are not in the given ids to the deleted projects.
+     *
+     * @param changes changes to add to.
+     * @param ids     ids of all projects.
+     * @throws IOException if the file cannot be read.
+     */
+    private void collectDeleted(Changes changes, Set<String> ids) throws IOException {
+        if (!changes.isRewrite) {
+            for (String id : recordFile.keys()) {
+                if (!ids.contains(id)) {
+                    changes.deleted.add(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write changes collected with {@link #collectChanges(Collection)}.
+     * A rewrite replaces the file atomically. Otherwise each changed project's
+     * record is replaced and deleted projects are removed.
+     *
+     * @param changes changes to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public synchronized void saveChanges(Changes changes) throws IOException {
+        if (changes.isRewrite) {
+            writeAll(changes.updated);
+            savedVersions.clear();
+        } else {
+            for (Map.Entry<String, byte[]> record : changes.updated.entrySet()) {
+                recordFile.put(record.getKey(), record.getValue());
+            }
+            for (String id : changes.deleted) {
+                recordFile.remove(id);
+                savedVersions.remove(id);
+            }
+        }
+        savedVersions.putAll(changes.versions);
+    }
+
+    /**
+     * Saves a single project, replacing the project with the same id if any.
+     * Only this project's record is written, unless the file is compressed.
+     *
+     * @param data The project to be saved.
+     */
     @Override
-    public void save(BTOProject data) {
-        List<BTOProject> existingProjects = loadAll();
-
-        // Check if the project with the same ID already exists
-        boolean updated = false;
-        for (int i = 0; i < existingProjects.size(); i++) {
-            if (existingProjects.get(i).getId().equals(data.getId())) {
-                existingProjects.set(i, data);
-                updated = true;
-                break;
+    public synchronized void save(BTOProject data) {
+        try {
+            final SavedVersion version = new SavedVersion(data, data.getVersion());
+            if (compressed) {
+                final Map<String, byte[]> records = readRecords();
+                records.put(data.getId(), BTOProjectCodec.encode(data));
+                writeAll(records);
+            } else {
+                convertToRecordFile();
+                recordFile.put(data.getId(), BTOProjectCodec.encode(data));
             }
+            savedVersions.put(data.getId(), version);
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println(BashColors.format("Error saving data: " + e.getMessage(), BashColors.RED));
         }
+    }
 
-        // If not found, add it as a new project
-        if (!updated) {
-            existingProjects.add(data);
+    /**
+     * Deletes a single project.
+     *
+     * @param projectId id of the project to delete.
+     */
+    public synchronized void delete(String projectId) {
+        try {
+            if (compressed) {
+                final Map<String, byte[]> records = readRecords();
+                if (records.remove(projectId) != null) {
+                    writeAll(records);
+                }
+            } else {
+                convertToRecordFile();
+                recordFile.remove(projectId);
+            }
+            savedVersions.remove(projectId);
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println(BashColors.format("Error deleting data: " + e.getMessage(), BashColors.RED));
         }
+    }
 
-        saveAll(existingProjects);
+    /**
+     * Rewrites the file without the old versions of updated projects.
+     * Compressed files never have old versions.
+     */
+    public synchronized void compact() {
+        if (compressedFile.isBlockCompressedFile()) {
+            return;
+        }
+        try {
+            convertToRecordFile();
+            recordFile.compact();
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println(BashColors.format("Error compacting data: " + e.getMessage(), BashColors.RED));
+        }
+    }
+
+    /**
+     * Rewrites a file in the old format or a compressed file as a record file.
+     */
+    private void convertToRecordFile() throws IOException, ClassNotFoundException {
+        final File file = new File(filename);
+        if (file.exists() && file.length() > 0 && !recordFile.isRecordFile()) {
+            recordFile.writeAll(readRecords());
+        }
+    }
+
+    /**
+     * Reads every project's record, whatever the format of the file.
+     *
+     * @return records, keyed by project id.
+     */
+    private Map<String, byte[]> readRecords() throws IOException, ClassNotFoundException {
+        final File file = new File(filename);
+        if (!file.exists() || file.length() == 0) {
+            return new LinkedHashMap<>();
+        }
+        if (recordFile.isRecordFile()) {
+            return recordFile.readAll();
+        }
+        if (compressedFile.isBlockCompressedFile()) {
+            return compressedFile.readAll();
+        }
+        final Map<String, byte[]> records = new LinkedHashMap<>();
+        for (BTOProject project : loadLegacy(file)) {
+            records.put(project.getId(), BTOProjectCodec.encode(project));
+        }
+        return records;
+    }
+
+    /**
+     * Replaces the whole file, compressed or as a record file.
+     *
+     * @param records records to write, keyed by project id.
+     */
+    private void writeAll(Map<String, byte[]> records) throws IOException {
+        if (compressed) {
+            compressedFile.writeAll(records);
+            recordFile.clearIndex();
+        } else {
+            recordFile.writeAll(records);
+        }
     }
 }
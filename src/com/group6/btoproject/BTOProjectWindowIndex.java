@@ -0,0 +1,193 @@
+package com.group6.btoproject;
+
+import com.group6.utils.IntervalTree;
+
+import java.util.*;
+
+/**
+ * Index of the application windows of a {@link BTOProjectManager}'s projects, by the users
+ * managing them. Each manager has an {@link IntervalTree} of the projects they manage, and
+ * each officer has one of the projects they are a successfully registered officer of, so
+ * overlapping windows are found in O(log n + k) instead of by scanning every project.
+ * <p>
+ * Projects in the index tell it when their window or officer registrations change, see
+ * {@link BTOProject#setApplicationWindow(Date, Date)}. They do so after releasing their
+ * own lock, and the index reads the project's current state, so the index lock is always
+ * taken before a project's lock.
+ * </p>
+ * The officers of a project that is not loaded yet are not read when it is added, so adding
+ * does not load it. They are added with {@link #updateOfficer(BTOProject, String)} once
+ * the project is loaded, see {@link BTOProjectManager}.
+ */
+class BTOProjectWindowIndex {
+
+    // Map<Manager User Id, Projects of the manager>
+    private final Map<String, IntervalTree<BTOProject>> projectsByManager = new HashMap<>();
+    // Map<Officer User Id, Projects the officer is a successfully registered officer of>
+    private final Map<String, IntervalTree<BTOProject>> projectsByOfficer = new HashMap<>();
+    // Map<Project, Window and officers the project is indexed with>
+    private final Map<BTOProject, Entry> entries = new IdentityHashMap<>();
+
+    /**
+     * Where a project is in the index.
+     */
+    private static final class Entry {
+        private long openTimestamp;
+        private long closeTimestamp;
+        private final Set<String> officerUserIds = new HashSet<>();
+    }
+
+    /**
+     * Add a project to the index.
+     * Officers are only added if the project's children are loaded.
+     *
+     * @param project project.
+     */
+    synchronized void add(BTOProject project) {
+        if (entries.containsKey(project)) {
+            return;
+        }
+        final Entry entry = new Entry();
+        synchronized (project) {
+            entry.openTimestamp = project.getApplicationOpenDate().getTime();
+            entry.closeTimestamp = project.getApplicationCloseDate().getTime();
+            if (project.isHydrated()) {
+                project.getManagingOfficerRegistrations()
+                        .forEach((registration) -> entry.officerUserIds.add(registration.getOfficerUserId()));
+            }
+            project.setWindowIndex(this);
+        }
+        entries.put(project, entry);
+        addToTree(projectsByManager, project.getManagerUserId(), entry, project);
+        entry.officerUserIds.forEach((userId) -> addToTree(projectsByOfficer, userId, entry, project));
+    }
+
+    /**
+     * Remove a project from the index.
+     *
+     * @param project project.
+     */
+    synchronized void remove(BTOProject project) {
+        final Entry entry = entries.remove(project);
+        if (entry == null) {
+            return;
+        }
+        project.setWindowIndex(null);
+        removeFromTree(projectsByManager, project.getManagerUserId(), entry, project);
+        entry.officerUserIds.forEach((userId) -> removeFromTree(projectsByOfficer, userId, entry, project));
+    }
+
+    /**
+     * Move a project to its current application window.
+     *
+     * @param project project in the index.
+     */
+    synchronized void updateWindow(BTOProject project) {
+        final Entry entry = entries.get(project);
+        if (entry == null) {
+            return;
+        }
+        final long openTimestamp;
+        final long closeTimestamp;
+        synchronized (project) {
+            openTimestamp = project.getApplicationOpenDate().getTime();
+            closeTimestamp = project.getApplicationCloseDate().getTime();
+        }
+        if (openTimestamp == entry.openTimestamp && closeTimestamp == entry.closeTimestamp) {
+            return;
+        }
+        removeFromTree(projectsByManager, project.getManagerUserId(), entry, project);
+        entry.officerUserIds.forEach((userId) -> removeFromTree(projectsByOfficer, userId, entry, project));
+        entry.openTimestamp = openTimestamp;
+        entry.closeTimestamp = closeTimestamp;
+        addToTree(projectsByManager, project.getManagerUserId(), entry, project);
+        entry.officerUserIds.forEach((userId) -> addToTree(projectsByOfficer, userId, entry, project));
+    }
+
+    /**
+     * Add or remove a project from an officer's projects, by whether the officer is
+     * currently a successfully registered officer of it.
+     *
+     * @param project       project in the index.
+     * @param officerUserId officer user id.
+     */
+    synchronized void updateOfficer(BTOProject project, String officerUserId) {
+        final Entry entry = entries.get(project);
+        if (entry == null) {
+            return;
+        }
+        final boolean isManagingOfficer = project.isManagingOfficer(officerUserId);
+        if (isManagingOfficer && entry.officerUserIds.add(officerUserId)) {
+            addToTree(projectsByOfficer, officerUserId, entry, project);
+        } else if (!isManagingOfficer && entry.officerUserIds.remove(officerUserId)) {
+            removeFromTree(projectsByOfficer, officerUserId, entry, project);
+        }
+    }
+
+    /**
+     * Get the projects of a manager, by application window.
+     *
+     * @param managerUserId manager user id.
+     * @return projects of the manager.
+     */
+    synchronized List<BTOProject> getManagerProjects(String managerUserId) {
+        final IntervalTree<BTOProject> tree = projectsByManager.get(managerUserId);
+        return tree == null ? List.of() : tree.values();
+    }
+
+    /**
+     * Get the projects of a manager with an application window that overlaps the given window.
+     *
+     * @param managerUserId manager user id.
+     * @param openDate      open date of the window.
+     * @param closeDate     close date of the window.
+     * @return overlapping projects of the manager, by application window.
+     */
+    synchronized List<BTOProject> getManagerProjects(String managerUserId, Date openDate, Date closeDate) {
+        final IntervalTree<BTOProject> tree = projectsByManager.get(managerUserId);
+        return tree == null ? List.of() : tree.findOverlapping(openDate.getTime(), closeDate.getTime());
+    }
+
+    /**
+     * Get the projects an officer is a successfully registered officer of, by application window.
+     *
+     * @param officerUserId officer user id.
+     * @return projects of the officer.
+     */
+    synchronized List<BTOProject> getOfficerProjects(String officerUserId) {
+        final IntervalTree<BTOProject> tree = projectsByOfficer.get(officerUserId);
+        return tree == null ? List.of() : tree.values();
+    }
+
+    /**
+     * Get the projects an officer is a successfully registered officer of, with an
+     * application window that overlaps the given window.
+     *
+     * @param officerUserId officer user id.
+     * @param openDate      open date of the window.
+     * @param closeDate     close date of the window.
+     * @return overlapping projects of the officer, by application window.
+     */
+    synchronized List<BTOProject> getOfficerProjects(String officerUserId, Date openDate, Date closeDate) {
+        final IntervalTree<BTOProject> tree = projectsByOfficer.get(officerUserId);
+        return tree == null ? List.of() : tree.findOverlapping(openDate.getTime(), closeDate.getTime());
+    }
+
+    private static void addToTree(Map<String, IntervalTree<BTOProject>> trees, String userId, Entry entry,
+            BTOProject project) {
+        trees.computeIfAbsent(userId, (id) -> new IntervalTree<>())
+                .add(entry.openTimestamp, entry.closeTimestamp, project);
+    }
+
+    private static void removeFromTree(Map<String, IntervalTree<BTOProject>> trees, String userId, Entry entry,
+            BTOProject project) {
+        final IntervalTree<BTOProject> tree = trees.get(userId);
+        if (tree == null) {
+            return;
+        }
+        tree.remove(entry.openTimestamp, entry.closeTimestamp, project);
+        if (tree.isEmpty()) {
+            trees.remove(userId);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.group6.btoproject;
+
+import com.group6.utils.BashColors;
+import com.group6.utils.BinaryReader;
+import com.group6.utils.ChunkedDecoder;
+import com.group6.utils.RecordFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link BTOProjectStorage} that loads projects through a memory-mapped file.
+ * <p>
+ * Projects are decoded straight from the mapping with {@link BinaryReader},
+ * without copying each record into a byte array or going through an
+ * input stream. Saving is the same as {@link BTOProjectStorage}.
+ * Files in the old format are loaded the same way as {@link BTOProjectStorage}.
+ * </p>
+ * Note that on Windows a mapped file cannot be replaced until the mapping is
+ * garbage collected, and {@link #saveAll(List)} replaces the file, so this
+ * should not be used there.
+ */
+public class MappedBTOProjectStorage extends BTOProjectStorage {
+
+    /**
+     * Constructor for MappedBTOProjectStorage.
+     *
+     * @param filename The name of the file to store the projects.
+     */
+    public MappedBTOProjectStorage(String filename) {
+        super(filename);
+    }
+
+    /**
+     * Loads all projects from the mapped file.
+     *
+     * @return A list of projects.
+     */
+    @Override
+    public List<BTOProject> loadAll() {
+        final RecordFile recordFile = getRecordFile();
+        if (!recordFile.isRecordFile()) {
+            return super.loadAll();
+        }
+
+        final List<BTOProject> projects = new ArrayList<>();
+        try {
+            final List<ByteBuffer> records = new ArrayList<>(recordFile.mapAll().values());
+            reportRecovery();
+            projects.addAll(ChunkedDecoder.decodeAll(records,
+                    // With lazy loading, children are decoded from the mapping, which the
+                    // loader keeps alive until then.
+                    (payload) -> decode(new BinaryReader(payload.duplicate()), (project) -> {
+                        try {
+                            BTOProjectCodec.decodeChildren(new BinaryReader(payload.duplicate()), project);
+                        } catch (IOException e) {
+                            throw new RuntimeException("Failed to load project " + project.getName() + ": " + e.getMessage(), e);
+                        }
+                    })));
+        } catch (IOException e) {
+            System.err.println(BashColors.format("Error loading data: " + e.getMessage(), BashColors.RED));
+        }
+        rememberSaved(projects);
+        return projects;
+    }
+}
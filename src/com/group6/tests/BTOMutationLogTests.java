@@ -0,0 +1,156 @@
+package com.group6.tests;
+
+import com.group6.btoproject.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Replay tests for {@link BTOMutationLog}.
+ * A crash is simulated by closing the log without saving a snapshot, then replaying
+ * the log on a new manager loaded from the last snapshot.
+ */
+public class BTOMutationLogTests {
+
+    private static int failures = 0;
+
+    /**
+     * Main method to run the tests.
+     *
+     * @param args command line arguments.
+     */
+    public static void main(String[] args) throws IOException {
+        final File directory = Files.createTempDirectory("mutation-log-tests").toFile();
+        final File logFile = new File(directory, "mutations.log");
+        final Date today = new Date(System.currentTimeMillis());
+        final Date tomorrow = new Date(System.currentTimeMillis() + 86400_000);
+
+        // The last snapshot holds a single project, everything after it is only in the log.
+        final BTOProjectManager projectManager = newManager();
+        final BTOProject project = newProject("A", today, tomorrow);
+        projectManager.addProject(project);
+        final List<byte[]> snapshot = takeSnapshot(projectManager);
+
+        final BTOMutationLog mutationLog = new BTOMutationLog(logFile.getPath());
+        projectManager.setMutationLog(mutationLog);
+        final BTOProject project2 = newProject("B", today, tomorrow);
+        projectManager.addProject(project2);
+        projectManager.requestApply(project.getId(), "User 1", BTOProjectTypeID.S_2_ROOM);
+        projectManager.requestApply(project.getId(), "User 2", BTOProjectTypeID.S_2_ROOM);
+        projectManager.requestApply(project2.getId(), "User 3", BTOProjectTypeID.S_3_ROOM);
+        final String applicationId = project.getActiveApplication("User 1").get().getId();
+        final String application2Id = project.getActiveApplication("User 2").get().getId();
+        projectManager.transitionApplicationStatus(project.getId(), applicationId, BTOApplicationStatus.SUCCESSFUL);
+        projectManager.transitionApplicationStatus(project.getId(), applicationId, BTOApplicationStatus.BOOKED);
+        projectManager.requestWithdrawApplication(project.getId(), application2Id);
+        projectManager.transitionWithdrawApplicationStatus(project.getId(), application2Id,
+                BTOApplicationWithdrawalStatus.SUCCESSFUL);
+        projectManager.requestRegisterOfficer(project2.getId(), "User 4");
+        projectManager.transitionOfficerRegistrationStatus(project2.getId(), "User 4",
+                HDBOfficerRegistrationStatus.SUCCESSFUL);
+        // Crash, the snapshot is never saved.
+        mutationLog.close();
+        final List<byte[]> checkpoint = takeSnapshot(projectManager);
+        final List<String> expected = describe(projectManager);
+
+        System.out.println("Checking if replaying after a crash restores the same state:");
+        final BTOProjectManager recovered = loadSnapshot(snapshot);
+        new BTOMutationLog(logFile.getPath()).replay(recovered);
+        check("state", describe(recovered).equals(expected));
+        System.out.println("  Done!");
+
+        System.out.println("Checking if a partially written record at the end is dropped:");
+        final long logLength = logFile.length();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(logFile, true))) {
+            out.writeInt(64);
+            out.writeInt(0);
+            out.write(new byte[10]);
+        }
+        final BTOProjectManager tornTail = loadSnapshot(snapshot);
+        new BTOMutationLog(logFile.getPath()).replay(tornTail);
+        check("state", describe(tornTail).equals(expected));
+        check("log length", logFile.length() == logLength);
+        System.out.println("  Done!");
+
+        System.out.println("Checking if replaying a log already contained in the snapshot changes nothing:");
+        // A crash after the snapshot was saved, but before the log was reset.
+        final BTOProjectManager checkpointed = loadSnapshot(checkpoint);
+        new BTOMutationLog(logFile.getPath()).replay(checkpointed);
+        check("state", describe(checkpointed).equals(expected));
+        check("applications", checkpointed.getProject(project.getId())
+                .filter((replayedProject) -> replayedProject.getApplications().size() == 2)
+                .isPresent());
+        System.out.println("  Done!");
+
+        logFile.delete();
+        directory.delete();
+        System.out.println(failures == 0 ? "All checks passed." : failures + " checks failed.");
+    }
+
+    private static void check(String name, boolean passed) {
+        System.out.println("  " + name + ": " + (passed ? "OK" : "FAILED"));
+        if (!passed) {
+            failures++;
+        }
+    }
+
+    private static BTOProjectManager newManager() {
+        return new BTOProjectManager(new BTOProjectStorage("projects.txt"),
+                new BTOBookingReceiptStorage("booking-receipts.txt"));
+    }
+
+    private static BTOProject newProject(String name, Date openDate, Date closeDate) {
+        final BTOProject project = new BTOProject(UUID.randomUUID().toString(), UUID.randomUUID().toString());
+        project.setName(name);
+        project.setProjectType(new BTOProjectType(BTOProjectTypeID.S_2_ROOM, 15_000, 2));
+        project.setProjectType(new BTOProjectType(BTOProjectTypeID.S_3_ROOM, 40_000, 1));
+        project.setOfficerLimit(1);
+        project.setApplicationWindow(openDate, closeDate);
+        return project;
+    }
+
+    /**
+     * Encode every project, the same way snapshots are saved.
+     */
+    private static List<byte[]> takeSnapshot(BTOProjectManager projectManager) {
+        final List<byte[]> snapshot = new ArrayList<>();
+        projectManager.getProjects().values().forEach((project) -> snapshot.add(BTOProjectCodec.encode(project)));
+        return snapshot;
+    }
+
+    private static BTOProjectManager loadSnapshot(List<byte[]> snapshot) throws IOException {
+        final List<BTOProject> projects = new ArrayList<>();
+        for (byte[] bytes : snapshot) {
+            projects.add(BTOProjectCodec.decode(bytes));
+        }
+        final BTOProjectManager projectManager = newManager();
+        projectManager.setProjects(projects);
+        return projectManager;
+    }
+
+    /**
+     * Describe every project, ordered by id. Project types are sorted, as their order is not kept.
+     */
+    private static List<String> describe(BTOProjectManager projectManager) {
+        final List<String> projects = new ArrayList<>();
+        new TreeMap<>(projectManager.getProjects()).forEach((id, project) -> {
+            final StringBuilder description = new StringBuilder(id + " " + project.getName());
+            project.getProjectTypes().stream()
+                    .sorted(Comparator.comparing(BTOProjectType::getId))
+                    .forEach((type) -> description.append(" type:").append(type.getId())
+                            .append(':').append(type.getPrice()).append(':').append(type.getMaxQuantity()));
+            project.getApplications().forEach((application) -> description.append(" application:")
+                    .append(application.getId()).append(':').append(application.getApplicantUserId())
+                    .append(':').append(application.getTypeId()).append(':').append(application.getStatus()));
+            project.getHdbOfficerRegistrations().forEach((registration) -> description.append(" registration:")
+                    .append(registration.getId()).append(':').append(registration.getOfficerUserId())
+                    .append(':').append(registration.getStatus()));
+            project.getWithdrawals().forEach((withdrawal) -> description.append(" withdrawal:")
+                    .append(withdrawal.getId()).append(':').append(withdrawal.getApplicationId())
+                    .append(':').append(withdrawal.getStatus()).append(':').append(withdrawal.getRequestedOn()));
+            projects.add(description.toString());
+        });
+        return projects;
+    }
+}
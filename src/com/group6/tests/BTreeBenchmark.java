@@ -0,0 +1,115 @@
+package com.group6.tests;
+
+import com.group6.btoproject.*;
+import com.group6.users.RoleBasedUser;
+import com.group6.users.User;
+import com.group6.users.UserCodec;
+import com.group6.users.UserMaritalStatus;
+import com.group6.users.UserRole;
+import com.group6.utils.BTreeStorage;
+import com.group6.utils.BufferPool;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Benchmark of {@link BTreeStorage} point lookups, range scans and single saves of projects,
+ * users and booking receipts, with a buffer pool much smaller than the file.
+ * Run with optional args: [project count] [applications per project] [user count] [cache pages].
+ */
+public class BTreeBenchmark {
+
+    private static final int LOOKUPS = 20_000;
+    private static final int SAVES = 200;
+
+    /**
+     * Main method to run the benchmark.
+     *
+     * @param args command line arguments.
+     */
+    public static void main(String[] args) throws Exception {
+        final int projectCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        final int applicationsPerProject = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        final int userCount = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+        final int cacheCapacity = args.length > 3 ? Integer.parseInt(args[3]) : 256;
+        final File directory = Files.createTempDirectory("bto-btree").toFile();
+        directory.deleteOnExit();
+
+        final BTOProjectManager projectManager = StorageBenchmark.generate(projectCount, applicationsPerProject);
+        final List<BTOProject> projects = new ArrayList<>(projectManager.getProjects().values());
+        final List<BTOBookingReceipt> receipts = new ArrayList<>(projectManager.getBookingReceipts());
+        final List<User> users = new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++) {
+            users.add(new RoleBasedUser(UserRole.APPLICANT, UUID.randomUUID().toString(), "Applicant " + i,
+                    String.format("S%07dA", i), 35, UserMaritalStatus.MARRIED, "password"));
+        }
+
+        System.out.printf("%-10s %9s %11s %7s %10s %12s %12s %12s %9s%n", "data", "count", "size (KB)", "height",
+                "save (ms)", "lookup (us)", "scan (ms)", "update (ms)", "hit rate");
+        run("projects", projects, BTOProject::getId, new BTreeStorage<>(new File(directory, "projects.db").getPath(),
+                BTOProject::getId, BTOProjectCodec::encode, BTOProjectCodec::decode), cacheCapacity);
+        run("users", users, User::getId, new BTreeStorage<>(new File(directory, "users.db").getPath(),
+                User::getId, UserCodec::encode, UserCodec::decode), cacheCapacity);
+        run("receipts", receipts, BTOBookingReceipt::getId, new BTreeStorage<>(
+                new File(directory, "receipts.db").getPath(), BTOBookingReceipt::getId,
+                BTOBookingReceiptCodec::encode, BTOBookingReceiptCodec::decode), cacheCapacity);
+    }
+
+    /**
+     * Measure saving every object, random point lookups, a range scan of a tenth of the ids,
+     * and single object saves.
+     */
+    private static <T> void run(String data, List<T> objects, Function<T, String> idGetter,
+            BTreeStorage<T> storage, int cacheCapacity) throws IOException {
+        storage.setCacheCapacity(cacheCapacity);
+        final File file = storage.getFile();
+        file.deleteOnExit();
+
+        long start = System.nanoTime();
+        storage.saveAll(objects);
+        final double saveMillis = (System.nanoTime() - start) / 1e6;
+
+        final List<String> ids = objects.stream().map(idGetter).sorted().toList();
+        final Random random = new Random(42);
+        // Warm up the decoders before measuring.
+        for (int i = 0; i < LOOKUPS / 10; i++) {
+            storage.get(ids.get(random.nextInt(ids.size())));
+        }
+        final BufferPool bufferPool = storage.getTree().getBufferPool();
+        final long hitsBefore = bufferPool.getHits();
+        final long missesBefore = bufferPool.getMisses();
+        start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            final String id = ids.get(random.nextInt(ids.size()));
+            if (storage.get(id).isEmpty()) {
+                throw new IOException("Missing " + data + " " + id);
+            }
+        }
+        final double lookupMicros = (System.nanoTime() - start) / 1e3 / LOOKUPS;
+        final long hits = bufferPool.getHits() - hitsBefore;
+        final long misses = bufferPool.getMisses() - missesBefore;
+
+        final int from = ids.size() / 2;
+        final int to = Math.min(ids.size() - 1, from + ids.size() / 10);
+        start = System.nanoTime();
+        final int scanned = storage.scan(ids.get(from), ids.get(to)).size();
+        final double scanMillis = (System.nanoTime() - start) / 1e6;
+        if (scanned != to - from) {
+            throw new IOException("Scanned " + scanned + " " + data + ", expected " + (to - from));
+        }
+
+        start = System.nanoTime();
+        for (int i = 0; i < SAVES; i++) {
+            storage.save(objects.get(random.nextInt(objects.size())));
+        }
+        final double updateMillis = (System.nanoTime() - start) / 1e6 / SAVES;
+
+        System.out.printf("%-10s %9d %11d %7d %10.1f %12.2f %12.2f %12.2f %8.1f%%%n", data, objects.size(),
+                file.length() / 1024, storage.getTree().getHeight(), saveMillis, lookupMicros, scanMillis,
+                updateMillis, 100.0 * hits / Math.max(hits + misses, 1));
+        storage.close();
+    }
+}
@@ -0,0 +1,209 @@
+package com.group6.tests;
+
+import com.group6.utils.BPlusTree;
+import com.group6.utils.BTreeStorage;
+import com.group6.utils.PageFile;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32C;
+
+/**
+ * Randomized tests of {@link BTreeStorage} and {@link BPlusTree} against a {@link TreeMap}.
+ * Objects are strings of "id=value", with values long enough to need overflow pages at times,
+ * and the cache is kept small so pages are evicted and read back.
+ * Run with optional args: [seed] [operations].
+ */
+public class BTreeStorageTests {
+
+    private static final int KEY_SPACE = 2000;
+    private static final int CACHE_CAPACITY = 8;
+    private static final int CHECK_INTERVAL = 1000;
+
+    private static int failures = 0;
+
+    /**
+     * Main method to run the tests.
+     *
+     * @param args command line arguments.
+     */
+    public static void main(String[] args) throws IOException {
+        final long seed = args.length > 0 ? Long.parseLong(args[0]) : System.nanoTime();
+        final int operations = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        final File directory = Files.createTempDirectory("btree-tests").toFile();
+        final Random random = new Random(seed);
+        System.out.println("Seed: " + seed);
+
+        System.out.println("Checking random puts, deletes, reopens and saveAll against a TreeMap:");
+        final File file = new File(directory, "objects.db");
+        final BTreeStorage<String> storage = newStorage(file);
+        final TreeMap<String, String> expected = new TreeMap<>();
+        boolean isMatching = true;
+        for (int i = 1; i <= operations && isMatching; i++) {
+            final String id = String.format("id-%05d", random.nextInt(KEY_SPACE));
+            final int operation = random.nextInt(100);
+            if (operation < 60) {
+                final String object = newObject(id, random);
+                storage.save(object);
+                expected.put(id, object);
+            } else if (operation < 90) {
+                final boolean isRemoved = storage.delete(id);
+                if (isRemoved != (expected.remove(id) != null)) {
+                    System.out.println("  delete of " + id + " at operation " + i + " returned " + isRemoved);
+                    isMatching = false;
+                }
+            } else if (operation < 99) {
+                storage.close();
+            } else {
+                storage.saveAll(new ArrayList<>(expected.values()));
+            }
+            if (i % CHECK_INTERVAL == 0 && !isMatching(storage, expected, random)) {
+                System.out.println("  mismatch after operation " + i);
+                isMatching = false;
+            }
+        }
+        check("contents", isMatching && isMatching(storage, expected, random));
+        storage.close();
+        final BTreeStorage<String> reopened = newStorage(file);
+        check("contents after reopening", isMatching(reopened, expected, random));
+        reopened.close();
+        System.out.println("  Done!");
+
+        System.out.println("Checking if saveAll replays a leftover journal before replacing the file:");
+        // A crash after a save wrote its journal, but before it wrote the file.
+        final File crashed = new File(directory, "crashed.db");
+        final File crashedJournal = new File(crashed.getPath() + ".journal");
+        final BTreeStorage<String> crashedStorage = newStorage(crashed);
+        crashedStorage.saveAll(new ArrayList<>(expected.values()));
+        crashedStorage.close();
+        final byte[] before = Files.readAllBytes(crashed.toPath());
+        final String newObject = newObject("id-new", random);
+        crashedStorage.save(newObject);
+        crashedStorage.close();
+        writeJournal(crashedJournal, before, Files.readAllBytes(crashed.toPath()));
+        Files.write(crashed.toPath(), before);
+        final File journalCopy = new File(directory, "crashed.journal.copy");
+        Files.copy(crashedJournal.toPath(), journalCopy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        final BTreeStorage<String> reopenedStorage = newStorage(crashed);
+        check("journal replayed on open", reopenedStorage.get("id-new")
+                .filter(newObject::equals)
+                .isPresent());
+        reopenedStorage.close();
+        Files.write(crashed.toPath(), before);
+        Files.copy(journalCopy.toPath(), crashedJournal.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        final List<String> replacement = new ArrayList<>(expected.values()).subList(0, expected.size() / 2);
+        final BTreeStorage<String> replacingStorage = newStorage(crashed);
+        replacingStorage.saveAll(replacement);
+        replacingStorage.close();
+        check("journal deleted", !crashedJournal.exists());
+        final TreeMap<String, String> expectedReplacement = new TreeMap<>();
+        replacement.forEach((object) -> expectedReplacement.put(idOf(object), object));
+        final BTreeStorage<String> replaced = newStorage(crashed);
+        check("contents", isMatching(replaced, expectedReplacement, random));
+        replaced.close();
+        System.out.println("  Done!");
+
+        for (File leftover : directory.listFiles()) {
+            leftover.delete();
+        }
+        directory.delete();
+        System.out.println(failures == 0 ? "All checks passed." : failures + " checks failed.");
+    }
+
+    private static void check(String name, boolean passed) {
+        System.out.println("  " + name + ": " + (passed ? "OK" : "FAILED"));
+        if (!passed) {
+            failures++;
+        }
+    }
+
+    private static BTreeStorage<String> newStorage(File file) {
+        final BTreeStorage<String> storage = new BTreeStorage<>(file.getPath(), BTreeStorageTests::idOf,
+                (object) -> object.getBytes(StandardCharsets.UTF_8),
+                (bytes) -> new String(bytes, StandardCharsets.UTF_8));
+        storage.setCacheCapacity(CACHE_CAPACITY);
+        return storage;
+    }
+
+    private static String idOf(String object) {
+        return object.substring(0, object.indexOf('='));
+    }
+
+    /**
+     * New object with a value of random length, sometimes over {@link BPlusTree#MAX_INLINE_VALUE}.
+     */
+    private static String newObject(String id, Random random) {
+        final int length = random.nextInt(10) == 0
+                ? BPlusTree.MAX_INLINE_VALUE + random.nextInt(3 * PageFile.PAGE_SIZE)
+                : random.nextInt(64);
+        final StringBuilder object = new StringBuilder(id).append('=');
+        for (int i = 0; i < length; i++) {
+            object.append((char) ('a' + random.nextInt(26)));
+        }
+        return object.toString();
+    }
+
+    /**
+     * Compare the size, a full scan, a random range scan and random lookups with the expected objects.
+     */
+    private static boolean isMatching(BTreeStorage<String> storage, TreeMap<String, String> expected,
+            Random random) throws IOException {
+        if (storage.size() != expected.size()) {
+            return false;
+        }
+        if (!storage.loadAll().equals(new ArrayList<>(expected.values()))) {
+            return false;
+        }
+        final String fromId = String.format("id-%05d", random.nextInt(KEY_SPACE));
+        final String toId = String.format("id-%05d", random.nextInt(KEY_SPACE));
+        if (fromId.compareTo(toId) <= 0
+                && !storage.scan(fromId, toId).equals(new ArrayList<>(expected.subMap(fromId, toId).values()))) {
+            return false;
+        }
+        for (int i = 0; i < 100; i++) {
+            final String id = String.format("id-%05d", random.nextInt(KEY_SPACE));
+            if (!storage.get(id).equals(Optional.ofNullable(expected.get(id)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write a complete journal of the pages that differ between two versions of a file,
+     * in the layout {@link PageFile} writes: [int magic][int page count]
+     * followed by [int page number][page] for each page, and [int CRC32C].
+     */
+    private static void writeJournal(File journalFile, byte[] before, byte[] after) throws IOException {
+        final SortedMap<Integer, byte[]> pages = new TreeMap<>();
+        for (int page = 0; page * PageFile.PAGE_SIZE < after.length; page++) {
+            final int from = page * PageFile.PAGE_SIZE;
+            final byte[] afterPage = Arrays.copyOfRange(after, from, from + PageFile.PAGE_SIZE);
+            final byte[] beforePage = from < before.length
+                    ? Arrays.copyOfRange(before, from, from + PageFile.PAGE_SIZE)
+                    : null;
+            if (!Arrays.equals(afterPage, beforePage)) {
+                pages.put(page, afterPage);
+            }
+        }
+        final CRC32C checksum = new CRC32C();
+        final ByteBuffer header = ByteBuffer.allocate(4);
+        checksum.update(header.putInt(0, pages.size()).array());
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(journalFile))) {
+            out.writeInt(0x42544F4A);
+            out.writeInt(pages.size());
+            for (Map.Entry<Integer, byte[]> page : pages.entrySet()) {
+                checksum.update(header.putInt(0, page.getKey()).array());
+                checksum.update(page.getValue());
+                out.writeInt(page.getKey());
+                out.write(page.getValue());
+            }
+            out.writeInt((int) checksum.getValue());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.group6.tests;
+
+import com.group6.btoproject.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark of saving and loading {@link BTOProjectStorage} and {@link BTOBookingReceiptStorage}
+ * files with compression off and on, across dataset sizes.
+ * Run with optional args: [project counts, comma separated] [applications per project].
+ */
+public class CompressionBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 5;
+
+    /**
+     * Main method to run the benchmark.
+     *
+     * @param args command line arguments.
+     */
+    public static void main(String[] args) throws Exception {
+        final String[] projectCounts = (args.length > 0 ? args[0] : "100,1000,4000").split(",");
+        final int applicationsPerProject = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        final File directory = Files.createTempDirectory("bto-compression").toFile();
+        directory.deleteOnExit();
+
+        System.out.printf("%-10s %-10s %-6s %12s %10s %10s%n",
+                "projects", "data", "mode", "size (bytes)", "save (ms)", "load (ms)");
+        for (String projectCount : projectCounts) {
+            final int count = Integer.parseInt(projectCount.trim());
+            final BTOProjectManager projectManager = StorageBenchmark.generate(count, applicationsPerProject);
+            final List<BTOProject> projects = new ArrayList<>(projectManager.getProjects().values());
+            final List<BTOBookingReceipt> receipts = new ArrayList<>(projectManager.getBookingReceipts());
+
+            for (boolean compressed : new boolean[] { false, true }) {
+                final File projectFile = new File(directory, "projects-" + count + "-" + compressed + ".txt");
+                final BTOProjectStorage projectStorage = new BTOProjectStorage(projectFile.getPath());
+                projectStorage.setCompressed(compressed);
+                final long[] projectResult = measure(projectFile,
+                        () -> projectStorage.saveAll(projects),
+                        () -> projectStorage.loadAll().size() == projects.size());
+                print(count, "projects", compressed, projectResult);
+
+                final File receiptFile = new File(directory, "receipts-" + count + "-" + compressed + ".txt");
+                final BTOBookingReceiptStorage receiptStorage = new BTOBookingReceiptStorage(receiptFile.getPath());
+                receiptStorage.setCompressed(compressed);
+                final long[] receiptResult = measure(receiptFile,
+                        () -> receiptStorage.saveAll(receipts),
+                        () -> receiptStorage.loadAll().size() == receipts.size());
+                print(count, "receipts", compressed, receiptResult);
+
+                projectFile.deleteOnExit();
+                receiptFile.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Checks that a load returned everything that was saved.
+     */
+    private interface Load {
+        boolean load();
+    }
+
+    /**
+     * Measure saving and loading a file.
+     *
+     * @return [size in bytes, average save nanos, average load nanos].
+     */
+    private static long[] measure(File file, Runnable save, Load load) throws IOException {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            save.run();
+            load.load();
+        }
+        long saveNanos = 0;
+        long loadNanos = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            save.run();
+            saveNanos += System.nanoTime() - start;
+            start = System.nanoTime();
+            if (!load.load()) {
+                throw new IOException("Loaded data does not match saved data in " + file.getName());
+            }
+            loadNanos += System.nanoTime() - start;
+        }
+        return new long[] { file.length(), saveNanos / MEASURED_ROUNDS, loadNanos / MEASURED_ROUNDS };
+    }
+
+    private static void print(int projectCount, String data, boolean compressed, long[] result) {
+        System.out.printf("%-10d %-10s %-6s %12d %10.2f %10.2f%n", projectCount, data,
+                compressed ? "on" : "off", result[0], result[1] / 1e6, result[2] / 1e6);
+    }
+}
@@ -0,0 +1,118 @@
+package com.group6.tests;
+
+import com.group6.ApplicationExporter;
+import com.group6.btoproject.*;
+import com.group6.utils.ColumnarReader;
+import com.group6.utils.ColumnarWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Benchmark of {@link ApplicationExporter}: export throughput, bytes per row, and scanning
+ * the exported applications by status, reading one column at a time.
+ * Run with optional args: [project count] [applications per project] [row group size].
+ */
+public class ExportBenchmark {
+
+    /**
+     * Main method to run the benchmark.
+     *
+     * @param args command line arguments.
+     */
+    public static void main(String[] args) throws Exception {
+        final int projectCount = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        final int applicationsPerProject = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        final int rowGroupSize = args.length > 2 ? Integer.parseInt(args[2]) : ColumnarWriter.DEFAULT_ROW_GROUP_SIZE;
+        final File directory = Files.createTempDirectory("bto-export").toFile();
+
+        final BTOProjectManager projectManager = StorageBenchmark.generate(projectCount, applicationsPerProject);
+        final Map<BTOApplicationStatus, Long> expectedStatuses = new EnumMap<>(BTOApplicationStatus.class);
+        long encodedBytes = 0;
+        for (BTOProject project : projectManager.getProjects().values()) {
+            encodedBytes += BTOProjectCodec.encode(project).length;
+            for (BTOApplication application : project.getApplications()) {
+                expectedStatuses.merge(application.getStatus(), 1L, Long::sum);
+            }
+        }
+
+        final long start = System.nanoTime();
+        final ApplicationExporter.Export export = ApplicationExporter.export(projectManager, directory, rowGroupSize);
+        final double exportSeconds = (System.nanoTime() - start) / 1e9;
+        final long exportedBytes = directorySize(directory);
+        System.out.printf("Exported %d rows in %d row groups in %.2f s (%.0f rows/s)%n", export.rows(),
+                export.rowGroups(), exportSeconds, export.rows() / exportSeconds);
+        System.out.printf("Export size %d KB (%.1f bytes/row), project records %d KB%n", exportedBytes / 1024,
+                (double) exportedBytes / export.rows(), encodedBytes / 1024);
+
+        try (ColumnarReader reader = new ColumnarReader(new File(directory, ApplicationExporter.APPLICATIONS))) {
+            final int status = reader.getColumnIndex("status");
+            final int projectId = reader.getColumnIndex("project_id");
+            System.out.printf("Status column %d bytes, project id column %d bytes%n",
+                    columnLength(reader, status), columnLength(reader, projectId));
+
+            // Count statuses, reading only the status column.
+            long scanStart = System.nanoTime();
+            final Map<BTOApplicationStatus, Long> statuses = new EnumMap<>(BTOApplicationStatus.class);
+            for (int i = 0; i < reader.getRowGroups().size(); i++) {
+                for (BTOApplicationStatus value : reader.readEnums(i, status, BTOApplicationStatus.values())) {
+                    statuses.merge(value, 1L, Long::sum);
+                }
+            }
+            final double scanMillis = (System.nanoTime() - scanStart) / 1e6;
+            if (!statuses.equals(expectedStatuses)) {
+                throw new IOException("Exported statuses " + statuses + ", expected " + expectedStatuses);
+            }
+            System.out.printf("Scanned %d statuses in %.1f ms: %s%n", reader.getRowCount(), scanMillis, statuses);
+
+            // Find one project's applications, skipping row groups by their project id statistics.
+            final String targetId = projectManager.getProjects().keySet().iterator().next();
+            scanStart = System.nanoTime();
+            int skipped = 0;
+            long matches = 0;
+            for (int i = 0; i < reader.getRowGroups().size(); i++) {
+                final ColumnarWriter.Statistics statistics = reader.getRowGroups().get(i).getStatistics(projectId);
+                if (targetId.compareTo((String) statistics.min()) < 0 || targetId.compareTo((String) statistics.max()) > 0) {
+                    skipped++;
+                    continue;
+                }
+                for (String value : reader.readStrings(i, projectId)) {
+                    if (targetId.equals(value)) {
+                        matches++;
+                    }
+                }
+            }
+            if (matches != applicationsPerProject) {
+                throw new IOException("Found " + matches + " applications, expected " + applicationsPerProject);
+            }
+            System.out.printf("Found %d applications of one project in %.1f ms, skipping %d of %d row groups%n",
+                    matches, (System.nanoTime() - scanStart) / 1e6, skipped, reader.getRowGroups().size());
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    private static long columnLength(ColumnarReader reader, int column) {
+        return reader.getRowGroups().stream().mapToLong((group) -> group.getLength(column)).sum();
+    }
+
+    private static long directorySize(File directory) {
+        long size = 0;
+        for (File file : Objects.requireNonNull(directory.listFiles())) {
+            size += file.isDirectory() ? directorySize(file) : file.length();
+        }
+        return size;
+    }
+
+    private static void deleteRecursively(File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
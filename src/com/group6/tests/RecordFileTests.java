@@ -0,0 +1,185 @@
+package com.group6.tests;
+
+import com.group6.utils.RecordFile;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Crash recovery tests for {@link RecordFile}.
+ * Crashes are simulated by editing the file directly, then reading it with a new {@link RecordFile}.
+ */
+public class RecordFileTests {
+
+    private static final int FILE_HEADER_SIZE = 6;
+
+    private static File directory;
+    private static int failures = 0;
+
+    /**
+     * Main method to run the tests.
+     *
+     * @param args command line arguments.
+     */
+    public static void main(String[] args) throws IOException {
+        directory = Files.createTempDirectory("record-file-tests").toFile();
+
+        System.out.println("Checking if a partially written record at the end is cut off:");
+        final File tornTail = writeRecords("torn-tail", "a", "b", "c");
+        final long intactLength = tornTail.length();
+        final byte[] nextRecord = encodeRecord("d", payload("d"));
+        append(tornTail, Arrays.copyOf(nextRecord, nextRecord.length / 2));
+        final RecordFile tornTailFile = new RecordFile(tornTail.getPath());
+        check("records", hasRecords(tornTailFile.readAll(), "a", "b", "c"));
+        check("recovery", tornTailFile.getLastRecovery()
+                .filter((recovery) -> recovery.droppedRecords() == 0
+                        && recovery.truncatedBytes() == nextRecord.length / 2)
+                .isPresent());
+        check("file length", tornTail.length() == intactLength);
+        System.out.println("  Done!");
+
+        System.out.println("Checking if a damaged record in the middle is dropped, keeping the rest:");
+        final File damaged = writeRecords("damaged", "a", "b", "c");
+        // Flip a payload byte of "b", the second record.
+        final int damagedOffset = FILE_HEADER_SIZE + encodeRecord("a", payload("a")).length + 10;
+        flipByte(damaged, damagedOffset);
+        final RecordFile damagedFile = new RecordFile(damaged.getPath());
+        check("records", hasRecords(damagedFile.readAll(), "a", "c"));
+        check("recovery", damagedFile.getLastRecovery()
+                .filter((recovery) -> recovery.droppedRecords() == 1 && recovery.truncatedBytes() == 0)
+                .isPresent());
+        final RecordFile reopenedFile = new RecordFile(damaged.getPath());
+        check("records after reopening", hasRecords(reopenedFile.readAll(), "a", "c"));
+        check("recovered only once", reopenedFile.getLastRecovery().isEmpty());
+        System.out.println("  Done!");
+
+        System.out.println("Checking if a stale live duplicate loses to the newer version:");
+        // A crash between appending the new version and marking the old one dead.
+        final File duplicate = writeRecords("duplicate", "a", "b");
+        append(duplicate, encodeRecord("a", payload("a2")));
+        final RecordFile duplicateFile = new RecordFile(duplicate.getPath());
+        final Map<String, byte[]> duplicateRecords = duplicateFile.readAll();
+        check("records", duplicateRecords.size() == 2
+                && Arrays.equals(duplicateRecords.get("a"), payload("a2"))
+                && Arrays.equals(duplicateRecords.get("b"), payload("b")));
+        check("old version marked dead", readByte(duplicate, FILE_HEADER_SIZE) == 0);
+        check("newer version after reopening", new RecordFile(duplicate.getPath()).get("a")
+                .filter((payload) -> Arrays.equals(payload, payload("a2")))
+                .isPresent());
+        System.out.println("  Done!");
+
+        System.out.println("Checking if a version 1 file is read and rewritten with checksums on the next write:");
+        final File unchecked = new File(directory, "unchecked");
+        writeVersion1File(unchecked, "a", "b");
+        final RecordFile uncheckedFile = new RecordFile(unchecked.getPath());
+        check("records", hasRecords(uncheckedFile.readAll(), "a", "b"));
+        uncheckedFile.put("c", payload("c"));
+        check("version", readShort(unchecked, 4) == 2);
+        check("records after the write", hasRecords(new RecordFile(unchecked.getPath()).readAll(), "a", "b", "c"));
+        flipByte(unchecked, FILE_HEADER_SIZE + 10);
+        check("checksums after the write", hasRecords(new RecordFile(unchecked.getPath()).readAll(), "b", "c"));
+        System.out.println("  Done!");
+
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+        System.out.println(failures == 0 ? "All checks passed." : failures + " checks failed.");
+    }
+
+    private static void check(String name, boolean passed) {
+        System.out.println("  " + name + ": " + (passed ? "OK" : "FAILED"));
+        if (!passed) {
+            failures++;
+        }
+    }
+
+    private static byte[] payload(String value) {
+        return ("payload of " + value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static boolean hasRecords(Map<String, byte[]> records, String... keys) {
+        if (records.size() != keys.length) {
+            return false;
+        }
+        for (String key : keys) {
+            if (!Arrays.equals(records.get(key), payload(key))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write records with a {@link RecordFile}, their payloads from {@link #payload(String)}.
+     */
+    private static File writeRecords(String name, String... keys) throws IOException {
+        final File file = new File(directory, name);
+        final Map<String, byte[]> records = new LinkedHashMap<>();
+        for (String key : keys) {
+            records.put(key, payload(key));
+        }
+        new RecordFile(file.getPath()).writeAll(records);
+        return file;
+    }
+
+    /**
+     * Encode a live record the way {@link RecordFile} writes it, by writing it to a file of its own.
+     */
+    private static byte[] encodeRecord(String key, byte[] payload) throws IOException {
+        final File file = new File(directory, "encode-" + key);
+        new RecordFile(file.getPath()).put(key, payload);
+        final byte[] bytes = Files.readAllBytes(file.toPath());
+        file.delete();
+        return Arrays.copyOfRange(bytes, FILE_HEADER_SIZE, bytes.length);
+    }
+
+    /**
+     * Write a file in the version 1 layout, which has no checksums.
+     */
+    private static void writeVersion1File(File file, String... keys) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(0x42544F52);
+            out.writeShort(1);
+            for (String key : keys) {
+                out.writeByte(1);
+                out.writeUTF(key);
+                out.writeInt(payload(key).length);
+                out.write(payload(key));
+            }
+        }
+    }
+
+    private static void append(File file, byte[] bytes) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(bytes);
+        }
+    }
+
+    private static void flipByte(File file, long offset) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(offset);
+            final int value = raf.read();
+            raf.seek(offset);
+            raf.write(value ^ 0xFF);
+        }
+    }
+
+    private static int readByte(File file, long offset) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(offset);
+            return raf.read();
+        }
+    }
+
+    private static int readShort(File file, long offset) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(offset);
+            return raf.readShort();
+        }
+    }
+}
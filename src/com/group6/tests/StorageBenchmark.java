@@ -0,0 +1,198 @@
+package com.group6.tests;
+
+import com.group6.btoproject.*;
+import com.group6.users.RoleBasedUser;
+import com.group6.users.User;
+import com.group6.users.UserMaritalStatus;
+import com.group6.users.UserRole;
+import com.group6.utils.BinaryReader;
+import com.group6.utils.BinaryWriter;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Round-trip benchmark of {@link BTOProjectCodec} and {@link BTOBookingReceiptCodec}
+ * against java.io serialization.
+ * Run with optional args: [project count] [applications per project].
+ */
+public class StorageBenchmark {
+
+    private static final int WARMUP_ROUNDS = 50;
+    private static final int MEASURED_ROUNDS = 20;
+
+    /**
+     * Main method to run the benchmark.
+     *
+     * @param args command line arguments.
+     */
+    public static void main(String[] args) throws Exception {
+        final int projectCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        final int applicationsPerProject = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        System.out.println("Generating " + projectCount + " projects with " + applicationsPerProject
+                + " applications each...");
+        final BTOProjectManager projectManager = generate(projectCount, applicationsPerProject);
+        final List<BTOProject> projects = new ArrayList<>(projectManager.getProjects().values());
+        final List<BTOBookingReceipt> receipts = new ArrayList<>(projectManager.getBookingReceipts());
+
+        System.out.println("Projects:");
+        compare(
+                () -> serialize(projects),
+                (bytes) -> deserialize(bytes),
+                () -> {
+                    final BinaryWriter writer = new BinaryWriter();
+                    for (BTOProject project : projects) {
+                        BTOProjectCodec.encode(writer, project);
+                    }
+                    return writer.toByteArray();
+                },
+                (bytes) -> {
+                    final BinaryReader reader = new BinaryReader(bytes);
+                    final List<BTOProject> decoded = new ArrayList<>(projects.size());
+                    while (reader.remaining() > 0) {
+                        decoded.add(BTOProjectCodec.decode(reader));
+                    }
+                    return decoded;
+                });
+
+        System.out.println("Booking receipts (" + receipts.size() + "):");
+        compare(
+                () -> serialize(receipts),
+                (bytes) -> deserialize(bytes),
+                () -> {
+                    final BinaryWriter writer = new BinaryWriter();
+                    for (BTOBookingReceipt receipt : receipts) {
+                        BTOBookingReceiptCodec.encode(writer, receipt);
+                    }
+                    return writer.toByteArray();
+                },
+                (bytes) -> {
+                    final BinaryReader reader = new BinaryReader(bytes);
+                    final List<BTOBookingReceipt> decoded = new ArrayList<>(receipts.size());
+                    while (reader.remaining() > 0) {
+                        decoded.add(BTOBookingReceiptCodec.decode(reader));
+                    }
+                    return decoded;
+                });
+    }
+
+    /**
+     * Encodes data into bytes.
+     */
+    private interface Encoder {
+        byte[] encode() throws Exception;
+    }
+
+    /**
+     * Decodes bytes back into data.
+     */
+    private interface Decoder {
+        Object decode(byte[] bytes) throws Exception;
+    }
+
+    /**
+     * Print size and average save/load time of java.io serialization against the codec.
+     */
+    private static void compare(Encoder javaEncoder, Decoder javaDecoder,
+            Encoder codecEncoder, Decoder codecDecoder) throws Exception {
+        final long[] java = measure(javaEncoder, javaDecoder);
+        final long[] codec = measure(codecEncoder, codecDecoder);
+        System.out.printf("  %-20s %12s %12s %12s%n", "", "size (bytes)", "save (ms)", "load (ms)");
+        System.out.printf("  %-20s %12d %12.2f %12.2f%n", "java.io", java[0], java[1] / 1e6, java[2] / 1e6);
+        System.out.printf("  %-20s %12d %12.2f %12.2f%n", "codec", codec[0], codec[1] / 1e6, codec[2] / 1e6);
+        System.out.printf("  %-20s %11.1fx %11.1fx %11.1fx%n", "improvement",
+                (double) java[0] / codec[0], (double) java[1] / codec[1], (double) java[2] / codec[2]);
+    }
+
+    /**
+     * Measure an encoder and decoder pair.
+     *
+     * @return [size in bytes, average encode nanos, average decode nanos].
+     */
+    private static long[] measure(Encoder encoder, Decoder decoder) throws Exception {
+        byte[] bytes = null;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            bytes = encoder.encode();
+            decoder.decode(bytes);
+        }
+        long encodeNanos = 0;
+        long decodeNanos = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            bytes = encoder.encode();
+            encodeNanos += System.nanoTime() - start;
+            start = System.nanoTime();
+            decoder.decode(bytes);
+            decodeNanos += System.nanoTime() - start;
+        }
+        return new long[] { bytes.length, encodeNanos / MEASURED_ROUNDS, decodeNanos / MEASURED_ROUNDS };
+    }
+
+    private static byte[] serialize(List<?> data) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(new ArrayList<>(data));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return ois.readObject();
+        }
+    }
+
+    /**
+     * Generate a project manager filled with projects, applications, officer
+     * registrations, withdrawals, enquiries and booking receipts.
+     *
+     * @param projectCount           number of projects.
+     * @param applicationsPerProject number of applications per project.
+     * @return project manager.
+     */
+    public static BTOProjectManager generate(int projectCount, int applicationsPerProject) {
+        final BTOProjectManager projectManager = new BTOProjectManager(null, null);
+        final String[] neighbourhoods = { "Yishun", "Tampines", "Punggol", "Woodlands", "Bedok" };
+        final long now = System.currentTimeMillis();
+        for (int i = 0; i < projectCount; i++) {
+            final BTOProject project = new BTOProject(UUID.randomUUID().toString(), UUID.randomUUID().toString());
+            project.setName("Project " + i);
+            project.setNeighbourhood(neighbourhoods[i % neighbourhoods.length]);
+            project.setProjectType(new BTOProjectType(BTOProjectTypeID.S_2_ROOM, 350_000, applicationsPerProject));
+            project.setProjectType(new BTOProjectType(BTOProjectTypeID.S_3_ROOM, 450_000, applicationsPerProject));
+            project.setOfficerLimit(BTOProject.OFFICER_LIMIT);
+            project.setApplicationWindow(new Date(now - 86400_000), new Date(now + 86400_000));
+            projectManager.addProject(project);
+
+            for (int j = 0; j < BTOProject.OFFICER_LIMIT / 2; j++) {
+                projectManager.requestRegisterOfficer(project.getId(), UUID.randomUUID().toString());
+            }
+            for (int j = 0; j < applicationsPerProject; j++) {
+                final User applicant = new RoleBasedUser(UserRole.APPLICANT, UUID.randomUUID().toString(),
+                        "Applicant " + j, "S" + (1000000 + j) + "A", 40, UserMaritalStatus.MARRIED, "password");
+                final BTOProjectTypeID typeId = j % 2 == 0 ? BTOProjectTypeID.S_2_ROOM : BTOProjectTypeID.S_3_ROOM;
+                projectManager.requestApply(project.getId(), applicant.getId(), typeId);
+                final String applicationId = project.getActiveApplication(applicant.getId()).get().getId();
+                if (j % 4 == 0) {
+                    projectManager.transitionApplicationStatus(project.getId(), applicationId,
+                            BTOApplicationStatus.SUCCESSFUL);
+                    projectManager.transitionApplicationStatus(project.getId(), applicationId,
+                            BTOApplicationStatus.BOOKED);
+                    projectManager.generateBookingReceipt(project.getId(), applicationId, applicant);
+                } else if (j % 4 == 1) {
+                    projectManager.requestWithdrawApplication(project.getId(), applicationId);
+                }
+                if (j % 5 == 0) {
+                    project.addEnquiry(BTOEnquiry.create(
+                            new BTOEnquiryMessage(applicant.getId(), "How far from the nearest MRT?", now),
+                            new BTOEnquiryMessage(project.getManagerUserId(), "About 5 minutes walk.", now)));
+                }
+            }
+        }
+        return projectManager;
+    }
+}
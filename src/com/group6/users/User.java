@@ -10,6 +10,8 @@ public abstract class User {
     private int age;
     private UserMaritalStatus maritalStatus;
     private String password;
+    // Manager this user is registered with, which indexes users by NRIC.
+    private UserManager userManager;
 
     /**
      * Constructor for User.
@@ -76,11 +78,27 @@ public abstract class User {
      * Nric setter.
      *
      * @param nric nric.
+     * @throws RuntimeException if another user registered with the same manager has the nric.
      */
-    public void setNric(String nric) {
+    public void setNric(String nric) throws RuntimeException {
+        final UserManager manager = userManager;
+        if (manager != null) {
+            // Throws before anything is changed if the NRIC is taken.
+            manager.reindexNric(this, this.nric, nric);
+        }
         this.nric = nric;
     }
 
+    /**
+     * Do not expose this method outside of this package.
+     * Set the manager this user is registered with, see {@link UserManager#getUserByNRIC(String)}.
+     *
+     * @param userManager manager, or null if the user is no longer registered.
+     */
+    protected void setUserManager(UserManager userManager) {
+        this.userManager = userManager;
+    }
+
     /**
      * Age getter.
      *
@@ -146,4 +164,4 @@ public abstract class User {
                 ", password='" + password + '\'' +
                 '}';
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -34,9 +34,8 @@ public class UserAuthenticator {
      * @return A User object if the authentication is successful, or null if the authentication fails.
      */
     public User authenticate(String nric, String password) {
-        if (userManager.isValidLogin(nric, password)) {
-            return userManager.getUserByNRIC(nric).orElse(null);
-        }
-        return null;
+        return userManager.getUserByNRIC(nric)
+                .filter(user -> user.getPassword().equals(password))
+                .orElse(null);
     }
 }
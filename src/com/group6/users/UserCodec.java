@@ -0,0 +1,113 @@
+package com.group6.users;
+
+import com.group6.utils.BinaryReader;
+import com.group6.utils.BinaryWriter;
+
+import java.io.IOException;
+
+/**
+ * Binary encoding of {@link RoleBasedUser}.
+ * Uses the same versioned, tagged layout as {@link com.group6.btoproject.BTOProjectCodec}.
+ */
+public final class UserCodec {
+
+    /**
+     * Current schema version, written at the start of every record.
+     */
+    public static final int SCHEMA_VERSION = 1;
+
+    private static final int USER_ID = 1;
+    private static final int USER_ROLE = 2;
+    private static final int USER_NAME = 3;
+    private static final int USER_NRIC = 4;
+    private static final int USER_AGE = 5;
+    private static final int USER_MARITAL_STATUS = 6;
+    private static final int USER_PASSWORD = 7;
+
+    private UserCodec() {
+    }
+
+    /**
+     * Encode a user.
+     *
+     * @param user user.
+     * @return encoded user.
+     */
+    public static byte[] encode(User user) {
+        final BinaryWriter writer = new BinaryWriter(128);
+        encode(writer, user);
+        return writer.toByteArray();
+    }
+
+    /**
+     * Encode a user into a writer.
+     *
+     * @param writer writer.
+     * @param user   user, must be a {@link RoleBasedUser}.
+     */
+    public static void encode(BinaryWriter writer, User user) {
+        if (!(user instanceof RoleBasedUser roleBasedUser)) {
+            throw new IllegalArgumentException("Unhandled user type for saving, " + user.getId() + ".");
+        }
+        writer.writeByte(SCHEMA_VERSION);
+        writer.writeIdField(USER_ID, user.getId());
+        writer.writeEnumField(USER_ROLE, roleBasedUser.getRole());
+        writer.writeStringField(USER_NAME, user.getName());
+        writer.writeStringField(USER_NRIC, user.getNric());
+        writer.writeIntField(USER_AGE, user.getAge());
+        writer.writeEnumField(USER_MARITAL_STATUS, user.getMaritalStatus());
+        writer.writeStringField(USER_PASSWORD, user.getPassword());
+        writer.endStruct();
+    }
+
+    /**
+     * Decode a user.
+     *
+     * @param bytes encoded user.
+     * @return user.
+     * @throws IOException if the data is malformed.
+     */
+    public static RoleBasedUser decode(byte[] bytes) throws IOException {
+        return decode(new BinaryReader(bytes));
+    }
+
+    /**
+     * Decode a user from a reader.
+     *
+     * @param reader reader positioned at the start of the record.
+     * @return user.
+     * @throws IOException if the data is malformed.
+     */
+    public static RoleBasedUser decode(BinaryReader reader) throws IOException {
+        final int version = reader.readByte();
+        if (version < 1) {
+            throw new IOException("Unsupported user schema version " + version + ".");
+        }
+
+        String id = null;
+        UserRole role = null;
+        String name = null;
+        String nric = null;
+        int age = 0;
+        UserMaritalStatus maritalStatus = null;
+        String password = null;
+
+        int key;
+        while ((key = reader.readKey()) != BinaryWriter.END) {
+            switch (BinaryReader.tagOf(key)) {
+                case USER_ID -> id = reader.readIdField(key);
+                case USER_ROLE -> role = reader.readEnumField(key, UserRole.values());
+                case USER_NAME -> name = reader.readStringField(key);
+                case USER_NRIC -> nric = reader.readStringField(key);
+                case USER_AGE -> age = reader.readIntField(key);
+                case USER_MARITAL_STATUS -> maritalStatus = reader.readEnumField(key, UserMaritalStatus.values());
+                case USER_PASSWORD -> password = reader.readStringField(key);
+                default -> reader.skipField(key);
+            }
+        }
+        if (id == null || role == null) {
+            throw new IOException("User record is missing its id or role.");
+        }
+        return new RoleBasedUser(role, id, name, nric, age, maritalStatus, password);
+    }
+}
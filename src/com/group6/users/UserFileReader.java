@@ -0,0 +1,369 @@
+package com.group6.users;
+
+import com.group6.utils.BashColors;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Streaming reader for a user file, one user per line in the format
+ * id,name,nric,age,maritalStatus,password.
+ * <p>
+ * Lines are tokenized straight from a reused byte buffer, without
+ * {@link String#split(String)} or per-line strings. Large files are split
+ * into chunks at line boundaries which are parsed on multiple cores.
+ * Malformed lines are skipped and reported with their line number, the same
+ * way as before.
+ * </p>
+ * The file is read as UTF-8. Commas and line breaks are plain ASCII, so
+ * they never appear inside a multi-byte character.
+ */
+public class UserFileReader {
+
+    /**
+     * Files larger than this are split into chunks of about this size.
+     */
+    public static final long CHUNK_SIZE = 8L * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int COLUMNS = 6;
+    private static final UserMaritalStatus[] MARITAL_STATUSES = UserMaritalStatus.values();
+    // Upper case ASCII names of MARITAL_STATUSES, to match without creating strings.
+    private static final byte[][] MARITAL_STATUS_NAMES = new byte[MARITAL_STATUSES.length][];
+
+    static {
+        for (int i = 0; i < MARITAL_STATUSES.length; i++) {
+            MARITAL_STATUS_NAMES[i] = MARITAL_STATUSES[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final String filename;
+    private final UserRole role;
+
+    /**
+     * Constructor for UserFileReader.
+     *
+     * @param filename file to read.
+     * @param role     role of the users in the file.
+     */
+    public UserFileReader(String filename, UserRole role) {
+        this.filename = filename;
+        this.role = role;
+    }
+
+    /**
+     * Filename getter.
+     *
+     * @return {@link #filename}
+     */
+    public String getFilename() {
+        return filename;
+    }
+
+    /**
+     * A skipped line, reported once all chunks are parsed so line numbers
+     * can be made absolute.
+     *
+     * @param line   line number within the chunk, starting from 1.
+     * @param detail reason the line could not be parsed, or null if it does
+     *               not have the right number of columns.
+     */
+    private record SkippedLine(int line, String detail) {
+    }
+
+    /**
+     * Users and skipped lines of a chunk.
+     */
+    private static class Chunk {
+        private final List<User> users = new ArrayList<>();
+        private final List<SkippedLine> skippedLines = new ArrayList<>();
+        private int lineCount = 0;
+    }
+
+    /**
+     * Reads all users from the file.
+     *
+     * @return users, in file order.
+     * @throws IOException if the file cannot be read.
+     */
+    public List<User> read() throws IOException {
+        final List<Chunk> chunks;
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            final long[] bounds = findChunkBounds(channel);
+            final int chunkCount = bounds.length - 1;
+            if (chunkCount == 1) {
+                chunks = List.of(parseChunk(channel, bounds[0], bounds[1]));
+            } else {
+                chunks = IntStream.range(0, chunkCount)
+                        .parallel()
+                        .mapToObj((i) -> {
+                            try {
+                                return parseChunk(channel, bounds[i], bounds[i + 1]);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        })
+                        .toList();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        int size = 0;
+        for (Chunk chunk : chunks) {
+            size += chunk.users.size();
+        }
+        final List<User> users = new ArrayList<>(size);
+        int firstLine = 0;
+        for (Chunk chunk : chunks) {
+            users.addAll(chunk.users);
+            for (SkippedLine skippedLine : chunk.skippedLines) {
+                reportSkippedLine(firstLine + skippedLine.line(), skippedLine.detail());
+            }
+            firstLine += chunk.lineCount;
+        }
+        return users;
+    }
+
+    private void reportSkippedLine(int lineNumber, String detail) {
+        if (detail == null) {
+            System.out.println(BashColors.format(
+                    "⚠️ Skipping malformed line " + lineNumber + " in " + filename + ": Invalid data",
+                    BashColors.YELLOW));
+            return;
+        }
+        System.out.println(BashColors.format(
+                "Skipping line " + lineNumber + " in " + filename + ": Invalid data", BashColors.YELLOW));
+        System.out.println(BashColors.format("  " + detail, BashColors.YELLOW));
+    }
+
+    /**
+     * Split the file into chunks of about {@link #CHUNK_SIZE}, each starting at
+     * the start of a line.
+     *
+     * @return chunk bounds, chunk i is [bounds[i], bounds[i + 1]).
+     */
+    private static long[] findChunkBounds(FileChannel channel) throws IOException {
+        final long size = channel.size();
+        final List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        final ByteBuffer probe = ByteBuffer.allocate(4096);
+        long position = CHUNK_SIZE;
+        while (position < size) {
+            // Move to just after the next line break.
+            long lineStart = -1;
+            long probePosition = position;
+            while (lineStart < 0 && probePosition < size) {
+                probe.clear();
+                final int read = channel.read(probe, probePosition);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (probe.get(i) == '\n') {
+                        lineStart = probePosition + i + 1;
+                        break;
+                    }
+                }
+                probePosition += read;
+            }
+            if (lineStart < 0 || lineStart >= size) {
+                break;
+            }
+            bounds.add(lineStart);
+            position = lineStart + CHUNK_SIZE;
+        }
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Parse the lines in [start, end) of the file.
+     */
+    private Chunk parseChunk(FileChannel channel, long start, long end) throws IOException {
+        final Chunk chunk = new Chunk();
+        final int[] fieldStarts = new int[COLUMNS];
+        final int[] fieldEnds = new int[COLUMNS];
+        byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, Math.max(16, end - start))];
+        // Bytes in [lineStart, limit) of the buffer are not parsed yet.
+        int lineStart = 0;
+        int limit = 0;
+        long position = start;
+        boolean endOfChunk = false;
+
+        while (true) {
+            int lineEnd = -1;
+            for (int i = lineStart; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    lineEnd = i;
+                    break;
+                }
+            }
+            if (lineEnd < 0) {
+                if (endOfChunk) {
+                    if (lineStart < limit) {
+                        // Last line without a line break.
+                        parseLine(chunk, buffer, lineStart, limit, fieldStarts, fieldEnds);
+                    }
+                    return chunk;
+                }
+                // Move the partial line to the front and read more.
+                final int remaining = limit - lineStart;
+                if (remaining == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                } else {
+                    System.arraycopy(buffer, lineStart, buffer, 0, remaining);
+                }
+                lineStart = 0;
+                limit = remaining;
+                final int toRead = (int) Math.min(buffer.length - limit, end - position);
+                final int read = toRead == 0 ? -1 : channel.read(ByteBuffer.wrap(buffer, limit, toRead), position);
+                if (read <= 0) {
+                    endOfChunk = true;
+                } else {
+                    limit += read;
+                    position += read;
+                }
+                continue;
+            }
+
+            // Treat \r\n as a single line break, like BufferedReader#readLine().
+            final int contentEnd = lineEnd > lineStart && buffer[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+            parseLine(chunk, buffer, lineStart, contentEnd, fieldStarts, fieldEnds);
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    /**
+     * Parse a single line in [start, end) of the buffer into a user.
+     */
+    private void parseLine(Chunk chunk, byte[] buffer, int start, int end, int[] fieldStarts, int[] fieldEnds) {
+        chunk.lineCount++;
+
+        // Count columns the same way as line.split(","), which drops trailing empty columns,
+        // but returns a single empty column for an empty line.
+        int columns = 0;
+        int lastNonEmptyColumn = 0;
+        int fieldStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || buffer[i] == ',') {
+                if (columns < COLUMNS) {
+                    fieldStarts[columns] = fieldStart;
+                    fieldEnds[columns] = i;
+                }
+                columns++;
+                if (i > fieldStart) {
+                    lastNonEmptyColumn = columns;
+                }
+                fieldStart = i + 1;
+            }
+        }
+        final int splitColumns = end == start ? 1 : lastNonEmptyColumn;
+        if (splitColumns != COLUMNS) {
+            chunk.skippedLines.add(new SkippedLine(chunk.lineCount, null));
+            return;
+        }
+
+        // Trim the same way as String#trim().
+        for (int column = 0; column < COLUMNS; column++) {
+            while (fieldStarts[column] < fieldEnds[column] && (buffer[fieldStarts[column]] & 0xFF) <= ' ') {
+                fieldStarts[column]++;
+            }
+            while (fieldEnds[column] > fieldStarts[column] && (buffer[fieldEnds[column] - 1] & 0xFF) <= ' ') {
+                fieldEnds[column]--;
+            }
+        }
+
+        try {
+            final String id = toString(buffer, fieldStarts[0], fieldEnds[0]);
+            final String name = toString(buffer, fieldStarts[1], fieldEnds[1]);
+            final String nric = toString(buffer, fieldStarts[2], fieldEnds[2]);
+            final int age = parseInt(buffer, fieldStarts[3], fieldEnds[3]);
+            final UserMaritalStatus maritalStatus = parseMaritalStatus(buffer, fieldStarts[4], fieldEnds[4]);
+            final String password = toString(buffer, fieldStarts[5], fieldEnds[5]);
+
+            chunk.users.add(new RoleBasedUser(role, id, name, nric, age, maritalStatus, password));
+        } catch (IllegalArgumentException e) {
+            chunk.skippedLines.add(new SkippedLine(chunk.lineCount, e.getMessage()));
+        }
+    }
+
+    private static String toString(byte[] buffer, int start, int end) {
+        return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parse a decimal int, accepting the same input as {@link Integer#parseInt(String)}.
+     *
+     * @throws NumberFormatException if the value is not a valid int.
+     */
+    private static int parseInt(byte[] buffer, int start, int end) throws NumberFormatException {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+            negative = buffer[i] == '-';
+            i++;
+        }
+        if (i == end) {
+            throw invalidInt(buffer, start, end);
+        }
+        // Accumulate negatively, so Integer.MIN_VALUE does not overflow.
+        final int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int result = 0;
+        for (; i < end; i++) {
+            final int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9 || result < limit / 10) {
+                throw invalidInt(buffer, start, end);
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw invalidInt(buffer, start, end);
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    private static NumberFormatException invalidInt(byte[] buffer, int start, int end) {
+        return new NumberFormatException("For input string: \"" + toString(buffer, start, end) + "\"");
+    }
+
+    /**
+     * Look up a marital status by name, case-insensitively, the same as
+     * UserMaritalStatus.valueOf(value.toUpperCase()).
+     *
+     * @throws IllegalArgumentException if there is no marital status with the name.
+     */
+    private static UserMaritalStatus parseMaritalStatus(byte[] buffer, int start, int end)
+            throws IllegalArgumentException {
+        final int length = end - start;
+        for (int i = 0; i < MARITAL_STATUS_NAMES.length; i++) {
+            final byte[] name = MARITAL_STATUS_NAMES[i];
+            if (name.length != length) {
+                continue;
+            }
+            int j = 0;
+            while (j < length && toUpperCase(buffer[start + j]) == name[j]) {
+                j++;
+            }
+            if (j == length) {
+                return MARITAL_STATUSES[i];
+            }
+        }
+        throw new IllegalArgumentException("No enum constant " + UserMaritalStatus.class.getCanonicalName() + "."
+                + toString(buffer, start, end).toUpperCase());
+    }
+
+    private static byte toUpperCase(byte b) {
+        return b >= 'a' && b <= 'z' ? (byte) (b - ('a' - 'A')) : b;
+    }
+}
@@ -6,6 +6,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages user authentication and retrieval.
@@ -16,7 +17,10 @@ import java.util.Optional;
  */
 public class UserManager {
     private Map<String, User> users = new HashMap<>();
+    // Map<NRIC, User>, kept up to date by setUsers, registerUser and User#setNric.
+    private final Map<String, User> usersByNric = new ConcurrentHashMap<>();
     private final Storage<User> userStorage; // Inject UserStorage instance
+    private long mutationCount = 0;
 
     /**
      * Constructs a UserManager instance with a given UserStorage.
@@ -35,8 +39,10 @@ public class UserManager {
      *
      * @param users The map of users to set.
      */
-    public void setUsers(Map<String, User> users) {
+    public synchronized void setUsers(Map<String, User> users) {
+        this.users.values().forEach(this::unindexUser);
         this.users = users;
+        users.values().forEach(this::indexUser);
     }
 
     /**
@@ -44,16 +50,20 @@ public class UserManager {
      *
      * @param users The users to set.
      */
-    public void setUsers(List<User> users) {
+    public synchronized void setUsers(List<User> users) {
         users.forEach((user) -> {
-            this.users.put(user.getId(), user);
+            final User replaced = this.users.put(user.getId(), user);
+            if (replaced != null && replaced != user) {
+                unindexUser(replaced);
+            }
+            indexUser(user);
         });
     }
 
     /**
      * Retrieves all users currently managed by the system.
      *
-     * @return A map of users keyed by their NRIC.
+     * @return A map of users keyed by their id.
      */
     public Map<String, User> getUsers() {
         return users;
@@ -79,9 +89,10 @@ public class UserManager {
      * @return An {@code Optional<User>} containing the user if found, or empty otherwise.
      */
     public Optional<User> getUserByNRIC(String nric) {
-        return users.values().stream()
-                .filter((user) -> user.getNric().equals(nric))
-                .findFirst();
+        if (nric == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(usersByNric.get(nric));
     }
 
     /**
@@ -107,14 +118,83 @@ public class UserManager {
      * @param user The user to register.
      * @return true if registration is successful, false if NRIC is already taken.
      */
-    public boolean registerUser(User user) {
-        if (users.containsKey(user.getNric())) {
+    public synchronized boolean registerUser(User user) {
+        if (user.getNric() != null && usersByNric.containsKey(user.getNric())) {
             return false; // NRIC already exists
         }
         users.put(user.getId(), user);
+        indexUser(user);
+        mutationCount++;
         return true;
     }
 
+    /**
+     * Add a user to the NRIC index. If another user already has the NRIC, the first one is kept.
+     *
+     * @param user user.
+     */
+    private void indexUser(User user) {
+        user.setUserManager(this);
+        if (user.getNric() != null) {
+            usersByNric.putIfAbsent(user.getNric(), user);
+        }
+    }
+
+    /**
+     * Remove a user from the NRIC index.
+     *
+     * @param user user.
+     */
+    private void unindexUser(User user) {
+        user.setUserManager(null);
+        if (user.getNric() != null) {
+            usersByNric.remove(user.getNric(), user);
+        }
+    }
+
+    /**
+     * Do not expose this method outside of this package.
+     * Move a user to a new NRIC in the index, called by {@link User#setNric(String)} before the NRIC changes.
+     *
+     * @param user    user.
+     * @param oldNric current NRIC of the user.
+     * @param newNric new NRIC of the user.
+     * @throws RuntimeException if another user has the new NRIC.
+     */
+    protected synchronized void reindexNric(User user, String oldNric, String newNric) throws RuntimeException {
+        if (newNric != null) {
+            final User existing = usersByNric.putIfAbsent(newNric, user);
+            if (existing != null && existing != user) {
+                throw new RuntimeException("NRIC is already registered.");
+            }
+        }
+        if (oldNric != null && !oldNric.equals(newNric)) {
+            usersByNric.remove(oldNric, user);
+        }
+    }
+
+    /**
+     * Saves a user after their profile was changed.
+     * With a record file, only the user's record is written, see {@link UserStorage}.
+     *
+     * @param user The user that was changed.
+     */
+    public void updateUser(User user) {
+        synchronized (this) {
+            mutationCount++;
+        }
+        userStorage.save(user);
+    }
+
+    /**
+     * Number of users registered or updated since this manager was created.
+     *
+     * @return {@link #mutationCount}
+     */
+    public synchronized long getMutationCount() {
+        return mutationCount;
+    }
+
     /**
      * Saves the user to storage.
      *
@@ -1,10 +1,16 @@
 package com.group6.users;
 
 import com.group6.utils.BashColors;
+import com.group6.utils.ChunkedDecoder;
+import com.group6.utils.RecordFile;
 import com.group6.utils.Storage;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.zip.CRC32C;
 
 /**
  * Handles the storage and retrieval of user data from text files.
@@ -13,11 +19,26 @@ import java.util.*;
  * to save user data persistently. It supports Applicants, Officers, and
  * Managers.
  * </p>
+ * With a record file, users are stored one record per user in a {@link RecordFile}, encoded
+ * with {@link UserCodec}, and the role files are only read once to fill it. Saving a user then
+ * only writes that user's record, and {@link #saveAll(List)} only writes users that changed
+ * since they were last loaded or saved.
+ * <p>
+ * Users copied to be saved later, e.g. by a background checkpoint, are saved with
+ * {@link #saveAll(List, long)}, so a user saved after the copy was taken is not
+ * overwritten by the older copy.
+ * </p>
  */
 public class UserStorage implements Storage<User> {
     private final String applicantsFilepath;
     private final String officersFilepath;
     private final String managersFilepath;
+    private final RecordFile recordFile;
+    // Map<User id, CRC32C of the user's record in the record file>
+    private final Map<String, Long> savedChecksums = new HashMap<>();
+    // Map<User id, save stamp of the last write of the user's record>
+    private final Map<String, Long> savedStamps = new HashMap<>();
+    private long saveStamp = 0;
 
     /**
      * Constructs a UserStorage instance with specified file paths.
@@ -27,80 +48,164 @@ public class UserStorage implements Storage<User> {
      * @param managersFilepath   The file path for storing manager data.
      */
     public UserStorage(String applicantsFilepath, String officersFilepath, String managersFilepath) {
+        this(applicantsFilepath, officersFilepath, managersFilepath, null);
+    }
+
+    /**
+     * Constructs a UserStorage instance that stores users in a record file.
+     *
+     * @param applicantsFilepath The file path to read applicant data from, if there is no record file yet.
+     * @param officersFilepath   The file path to read officer data from, if there is no record file yet.
+     * @param managersFilepath   The file path to read manager data from, if there is no record file yet.
+     * @param recordFilepath     The file path for storing all users, or null to store users in the role files.
+     */
+    public UserStorage(String applicantsFilepath, String officersFilepath, String managersFilepath,
+            String recordFilepath) {
         this.applicantsFilepath = applicantsFilepath;
         this.officersFilepath = officersFilepath;
         this.managersFilepath = managersFilepath;
+        this.recordFile = recordFilepath != null ? new RecordFile(recordFilepath) : null;
     }
 
     /**
-     * Loads all users from the respective files.
+     * Loads all users from the record file, or from the respective role files.
+     * The three role files are read in parallel. If there is a record file but
+     * it does not exist yet, the users read from the role files are written to it.
      *
-     * @return A map of users keyed by NRIC.
+     * @return A list of all users.
      */
     @Override
-    public List<User> loadAll() {
-        List<User> users = new LinkedList<>();
-        loadUsersFromFile(users, applicantsFilepath, UserRole.APPLICANT);
-        loadUsersFromFile(users, officersFilepath, UserRole.OFFICER);
-        loadUsersFromFile(users, managersFilepath, UserRole.MANAGER);
+    public synchronized List<User> loadAll() {
+        if (recordFile != null && recordFile.isRecordFile()) {
+            return loadRecords();
+        }
+        final List<User> users = loadRoleFiles();
+        if (recordFile != null && !users.isEmpty()) {
+            importRecords(users);
+        }
         return users;
     }
 
     /**
-     * Reads user data from the specified file and adds them to the provided map.
+     * Reads every user from the record file.
      *
-     * @param users    The map where loaded users will be stored.
-     * @param filename The file from which users will be loaded.
-     * @param role     The role of the users being loaded (Applicant, Officer, or
-     *                 Manager).
+     * @return users, or none if the file cannot be read.
      */
-    private void loadUsersFromFile(List<User> users, String filename, UserRole role) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-            String line;
-            int lineNumber = 1;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-
-                if (parts.length != 6) {
-                    System.out.println(BashColors.format(
-                            "⚠️ Skipping malformed line " + lineNumber + " in " + filename + ": Invalid data",
-                            BashColors.YELLOW));
-                    lineNumber++;
-                    continue;
-                }
+    private List<User> loadRecords() {
+        try {
+            final Map<String, byte[]> records = recordFile.readAll();
+            recordFile.getLastRecovery().ifPresent((recovery) -> System.out.println(BashColors.format(
+                    "[Users] Recovered " + recordFile.getFile().getName() + ": dropped " + recovery.droppedRecords()
+                            + " damaged users and " + recovery.truncatedBytes() + " bytes of a partially saved user",
+                    BashColors.RED)));
+            final List<User> users = new ArrayList<>(ChunkedDecoder.decodeAll(
+                    new ArrayList<>(records.values()), UserCodec::decode));
+            savedChecksums.clear();
+            records.forEach((id, payload) -> savedChecksums.put(id, checksum(payload)));
+            return users;
+        } catch (IOException e) {
+            System.out.println(BashColors.format("[Users] Error reading from file: "
+                    + recordFile.getFile().getName(), BashColors.RED));
+            System.out.println(BashColors.format("  " + e.getMessage(), BashColors.RED));
+            return new ArrayList<>();
+        }
+    }
 
-                try {
-                    String id = parts[0].trim();
-                    String name = parts[1].trim();
-                    String nric = parts[2].trim();
-                    int age = Integer.parseInt(parts[3].trim());
-                    UserMaritalStatus maritalStatus = UserMaritalStatus.valueOf(parts[4].trim().toUpperCase());
-                    String password = parts[5].trim();
-
-                    User user = new RoleBasedUser(
-                            role, id, name, nric, age, maritalStatus, password);
-                    users.add(user);
-                } catch (IllegalArgumentException e) {
-                    System.out.println(BashColors.format(
-                            "Skipping line " + lineNumber + " in " + filename + ": Invalid data", BashColors.YELLOW));
-                    System.out.println(BashColors.format("  " + e.getMessage(), BashColors.YELLOW));
-                }
+    /**
+     * Writes users read from the role files to a new record file.
+     *
+     * @param users users read from the role files.
+     */
+    private void importRecords(List<User> users) {
+        final Map<String, byte[]> records = new LinkedHashMap<>();
+        users.forEach((user) -> records.put(user.getId(), UserCodec.encode(user)));
+        try {
+            recordFile.writeAll(records);
+            savedChecksums.clear();
+            records.forEach((id, payload) -> savedChecksums.put(id, checksum(payload)));
+            System.out.println(BashColors.format("[Users] Moved " + records.size() + " users from "
+                    + applicantsFilepath + ", " + officersFilepath + " and " + managersFilepath + " to "
+                    + recordFile.getFile().getName(), BashColors.YELLOW));
+        } catch (IOException e) {
+            System.out.println(BashColors.format("Error writing to file: " + recordFile.getFile().getName(),
+                    BashColors.RED));
+        }
+    }
 
-                lineNumber++;
-            }
+    /**
+     * Reads every user from the respective role files, in parallel.
+     *
+     * @return users.
+     */
+    private List<User> loadRoleFiles() {
+        final List<List<User>> usersByFile = List.of(
+                new UserFileReader(applicantsFilepath, UserRole.APPLICANT),
+                new UserFileReader(officersFilepath, UserRole.OFFICER),
+                new UserFileReader(managersFilepath, UserRole.MANAGER))
+                .parallelStream()
+                .map(this::loadUsersFromFile)
+                .toList();
+        final List<User> users = new ArrayList<>();
+        usersByFile.forEach(users::addAll);
+        return users;
+    }
+
+    /**
+     * Reads user data from a file. Malformed lines are skipped and reported.
+     *
+     * @param reader reader of the file and the role of its users.
+     * @return users in the file, or none if the file cannot be read.
+     */
+    private List<User> loadUsersFromFile(UserFileReader reader) {
+        try {
+            return reader.read();
         } catch (IOException e) {
-            System.out.println(BashColors.format("[Users] Error reading from file: " + filename, BashColors.RED));
+            System.out.println(BashColors.format("[Users] Error reading from file: " + reader.getFilename(), BashColors.RED));
             System.out.println(BashColors.format("  " + e.getMessage(), BashColors.RED));
+            return List.of();
         }
     }
 
     /**
-     * Saves all users to their respective files.
+     * Saves all users to the record file, or to their respective role files.
+     * In the record file, only users that changed since they were last loaded or
+     * saved are written, and users that are no longer in the list are removed.
      *
-     * @param users The map of users to be saved, keyed by NRIC.
+     * @param users The users to be saved.
      */
     @Override
-    public void saveAll(List<User> users) {
+    public synchronized void saveAll(List<User> users) {
+        saveAll(users, Long.MAX_VALUE);
+    }
+
+    /**
+     * Save stamp, which increases every time a user is written.
+     * Read it while copying users, then pass it to {@link #saveAll(List, long)}.
+     *
+     * @return {@link #saveStamp}
+     */
+    public synchronized long getSaveStamp() {
+        return saveStamp;
+    }
+
+    /**
+     * Saves users copied at a save stamp, like {@link #saveAll(List)}.
+     * Users written after the stamp, e.g. by {@link #save(User)} while the copy was
+     * waiting to be saved, are newer than their copy, so they are neither written
+     * nor removed. Role files are rewritten as a whole, so they are not written at
+     * all if any user was written after the stamp.
+     *
+     * @param users    The users to be saved, copied at the save stamp.
+     * @param copiedAt {@link #getSaveStamp()} read before the users were copied.
+     */
+    public synchronized void saveAll(List<User> users, long copiedAt) {
+        if (recordFile != null) {
+            saveChangedRecords(users, copiedAt);
+            return;
+        }
+        if (saveStamp > copiedAt) {
+            return;
+        }
         Map<UserRole, Collection<User>> userRoleUsersMap = new HashMap<>();
         users.forEach(((_user) -> {
             if (!(_user instanceof RoleBasedUser)) {
@@ -116,6 +221,71 @@ public class UserStorage implements Storage<User> {
         userRoleUsersMap.forEach(((userRole, _users) -> saveUsersToFile(_users, getFilenameForROle(userRole))));
     }
 
+    /**
+     * Writes users whose records changed, and removes users that are not in the list.
+     * Users written after the copy was taken are skipped.
+     *
+     * @param users    every user.
+     * @param copiedAt save stamp the users were copied at.
+     */
+    private void saveChangedRecords(List<User> users, long copiedAt) {
+        try {
+            final Set<String> removedIds = new HashSet<>(savedChecksums.keySet());
+            for (User user : users) {
+                removedIds.remove(user.getId());
+                if (user instanceof RoleBasedUser && !isSavedAfter(user.getId(), copiedAt)) {
+                    putRecord(user);
+                }
+            }
+            for (String id : removedIds) {
+                if (isSavedAfter(id, copiedAt)) {
+                    continue;
+                }
+                recordFile.remove(id);
+                savedChecksums.remove(id);
+                savedStamps.remove(id);
+            }
+        } catch (IOException e) {
+            System.out.println(BashColors.format("Error writing to file: " + recordFile.getFile().getName(),
+                    BashColors.RED));
+        }
+    }
+
+    /**
+     * Write a user's record if it changed since it was last loaded or saved.
+     *
+     * @param user user to write.
+     */
+    private void putRecord(User user) throws IOException {
+        final byte[] payload = UserCodec.encode(user);
+        final long checksum = checksum(payload);
+        final Long savedChecksum = savedChecksums.get(user.getId());
+        if (savedChecksum != null && savedChecksum == checksum) {
+            return;
+        }
+        recordFile.put(user.getId(), payload);
+        savedChecksums.put(user.getId(), checksum);
+        savedStamps.put(user.getId(), ++saveStamp);
+    }
+
+    /**
+     * Check if a user's record was written after a save stamp.
+     *
+     * @param id       id of the user.
+     * @param copiedAt save stamp.
+     * @return true if the record was written after the stamp.
+     */
+    private boolean isSavedAfter(String id, long copiedAt) {
+        final Long savedStamp = savedStamps.get(id);
+        return savedStamp != null && savedStamp > copiedAt;
+    }
+
+    private static long checksum(byte[] payload) {
+        final CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return crc.getValue();
+    }
+
     private String getFilenameForROle(UserRole userRole) {
         return switch (userRole) {
             case APPLICANT -> applicantsFilepath;
@@ -126,16 +296,26 @@ public class UserStorage implements Storage<User> {
 
     /**
      * Saves users to the specified file based on their role.
+     * The users are written to a temporary file which is then renamed over
+     * the file, so a crash never leaves a partially written file behind.
      *
      * @param users    The map of users to be saved.
      * @param filename The file where the user data should be stored.
      */
     private void saveUsersToFile(Collection<User> users, String filename) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename, false))) {
-            for (User user : users) {
-                writer.write(toFileString(user));
-                writer.newLine();
+        final File tempFile = new File(filename + ".tmp");
+        try {
+            try (FileOutputStream fos = new FileOutputStream(tempFile);
+                    BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(fos))) {
+                for (User user : users) {
+                    writer.write(toFileString(user));
+                    writer.newLine();
+                }
+                writer.flush();
+                fos.getFD().sync();
             }
+            Files.move(tempFile.toPath(), Path.of(filename),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
             System.out.println(BashColors.format("Error writing to file: " + filename, BashColors.RED));
         }
@@ -147,12 +327,13 @@ public class UserStorage implements Storage<User> {
     }
 
     /**
-     * Saves a single user to the appropriate role-specific file.
+     * Saves a single user to the record file, replacing its previous record,
+     * or appends it to the appropriate role-specific file.
      *
      * @param _user The user to save.
      */
     @Override
-    public void save(User _user) {
+    public synchronized void save(User _user) {
         if (_user == null) {
             return;
         }
@@ -161,12 +342,22 @@ public class UserStorage implements Storage<User> {
                     "Skipping user, " + _user.getId() + ". Unhandled user type for saving.", BashColors.YELLOW));
             return;
         }
+        if (recordFile != null) {
+            try {
+                putRecord(_user);
+            } catch (IOException e) {
+                System.out.println(BashColors.format("Error writing to file: " + recordFile.getFile().getName(),
+                        BashColors.RED));
+            }
+            return;
+        }
         RoleBasedUser user = (RoleBasedUser) _user;
         String filename = getFilenameForROle(user.getRole());
 
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename, true))) {
             writer.write(toFileString(user));
             writer.newLine();
+            saveStamp++;
         } catch (IOException e) {
             System.out.println(BashColors.format("Error writing to file: " + filename, BashColors.RED));
         }
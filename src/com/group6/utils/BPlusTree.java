@@ -0,0 +1,672 @@
+package com.group6.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * An on-disk B+tree of string keys to binary values, stored in a {@link PageFile}
+ * and read through a {@link BufferPool}.
+ * <p>
+ * Point lookups read one page per level of the tree, and range scans follow the links
+ * between leaves in key order, so only the pages that are needed are read and at most
+ * the pool's capacity of them stay in memory. Values larger than {@link #MAX_INLINE_VALUE}
+ * bytes are stored in a chain of overflow pages instead of in the leaf.
+ * Changes are kept in the pool until {@link #commit()}, which writes them atomically.
+ * Removing keys does not merge leaves, so {@link BTreeStorage#saveAll(List)} rebuilds the file.
+ * </p>
+ * Header page: [int magic][short version][int root page][int page count][int free page][long entry count].
+ * Leaf page: [byte type][short count][int next leaf] followed by entries of
+ * [short key length][key][byte is overflow][int value length][value or int first overflow page].
+ * Internal page: [byte type][short count][int first child] followed by entries of
+ * [short key length][key][int child].
+ * Overflow and free pages: [byte type][int next page][short length][data].
+ */
+public class BPlusTree implements Closeable {
+
+    /**
+     * Maximum size of a key in bytes, encoded as UTF-8.
+     */
+    public static final int MAX_KEY_LENGTH = 256;
+    /**
+     * Maximum size of a value in bytes that is stored in the leaf.
+     */
+    public static final int MAX_INLINE_VALUE = 512;
+
+    private static final int MAGIC = 0x42544F42; // "BTOB"
+    private static final short VERSION = 1;
+    private static final int HEADER_PAGE = 0;
+    private static final byte TYPE_LEAF = 1;
+    private static final byte TYPE_INTERNAL = 2;
+    private static final byte TYPE_OVERFLOW = 3;
+    private static final byte TYPE_FREE = 4;
+    private static final int NODE_HEADER_SIZE = 7;
+    private static final int OVERFLOW_HEADER_SIZE = 7;
+    private static final int OVERFLOW_CAPACITY = PageFile.PAGE_SIZE - OVERFLOW_HEADER_SIZE;
+
+    private final PageFile pageFile;
+    private final BufferPool bufferPool;
+    private int rootPage;
+    private int pageCount;
+    private int freePage;
+    private long entryCount;
+    private boolean isOpen = false;
+
+    /**
+     * Reads entries of the tree.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        /**
+         * Accept an entry.
+         *
+         * @param key   key.
+         * @param value value.
+         * @throws IOException if the entry cannot be handled.
+         */
+        void accept(String key, byte[] value) throws IOException;
+    }
+
+    /**
+     * Value of a leaf entry, either stored in the leaf or in a chain of overflow pages.
+     *
+     * @param length       length of the value.
+     * @param inline       value, or null if it is in overflow pages.
+     * @param overflowPage first overflow page.
+     */
+    private record Value(int length, byte[] inline, int overflowPage) {
+        private int size() {
+            return 5 + (inline != null ? inline.length : 4);
+        }
+    }
+
+    /**
+     * Decoded leaf or internal page.
+     */
+    private static final class Node {
+        private final int pageNumber;
+        private final boolean isLeaf;
+        private final List<String> keys = new ArrayList<>();
+        // Leaf only.
+        private final List<Value> values = new ArrayList<>();
+        // Internal only, one more than keys. Child i has keys from keys[i - 1] up to keys[i].
+        private final List<Integer> children = new ArrayList<>();
+        // Leaf only, 0 for the last leaf.
+        private int next = 0;
+
+        private Node(int pageNumber, boolean isLeaf) {
+            this.pageNumber = pageNumber;
+            this.isLeaf = isLeaf;
+        }
+
+        private int size() {
+            int size = NODE_HEADER_SIZE;
+            for (int i = 0; i < keys.size(); i++) {
+                size += entrySize(i);
+            }
+            return size;
+        }
+
+        private int entrySize(int index) {
+            final int keySize = 2 + keyLength(keys.get(index));
+            return isLeaf ? keySize + values.get(index).size() : keySize + 4;
+        }
+
+        private int childIndex(String key) {
+            final int index = Collections.binarySearch(keys, key);
+            return index >= 0 ? index + 1 : -index - 1;
+        }
+    }
+
+    /**
+     * Result of splitting a node.
+     *
+     * @param key       first key of the right node.
+     * @param rightPage page of the right node.
+     */
+    private record Split(String key, int rightPage) {
+    }
+
+    /**
+     * Constructor for BPlusTree.
+     *
+     * @param filename      name of the file.
+     * @param cacheCapacity maximum number of pages to cache.
+     */
+    public BPlusTree(String filename, int cacheCapacity) {
+        this.pageFile = new PageFile(filename);
+        this.bufferPool = new BufferPool(pageFile, cacheCapacity);
+    }
+
+    /**
+     * PageFile getter.
+     *
+     * @return {@link #pageFile}
+     */
+    public PageFile getPageFile() {
+        return pageFile;
+    }
+
+    /**
+     * BufferPool getter.
+     *
+     * @return {@link #bufferPool}
+     */
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Open the tree, creating an empty tree if the file is empty.
+     *
+     * @throws IOException if the file cannot be read, or is not a B+tree file.
+     */
+    public synchronized void open() throws IOException {
+        if (isOpen) {
+            return;
+        }
+        pageFile.open();
+        if (pageFile.getPageCount() == 0) {
+            rootPage = 1;
+            pageCount = 2;
+            freePage = 0;
+            entryCount = 0;
+            writeNode(new Node(rootPage, true));
+            writeHeader();
+            bufferPool.commit();
+        } else {
+            readHeader();
+        }
+        isOpen = true;
+    }
+
+    /**
+     * Number of keys in the tree, including uncommitted changes.
+     *
+     * @return {@link #entryCount}
+     */
+    public synchronized long size() {
+        return entryCount;
+    }
+
+    /**
+     * Number of levels in the tree.
+     *
+     * @return height, 1 if the root is a leaf.
+     * @throws IOException if the tree cannot be read.
+     */
+    public synchronized int getHeight() throws IOException {
+        checkOpen();
+        int height = 1;
+        Node node = readNode(rootPage);
+        while (!node.isLeaf) {
+            node = readNode(node.children.get(0));
+            height++;
+        }
+        return height;
+    }
+
+    /**
+     * Get the value of a key.
+     *
+     * @param key key.
+     * @return value, or empty if the key is not in the tree.
+     * @throws IOException if the tree cannot be read.
+     */
+    public synchronized Optional<byte[]> get(String key) throws IOException {
+        checkOpen();
+        final Node leaf = findLeaf(key);
+        final int index = Collections.binarySearch(leaf.keys, key);
+        if (index < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(readValue(leaf.values.get(index)));
+    }
+
+    /**
+     * Read entries in key order, from a key up to but not including another key.
+     *
+     * @param fromKey  first key, or null to start from the first key in the tree.
+     * @param toKey    key to stop before, or null to read to the end of the tree.
+     * @param consumer consumer of the entries.
+     * @throws IOException if the tree cannot be read.
+     */
+    public synchronized void scan(String fromKey, String toKey, EntryConsumer consumer) throws IOException {
+        checkOpen();
+        Node leaf = findLeaf(fromKey);
+        int index = 0;
+        if (fromKey != null) {
+            index = Collections.binarySearch(leaf.keys, fromKey);
+            index = index >= 0 ? index : -index - 1;
+        }
+        while (true) {
+            for (; index < leaf.keys.size(); index++) {
+                final String key = leaf.keys.get(index);
+                if (toKey != null && key.compareTo(toKey) >= 0) {
+                    return;
+                }
+                consumer.accept(key, readValue(leaf.values.get(index)));
+            }
+            if (leaf.next == 0) {
+                return;
+            }
+            leaf = readNode(leaf.next);
+            index = 0;
+        }
+    }
+
+    /**
+     * Set the value of a key. The change is written on {@link #commit()}.
+     *
+     * @param key   key, at most {@link #MAX_KEY_LENGTH} bytes.
+     * @param value value.
+     * @throws IOException if the tree cannot be read.
+     */
+    public synchronized void put(String key, byte[] value) throws IOException {
+        checkOpen();
+        checkKey(key);
+        final Split split = insert(rootPage, key, value);
+        if (split != null) {
+            final Node root = new Node(allocatePage(), false);
+            root.children.add(rootPage);
+            root.keys.add(split.key());
+            root.children.add(split.rightPage());
+            writeNode(root);
+            rootPage = root.pageNumber;
+        }
+        writeHeader();
+    }
+
+    /**
+     * Remove a key. The change is written on {@link #commit()}.
+     *
+     * @param key key.
+     * @return true if the key was in the tree.
+     * @throws IOException if the tree cannot be read.
+     */
+    public synchronized boolean remove(String key) throws IOException {
+        checkOpen();
+        final Node leaf = findLeaf(key);
+        final int index = Collections.binarySearch(leaf.keys, key);
+        if (index < 0) {
+            return false;
+        }
+        freeValue(leaf.values.get(index));
+        leaf.keys.remove(index);
+        leaf.values.remove(index);
+        writeNode(leaf);
+        entryCount--;
+        writeHeader();
+        return true;
+    }
+
+    /**
+     * Fill an empty tree with entries, packing leaves and internal pages full.
+     * Pages are committed whenever the pool holds its capacity of changes, so this is
+     * not atomic, and is meant for filling a new file that replaces another once complete.
+     *
+     * @param entries entries in ascending key order.
+     * @throws IOException if the tree cannot be written.
+     */
+    public synchronized void bulkLoad(Iterator<Map.Entry<String, byte[]>> entries) throws IOException {
+        checkOpen();
+        Node leaf = readNode(rootPage);
+        if (!leaf.isLeaf || !leaf.keys.isEmpty()) {
+            throw new IllegalStateException("Bulk load requires an empty tree.");
+        }
+        // First key and page of each node of the level being built.
+        final List<Split> level = new ArrayList<>();
+        int size = NODE_HEADER_SIZE;
+        String previousKey = null;
+        while (entries.hasNext()) {
+            final Map.Entry<String, byte[]> entry = entries.next();
+            final String key = entry.getKey();
+            checkKey(key);
+            if (previousKey != null && key.compareTo(previousKey) <= 0) {
+                throw new IllegalArgumentException("Bulk load entries must be in ascending key order.");
+            }
+            final Value value = storeValue(entry.getValue());
+            final int entrySize = 2 + keyLength(key) + value.size();
+            if (size + entrySize > PageFile.PAGE_SIZE) {
+                final Node nextLeaf = new Node(allocatePage(), true);
+                leaf.next = nextLeaf.pageNumber;
+                writeNode(leaf);
+                level.add(new Split(leaf.keys.get(0), leaf.pageNumber));
+                leaf = nextLeaf;
+                size = NODE_HEADER_SIZE;
+            }
+            leaf.keys.add(key);
+            leaf.values.add(value);
+            size += entrySize;
+            entryCount++;
+            previousKey = key;
+            if (bufferPool.getDirtyCount() >= bufferPool.getCapacity()) {
+                bufferPool.commit();
+            }
+        }
+        writeNode(leaf);
+        level.add(new Split(leaf.keys.isEmpty() ? "" : leaf.keys.get(0), leaf.pageNumber));
+
+        List<Split> children = level;
+        while (children.size() > 1) {
+            final List<Split> parents = new ArrayList<>();
+            Node parent = null;
+            for (Split child : children) {
+                final int entrySize = 2 + keyLength(child.key()) + 4;
+                if (parent == null || size + entrySize > PageFile.PAGE_SIZE) {
+                    if (parent != null) {
+                        writeNode(parent);
+                    }
+                    parent = new Node(allocatePage(), false);
+                    parent.children.add(child.rightPage());
+                    parents.add(new Split(child.key(), parent.pageNumber));
+                    size = NODE_HEADER_SIZE;
+                    continue;
+                }
+                parent.keys.add(child.key());
+                parent.children.add(child.rightPage());
+                size += entrySize;
+            }
+            writeNode(parent);
+            children = parents;
+        }
+        rootPage = children.get(0).rightPage();
+        writeHeader();
+    }
+
+    /**
+     * Write every change since the last commit to the file, atomically.
+     *
+     * @throws IOException if the changes cannot be written.
+     */
+    public synchronized void commit() throws IOException {
+        checkOpen();
+        bufferPool.commit();
+    }
+
+    /**
+     * Discard every change since the last commit.
+     *
+     * @throws IOException if the tree cannot be read again.
+     */
+    public synchronized void rollback() throws IOException {
+        checkOpen();
+        bufferPool.rollback();
+        readHeader();
+    }
+
+    /**
+     * Close the tree, discarding uncommitted changes.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        bufferPool.clear();
+        pageFile.close();
+        isOpen = false;
+    }
+
+    private void checkOpen() throws IOException {
+        if (!isOpen) {
+            throw new IOException(pageFile.getFile().getName() + " is not open.");
+        }
+    }
+
+    private static void checkKey(String key) {
+        if (key == null || keyLength(key) > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Key must be at most " + MAX_KEY_LENGTH + " bytes.");
+        }
+    }
+
+    private static int keyLength(String key) {
+        return key.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private Node findLeaf(String key) throws IOException {
+        Node node = readNode(rootPage);
+        while (!node.isLeaf) {
+            node = readNode(node.children.get(key == null ? 0 : node.childIndex(key)));
+        }
+        return node;
+    }
+
+    private Split insert(int pageNumber, String key, byte[] value) throws IOException {
+        final Node node = readNode(pageNumber);
+        if (node.isLeaf) {
+            final int index = Collections.binarySearch(node.keys, key);
+            if (index >= 0) {
+                freeValue(node.values.get(index));
+                node.values.set(index, storeValue(value));
+            } else {
+                node.keys.add(-index - 1, key);
+                node.values.add(-index - 1, storeValue(value));
+                entryCount++;
+            }
+        } else {
+            final int index = node.childIndex(key);
+            final Split split = insert(node.children.get(index), key, value);
+            if (split == null) {
+                return null;
+            }
+            node.keys.add(index, split.key());
+            node.children.add(index + 1, split.rightPage());
+        }
+        if (node.size() <= PageFile.PAGE_SIZE) {
+            writeNode(node);
+            return null;
+        }
+        return split(node);
+    }
+
+    /**
+     * Split a node that does not fit in a page into two nodes of about the same size.
+     */
+    private Split split(Node node) throws IOException {
+        final int half = node.size() / 2;
+        int size = NODE_HEADER_SIZE;
+        int middle = 0;
+        while (middle < node.keys.size() - 1 && size + node.entrySize(middle) <= half) {
+            size += node.entrySize(middle);
+            middle++;
+        }
+        middle = Math.max(middle, 1);
+
+        final Node right = new Node(allocatePage(), node.isLeaf);
+        final String splitKey;
+        if (node.isLeaf) {
+            splitKey = node.keys.get(middle);
+            right.keys.addAll(node.keys.subList(middle, node.keys.size()));
+            right.values.addAll(node.values.subList(middle, node.values.size()));
+            node.keys.subList(middle, node.keys.size()).clear();
+            node.values.subList(middle, node.values.size()).clear();
+            right.next = node.next;
+            node.next = right.pageNumber;
+        } else {
+            // The middle key moves up to the parent.
+            splitKey = node.keys.get(middle);
+            right.keys.addAll(node.keys.subList(middle + 1, node.keys.size()));
+            right.children.addAll(node.children.subList(middle + 1, node.children.size()));
+            node.keys.subList(middle, node.keys.size()).clear();
+            node.children.subList(middle + 1, node.children.size()).clear();
+        }
+        writeNode(node);
+        writeNode(right);
+        return new Split(splitKey, right.pageNumber);
+    }
+
+    private Value storeValue(byte[] value) throws IOException {
+        if (value.length <= MAX_INLINE_VALUE) {
+            return new Value(value.length, value.clone(), 0);
+        }
+        final int[] pages = new int[(value.length + OVERFLOW_CAPACITY - 1) / OVERFLOW_CAPACITY];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = allocatePage();
+        }
+        for (int i = 0; i < pages.length; i++) {
+            final int offset = i * OVERFLOW_CAPACITY;
+            final int length = Math.min(OVERFLOW_CAPACITY, value.length - offset);
+            final ByteBuffer page = ByteBuffer.allocate(PageFile.PAGE_SIZE);
+            page.put(TYPE_OVERFLOW).putInt(i + 1 < pages.length ? pages[i + 1] : 0).putShort((short) length);
+            page.put(value, offset, length);
+            bufferPool.write(pages[i], page);
+        }
+        return new Value(value.length, null, pages[0]);
+    }
+
+    private byte[] readValue(Value value) throws IOException {
+        if (value.inline() != null) {
+            return value.inline().clone();
+        }
+        final byte[] bytes = new byte[value.length()];
+        int offset = 0;
+        int pageNumber = value.overflowPage();
+        while (offset < bytes.length) {
+            final ByteBuffer page = readPage(pageNumber, TYPE_OVERFLOW);
+            pageNumber = page.getInt();
+            final int length = page.getShort() & 0xFFFF;
+            if (length > bytes.length - offset) {
+                throw corrupted(pageNumber);
+            }
+            page.get(bytes, offset, length);
+            offset += length;
+        }
+        return bytes;
+    }
+
+    private void freeValue(Value value) throws IOException {
+        if (value.inline() != null) {
+            return;
+        }
+        int pageNumber = value.overflowPage();
+        while (pageNumber != 0) {
+            final int next = readPage(pageNumber, TYPE_OVERFLOW).getInt();
+            freePage(pageNumber);
+            pageNumber = next;
+        }
+    }
+
+    private int allocatePage() throws IOException {
+        if (freePage == 0) {
+            return pageCount++;
+        }
+        final int pageNumber = freePage;
+        freePage = readPage(pageNumber, TYPE_FREE).getInt();
+        return pageNumber;
+    }
+
+    private void freePage(int pageNumber) {
+        final ByteBuffer page = ByteBuffer.allocate(PageFile.PAGE_SIZE);
+        page.put(TYPE_FREE).putInt(freePage);
+        bufferPool.write(pageNumber, page);
+        freePage = pageNumber;
+    }
+
+    /**
+     * Read a page, checking its type.
+     *
+     * @return page, positioned after the type.
+     */
+    private ByteBuffer readPage(int pageNumber, byte type) throws IOException {
+        if (pageNumber <= HEADER_PAGE || pageNumber >= pageCount) {
+            throw corrupted(pageNumber);
+        }
+        final ByteBuffer page = bufferPool.read(pageNumber);
+        if (page.get() != type) {
+            throw corrupted(pageNumber);
+        }
+        return page;
+    }
+
+    private Node readNode(int pageNumber) throws IOException {
+        if (pageNumber <= HEADER_PAGE || pageNumber >= pageCount) {
+            throw corrupted(pageNumber);
+        }
+        final ByteBuffer page = bufferPool.read(pageNumber);
+        final byte type = page.get();
+        if (type != TYPE_LEAF && type != TYPE_INTERNAL) {
+            throw corrupted(pageNumber);
+        }
+        final Node node = new Node(pageNumber, type == TYPE_LEAF);
+        final int count = page.getShort() & 0xFFFF;
+        if (node.isLeaf) {
+            node.next = page.getInt();
+        } else {
+            node.children.add(page.getInt());
+        }
+        try {
+            for (int i = 0; i < count; i++) {
+                final byte[] key = new byte[page.getShort() & 0xFFFF];
+                page.get(key);
+                node.keys.add(new String(key, StandardCharsets.UTF_8));
+                if (!node.isLeaf) {
+                    node.children.add(page.getInt());
+                    continue;
+                }
+                final boolean isOverflow = page.get() != 0;
+                final int length = page.getInt();
+                if (isOverflow) {
+                    node.values.add(new Value(length, null, page.getInt()));
+                } else {
+                    final byte[] value = new byte[length];
+                    page.get(value);
+                    node.values.add(new Value(length, value, 0));
+                }
+            }
+        } catch (RuntimeException e) {
+            throw corrupted(pageNumber);
+        }
+        return node;
+    }
+
+    private void writeNode(Node node) {
+        final ByteBuffer page = ByteBuffer.allocate(PageFile.PAGE_SIZE);
+        page.put(node.isLeaf ? TYPE_LEAF : TYPE_INTERNAL);
+        page.putShort((short) node.keys.size());
+        page.putInt(node.isLeaf ? node.next : node.children.get(0));
+        for (int i = 0; i < node.keys.size(); i++) {
+            final byte[] key = node.keys.get(i).getBytes(StandardCharsets.UTF_8);
+            page.putShort((short) key.length).put(key);
+            if (!node.isLeaf) {
+                page.putInt(node.children.get(i + 1));
+                continue;
+            }
+            final Value value = node.values.get(i);
+            page.put((byte) (value.inline() == null ? 1 : 0)).putInt(value.length());
+            if (value.inline() == null) {
+                page.putInt(value.overflowPage());
+            } else {
+                page.put(value.inline());
+            }
+        }
+        bufferPool.write(node.pageNumber, page);
+    }
+
+    private void readHeader() throws IOException {
+        final ByteBuffer page = bufferPool.read(HEADER_PAGE);
+        if (page.getInt() != MAGIC) {
+            throw new IOException(pageFile.getFile().getName() + " is not a B+tree file.");
+        }
+        final short version = page.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported B+tree file version " + version + " in "
+                    + pageFile.getFile().getName());
+        }
+        rootPage = page.getInt();
+        pageCount = page.getInt();
+        freePage = page.getInt();
+        entryCount = page.getLong();
+    }
+
+    private void writeHeader() {
+        final ByteBuffer page = ByteBuffer.allocate(PageFile.PAGE_SIZE);
+        page.putInt(MAGIC).putShort(VERSION).putInt(rootPage).putInt(pageCount).putInt(freePage).putLong(entryCount);
+        bufferPool.write(HEADER_PAGE, page);
+    }
+
+    private IOException corrupted(int pageNumber) {
+        return new IOException("Page " + pageNumber + " of " + pageFile.getFile().getName() + " is corrupted.");
+    }
+}
@@ -0,0 +1,256 @@
+package com.group6.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Storage of objects in a {@link BPlusTree}, keyed by id.
+ * <p>
+ * Unlike loading and saving the whole list, objects are read and written one at a time by id,
+ * with {@link #get(String)}, {@link #scan(String, String)}, {@link #save(Object)} and
+ * {@link #delete(String)}. Each reads one page per level of the tree, and only the
+ * {@link #cacheCapacity} most recently used pages are kept in memory, so the file can be far
+ * larger than the heap.
+ * </p>
+ * For example, projects are stored by id with
+ * {@code new BTreeStorage<>("projects.db", BTOProject::getId, BTOProjectCodec::encode, BTOProjectCodec::decode)}.
+ *
+ * @param <T> type of object stored.
+ */
+public class BTreeStorage<T> implements Storage<T>, Closeable {
+
+    /**
+     * Default number of pages to cache.
+     */
+    public static final int DEFAULT_CACHE_CAPACITY = 1024;
+
+    private final String filename;
+    private final Function<T, String> idGetter;
+    private final Function<T, byte[]> encoder;
+    private final ChunkedDecoder.Decoder<byte[], T> decoder;
+    private int cacheCapacity = DEFAULT_CACHE_CAPACITY;
+    private BPlusTree tree;
+
+    /**
+     * Constructor for BTreeStorage.
+     *
+     * @param filename name of the file.
+     * @param idGetter gets the id of an object.
+     * @param encoder  encodes an object.
+     * @param decoder  decodes an object.
+     */
+    public BTreeStorage(String filename, Function<T, String> idGetter, Function<T, byte[]> encoder,
+            ChunkedDecoder.Decoder<byte[], T> decoder) {
+        this.filename = filename;
+        this.idGetter = idGetter;
+        this.encoder = encoder;
+        this.decoder = decoder;
+    }
+
+    /**
+     * File getter.
+     *
+     * @return file of the tree.
+     */
+    public File getFile() {
+        return new File(filename);
+    }
+
+    /**
+     * CacheCapacity getter.
+     *
+     * @return {@link #cacheCapacity}
+     */
+    public int getCacheCapacity() {
+        return cacheCapacity;
+    }
+
+    /**
+     * CacheCapacity setter. Applies the next time the file is opened.
+     *
+     * @param cacheCapacity maximum number of pages to cache.
+     */
+    public void setCacheCapacity(int cacheCapacity) {
+        this.cacheCapacity = cacheCapacity;
+    }
+
+    /**
+     * Get the tree, opening the file if it is not open.
+     *
+     * @return tree.
+     * @throws IOException if the file cannot be opened.
+     */
+    public synchronized BPlusTree getTree() throws IOException {
+        if (tree == null) {
+            final BPlusTree openedTree = new BPlusTree(filename, cacheCapacity);
+            openedTree.open();
+            tree = openedTree;
+        }
+        return tree;
+    }
+
+    /**
+     * Get an object by id.
+     *
+     * @param id id of the object.
+     * @return object, or empty if there is no object with the id.
+     * @throws IOException if the file cannot be read.
+     */
+    public Optional<T> get(String id) throws IOException {
+        final Optional<byte[]> value = getTree().get(id);
+        if (value.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(decoder.decode(value.get()));
+    }
+
+    /**
+     * Get objects by id range, in id order.
+     *
+     * @param fromId first id, or null to start from the first object.
+     * @param toId   id to stop before, or null to read to the last object.
+     * @return objects with ids in the range.
+     * @throws IOException if the file cannot be read.
+     */
+    public List<T> scan(String fromId, String toId) throws IOException {
+        final List<T> objects = new ArrayList<>();
+        getTree().scan(fromId, toId, (id, value) -> objects.add(decoder.decode(value)));
+        return objects;
+    }
+
+    /**
+     * Number of objects stored.
+     *
+     * @return number of objects.
+     * @throws IOException if the file cannot be opened.
+     */
+    public long size() throws IOException {
+        return getTree().size();
+    }
+
+    /**
+     * Loads all objects, in id order.
+     *
+     * @return objects.
+     */
+    @Override
+    public List<T> loadAll() {
+        try {
+            return scan(null, null);
+        } catch (IOException e) {
+            System.err.println(BashColors.format("Error reading from file: " + filename, BashColors.RED));
+            System.err.println(BashColors.format("  " + e.getMessage(), BashColors.RED));
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Replaces every object in the file.
+     * A new, fully packed tree is built in a temporary file which is then renamed over
+     * the file, so a crash never leaves a partially written file behind.
+     * A journal left next to the file by an interrupted {@link #save(Object)} is replayed onto
+     * the old file before it is replaced, otherwise it would be replayed onto the new tree.
+     *
+     * @param data objects to store.
+     */
+    @Override
+    public synchronized void saveAll(List<T> data) {
+        final TreeMap<String, byte[]> entries = new TreeMap<>();
+        data.forEach((object) -> entries.put(idGetter.apply(object), encoder.apply(object)));
+        final File tempFile = new File(filename + ".tmp");
+        try {
+            Files.deleteIfExists(tempFile.toPath());
+            try (BPlusTree newTree = new BPlusTree(tempFile.getPath(), cacheCapacity)) {
+                newTree.getPageFile().setJournaled(false);
+                newTree.open();
+                newTree.bulkLoad(entries.entrySet().iterator());
+                newTree.commit();
+            }
+            replayJournal();
+            close();
+            Files.move(tempFile.toPath(), new File(filename).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println(BashColors.format("Error writing to file: " + filename, BashColors.RED));
+            System.err.println(BashColors.format("  " + e.getMessage(), BashColors.RED));
+        }
+    }
+
+    /**
+     * Replay and delete a journal left by an interrupted write, if any.
+     * The file is opened, which replays the journal. If it cannot be opened, the journal
+     * is deleted, as the file is about to be replaced.
+     *
+     * @throws IOException if the journal cannot be deleted.
+     */
+    private void replayJournal() throws IOException {
+        final File journalFile = new File(filename + ".journal");
+        if (!journalFile.exists()) {
+            return;
+        }
+        try {
+            getTree();
+        } catch (IOException e) {
+            Files.deleteIfExists(journalFile.toPath());
+        }
+    }
+
+    /**
+     * Adds or replaces an object, writing only the pages it changes.
+     *
+     * @param data object to store.
+     */
+    @Override
+    public synchronized void save(T data) {
+        try {
+            final BPlusTree tree = getTree();
+            try {
+                tree.put(idGetter.apply(data), encoder.apply(data));
+                tree.commit();
+            } catch (IOException | RuntimeException e) {
+                tree.rollback();
+                throw e;
+            }
+        } catch (IOException e) {
+            System.err.println(BashColors.format("Error writing to file: " + filename, BashColors.RED));
+            System.err.println(BashColors.format("  " + e.getMessage(), BashColors.RED));
+        }
+    }
+
+    /**
+     * Removes an object by id.
+     *
+     * @param id id of the object.
+     * @return true if an object was removed.
+     * @throws IOException if the file cannot be written.
+     */
+    public synchronized boolean delete(String id) throws IOException {
+        final BPlusTree tree = getTree();
+        try {
+            final boolean isRemoved = tree.remove(id);
+            tree.commit();
+            return isRemoved;
+        } catch (IOException | RuntimeException e) {
+            tree.rollback();
+            throw e;
+        }
+    }
+
+    /**
+     * Close the file. It is opened again the next time it is used.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (tree != null) {
+            tree.close();
+            tree = null;
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.group6.utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Reads data written by {@link BinaryWriter} from a {@link ByteBuffer}.
+ * <p>
+ * The buffer may be a heap buffer or a memory-mapped file; values are decoded
+ * straight from it. Typical struct decoding loop:
+ * </p>
+ * <pre>
+ * int key;
+ * while ((key = reader.readKey()) != BinaryWriter.END) {
+ *     switch (BinaryReader.tagOf(key)) {
+ *         case 1 -> id = reader.readId(key);
+ *         default -> reader.skipField(key);
+ *     }
+ * }
+ * </pre>
+ */
+public class BinaryReader {
+
+    private final ByteBuffer buffer;
+
+    /**
+     * Constructor for BinaryReader.
+     *
+     * @param buffer buffer to read from, starting at its current position.
+     */
+    public BinaryReader(ByteBuffer buffer) {
+        this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Constructor for BinaryReader.
+     *
+     * @param bytes bytes to read from.
+     */
+    public BinaryReader(byte[] bytes) {
+        this(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Tag of a field key.
+     *
+     * @param key key.
+     * @return tag.
+     */
+    public static int tagOf(int key) {
+        return key >>> 3;
+    }
+
+    /**
+     * Wire type of a field key.
+     *
+     * @param key key.
+     * @return wire type, see {@link BinaryWriter}.
+     */
+    public static int wireTypeOf(int key) {
+        return key & 0x7;
+    }
+
+    /**
+     * Position getter.
+     *
+     * @return current position in the buffer.
+     */
+    public int position() {
+        return buffer.position();
+    }
+
+    /**
+     * Move to a position in the buffer.
+     *
+     * @param position position.
+     */
+    public void position(int position) {
+        buffer.position(position);
+    }
+
+    /**
+     * Number of bytes left.
+     *
+     * @return remaining bytes.
+     */
+    public int remaining() {
+        return buffer.remaining();
+    }
+
+    private void ensure(int length) throws EOFException {
+        if (length < 0 || buffer.remaining() < length) {
+            throw new EOFException("Unexpected end of data.");
+        }
+    }
+
+    /**
+     * Read a byte.
+     *
+     * @return value.
+     * @throws IOException if there is no more data.
+     */
+    public byte readByte() throws IOException {
+        ensure(1);
+        return buffer.get();
+    }
+
+    /**
+     * Read an int.
+     *
+     * @return value.
+     * @throws IOException if there is no more data.
+     */
+    public int readInt() throws IOException {
+        ensure(4);
+        return buffer.getInt();
+    }
+
+    /**
+     * Read a long.
+     *
+     * @return value.
+     * @throws IOException if there is no more data.
+     */
+    public long readLong() throws IOException {
+        ensure(8);
+        return buffer.getLong();
+    }
+
+    /**
+     * Read an int written by {@link BinaryWriter#writeVarInt(int)}.
+     *
+     * @return value.
+     * @throws IOException if there is no more data, or the value is too long.
+     */
+    public int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed var int.");
+    }
+
+    /**
+     * Read raw bytes.
+     *
+     * @param length number of bytes.
+     * @return bytes.
+     * @throws IOException if there is not enough data.
+     */
+    public byte[] readBytes(int length) throws IOException {
+        ensure(length);
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Read a string written by {@link BinaryWriter#writeString(String)}.
+     *
+     * @return value.
+     * @throws IOException if there is not enough data.
+     */
+    public String readString() throws IOException {
+        final int length = readInt();
+        ensure(length);
+        if (buffer.hasArray()) {
+            final int start = buffer.arrayOffset() + buffer.position();
+            buffer.position(buffer.position() + length);
+            return new String(buffer.array(), start, length, StandardCharsets.UTF_8);
+        }
+        return new String(readBytes(length), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Skip bytes.
+     *
+     * @param length number of bytes.
+     * @throws IOException if there is not enough data.
+     */
+    public void skip(int length) throws IOException {
+        ensure(length);
+        buffer.position(buffer.position() + length);
+    }
+
+    /**
+     * Read the next field key.
+     *
+     * @return key, or {@link BinaryWriter#END} at the end of a struct.
+     * @throws IOException if there is no more data.
+     */
+    public int readKey() throws IOException {
+        return readByte() & 0xFF;
+    }
+
+    private static void expect(int key, int wireType) throws IOException {
+        if (wireTypeOf(key) != wireType) {
+            throw new IOException("Field " + tagOf(key) + " has wire type " + wireTypeOf(key)
+                    + ", expected " + wireType + ".");
+        }
+    }
+
+    /**
+     * Read a byte field's value.
+     *
+     * @param key key of the field.
+     * @return value.
+     * @throws IOException if the field is malformed.
+     */
+    public int readByteField(int key) throws IOException {
+        expect(key, BinaryWriter.WIRE_BYTE);
+        return readByte() & 0xFF;
+    }
+
+    /**
+     * Read a boolean field's value.
+     *
+     * @param key key of the field.
+     * @return value.
+     * @throws IOException if the field is malformed.
+     */
+    public boolean readBooleanField(int key) throws IOException {
+        return readByteField(key) != 0;
+    }
+
+    /**
+     * Read an enum field's value.
+     *
+     * @param key    key of the field.
+     * @param values values of the enum, i.e. {@code Enum.values()}.
+     * @param <E>    enum type.
+     * @return value.
+     * @throws IOException if the field is malformed or the ordinal is unknown.
+     */
+    public <E extends Enum<E>> E readEnumField(int key, E[] values) throws IOException {
+        final int ordinal = readByteField(key);
+        if (ordinal >= values.length) {
+            throw new IOException("Unknown ordinal " + ordinal + " for field " + tagOf(key) + ".");
+        }
+        return values[ordinal];
+    }
+
+    /**
+     * Read an int field's value.
+     *
+     * @param key key of the field.
+     * @return value.
+     * @throws IOException if the field is malformed.
+     */
+    public int readIntField(int key) throws IOException {
+        expect(key, BinaryWriter.WIRE_INT);
+        return readInt();
+    }
+
+    /**
+     * Read a long field's value.
+     *
+     * @param key key of the field.
+     * @return value.
+     * @throws IOException if the field is malformed.
+     */
+    public long readLongField(int key) throws IOException {
+        expect(key, BinaryWriter.WIRE_LONG);
+        return readLong();
+    }
+
+    /**
+     * Read a double field's value.
+     *
+     * @param key key of the field.
+     * @return value.
+     * @throws IOException if the field is malformed.
+     */
+    public double readDoubleField(int key) throws IOException {
+        return Double.longBitsToDouble(readLongField(key));
+    }
+
+    /**
+     * Read a string field's value.
+     *
+     * @param key key of the field.
+     * @return value.
+     * @throws IOException if the field is malformed.
+     */
+    public String readStringField(int key) throws IOException {
+        expect(key, BinaryWriter.WIRE_LENGTH);
+        return readString();
+    }
+
+    /**
+     * Read an id field's value, stored either as a UUID or a string.
+     *
+     * @param key key of the field.
+     * @return value.
+     * @throws IOException if the field is malformed.
+     */
+    public String readIdField(int key) throws IOException {
+        if (wireTypeOf(key) == BinaryWriter.WIRE_UUID) {
+            return new UUID(readLong(), readLong()).toString();
+        }
+        return readStringField(key);
+    }
+
+    /**
+     * Start reading a nested struct field. Read its fields with
+     * {@link #readKey()} until {@link BinaryWriter#END}.
+     *
+     * @param key key of the field.
+     * @return byte length of the nested struct.
+     * @throws IOException if the field is malformed.
+     */
+    public int readStructField(int key) throws IOException {
+        expect(key, BinaryWriter.WIRE_LENGTH);
+        final int length = readInt();
+        ensure(length);
+        return length;
+    }
+
+    /**
+     * Skip the value of a field.
+     *
+     * @param key key of the field.
+     * @throws IOException if the field is malformed.
+     */
+    public void skipField(int key) throws IOException {
+        switch (wireTypeOf(key)) {
+            case BinaryWriter.WIRE_BYTE -> skip(1);
+            case BinaryWriter.WIRE_INT -> skip(4);
+            case BinaryWriter.WIRE_LONG -> skip(8);
+            case BinaryWriter.WIRE_UUID -> skip(16);
+            case BinaryWriter.WIRE_LENGTH -> skip(readInt());
+            default -> throw new IOException("Unknown wire type " + wireTypeOf(key) + ".");
+        }
+    }
+
+    /**
+     * Skip the rest of a struct, including fields added by newer versions.
+     *
+     * @throws IOException if the struct is malformed.
+     */
+    public void skipStruct() throws IOException {
+        int key;
+        while ((key = readKey()) != BinaryWriter.END) {
+            skipField(key);
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package com.group6.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes big-endian binary data into a growable buffer.
+ * <p>
+ * Besides raw values, this writes tagged fields: each field is prefixed with a
+ * key byte holding the field tag and its wire type, so readers can skip fields
+ * they do not know about. See {@link BinaryReader}.
+ * Structs are a sequence of fields terminated by {@link #END}.
+ * </p>
+ */
+public class BinaryWriter {
+
+    /**
+     * Key marking the end of a struct.
+     */
+    public static final int END = 0;
+    /**
+     * Wire type of a 1 byte value (bytes, booleans, enum ordinals).
+     */
+    public static final int WIRE_BYTE = 1;
+    /**
+     * Wire type of a 4 byte value.
+     */
+    public static final int WIRE_INT = 2;
+    /**
+     * Wire type of an 8 byte value (longs, doubles).
+     */
+    public static final int WIRE_LONG = 3;
+    /**
+     * Wire type of a UUID, stored as two longs.
+     */
+    public static final int WIRE_UUID = 4;
+    /**
+     * Wire type of a length-prefixed value (strings, nested structs).
+     */
+    public static final int WIRE_LENGTH = 5;
+    /**
+     * Largest tag that fits in a key.
+     */
+    public static final int MAX_TAG = 31;
+
+    // Value of each lowercase hex digit by character, -1 for other characters.
+    private static final byte[] HEX_DIGITS = new byte[128];
+
+    static {
+        Arrays.fill(HEX_DIGITS, (byte) -1);
+        for (int i = 0; i < 16; i++) {
+            HEX_DIGITS[Character.forDigit(i, 16)] = (byte) i;
+        }
+    }
+
+    private byte[] buffer;
+    private int size = 0;
+
+    /**
+     * Constructor for BinaryWriter.
+     */
+    public BinaryWriter() {
+        this(256);
+    }
+
+    /**
+     * Constructor for BinaryWriter.
+     *
+     * @param initialCapacity initial buffer capacity.
+     */
+    public BinaryWriter(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    /**
+     * Size getter.
+     *
+     * @return number of bytes written.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Discards everything written so the buffer can be reused.
+     */
+    public void reset() {
+        size = 0;
+    }
+
+    /**
+     * Copy of the bytes written.
+     *
+     * @return bytes written.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+
+    /**
+     * Write a byte.
+     *
+     * @param value value.
+     */
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) value;
+    }
+
+    /**
+     * Write an int.
+     *
+     * @param value value.
+     */
+    public void writeInt(int value) {
+        ensureCapacity(4);
+        putInt(size, value);
+        size += 4;
+    }
+
+    private void putInt(int position, int value) {
+        buffer[position] = (byte) (value >>> 24);
+        buffer[position + 1] = (byte) (value >>> 16);
+        buffer[position + 2] = (byte) (value >>> 8);
+        buffer[position + 3] = (byte) value;
+    }
+
+    /**
+     * Write a long.
+     *
+     * @param value value.
+     */
+    public void writeLong(long value) {
+        ensureCapacity(8);
+        putInt(size, (int) (value >>> 32));
+        putInt(size + 4, (int) value);
+        size += 8;
+    }
+
+    /**
+     * Write a non-negative int in 1 to 5 bytes, 7 bits per byte, low bits first.
+     * Small values, such as dictionary codes and run lengths, take a single byte.
+     *
+     * @param value value, must not be negative.
+     */
+    public void writeVarInt(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Var int " + value + " is negative.");
+        }
+        ensureCapacity(5);
+        while (value >= 0x80) {
+            buffer[size++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    /**
+     * Write raw bytes.
+     *
+     * @param bytes bytes.
+     */
+    public void writeBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    /**
+     * Write the bytes written so far to a stream, without copying them.
+     *
+     * @param out stream.
+     * @throws IOException if the stream cannot be written.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    /**
+     * Write a UTF-8 string, prefixed with its byte length.
+     *
+     * @param value value.
+     */
+    public void writeString(String value) {
+        final int length = value.length();
+        ensureCapacity(4 + length);
+        int position = size + 4;
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c >= 0x80) {
+                // Not plain ASCII, fall back to the full encoder.
+                final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                writeInt(bytes.length);
+                writeBytes(bytes);
+                return;
+            }
+            buffer[position++] = (byte) c;
+        }
+        putInt(size, length);
+        size = position;
+    }
+
+    private void writeKey(int tag, int wireType) {
+        if (tag <= 0 || tag > MAX_TAG) {
+            throw new IllegalArgumentException("Tag " + tag + " is out of range.");
+        }
+        writeByte((tag << 3) | wireType);
+    }
+
+    /**
+     * Write a byte field.
+     *
+     * @param tag   field tag.
+     * @param value value.
+     */
+    public void writeByteField(int tag, int value) {
+        writeKey(tag, WIRE_BYTE);
+        writeByte(value);
+    }
+
+    /**
+     * Write a boolean field.
+     *
+     * @param tag   field tag.
+     * @param value value.
+     */
+    public void writeBooleanField(int tag, boolean value) {
+        writeByteField(tag, value ? 1 : 0);
+    }
+
+    /**
+     * Write an enum field as its ordinal. Null values are omitted.
+     *
+     * @param tag   field tag.
+     * @param value value.
+     */
+    public void writeEnumField(int tag, Enum<?> value) {
+        if (value != null) {
+            writeByteField(tag, value.ordinal());
+        }
+    }
+
+    /**
+     * Write an int field.
+     *
+     * @param tag   field tag.
+     * @param value value.
+     */
+    public void writeIntField(int tag, int value) {
+        writeKey(tag, WIRE_INT);
+        writeInt(value);
+    }
+
+    /**
+     * Write a long field.
+     *
+     * @param tag   field tag.
+     * @param value value.
+     */
+    public void writeLongField(int tag, long value) {
+        writeKey(tag, WIRE_LONG);
+        writeLong(value);
+    }
+
+    /**
+     * Write a double field.
+     *
+     * @param tag   field tag.
+     * @param value value.
+     */
+    public void writeDoubleField(int tag, double value) {
+        writeLongField(tag, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Write a string field. Null values are omitted.
+     *
+     * @param tag   field tag.
+     * @param value value.
+     */
+    public void writeStringField(int tag, String value) {
+        if (value != null) {
+            writeKey(tag, WIRE_LENGTH);
+            writeString(value);
+        }
+    }
+
+    /**
+     * Write an id field. Ids in the canonical UUID format are stored as two
+     * longs, other ids are stored as strings. Null values are omitted.
+     *
+     * @param tag   field tag.
+     * @param value value.
+     */
+    public void writeIdField(int tag, String value) {
+        if (value == null) {
+            return;
+        }
+        if (value.length() != 36 || value.charAt(8) != '-' || value.charAt(13) != '-'
+                || value.charAt(18) != '-' || value.charAt(23) != '-') {
+            writeStringField(tag, value);
+            return;
+        }
+        // Straight-line parse of 4 digits at a time, like UUID#fromString. An invalid
+        // digit makes its group negative, and so the ORed groups.
+        final long group1 = parse4Digits(value, 0);
+        final long group2 = parse4Digits(value, 4);
+        final long group3 = parse4Digits(value, 9);
+        final long group4 = parse4Digits(value, 14);
+        final long group5 = parse4Digits(value, 19);
+        final long group6 = parse4Digits(value, 24);
+        final long group7 = parse4Digits(value, 28);
+        final long group8 = parse4Digits(value, 32);
+        if ((group1 | group2 | group3 | group4 | group5 | group6 | group7 | group8) < 0) {
+            writeStringField(tag, value);
+            return;
+        }
+        final long mostSignificant = group1 << 48 | group2 << 32 | group3 << 16 | group4;
+        final long leastSignificant = group5 << 48 | group6 << 32 | group7 << 16 | group8;
+        writeKey(tag, WIRE_UUID);
+        writeLong(mostSignificant);
+        writeLong(leastSignificant);
+    }
+
+    /**
+     * Write a copy of a field written earlier, under another tag, without encoding its value again.
+     *
+     * @param tag      field tag of the copy.
+     * @param position {@link #size()} before the field was written.
+     * @param end      {@link #size()} after the field was written, the same as position if it was omitted.
+     */
+    public void copyField(int tag, int position, int end) {
+        if (end <= position) {
+            return;
+        }
+        writeKey(tag, buffer[position] & 0x7);
+        final int length = end - position - 1;
+        ensureCapacity(length);
+        System.arraycopy(buffer, position + 1, buffer, size, length);
+        size += length;
+    }
+
+    /**
+     * Start a nested struct field. Write the struct's fields, then
+     * call {@link #endStruct(int)} with the returned position.
+     *
+     * @param tag field tag.
+     * @return position to pass to {@link #endStruct(int)}.
+     */
+    public int beginStruct(int tag) {
+        writeKey(tag, WIRE_LENGTH);
+        final int position = size;
+        writeInt(0);
+        return position;
+    }
+
+    /**
+     * End a nested struct started with {@link #beginStruct(int)}.
+     *
+     * @param position position returned by {@link #beginStruct(int)}.
+     */
+    public void endStruct(int position) {
+        writeByte(END);
+        putInt(position, size - position - 4);
+    }
+
+    /**
+     * End the top level struct.
+     */
+    public void endStruct() {
+        writeByte(END);
+    }
+
+    /**
+     * Parse 4 lowercase hex digits. Only the canonical (lowercase) form of a UUID is
+     * written as two longs, so it is read back unchanged.
+     *
+     * @param value    value.
+     * @param position position of the first digit.
+     * @return value of the digits, or a negative value if one is not a lowercase hex digit.
+     */
+    private static long parse4Digits(String value, int position) {
+        final char c1 = value.charAt(position);
+        final char c2 = value.charAt(position + 1);
+        final char c3 = value.charAt(position + 2);
+        final char c4 = value.charAt(position + 3);
+        if ((c1 | c2 | c3 | c4) >= HEX_DIGITS.length) {
+            return -1;
+        }
+        return HEX_DIGITS[c1] << 12 | HEX_DIGITS[c2] << 8 | HEX_DIGITS[c3] << 4 | HEX_DIGITS[c4];
+    }
+}
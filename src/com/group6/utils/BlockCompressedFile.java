@@ -0,0 +1,212 @@
+package com.group6.utils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A file of keyed binary records, compressed with {@link Deflater} in independent blocks.
+ * <p>
+ * Records are grouped into blocks of about {@link #BLOCK_SIZE} bytes, and each block is
+ * compressed on its own, so blocks are decompressed in parallel when the file is read.
+ * The file is always written as a whole, so it suits snapshots rather than single record updates.
+ * </p>
+ * File layout: [int magic][short version] followed by blocks of
+ * [int record count][int uncompressed length][int compressed length][compressed records].
+ * Uncompressed records are [UTF key][int payload length][payload].
+ */
+public class BlockCompressedFile {
+
+    /**
+     * Uncompressed size in bytes after which a block is closed.
+     */
+    public static final int BLOCK_SIZE = 64 * 1024;
+
+    private static final int MAGIC = 0x42544F5A; // "BTOZ"
+    private static final short VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 6;
+    private static final int BLOCK_HEADER_SIZE = 12;
+
+    private final File file;
+    private final int level;
+
+    /**
+     * Compressed block of records.
+     *
+     * @param recordCount        number of records in the block.
+     * @param uncompressedLength length of the records before compression.
+     * @param compressed         compressed records.
+     */
+    private record Block(int recordCount, int uncompressedLength, ByteBuffer compressed) {
+    }
+
+    /**
+     * Constructor for BlockCompressedFile.
+     *
+     * @param filename name of the file.
+     * @param level    {@link Deflater} compression level.
+     */
+    public BlockCompressedFile(String filename, int level) {
+        this.file = new File(filename);
+        this.level = level;
+    }
+
+    /**
+     * File getter.
+     *
+     * @return {@link #file}
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Check if the file exists and is in the block compressed format.
+     *
+     * @return true if the file is a block compressed file.
+     */
+    public boolean isBlockCompressedFile() {
+        if (!file.exists() || file.length() < FILE_HEADER_SIZE) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads every record, in file order. Blocks are decompressed in parallel.
+     *
+     * @return records, keyed by their key.
+     * @throws IOException if the file cannot be read or is malformed.
+     */
+    public LinkedHashMap<String, byte[]> readAll() throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        if (buffer.remaining() < FILE_HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException(file.getName() + " is not a block compressed file.");
+        }
+        final short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported block compressed file version " + version + " in " + file.getName());
+        }
+        final List<Block> blocks = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            if (buffer.remaining() < BLOCK_HEADER_SIZE) {
+                throw new EOFException(file.getName() + " is truncated.");
+            }
+            final int recordCount = buffer.getInt();
+            final int uncompressedLength = buffer.getInt();
+            final int compressedLength = buffer.getInt();
+            if (recordCount < 0 || uncompressedLength < 0 || compressedLength < 0
+                    || compressedLength > buffer.remaining()) {
+                throw new EOFException(file.getName() + " is truncated.");
+            }
+            blocks.add(new Block(recordCount, uncompressedLength, buffer.slice(buffer.position(), compressedLength)));
+            buffer.position(buffer.position() + compressedLength);
+        }
+
+        final LinkedHashMap<String, byte[]> records = new LinkedHashMap<>();
+        for (Map<String, byte[]> blockRecords : ChunkedDecoder.decodeAll(blocks, 1, this::decompress)) {
+            records.putAll(blockRecords);
+        }
+        return records;
+    }
+
+    /**
+     * Replaces the whole file with the given records.
+     * The records are written to a temporary file which is then renamed over
+     * the file, so a crash never leaves a partially written file behind.
+     *
+     * @param records records to write, keyed by their key.
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeAll(Map<String, byte[]> records) throws IOException {
+        final File tempFile = new File(file.getPath() + ".tmp");
+        final Deflater deflater = new Deflater(level);
+        try (FileOutputStream fos = new FileOutputStream(tempFile);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            final ByteArrayOutputStream block = new ByteArrayOutputStream(BLOCK_SIZE * 2);
+            final DataOutputStream blockOut = new DataOutputStream(block);
+            int recordCount = 0;
+            for (Map.Entry<String, byte[]> record : records.entrySet()) {
+                blockOut.writeUTF(record.getKey());
+                blockOut.writeInt(record.getValue().length);
+                blockOut.write(record.getValue());
+                recordCount++;
+                if (block.size() >= BLOCK_SIZE) {
+                    writeBlock(out, deflater, block, recordCount);
+                    recordCount = 0;
+                }
+            }
+            if (recordCount > 0) {
+                writeBlock(out, deflater, block, recordCount);
+            }
+            out.flush();
+            fos.getFD().sync();
+        } finally {
+            deflater.end();
+        }
+        Files.move(tempFile.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeBlock(DataOutputStream out, Deflater deflater, ByteArrayOutputStream block,
+            int recordCount) throws IOException {
+        final byte[] uncompressed = block.toByteArray();
+        deflater.reset();
+        deflater.setInput(uncompressed);
+        deflater.finish();
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(uncompressed.length / 2 + 64);
+        final byte[] chunk = new byte[8192];
+        while (!deflater.finished()) {
+            compressed.write(chunk, 0, deflater.deflate(chunk));
+        }
+        out.writeInt(recordCount);
+        out.writeInt(uncompressed.length);
+        out.writeInt(compressed.size());
+        compressed.writeTo(out);
+        block.reset();
+    }
+
+    private Map<String, byte[]> decompress(Block block) throws IOException {
+        final byte[] uncompressed = new byte[block.uncompressedLength()];
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(block.compressed());
+            int length = 0;
+            while (length < uncompressed.length && !inflater.finished()) {
+                final int inflated = inflater.inflate(uncompressed, length, uncompressed.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != uncompressed.length) {
+                throw new EOFException("Block in " + file.getName() + " is truncated.");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Block in " + file.getName() + " is corrupted: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+
+        final Map<String, byte[]> records = new LinkedHashMap<>();
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(uncompressed));
+        for (int i = 0; i < block.recordCount(); i++) {
+            final String key = in.readUTF();
+            final byte[] payload = new byte[in.readInt()];
+            in.readFully(payload);
+            records.put(key, payload);
+        }
+        return records;
+    }
+}
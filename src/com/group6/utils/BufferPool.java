@@ -0,0 +1,149 @@
+package com.group6.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * A cache of the pages of a {@link PageFile}, holding at most {@link #capacity} clean pages.
+ * <p>
+ * Least recently used pages are evicted first. Written pages are kept as dirty pages until
+ * {@link #commit()} writes them to the file as one batch, and are never evicted before that,
+ * so the file only changes on commit.
+ * </p>
+ */
+public class BufferPool {
+
+    private final PageFile pageFile;
+    private final int capacity;
+    // Map<Page number, Page>, in least recently used order.
+    private final LinkedHashMap<Integer, ByteBuffer> cleanPages;
+    private final SortedMap<Integer, ByteBuffer> dirtyPages = new TreeMap<>();
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Constructor for BufferPool.
+     *
+     * @param pageFile file to cache pages of.
+     * @param capacity maximum number of clean pages to cache.
+     */
+    public BufferPool(PageFile pageFile, int capacity) {
+        this.pageFile = pageFile;
+        this.capacity = Math.max(capacity, 1);
+        this.cleanPages = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Capacity getter.
+     *
+     * @return {@link #capacity}
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Number of page reads served from the cache.
+     *
+     * @return {@link #hits}
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Number of page reads served from the file.
+     *
+     * @return {@link #misses}
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Number of pages written since the last commit.
+     *
+     * @return number of dirty pages.
+     */
+    public synchronized int getDirtyCount() {
+        return dirtyPages.size();
+    }
+
+    /**
+     * Get a page, reading it from the file if it is not cached.
+     * The page must not be modified, use {@link #write(int, ByteBuffer)} instead.
+     *
+     * @param pageNumber page number.
+     * @return page.
+     * @throws IOException if the page cannot be read.
+     */
+    public synchronized ByteBuffer read(int pageNumber) throws IOException {
+        ByteBuffer page = dirtyPages.get(pageNumber);
+        if (page == null) {
+            page = cleanPages.get(pageNumber);
+        }
+        if (page != null) {
+            hits++;
+            return page.duplicate().clear();
+        }
+        misses++;
+        page = pageFile.read(pageNumber);
+        cleanPages.put(pageNumber, page);
+        evict();
+        return page.duplicate().clear();
+    }
+
+    /**
+     * Replace a page. The page is written to the file on {@link #commit()}.
+     *
+     * @param pageNumber page number.
+     * @param page       new contents of the page, {@link PageFile#PAGE_SIZE} bytes.
+     */
+    public synchronized void write(int pageNumber, ByteBuffer page) {
+        if (page.capacity() != PageFile.PAGE_SIZE) {
+            throw new IllegalArgumentException("Page must be " + PageFile.PAGE_SIZE + " bytes.");
+        }
+        cleanPages.remove(pageNumber);
+        dirtyPages.put(pageNumber, page);
+    }
+
+    /**
+     * Write every dirty page to the file as one batch.
+     *
+     * @throws IOException if the pages cannot be written.
+     */
+    public synchronized void commit() throws IOException {
+        pageFile.writeAll(dirtyPages);
+        cleanPages.putAll(dirtyPages);
+        dirtyPages.clear();
+        evict();
+    }
+
+    /**
+     * Drop every dirty page, so the pages are read from the file again.
+     */
+    public synchronized void rollback() {
+        dirtyPages.clear();
+    }
+
+    /**
+     * Drop every cached page.
+     */
+    public synchronized void clear() {
+        cleanPages.clear();
+        dirtyPages.clear();
+    }
+
+    private void evict() {
+        final Iterator<Map.Entry<Integer, ByteBuffer>> iterator = cleanPages.entrySet().iterator();
+        while (cleanPages.size() > capacity && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+}
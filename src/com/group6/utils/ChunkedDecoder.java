@@ -0,0 +1,105 @@
+package com.group6.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Decodes a list of records, splitting large lists into chunks that are
+ * decoded on multiple cores. Decoded items keep the order of the records.
+ */
+public final class ChunkedDecoder {
+
+    /**
+     * Number of records per chunk. Lists no larger than this are decoded on
+     * the calling thread.
+     */
+    public static final int CHUNK_SIZE = 256;
+
+    /**
+     * Decodes a single record.
+     *
+     * @param <R> record type.
+     * @param <T> decoded type.
+     */
+    @FunctionalInterface
+    public interface Decoder<R, T> {
+        /**
+         * Decode a record.
+         *
+         * @param record record.
+         * @return decoded item.
+         * @throws IOException if the record is malformed.
+         */
+        T decode(R record) throws IOException;
+    }
+
+    private ChunkedDecoder() {
+    }
+
+    /**
+     * Decode all records.
+     *
+     * @param records records to decode.
+     * @param decoder decoder, called from multiple threads for large lists.
+     * @param <R>     record type.
+     * @param <T>     decoded type.
+     * @return decoded items, in the same order as the records.
+     * @throws IOException if any record is malformed.
+     */
+    public static <R, T> List<T> decodeAll(List<R> records, Decoder<R, T> decoder) throws IOException {
+        return decodeAll(records, CHUNK_SIZE, decoder);
+    }
+
+    /**
+     * Decode all records, with a custom chunk size for records that are
+     * expensive to decode, such as compressed blocks.
+     *
+     * @param records   records to decode.
+     * @param chunkSize number of records per chunk.
+     * @param decoder   decoder, called from multiple threads for large lists.
+     * @param <R>       record type.
+     * @param <T>       decoded type.
+     * @return decoded items, in the same order as the records.
+     * @throws IOException if any record is malformed.
+     */
+    public static <R, T> List<T> decodeAll(List<R> records, int chunkSize, Decoder<R, T> decoder)
+            throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive.");
+        }
+        if (records.size() <= chunkSize) {
+            return decodeChunk(records, decoder);
+        }
+        final int chunks = (records.size() + chunkSize - 1) / chunkSize;
+        try {
+            final List<List<T>> decodedChunks = IntStream.range(0, chunks)
+                    .parallel()
+                    .mapToObj((chunk) -> {
+                        final int from = chunk * chunkSize;
+                        final int to = Math.min(from + chunkSize, records.size());
+                        try {
+                            return decodeChunk(records.subList(from, to), decoder);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .toList();
+            final List<T> decoded = new ArrayList<>(records.size());
+            decodedChunks.forEach(decoded::addAll);
+            return decoded;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static <R, T> List<T> decodeChunk(List<R> records, Decoder<R, T> decoder) throws IOException {
+        final List<T> decoded = new ArrayList<>(records.size());
+        for (R record : records) {
+            decoded.add(decoder.decode(record));
+        }
+        return decoded;
+    }
+}
@@ -0,0 +1,394 @@
+package com.group6.utils;
+
+import com.group6.utils.ColumnarWriter.Column;
+import com.group6.utils.ColumnarWriter.ColumnType;
+import com.group6.utils.ColumnarWriter.Statistics;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads a table written by {@link ColumnarWriter}.
+ * <p>
+ * Only the metadata is read when the table is opened. Values are read one column of one
+ * row group at a time, so a scan reads only the columns it needs, and can skip row groups
+ * whose {@link Statistics} show they have no matching rows.
+ * </p>
+ */
+public class ColumnarReader implements Closeable {
+
+    private final File directory;
+    private final List<Column> columns;
+    private final long rowCount;
+    private final List<RowGroup> rowGroups;
+    private final FileChannel[] channels;
+
+    /**
+     * Where a row group is in the column files, and its statistics.
+     */
+    public static final class RowGroup {
+        private final int rowCount;
+        private final long[] offsets;
+        private final long[] lengths;
+        private final Statistics[] statistics;
+
+        private RowGroup(int rowCount, long[] offsets, long[] lengths, Statistics[] statistics) {
+            this.rowCount = rowCount;
+            this.offsets = offsets;
+            this.lengths = lengths;
+            this.statistics = statistics;
+        }
+
+        /**
+         * RowCount getter.
+         *
+         * @return {@link #rowCount}
+         */
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * Number of bytes of a column in the row group.
+         *
+         * @param column index of the column.
+         * @return number of bytes.
+         */
+        public long getLength(int column) {
+            return lengths[column];
+        }
+
+        /**
+         * Statistics of a column in the row group.
+         *
+         * @param column index of the column.
+         * @return statistics.
+         */
+        public Statistics getStatistics(int column) {
+            return statistics[column];
+        }
+    }
+
+    /**
+     * Constructor for ColumnarReader.
+     *
+     * @param directory directory of the table.
+     * @throws IOException if the metadata is missing or malformed.
+     */
+    public ColumnarReader(File directory) throws IOException {
+        this.directory = directory;
+        final byte[] bytes = Files.readAllBytes(new File(directory, ColumnarWriter.METADATA_FILE).toPath());
+        if (bytes.length < 12) {
+            throw new IOException("Table metadata in " + directory + " is truncated.");
+        }
+        final CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, bytes.length - 4);
+        final int checksum = ByteBuffer.wrap(bytes, bytes.length - 4, 4).getInt();
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Table metadata in " + directory + " failed its checksum.");
+        }
+
+        final BinaryReader reader = new BinaryReader(ByteBuffer.wrap(bytes, 0, bytes.length - 4));
+        if (reader.readInt() != ColumnarWriter.MAGIC) {
+            throw new IOException(directory + " is not a table.");
+        }
+        final int version = reader.readInt();
+        if (version != ColumnarWriter.VERSION) {
+            throw new IOException("Unsupported table version " + version + ".");
+        }
+        final int columnCount = reader.readVarInt();
+        final List<Column> columns = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            final String name = reader.readString();
+            final int type = reader.readByte();
+            if (type < 0 || type >= ColumnType.values().length) {
+                throw new IOException("Column " + name + " has unknown type " + type + ".");
+            }
+            final int constantCount = reader.readVarInt();
+            final List<String> constants = new ArrayList<>(constantCount);
+            for (int j = 0; j < constantCount; j++) {
+                constants.add(reader.readString());
+            }
+            columns.add(new Column(name, ColumnType.values()[type], List.copyOf(constants)));
+        }
+        this.columns = List.copyOf(columns);
+        this.rowCount = reader.readLong();
+
+        final int rowGroupCount = reader.readVarInt();
+        final List<RowGroup> rowGroups = new ArrayList<>(rowGroupCount);
+        for (int i = 0; i < rowGroupCount; i++) {
+            final int groupRowCount = reader.readVarInt();
+            final long[] offsets = new long[columnCount];
+            final long[] lengths = new long[columnCount];
+            final Statistics[] statistics = new Statistics[columnCount];
+            for (int j = 0; j < columnCount; j++) {
+                offsets[j] = reader.readLong();
+                lengths[j] = reader.readLong();
+                statistics[j] = readStatistics(reader, columns.get(j));
+            }
+            rowGroups.add(new RowGroup(groupRowCount, offsets, lengths, statistics));
+        }
+        this.rowGroups = Collections.unmodifiableList(rowGroups);
+        this.channels = new FileChannel[columnCount];
+    }
+
+    private static Statistics readStatistics(BinaryReader reader, Column column) throws IOException {
+        final int nullCount = reader.readVarInt();
+        final int distinctCount = reader.readVarInt() - 1;
+        Object min = null;
+        Object max = null;
+        switch (column.type()) {
+            case STRING -> {
+                if (reader.readByte() != 0) {
+                    min = reader.readString();
+                    max = reader.readString();
+                }
+            }
+            case ENUM -> {
+                final int minCode = reader.readVarInt();
+                final int maxCode = reader.readVarInt();
+                if (minCode > 0) {
+                    min = enumConstant(column, minCode);
+                    max = enumConstant(column, maxCode);
+                }
+            }
+            case LONG -> {
+                if (reader.readByte() != 0) {
+                    min = reader.readLong();
+                    max = reader.readLong();
+                }
+            }
+            case DOUBLE -> {
+                if (reader.readByte() != 0) {
+                    min = Double.longBitsToDouble(reader.readLong());
+                    max = Double.longBitsToDouble(reader.readLong());
+                }
+            }
+        }
+        return new Statistics(nullCount, distinctCount, min, max);
+    }
+
+    private static String enumConstant(Column column, int code) throws IOException {
+        if (code <= 0 || code > column.enumConstants().size()) {
+            throw new IOException("Column " + column.name() + " has unknown enum code " + code + ".");
+        }
+        return column.enumConstants().get(code - 1);
+    }
+
+    /**
+     * Columns getter.
+     *
+     * @return {@link #columns}
+     */
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Index of a column by name.
+     *
+     * @param name name of the column.
+     * @return index of the column.
+     * @throws IllegalArgumentException if there is no column with the name.
+     */
+    public int getColumnIndex(String name) throws IllegalArgumentException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).name().equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No column named " + name + " in " + directory + ".");
+    }
+
+    /**
+     * RowCount getter.
+     *
+     * @return {@link #rowCount}
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * RowGroups getter.
+     *
+     * @return {@link #rowGroups}
+     */
+    public List<RowGroup> getRowGroups() {
+        return rowGroups;
+    }
+
+    private BinaryReader readChunk(int rowGroup, int column, ColumnType type) throws IOException {
+        final Column definition = columns.get(column);
+        if (definition.type() != type) {
+            throw new IllegalArgumentException("Column " + definition.name() + " is not of type " + type + ".");
+        }
+        if (channels[column] == null) {
+            channels[column] = FileChannel.open(
+                    new File(directory, definition.name() + ColumnarWriter.COLUMN_SUFFIX).toPath(),
+                    StandardOpenOption.READ);
+        }
+        final RowGroup group = rowGroups.get(rowGroup);
+        final ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(group.lengths[column]));
+        long position = group.offsets[column];
+        while (buffer.hasRemaining()) {
+            final int read = channels[column].read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Column " + definition.name() + " is truncated.");
+            }
+            position += read;
+        }
+        buffer.flip();
+        return new BinaryReader(buffer);
+    }
+
+    /**
+     * Read a {@link ColumnType#STRING} column of a row group.
+     * Rows with the same value share the same string instance.
+     *
+     * @param rowGroup index of the row group.
+     * @param column   index of the column.
+     * @return values, null where the value is null.
+     * @throws IOException if the column cannot be read.
+     */
+    public String[] readStrings(int rowGroup, int column) throws IOException {
+        final BinaryReader reader = readChunk(rowGroup, column, ColumnType.STRING);
+        final String[] dictionary = new String[reader.readVarInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = reader.readString();
+        }
+        final String[] values = new String[rowGroups.get(rowGroup).rowCount];
+        for (int i = 0; i < values.length; i++) {
+            final int code = reader.readVarInt();
+            if (code > dictionary.length) {
+                throw new IOException("Column " + columns.get(column).name() + " has unknown code " + code + ".");
+            }
+            values[i] = code == 0 ? null : dictionary[code - 1];
+        }
+        return values;
+    }
+
+    /**
+     * Read a {@link ColumnType#ENUM} column of a row group.
+     *
+     * @param rowGroup index of the row group.
+     * @param column   index of the column.
+     * @param values   values of the enum, which must have the column's constants, such as {@code BTOApplicationStatus.values()}.
+     * @param <E>      enum type.
+     * @return values, null where the value is null.
+     * @throws IOException if the column cannot be read.
+     */
+    public <E extends Enum<E>> List<E> readEnums(int rowGroup, int column, E[] values) throws IOException {
+        final List<String> constants = columns.get(column).enumConstants();
+        for (int i = 0; i < constants.size(); i++) {
+            if (i >= values.length || !values[i].name().equals(constants.get(i))) {
+                throw new IllegalArgumentException("Column " + columns.get(column).name() + " has constants "
+                        + constants + ", which do not match " + Arrays.toString(values) + ".");
+            }
+        }
+        final BinaryReader reader = readChunk(rowGroup, column, ColumnType.ENUM);
+        final int rowCount = rowGroups.get(rowGroup).rowCount;
+        final List<E> result = new ArrayList<>(rowCount);
+        final int encoding = reader.readByte();
+        if (encoding == ColumnarWriter.ENCODING_RLE) {
+            while (result.size() < rowCount) {
+                final int runLength = reader.readVarInt();
+                final int code = reader.readVarInt();
+                if (runLength > rowCount - result.size() || code > constants.size()) {
+                    throw new IOException("Column " + columns.get(column).name() + " has a malformed run.");
+                }
+                final E value = code == 0 ? null : values[code - 1];
+                for (int i = 0; i < runLength; i++) {
+                    result.add(value);
+                }
+            }
+        } else if (encoding == ColumnarWriter.ENCODING_BIT_PACKED) {
+            final int bitWidth = ColumnarWriter.bitWidth(constants.size());
+            final int mask = (1 << bitWidth) - 1;
+            int packed = 0;
+            int bits = 0;
+            while (result.size() < rowCount) {
+                if (bits < bitWidth) {
+                    packed |= (reader.readByte() & 0xFF) << bits;
+                    bits += 8;
+                }
+                final int code = packed & mask;
+                packed >>>= bitWidth;
+                bits -= bitWidth;
+                if (code > constants.size()) {
+                    throw new IOException("Column " + columns.get(column).name() + " has unknown enum code " + code + ".");
+                }
+                result.add(code == 0 ? null : values[code - 1]);
+            }
+        } else {
+            throw new IOException("Column " + columns.get(column).name() + " has unknown encoding " + encoding + ".");
+        }
+        return result;
+    }
+
+    /**
+     * Read a {@link ColumnType#LONG} column of a row group.
+     *
+     * @param rowGroup index of the row group.
+     * @param column   index of the column.
+     * @return values.
+     * @throws IOException if the column cannot be read.
+     */
+    public long[] readLongs(int rowGroup, int column) throws IOException {
+        final BinaryReader reader = readChunk(rowGroup, column, ColumnType.LONG);
+        final long[] values = new long[rowGroups.get(rowGroup).rowCount];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = reader.readLong();
+        }
+        return values;
+    }
+
+    /**
+     * Read a {@link ColumnType#DOUBLE} column of a row group.
+     *
+     * @param rowGroup index of the row group.
+     * @param column   index of the column.
+     * @return values.
+     * @throws IOException if the column cannot be read.
+     */
+    public double[] readDoubles(int rowGroup, int column) throws IOException {
+        final BinaryReader reader = readChunk(rowGroup, column, ColumnType.DOUBLE);
+        final double[] values = new double[rowGroups.get(rowGroup).rowCount];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Double.longBitsToDouble(reader.readLong());
+        }
+        return values;
+    }
+
+    /**
+     * Close the column files.
+     *
+     * @throws IOException if a file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException error = null;
+        for (int i = 0; i < channels.length; i++) {
+            if (channels[i] == null) {
+                continue;
+            }
+            try {
+                channels[i].close();
+            } catch (IOException e) {
+                error = e;
+            }
+            channels[i] = null;
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+}
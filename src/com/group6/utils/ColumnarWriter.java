@@ -0,0 +1,700 @@
+package com.group6.utils;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32C;
+
+/**
+ * Writes a table in a columnar layout: a directory with one file per column, and a
+ * {@link #METADATA_FILE} describing the columns and their row groups.
+ * <p>
+ * Rows are buffered in row groups of {@link #rowGroupSize} rows. Once a row group is full,
+ * each column's values are encoded and appended to the column's file, so memory use is
+ * bounded by the row group size, however many rows are written. Column encodings:
+ * </p>
+ * <ul>
+ *     <li>{@link ColumnType#STRING}: a dictionary of the row group's distinct values,
+ *     followed by each row's var int code into the dictionary, 0 for null.</li>
+ *     <li>{@link ColumnType#ENUM}: codes of ordinal + 1, 0 for null, run-length encoded as a var
+ *     int run length and a var int code per run of equal values. If values rarely repeat, the
+ *     codes are bit packed instead, whichever is smaller for the row group.</li>
+ *     <li>{@link ColumnType#LONG} and {@link ColumnType#DOUBLE}: 8 bytes per row.</li>
+ * </ul>
+ * <p>
+ * For every row group and column, the metadata records where the data is in the column's
+ * file, and its {@link Statistics}, so readers can skip row groups and read only the columns
+ * they need, see {@link ColumnarReader}.
+ * </p>
+ * The metadata is only written by {@link #commit()}, so a directory without it is an incomplete table.
+ * Metadata layout: [int magic][int version][columns][long row count][row groups][int checksum].
+ */
+public class ColumnarWriter implements Closeable {
+
+    /**
+     * Name of the file describing the columns and row groups.
+     */
+    public static final String METADATA_FILE = "_metadata";
+    /**
+     * Suffix of column files.
+     */
+    public static final String COLUMN_SUFFIX = ".col";
+    /**
+     * Default number of rows per row group.
+     */
+    public static final int DEFAULT_ROW_GROUP_SIZE = 64 * 1024;
+
+    static final int MAGIC = 0x42544F58; // "BTOX"
+    static final int VERSION = 1;
+    static final int ENCODING_RLE = 0;
+    static final int ENCODING_BIT_PACKED = 1;
+    static final int MAX_ENUM_CONSTANTS = 255;
+
+    private final File directory;
+    private final List<Column> columns;
+    private final int rowGroupSize;
+    private final ColumnBuffer[] buffers;
+    private final OutputStream[] outs;
+    private final long[] offsets;
+    // Row groups written so far, encoded as they are in the metadata.
+    private final BinaryWriter rowGroups = new BinaryWriter();
+    private final BinaryWriter scratch = new BinaryWriter(4096);
+    private int rowGroupCount = 0;
+    private int rowsInGroup = 0;
+    private long rowCount = 0;
+    private boolean isClosed = false;
+
+    /**
+     * Type of values in a column.
+     */
+    public enum ColumnType {
+        STRING,
+        ENUM,
+        LONG,
+        DOUBLE
+    }
+
+    /**
+     * Column of a table.
+     *
+     * @param name          name of the column, also the name of its file.
+     * @param type          type of values.
+     * @param enumConstants names of the enum constants, in ordinal order, for {@link ColumnType#ENUM} columns.
+     */
+    public record Column(String name, ColumnType type, List<String> enumConstants) {
+
+        /**
+         * Column of strings, such as ids and names.
+         *
+         * @param name name of the column.
+         * @return column.
+         */
+        public static Column string(String name) {
+            return new Column(name, ColumnType.STRING, List.of());
+        }
+
+        /**
+         * Column of enum constants.
+         *
+         * @param name     name of the column.
+         * @param enumType enum class.
+         * @return column.
+         */
+        public static Column enumeration(String name, Class<? extends Enum<?>> enumType) {
+            if (enumType.getEnumConstants().length > MAX_ENUM_CONSTANTS) {
+                throw new IllegalArgumentException("Enum " + enumType.getSimpleName() + " has more than "
+                        + MAX_ENUM_CONSTANTS + " constants.");
+            }
+            return new Column(name, ColumnType.ENUM,
+                    Arrays.stream(enumType.getEnumConstants()).map(Enum::name).toList());
+        }
+
+        /**
+         * Column of longs, such as timestamps.
+         *
+         * @param name name of the column.
+         * @return column.
+         */
+        public static Column int64(String name) {
+            return new Column(name, ColumnType.LONG, List.of());
+        }
+
+        /**
+         * Column of doubles.
+         *
+         * @param name name of the column.
+         * @return column.
+         */
+        public static Column float64(String name) {
+            return new Column(name, ColumnType.DOUBLE, List.of());
+        }
+    }
+
+    /**
+     * Statistics of a column in a row group.
+     * The minimum and maximum are strings for {@link ColumnType#STRING} columns, enum constant
+     * names in ordinal order for {@link ColumnType#ENUM} columns, and longs or doubles otherwise.
+     *
+     * @param nullCount     number of null values.
+     * @param distinctCount number of distinct values that are not null, or -1 if not known.
+     * @param min           smallest value that is not null, or null if every value is null.
+     * @param max           largest value that is not null, or null if every value is null.
+     */
+    public record Statistics(int nullCount, int distinctCount, Object min, Object max) {
+    }
+
+    /**
+     * Constructor for ColumnarWriter, with {@link #DEFAULT_ROW_GROUP_SIZE} rows per row group.
+     *
+     * @param directory directory to write the table to, created if it does not exist.
+     * @param columns   columns of the table.
+     * @throws IOException if the column files cannot be created.
+     */
+    public ColumnarWriter(File directory, List<Column> columns) throws IOException {
+        this(directory, columns, DEFAULT_ROW_GROUP_SIZE);
+    }
+
+    /**
+     * Constructor for ColumnarWriter.
+     *
+     * @param directory    directory to write the table to, created if it does not exist.
+     * @param columns      columns of the table.
+     * @param rowGroupSize maximum number of rows per row group.
+     * @throws IOException if the column files cannot be created.
+     */
+    public ColumnarWriter(File directory, List<Column> columns, int rowGroupSize) throws IOException {
+        if (rowGroupSize <= 0) {
+            throw new IllegalArgumentException("Row group size must be positive.");
+        }
+        this.directory = directory;
+        this.columns = List.copyOf(columns);
+        this.rowGroupSize = rowGroupSize;
+        this.buffers = new ColumnBuffer[columns.size()];
+        this.outs = new OutputStream[columns.size()];
+        this.offsets = new long[columns.size()];
+
+        Files.createDirectories(directory.toPath());
+        // The old metadata no longer describes the column files once they are replaced.
+        Files.deleteIfExists(new File(directory, METADATA_FILE).toPath());
+        try {
+            for (int i = 0; i < buffers.length; i++) {
+                final Column column = this.columns.get(i);
+                buffers[i] = switch (column.type()) {
+                    case STRING -> new StringColumnBuffer();
+                    case ENUM -> new EnumColumnBuffer(column.enumConstants());
+                    case LONG -> new LongColumnBuffer();
+                    case DOUBLE -> new DoubleColumnBuffer();
+                };
+                outs[i] = new BufferedOutputStream(
+                        new FileOutputStream(new File(directory, column.name() + COLUMN_SUFFIX)), 64 * 1024);
+            }
+        } catch (IOException e) {
+            closeStreams();
+            throw e;
+        }
+    }
+
+    /**
+     * Columns getter.
+     *
+     * @return {@link #columns}
+     */
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Number of rows written.
+     *
+     * @return number of rows.
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Number of row groups written to the files.
+     *
+     * @return number of row groups.
+     */
+    public int getRowGroupCount() {
+        return rowGroupCount;
+    }
+
+    private ColumnBuffer buffer(int column, ColumnType type) {
+        final ColumnBuffer buffer = buffers[column];
+        if (columns.get(column).type() != type) {
+            throw new IllegalArgumentException("Column " + columns.get(column).name() + " is not of type " + type + ".");
+        }
+        if (buffer.count > rowsInGroup) {
+            throw new IllegalStateException("Column " + columns.get(column).name() + " is already set for this row.");
+        }
+        return buffer;
+    }
+
+    /**
+     * Set a {@link ColumnType#STRING} column of the current row.
+     *
+     * @param column index of the column.
+     * @param value  value, may be null.
+     */
+    public void setString(int column, String value) {
+        ((StringColumnBuffer) buffer(column, ColumnType.STRING)).add(value);
+    }
+
+    /**
+     * Set a {@link ColumnType#ENUM} column of the current row.
+     *
+     * @param column index of the column.
+     * @param value  value, may be null.
+     */
+    public void setEnum(int column, Enum<?> value) {
+        ((EnumColumnBuffer) buffer(column, ColumnType.ENUM)).add(value);
+    }
+
+    /**
+     * Set a {@link ColumnType#LONG} column of the current row.
+     *
+     * @param column index of the column.
+     * @param value  value.
+     */
+    public void setLong(int column, long value) {
+        ((LongColumnBuffer) buffer(column, ColumnType.LONG)).add(value);
+    }
+
+    /**
+     * Set a {@link ColumnType#DOUBLE} column of the current row.
+     *
+     * @param column index of the column.
+     * @param value  value.
+     */
+    public void setDouble(int column, double value) {
+        ((DoubleColumnBuffer) buffer(column, ColumnType.DOUBLE)).add(value);
+    }
+
+    /**
+     * End the current row, once every column is set.
+     * Writes the row group to the files once it is full.
+     *
+     * @throws IOException if the row group cannot be written.
+     */
+    public void endRow() throws IOException {
+        for (int i = 0; i < buffers.length; i++) {
+            if (buffers[i].count <= rowsInGroup) {
+                throw new IllegalStateException("Column " + columns.get(i).name() + " is not set for this row.");
+            }
+        }
+        rowsInGroup++;
+        rowCount++;
+        if (rowsInGroup >= rowGroupSize) {
+            flushRowGroup();
+        }
+    }
+
+    private void flushRowGroup() throws IOException {
+        if (rowsInGroup == 0) {
+            return;
+        }
+        rowGroups.writeVarInt(rowsInGroup);
+        for (int i = 0; i < buffers.length; i++) {
+            final ColumnBuffer buffer = buffers[i];
+            final long length = buffer.writeTo(outs[i], scratch);
+            rowGroups.writeLong(offsets[i]);
+            rowGroups.writeLong(length);
+            writeStatistics(rowGroups, columns.get(i), buffer.statistics());
+            offsets[i] += length;
+            buffer.reset();
+        }
+        rowGroupCount++;
+        rowsInGroup = 0;
+    }
+
+    /**
+     * Write the last row group and the metadata, completing the table.
+     *
+     * @throws IOException if the files cannot be written.
+     */
+    public void commit() throws IOException {
+        if (isClosed) {
+            throw new IllegalStateException("Table in " + directory + " is already closed.");
+        }
+        isClosed = true;
+        try {
+            flushRowGroup();
+            for (OutputStream out : outs) {
+                out.flush();
+            }
+        } finally {
+            closeStreams();
+        }
+        writeMetadata();
+    }
+
+    /**
+     * Close the files. If the table was not committed, no metadata is written,
+     * so the table is left incomplete.
+     *
+     * @throws IOException if the files cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!isClosed) {
+            isClosed = true;
+            closeStreams();
+        }
+    }
+
+    private void closeStreams() throws IOException {
+        IOException error = null;
+        for (OutputStream out : outs) {
+            if (out == null) {
+                continue;
+            }
+            try {
+                out.close();
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void writeMetadata() throws IOException {
+        final BinaryWriter metadata = new BinaryWriter(rowGroups.size() + 256);
+        metadata.writeInt(MAGIC);
+        metadata.writeInt(VERSION);
+        metadata.writeVarInt(columns.size());
+        for (Column column : columns) {
+            metadata.writeString(column.name());
+            metadata.writeByte(column.type().ordinal());
+            metadata.writeVarInt(column.enumConstants().size());
+            for (String constant : column.enumConstants()) {
+                metadata.writeString(constant);
+            }
+        }
+        metadata.writeLong(rowCount);
+        metadata.writeVarInt(rowGroupCount);
+        final byte[] header = metadata.toByteArray();
+        final byte[] groups = rowGroups.toByteArray();
+        final CRC32C crc = new CRC32C();
+        crc.update(header);
+        crc.update(groups);
+
+        final File file = new File(directory, METADATA_FILE);
+        final File tempFile = new File(directory, METADATA_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.write(header);
+            out.write(groups);
+            out.writeInt((int) crc.getValue());
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Number of bits needed for the codes of an enum column, 0 for null and ordinal + 1 otherwise.
+     *
+     * @param constantCount number of enum constants.
+     * @return number of bits.
+     */
+    static int bitWidth(int constantCount) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(constantCount));
+    }
+
+    private static void writeStatistics(BinaryWriter writer, Column column, Statistics statistics) {
+        writer.writeVarInt(statistics.nullCount());
+        writer.writeVarInt(statistics.distinctCount() + 1);
+        final boolean hasValues = statistics.min() != null;
+        switch (column.type()) {
+            case STRING -> {
+                writer.writeByte(hasValues ? 1 : 0);
+                if (hasValues) {
+                    writer.writeString((String) statistics.min());
+                    writer.writeString((String) statistics.max());
+                }
+            }
+            case ENUM -> {
+                writer.writeVarInt(hasValues ? column.enumConstants().indexOf((String) statistics.min()) + 1 : 0);
+                writer.writeVarInt(hasValues ? column.enumConstants().indexOf((String) statistics.max()) + 1 : 0);
+            }
+            case LONG -> {
+                writer.writeByte(hasValues ? 1 : 0);
+                if (hasValues) {
+                    writer.writeLong((Long) statistics.min());
+                    writer.writeLong((Long) statistics.max());
+                }
+            }
+            case DOUBLE -> {
+                writer.writeByte(hasValues ? 1 : 0);
+                if (hasValues) {
+                    writer.writeLong(Double.doubleToLongBits((Double) statistics.min()));
+                    writer.writeLong(Double.doubleToLongBits((Double) statistics.max()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Values of a column in the current row group.
+     */
+    private abstract static class ColumnBuffer {
+        // Number of values in the row group.
+        int count = 0;
+
+        /**
+         * Encode the row group's values into a stream.
+         *
+         * @param out     stream.
+         * @param scratch writer to reuse for encoding.
+         * @return number of bytes written.
+         * @throws IOException if the stream cannot be written.
+         */
+        abstract long writeTo(OutputStream out, BinaryWriter scratch) throws IOException;
+
+        /**
+         * Statistics of the row group's values.
+         *
+         * @return statistics.
+         */
+        abstract Statistics statistics();
+
+        /**
+         * Discard the row group's values.
+         */
+        abstract void reset();
+    }
+
+    private static final class StringColumnBuffer extends ColumnBuffer {
+        // Map<Value, Code>
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+        private final BinaryWriter values = new BinaryWriter(4096);
+        private int nullCount = 0;
+        private String min;
+        private String max;
+
+        void add(String value) {
+            count++;
+            if (value == null) {
+                nullCount++;
+                values.writeVarInt(0);
+                return;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                codes.put(value, code);
+                dictionary.add(value);
+                // Only new values can change the minimum or maximum.
+                if (min == null || value.compareTo(min) < 0) {
+                    min = value;
+                }
+                if (max == null || value.compareTo(max) > 0) {
+                    max = value;
+                }
+            }
+            values.writeVarInt(code + 1);
+        }
+
+        @Override
+        long writeTo(OutputStream out, BinaryWriter scratch) throws IOException {
+            scratch.reset();
+            scratch.writeVarInt(dictionary.size());
+            for (String value : dictionary) {
+                scratch.writeString(value);
+            }
+            scratch.writeTo(out);
+            values.writeTo(out);
+            return (long) scratch.size() + values.size();
+        }
+
+        @Override
+        Statistics statistics() {
+            return new Statistics(nullCount, dictionary.size(), min, max);
+        }
+
+        @Override
+        void reset() {
+            count = 0;
+            codes.clear();
+            dictionary.clear();
+            values.reset();
+            nullCount = 0;
+            min = null;
+            max = null;
+        }
+    }
+
+    private static final class EnumColumnBuffer extends ColumnBuffer {
+        private final List<String> constants;
+        private final int bitWidth;
+        private final BinaryWriter runs = new BinaryWriter(256);
+        // Code of every value, kept in case bit packing is smaller than the runs.
+        private final BinaryWriter codes = new BinaryWriter(4096);
+        private final boolean[] present;
+        private int runValue = -1;
+        private int runLength = 0;
+        private int nullCount = 0;
+
+        EnumColumnBuffer(List<String> constants) {
+            this.constants = constants;
+            this.bitWidth = bitWidth(constants.size());
+            this.present = new boolean[constants.size()];
+        }
+
+        void add(Enum<?> value) {
+            int code = 0;
+            if (value == null) {
+                nullCount++;
+            } else {
+                if (value.ordinal() >= constants.size() || !value.name().equals(constants.get(value.ordinal()))) {
+                    throw new IllegalArgumentException("Enum constant " + value + " is not one of " + constants + ".");
+                }
+                present[value.ordinal()] = true;
+                code = value.ordinal() + 1;
+            }
+            count++;
+            codes.writeByte(code);
+            if (code == runValue) {
+                runLength++;
+                return;
+            }
+            endRun();
+            runValue = code;
+            runLength = 1;
+        }
+
+        private void endRun() {
+            if (runLength > 0) {
+                runs.writeVarInt(runLength);
+                runs.writeVarInt(runValue);
+            }
+        }
+
+        @Override
+        long writeTo(OutputStream out, BinaryWriter scratch) throws IOException {
+            endRun();
+            runLength = 0;
+            // Values that do not repeat, such as interleaved statuses, are smaller bit packed.
+            final int packedSize = (int) (((long) count * bitWidth + 7) / 8);
+            if (runs.size() <= packedSize) {
+                out.write(ENCODING_RLE);
+                runs.writeTo(out);
+                return 1 + runs.size();
+            }
+            scratch.reset();
+            final byte[] values = codes.toByteArray();
+            int packed = 0;
+            int bits = 0;
+            for (byte value : values) {
+                packed |= value << bits;
+                bits += bitWidth;
+                while (bits >= 8) {
+                    scratch.writeByte(packed);
+                    packed >>>= 8;
+                    bits -= 8;
+                }
+            }
+            if (bits > 0) {
+                scratch.writeByte(packed);
+            }
+            out.write(ENCODING_BIT_PACKED);
+            scratch.writeTo(out);
+            return 1 + scratch.size();
+        }
+
+        @Override
+        Statistics statistics() {
+            int distinctCount = 0;
+            String min = null;
+            String max = null;
+            for (int i = 0; i < present.length; i++) {
+                if (present[i]) {
+                    distinctCount++;
+                    if (min == null) {
+                        min = constants.get(i);
+                    }
+                    max = constants.get(i);
+                }
+            }
+            return new Statistics(nullCount, distinctCount, min, max);
+        }
+
+        @Override
+        void reset() {
+            count = 0;
+            runs.reset();
+            codes.reset();
+            Arrays.fill(present, false);
+            runValue = -1;
+            runLength = 0;
+            nullCount = 0;
+        }
+    }
+
+    private static final class LongColumnBuffer extends ColumnBuffer {
+        private final BinaryWriter values = new BinaryWriter(4096);
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+
+        void add(long value) {
+            count++;
+            values.writeLong(value);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        @Override
+        long writeTo(OutputStream out, BinaryWriter scratch) throws IOException {
+            values.writeTo(out);
+            return values.size();
+        }
+
+        @Override
+        Statistics statistics() {
+            return new Statistics(0, -1, count > 0 ? min : null, count > 0 ? max : null);
+        }
+
+        @Override
+        void reset() {
+            count = 0;
+            values.reset();
+            min = Long.MAX_VALUE;
+            max = Long.MIN_VALUE;
+        }
+    }
+
+    private static final class DoubleColumnBuffer extends ColumnBuffer {
+        private final BinaryWriter values = new BinaryWriter(4096);
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        void add(double value) {
+            count++;
+            values.writeLong(Double.doubleToLongBits(value));
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        @Override
+        long writeTo(OutputStream out, BinaryWriter scratch) throws IOException {
+            values.writeTo(out);
+            return values.size();
+        }
+
+        @Override
+        Statistics statistics() {
+            return new Statistics(0, -1, count > 0 ? min : null, count > 0 ? max : null);
+        }
+
+        @Override
+        void reset() {
+            count = 0;
+            values.reset();
+            min = Double.POSITIVE_INFINITY;
+            max = Double.NEGATIVE_INFINITY;
+        }
+    }
+}
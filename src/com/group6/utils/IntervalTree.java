@@ -0,0 +1,286 @@
+package com.group6.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * An in-memory interval tree of closed intervals [start, end] to values.
+ * <p>
+ * It is an AVL tree ordered by start, then end, where each node also holds the largest end
+ * of its subtree. Values with the same interval share a node. Adding and removing take
+ * O(log n), and finding the values overlapping an interval takes O(log n + k) for k matches,
+ * as subtrees that end before the interval, or start after it, are skipped.
+ * </p>
+ * Not thread safe.
+ *
+ * @param <V> value type.
+ */
+public class IntervalTree<V> {
+
+    private Node<V> root;
+    private int size = 0;
+
+    private static final class Node<V> {
+        private final long start;
+        private final long end;
+        private final List<V> values = new ArrayList<>(1);
+        private Node<V> left;
+        private Node<V> right;
+        private int height = 1;
+        // Largest end of this node's subtree.
+        private long maxEnd;
+
+        private Node(long start, long end) {
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+        }
+    }
+
+    /**
+     * Number of values in the tree.
+     *
+     * @return size.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the tree has no values.
+     *
+     * @return true if the tree is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Add a value with an interval.
+     *
+     * @param start start of the interval, inclusive.
+     * @param end   end of the interval, inclusive.
+     * @param value value.
+     * @throws IllegalArgumentException if start is after end.
+     */
+    public void add(long start, long end, V value) throws IllegalArgumentException {
+        if (start > end) {
+            throw new IllegalArgumentException("Interval start " + start + " is after its end " + end + ".");
+        }
+        root = add(root, start, end, value);
+        size++;
+    }
+
+    /**
+     * Remove a value with an interval.
+     *
+     * @param start start of the interval the value was added with.
+     * @param end   end of the interval the value was added with.
+     * @param value value, compared with {@link Object#equals(Object)}.
+     * @return true if the value was removed.
+     */
+    public boolean remove(long start, long end, V value) {
+        final Node<V> node = find(start, end);
+        if (node == null || !node.values.remove(value)) {
+            return false;
+        }
+        size--;
+        if (node.values.isEmpty()) {
+            root = delete(root, start, end);
+        }
+        return true;
+    }
+
+    /**
+     * Get the values with an interval that overlaps the given interval, by interval order.
+     *
+     * @param start start of the interval, inclusive.
+     * @param end   end of the interval, inclusive.
+     * @return overlapping values.
+     */
+    public List<V> findOverlapping(long start, long end) {
+        final List<V> result = new ArrayList<>();
+        findOverlapping(root, start, end, result::add);
+        return result;
+    }
+
+    /**
+     * Check if any value has an interval that overlaps the given interval.
+     *
+     * @param start start of the interval, inclusive.
+     * @param end   end of the interval, inclusive.
+     * @return true if an interval overlaps.
+     */
+    public boolean isOverlapping(long start, long end) {
+        Node<V> node = root;
+        while (node != null) {
+            if (node.start <= end && start <= node.end) {
+                return true;
+            }
+            // If the left subtree ends at or after start but none of it overlaps, the interval
+            // ending last there starts after end, and so does everything to the right.
+            node = node.left != null && node.left.maxEnd >= start ? node.left : node.right;
+        }
+        return false;
+    }
+
+    /**
+     * Get every value, by interval order.
+     *
+     * @return values.
+     */
+    public List<V> values() {
+        final List<V> result = new ArrayList<>(size);
+        forEach(root, result::add);
+        return result;
+    }
+
+    private Node<V> find(long start, long end) {
+        Node<V> node = root;
+        while (node != null) {
+            final int cmp = compare(start, end, node);
+            if (cmp == 0) {
+                return node;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    private void findOverlapping(Node<V> node, long start, long end, Consumer<V> consumer) {
+        if (node == null || node.maxEnd < start) {
+            return;
+        }
+        findOverlapping(node.left, start, end, consumer);
+        if (node.start > end) {
+            // This node and its right subtree start after the interval.
+            return;
+        }
+        if (start <= node.end) {
+            node.values.forEach(consumer);
+        }
+        findOverlapping(node.right, start, end, consumer);
+    }
+
+    private void forEach(Node<V> node, Consumer<V> consumer) {
+        if (node == null) {
+            return;
+        }
+        forEach(node.left, consumer);
+        node.values.forEach(consumer);
+        forEach(node.right, consumer);
+    }
+
+    private Node<V> add(Node<V> node, long start, long end, V value) {
+        if (node == null) {
+            final Node<V> created = new Node<>(start, end);
+            created.values.add(value);
+            return created;
+        }
+        final int cmp = compare(start, end, node);
+        if (cmp == 0) {
+            node.values.add(value);
+            return node;
+        }
+        if (cmp < 0) {
+            node.left = add(node.left, start, end, value);
+        } else {
+            node.right = add(node.right, start, end, value);
+        }
+        return balance(node);
+    }
+
+    private Node<V> delete(Node<V> node, long start, long end) {
+        if (node == null) {
+            return null;
+        }
+        final int cmp = compare(start, end, node);
+        if (cmp < 0) {
+            node.left = delete(node.left, start, end);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, start, end);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            // Replace the node with the first node of its right subtree.
+            Node<V> successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = deleteFirst(node.right);
+            successor.left = node.left;
+            return balance(successor);
+        }
+        return balance(node);
+    }
+
+    private Node<V> deleteFirst(Node<V> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = deleteFirst(node.left);
+        return balance(node);
+    }
+
+    private static int compare(long start, long end, Node<?> node) {
+        final int cmp = Long.compare(start, node.start);
+        return cmp != 0 ? cmp : Long.compare(end, node.end);
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(Node<?> node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        long maxEnd = node.end;
+        if (node.left != null) {
+            maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private Node<V> balance(Node<V> node) {
+        update(node);
+        final int factor = height(node.left) - height(node.right);
+        if (factor > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (factor < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private Node<V> rotateLeft(Node<V> node) {
+        final Node<V> right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private Node<V> rotateRight(Node<V> node) {
+        final Node<V> left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+}
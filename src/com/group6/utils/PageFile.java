@@ -0,0 +1,219 @@
+package com.group6.utils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+/**
+ * A file of fixed size pages, read and written by page number.
+ * <p>
+ * A batch of pages is written atomically: the pages are first written to a journal next to
+ * the file, then to the file itself, and the journal is deleted. If a write is interrupted,
+ * a complete journal is replayed the next time the file is opened, and an incomplete one
+ * is discarded, so the file only ever holds whole batches.
+ * </p>
+ * Journal layout: [int magic][int page count] followed by pages of [int page number][page],
+ * then [int CRC32C of everything after the magic].
+ */
+public class PageFile implements Closeable {
+
+    /**
+     * Size of a page in bytes.
+     */
+    public static final int PAGE_SIZE = 4096;
+
+    private static final int JOURNAL_MAGIC = 0x42544F4A; // "BTOJ"
+
+    private final File file;
+    private final File journalFile;
+    private FileChannel channel;
+    private boolean journaled = true;
+
+    /**
+     * Constructor for PageFile.
+     *
+     * @param filename name of the file.
+     */
+    public PageFile(String filename) {
+        this.file = new File(filename);
+        this.journalFile = new File(filename + ".journal");
+    }
+
+    /**
+     * File getter.
+     *
+     * @return {@link #file}
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Journaled setter.
+     * Turn off for files that are not in use yet, such as a new file that replaces
+     * another once it is complete, to write every page once instead of twice.
+     *
+     * @param journaled true to write batches atomically.
+     */
+    public void setJournaled(boolean journaled) {
+        this.journaled = journaled;
+    }
+
+    /**
+     * Open the file, creating it if it does not exist, and replay an interrupted write.
+     *
+     * @throws IOException if the file cannot be opened.
+     */
+    public synchronized void open() throws IOException {
+        if (channel != null) {
+            return;
+        }
+        channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        replayJournal();
+    }
+
+    /**
+     * Number of pages in the file.
+     *
+     * @return page count.
+     * @throws IOException if the file cannot be read.
+     */
+    public synchronized int getPageCount() throws IOException {
+        return (int) (getChannel().size() / PAGE_SIZE);
+    }
+
+    /**
+     * Read a page. Pages past the end of the file read as zeroes.
+     *
+     * @param pageNumber page number.
+     * @return a new buffer with the page.
+     * @throws IOException if the page cannot be read.
+     */
+    public synchronized ByteBuffer read(int pageNumber) throws IOException {
+        final ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+        final FileChannel channel = getChannel();
+        long position = (long) pageNumber * PAGE_SIZE;
+        while (page.hasRemaining()) {
+            final int read = channel.read(page, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+        return page.clear();
+    }
+
+    /**
+     * Write a batch of pages and force them to disk.
+     * The batch is written atomically if the file is journaled.
+     *
+     * @param pages pages to write, keyed by page number.
+     * @throws IOException if the pages cannot be written.
+     */
+    public synchronized void writeAll(SortedMap<Integer, ByteBuffer> pages) throws IOException {
+        if (pages.isEmpty()) {
+            return;
+        }
+        if (journaled) {
+            writeJournal(pages);
+        }
+        writePages(pages);
+        if (journaled && !journalFile.delete()) {
+            throw new IOException("Failed to delete " + journalFile.getName());
+        }
+    }
+
+    /**
+     * Close the file.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private FileChannel getChannel() throws IOException {
+        if (channel == null) {
+            throw new IOException(file.getName() + " is not open.");
+        }
+        return channel;
+    }
+
+    private void writePages(Map<Integer, ByteBuffer> pages) throws IOException {
+        final FileChannel channel = getChannel();
+        for (Map.Entry<Integer, ByteBuffer> page : pages.entrySet()) {
+            final ByteBuffer data = page.getValue().duplicate().clear();
+            long position = (long) page.getKey() * PAGE_SIZE;
+            while (data.hasRemaining()) {
+                position += channel.write(data, position);
+            }
+        }
+        channel.force(false);
+    }
+
+    private void writeJournal(SortedMap<Integer, ByteBuffer> pages) throws IOException {
+        final CRC32C checksum = new CRC32C();
+        try (FileOutputStream fos = new FileOutputStream(journalFile);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+            out.writeInt(JOURNAL_MAGIC);
+            final ByteBuffer header = ByteBuffer.allocate(4);
+            out.writeInt(pages.size());
+            checksum.update(header.putInt(0, pages.size()).array());
+            for (Map.Entry<Integer, ByteBuffer> page : pages.entrySet()) {
+                checksum.update(header.putInt(0, page.getKey()).array());
+                checksum.update(page.getValue().array(), 0, PAGE_SIZE);
+                out.writeInt(page.getKey());
+                out.write(page.getValue().array(), 0, PAGE_SIZE);
+            }
+            out.writeInt((int) checksum.getValue());
+            out.flush();
+            fos.getFD().sync();
+        }
+    }
+
+    /**
+     * Write the pages of a complete journal to the file, and delete the journal.
+     */
+    private void replayJournal() throws IOException {
+        if (!journalFile.exists()) {
+            return;
+        }
+        final SortedMap<Integer, ByteBuffer> pages = new TreeMap<>();
+        boolean isComplete = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+            final int pageCount = in.readInt() == JOURNAL_MAGIC ? in.readInt() : -1;
+            if (pageCount >= 0 && journalFile.length() == 12 + (long) pageCount * (4 + PAGE_SIZE)) {
+                final CRC32C checksum = new CRC32C();
+                final ByteBuffer header = ByteBuffer.allocate(4);
+                checksum.update(header.putInt(0, pageCount).array());
+                for (int i = 0; i < pageCount; i++) {
+                    final int pageNumber = in.readInt();
+                    final byte[] page = new byte[PAGE_SIZE];
+                    in.readFully(page);
+                    checksum.update(header.putInt(0, pageNumber).array());
+                    checksum.update(page);
+                    pages.put(pageNumber, ByteBuffer.wrap(page));
+                }
+                isComplete = in.readInt() == (int) checksum.getValue();
+            }
+        } catch (EOFException e) {
+            isComplete = false;
+        }
+        if (isComplete) {
+            writePages(pages);
+        }
+        if (!journalFile.delete()) {
+            throw new IOException("Failed to delete " + journalFile.getName());
+        }
+    }
+}
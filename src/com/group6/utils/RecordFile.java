@@ -0,0 +1,702 @@
+package com.group6.utils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32C;
+
+/**
+ * A file of keyed, variable-length binary records with an in-memory key to offset index.
+ * <p>
+ * Updating a record appends the new version and marks the old one dead, so a
+ * single record can be saved without rewriting the rest of the file.
+ * Dead records are dropped by {@link #compact()}, which runs automatically once
+ * dead records take up more than half of the file.
+ * </p>
+ * <p>
+ * Every record ends with a CRC32C checksum of its key and payload. If a write was
+ * interrupted, the partially written record at the end of the file is cut off when the
+ * file is next read, and records that fail their checksum are dropped, keeping every
+ * intact record. If a record header is damaged, reading continues from the next intact
+ * record. Checksums are checked for every record whose payload is read, and for the
+ * last record when only the index is built, so recovery only reads the record headers.
+ * See {@link #getLastRecovery()}.
+ * </p>
+ * <p>
+ * Every write is forced to disk before it returns. {@link #put(String, byte[])} forces the
+ * new version before marking the old one dead, so a crash never loses both. If the old
+ * version is not marked dead, the newer version still wins when the file is read.
+ * </p>
+ * File layout: [int magic][short version] followed by records of
+ * [byte status][UTF key][int payload length][payload][int checksum].
+ * Version 1 files have no checksums, and are rewritten with checksums on the next write.
+ */
+public class RecordFile {
+
+    private static final int MAGIC = 0x42544F52; // "BTOR"
+    private static final short VERSION = 2;
+    private static final short UNCHECKED_VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 6;
+    private static final int CHECKSUM_SIZE = 4;
+    private static final byte STATUS_DEAD = 0;
+    private static final byte STATUS_LIVE = 1;
+    private static final long MIN_COMPACT_BYTES = 64 * 1024;
+
+    private final File file;
+    // Map<Key, Offset of the live record>
+    private Map<String, Long> index;
+    private long deadBytes = 0;
+    private short version = VERSION;
+    private Recovery lastRecovery;
+
+    /**
+     * What was dropped when the file was last read.
+     *
+     * @param droppedRecords number of records that failed their checksum.
+     * @param truncatedBytes number of bytes cut off the end of the file.
+     */
+    public record Recovery(int droppedRecords, long truncatedBytes) {
+    }
+
+    /**
+     * Result of {@link #verify()}.
+     *
+     * @param recordCount     number of live records.
+     * @param payloadChecksum CRC32C of every live record's payload, in file order.
+     */
+    public record Verification(long recordCount, long payloadChecksum) {
+    }
+
+    /**
+     * Writes a new version of the file one record at a time, so records do not have to be
+     * held in memory. Records are written to a temporary file, which replaces the file
+     * on {@link #commit()}. Closing without committing discards the temporary file.
+     */
+    public class Writer implements Closeable {
+        private final File tempFile = new File(file.getPath() + ".tmp");
+        private final FileOutputStream fos;
+        private final DataOutputStream out;
+        // Map<Key, Offset>, only kept if the index should be set on commit.
+        private final Map<String, Long> newIndex;
+        private long offset = FILE_HEADER_SIZE;
+        private long recordCount = 0;
+        private boolean isClosed = false;
+
+        private Writer(boolean keepIndex) throws IOException {
+            this.newIndex = keepIndex ? new HashMap<>() : null;
+            this.fos = new FileOutputStream(tempFile);
+            this.out = new DataOutputStream(new BufferedOutputStream(fos));
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+        }
+
+        /**
+         * Write a record.
+         *
+         * @param key     key of the record.
+         * @param payload record payload.
+         * @throws IOException if the record cannot be written.
+         */
+        public void write(String key, byte[] payload) throws IOException {
+            final byte[] bytes = encodeRecord(key, payload);
+            out.write(bytes);
+            if (newIndex != null) {
+                newIndex.put(key, offset);
+            }
+            offset += bytes.length;
+            recordCount++;
+        }
+
+        /**
+         * Number of records written.
+         *
+         * @return {@link #recordCount}
+         */
+        public long getRecordCount() {
+            return recordCount;
+        }
+
+        /**
+         * Force the records to disk and replace the file with them.
+         *
+         * @throws IOException if the file cannot be replaced.
+         */
+        public void commit() throws IOException {
+            out.flush();
+            fos.getFD().sync();
+            out.close();
+            isClosed = true;
+            synchronized (RecordFile.this) {
+                Files.move(tempFile.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                index = newIndex;
+                deadBytes = 0;
+                version = VERSION;
+                lastRecovery = null;
+            }
+        }
+
+        /**
+         * Discard the records if they were not committed.
+         *
+         * @throws IOException if the temporary file cannot be closed.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!isClosed) {
+                isClosed = true;
+                out.close();
+                Files.deleteIfExists(tempFile.toPath());
+            }
+        }
+    }
+
+    /**
+     * Constructor for RecordFile.
+     *
+     * @param filename name of the file.
+     */
+    public RecordFile(String filename) {
+        this.file = new File(filename);
+    }
+
+    /**
+     * File getter.
+     *
+     * @return {@link #file}
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Check if the file exists and is in the record file format.
+     *
+     * @return true if the file is a record file.
+     */
+    public boolean isRecordFile() {
+        if (!file.exists() || file.length() < FILE_HEADER_SIZE) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Records dropped and bytes cut off the last time the file was read,
+     * if anything had to be recovered.
+     *
+     * @return {@link #lastRecovery}
+     */
+    public synchronized Optional<Recovery> getLastRecovery() {
+        return Optional.ofNullable(lastRecovery);
+    }
+
+    /**
+     * Reads every live record, in file order. Also rebuilds the index.
+     *
+     * @return live records, keyed by their key.
+     * @throws IOException if the file cannot be read.
+     */
+    public synchronized LinkedHashMap<String, byte[]> readAll() throws IOException {
+        final LinkedHashMap<String, byte[]> records = new LinkedHashMap<>();
+        if (file.exists() && file.length() > 0) {
+            for (Map.Entry<String, ByteBuffer> record : scan(ByteBuffer.wrap(Files.readAllBytes(file.toPath())), true)
+                    .entrySet()) {
+                final byte[] payload = new byte[record.getValue().remaining()];
+                record.getValue().get(payload);
+                records.put(record.getKey(), payload);
+            }
+        } else {
+            clearScan();
+        }
+        return records;
+    }
+
+    /**
+     * Maps the file into memory and returns every live record's payload, in file order.
+     * Each payload is a read-only view into the mapping, nothing is copied.
+     * Also rebuilds the index.
+     * <p>
+     * The mapping stays valid after the file is closed, until the buffers are
+     * garbage collected. Later writes to the file may or may not be visible through it.
+     * </p>
+     *
+     * @return live record payloads, keyed by their key.
+     * @throws IOException if the file cannot be read.
+     */
+    public synchronized LinkedHashMap<String, ByteBuffer> mapAll() throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            clearScan();
+            return new LinkedHashMap<>();
+        }
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file.getName() + " is too large to map.");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return scan(buffer, true);
+    }
+
+    /**
+     * Reads a single record through the index.
+     *
+     * @param key key of the record.
+     * @return the record payload, if it exists.
+     * @throws IOException if the file cannot be read, or the record fails its checksum.
+     */
+    public synchronized Optional<byte[]> get(String key) throws IOException {
+        final Long offset = getIndex().get(key);
+        if (offset == null) {
+            return Optional.empty();
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(offset);
+            raf.readByte();
+            final byte[] keyBytes = new byte[raf.readUnsignedShort()];
+            raf.readFully(keyBytes);
+            final byte[] payload = new byte[raf.readInt()];
+            raf.readFully(payload);
+            if (version == VERSION && raf.readInt() != checksum(keyBytes, payload, payload.length)) {
+                throw new IOException("Record " + key + " in " + file.getName() + " is corrupted.");
+            }
+            return Optional.of(payload);
+        }
+    }
+
+    /**
+     * Keys of every live record.
+     *
+     * @return live keys.
+     * @throws IOException if the index cannot be built.
+     */
+    public synchronized Set<String> keys() throws IOException {
+        return Collections.unmodifiableSet(getIndex().keySet());
+    }
+
+    /**
+     * Inserts or updates a single record.
+     * The new version is appended and the old version, if any, is marked dead.
+     * The new version is forced to disk first, see {@link RecordFile}.
+     *
+     * @param key     key of the record.
+     * @param payload record payload.
+     * @throws IOException if the file cannot be written.
+     */
+    public synchronized void put(String key, byte[] payload) throws IOException {
+        final Map<String, Long> index = getCheckedIndex();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() == 0) {
+                writeFileHeader(raf);
+            }
+            final long offset = raf.length();
+            raf.seek(offset);
+            raf.write(encodeRecord(key, payload));
+            raf.getFD().sync();
+
+            final Long previousOffset = index.put(key, offset);
+            if (previousOffset != null) {
+                markDead(raf, previousOffset);
+                raf.getFD().sync();
+            }
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * Removes a record by marking it dead.
+     *
+     * @param key key of the record.
+     * @return true if the record existed.
+     * @throws IOException if the file cannot be written.
+     */
+    public synchronized boolean remove(String key) throws IOException {
+        final Long offset = getCheckedIndex().remove(key);
+        if (offset == null) {
+            return false;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            markDead(raf, offset);
+            raf.getFD().sync();
+        }
+        compactIfNeeded();
+        return true;
+    }
+
+    /**
+     * Replaces the whole file with the given records.
+     * The records are written to a temporary file which is then renamed over
+     * the file, so a crash never leaves a partially written file behind.
+     *
+     * @param records records to write, keyed by their key.
+     * @throws IOException if the file cannot be written.
+     */
+    public synchronized void writeAll(Map<String, byte[]> records) throws IOException {
+        try (Writer writer = new Writer(true)) {
+            for (Map.Entry<String, byte[]> record : records.entrySet()) {
+                writer.write(record.getKey(), record.getValue());
+            }
+            writer.commit();
+        }
+    }
+
+    /**
+     * Open a writer that replaces the whole file one record at a time.
+     * The index is rebuilt from the file on next use after the writer commits.
+     *
+     * @return writer.
+     * @throws IOException if the temporary file cannot be created.
+     */
+    public Writer openWriter() throws IOException {
+        return new Writer(false);
+    }
+
+    /**
+     * Reads the whole file one record at a time, checking every live record's checksum,
+     * without holding the records in memory.
+     *
+     * @return number of live records and a checksum of their payloads.
+     * @throws IOException if the file cannot be read, or a record is damaged.
+     */
+    public synchronized Verification verify() throws IOException {
+        final CRC32C payloadChecksum = new CRC32C();
+        long recordCount = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file.getName() + " is not a record file.");
+            }
+            final short fileVersion = in.readShort();
+            if (fileVersion != VERSION && fileVersion != UNCHECKED_VERSION) {
+                throw new IOException("Unsupported record file version " + fileVersion + " in " + file.getName());
+            }
+            final long fileLength = file.length();
+            long offset = FILE_HEADER_SIZE;
+            byte[] payload = new byte[0];
+            while (offset < fileLength) {
+                final byte status = in.readByte();
+                final byte[] keyBytes = new byte[in.readUnsignedShort()];
+                in.readFully(keyBytes);
+                final int length = in.readInt();
+                if (length < 0) {
+                    throw new IOException("Record at " + offset + " in " + file.getName() + " is damaged.");
+                }
+                if (payload.length < length) {
+                    payload = new byte[length];
+                }
+                in.readFully(payload, 0, length);
+                final boolean isChecked = fileVersion == VERSION;
+                final int checksum = isChecked ? in.readInt() : 0;
+                if (status == STATUS_LIVE) {
+                    if (isChecked && checksum != checksum(keyBytes, payload, length)) {
+                        throw new IOException("Record at " + offset + " in " + file.getName() + " is damaged.");
+                    }
+                    payloadChecksum.update(payload, 0, length);
+                    recordCount++;
+                }
+                offset += 3 + keyBytes.length + 4 + length + (isChecked ? CHECKSUM_SIZE : 0);
+            }
+        }
+        return new Verification(recordCount, payloadChecksum.getValue());
+    }
+
+    /**
+     * Drops the in-memory index, so it is rebuilt from the file on next use.
+     * Call after the file was replaced by something other than this record file.
+     */
+    public synchronized void clearIndex() {
+        index = null;
+        deadBytes = 0;
+    }
+
+    /**
+     * Rewrites the file without its dead records.
+     *
+     * @throws IOException if the file cannot be rewritten.
+     */
+    public synchronized void compact() throws IOException {
+        writeAll(readAll());
+    }
+
+    /**
+     * Compacts once dead records take up more than half of the file.
+     */
+    private void compactIfNeeded() throws IOException {
+        if (deadBytes >= MIN_COMPACT_BYTES && deadBytes * 2 > file.length()) {
+            compact();
+        }
+    }
+
+    /**
+     * Index getter. Builds the index by scanning record headers if needed.
+     *
+     * @return {@link #index}
+     */
+    private Map<String, Long> getIndex() throws IOException {
+        if (index == null) {
+            if (file.exists() && file.length() > 0) {
+                scan(ByteBuffer.wrap(Files.readAllBytes(file.toPath())), false);
+            } else {
+                clearScan();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Index getter for writes. Files without checksums are rewritten with checksums first,
+     * so every appended record matches the file's version.
+     *
+     * @return {@link #index}
+     */
+    private Map<String, Long> getCheckedIndex() throws IOException {
+        final Map<String, Long> index = getIndex();
+        if (version == UNCHECKED_VERSION) {
+            compact();
+            return this.index;
+        }
+        return index;
+    }
+
+    /**
+     * Resets the index for a missing or empty file.
+     */
+    private void clearScan() {
+        index = new HashMap<>();
+        deadBytes = 0;
+        version = VERSION;
+        lastRecovery = null;
+    }
+
+    /**
+     * Scans the file, rebuilding the index and dead byte count, and recovers from interrupted writes.
+     * A partially written record at the end of the file is cut off, and records that fail their
+     * checksum are marked dead. A live record whose key has a later live record, left when a write
+     * was interrupted before the old version was marked dead, is marked dead too.
+     *
+     * @param buffer       contents of the file.
+     * @param readPayloads true to return live record payloads, which are checked against their
+     *                     checksums. Otherwise only the last record's checksum is checked.
+     * @return live record payloads if read, keyed by their key.
+     */
+    private LinkedHashMap<String, ByteBuffer> scan(ByteBuffer buffer, boolean readPayloads) throws IOException {
+        if (buffer.remaining() < FILE_HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException(file.getName() + " is not a record file.");
+        }
+        final short fileVersion = buffer.getShort(4);
+        if (fileVersion != VERSION && fileVersion != UNCHECKED_VERSION) {
+            throw new IOException("Unsupported record file version " + fileVersion + " in " + file.getName());
+        }
+        final boolean isChecked = fileVersion == VERSION;
+        final int fileLength = buffer.limit();
+
+        final LinkedHashMap<String, ByteBuffer> records = new LinkedHashMap<>();
+        final Map<String, Long> newIndex = new HashMap<>();
+        // Map<Key, Length of the live record>
+        final Map<String, Integer> liveLengths = new HashMap<>();
+        final List<Integer> deadOffsets = new ArrayList<>();
+        // Map<Offset, Length> of damaged bytes that are not a readable record.
+        final Map<Integer, Integer> gaps = new LinkedHashMap<>();
+        long newDeadBytes = 0;
+        int droppedRecords = 0;
+        int offset = FILE_HEADER_SIZE;
+        int truncateAt = -1;
+        while (offset < fileLength) {
+            final int recordLength = recordLength(buffer, offset, isChecked);
+            final boolean isLast = recordLength >= 0 && offset + recordLength == fileLength;
+            final boolean isLive = recordLength >= 0 && buffer.get(offset) == STATUS_LIVE;
+            final boolean isVerified = isChecked && (isLast || (readPayloads && isLive));
+            if (recordLength < 0 || (isVerified && !isChecksumValid(buffer, offset, recordLength))) {
+                // Either the end of the file was not fully written, or the record is damaged,
+                // in which case its length cannot be trusted either.
+                final int nextOffset = isChecked ? findNextRecord(buffer, offset + 1) : -1;
+                if (nextOffset < 0) {
+                    truncateAt = offset;
+                    break;
+                }
+                droppedRecords++;
+                gaps.put(offset, nextOffset - offset);
+                newDeadBytes += nextOffset - offset;
+                offset = nextOffset;
+                continue;
+            }
+            if (isLive) {
+                final String key;
+                try {
+                    key = readUTF(buffer.slice(offset + 1, recordLength - 1));
+                } catch (UTFDataFormatException e) {
+                    droppedRecords++;
+                    deadOffsets.add(offset);
+                    newDeadBytes += recordLength;
+                    offset += recordLength;
+                    continue;
+                }
+                final Long previousOffset = newIndex.put(key, (long) offset);
+                if (previousOffset != null) {
+                    deadOffsets.add(previousOffset.intValue());
+                    newDeadBytes += liveLengths.get(key);
+                    records.remove(key);
+                }
+                liveLengths.put(key, recordLength);
+                if (readPayloads) {
+                    final int keyLength = buffer.getShort(offset + 1) & 0xFFFF;
+                    final int payloadLength = buffer.getInt(offset + 3 + keyLength);
+                    records.put(key, buffer.slice(offset + 7 + keyLength, payloadLength).asReadOnlyBuffer());
+                }
+            } else {
+                newDeadBytes += recordLength;
+            }
+            offset += recordLength;
+        }
+
+        if (truncateAt >= 0 || !deadOffsets.isEmpty() || !gaps.isEmpty()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                for (int deadOffset : deadOffsets) {
+                    raf.seek(deadOffset);
+                    raf.writeByte(STATUS_DEAD);
+                }
+                for (Map.Entry<Integer, Integer> gap : gaps.entrySet()) {
+                    // Turn the damaged bytes into a dead record with no key, so later scans skip them.
+                    if (gap.getValue() >= 3 + 4 + CHECKSUM_SIZE) {
+                        raf.seek(gap.getKey());
+                        raf.writeByte(STATUS_DEAD);
+                        raf.writeShort(0);
+                        raf.writeInt(gap.getValue() - 3 - 4 - CHECKSUM_SIZE);
+                    }
+                }
+                if (truncateAt >= 0) {
+                    raf.setLength(truncateAt);
+                }
+                raf.getFD().sync();
+            }
+        }
+        final long truncatedBytes = truncateAt >= 0 ? fileLength - truncateAt : 0;
+        lastRecovery = droppedRecords > 0 || truncatedBytes > 0
+                ? new Recovery(droppedRecords, truncatedBytes)
+                : null;
+        index = newIndex;
+        deadBytes = newDeadBytes;
+        version = fileVersion;
+        return records;
+    }
+
+    /**
+     * Length of the record at an offset, from its header.
+     *
+     * @return length of the record, or -1 if it runs past the end of the file or its status is invalid.
+     */
+    private static int recordLength(ByteBuffer buffer, int offset, boolean isChecked) {
+        final int remaining = buffer.limit() - offset;
+        if (remaining < 3) {
+            return -1;
+        }
+        final byte status = buffer.get(offset);
+        if (status != STATUS_LIVE && status != STATUS_DEAD) {
+            return -1;
+        }
+        final int keyLength = buffer.getShort(offset + 1) & 0xFFFF;
+        if (remaining < 3 + keyLength + 4) {
+            return -1;
+        }
+        final int payloadLength = buffer.getInt(offset + 3 + keyLength);
+        final long length = 3L + keyLength + 4 + payloadLength + (isChecked ? CHECKSUM_SIZE : 0);
+        if (payloadLength < 0 || length > remaining) {
+            return -1;
+        }
+        return (int) length;
+    }
+
+    /**
+     * Finds the next intact record after a damaged one, by looking for a record
+     * header whose record passes its checksum.
+     *
+     * @return offset of the next intact record, or -1 if there is none.
+     */
+    private static int findNextRecord(ByteBuffer buffer, int from) {
+        for (int offset = from; offset < buffer.limit(); offset++) {
+            final int length = recordLength(buffer, offset, true);
+            if (length >= 0 && isChecksumValid(buffer, offset, length)) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isChecksumValid(ByteBuffer buffer, int offset, int recordLength) {
+        final CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset + 1, recordLength - 1 - CHECKSUM_SIZE));
+        return (int) crc.getValue() == buffer.getInt(offset + recordLength - CHECKSUM_SIZE);
+    }
+
+    private static int checksum(byte[] keyBytes, byte[] payload, int length) {
+        final CRC32C crc = new CRC32C();
+        crc.update(keyBytes.length >>> 8);
+        crc.update(keyBytes.length);
+        crc.update(keyBytes);
+        crc.update(length >>> 24);
+        crc.update(length >>> 16);
+        crc.update(length >>> 8);
+        crc.update(length);
+        crc.update(payload, 0, length);
+        return (int) crc.getValue();
+    }
+
+    private void markDead(RandomAccessFile raf, long offset) throws IOException {
+        raf.seek(offset);
+        raf.writeByte(STATUS_DEAD);
+        final int keyLength = raf.readUnsignedShort();
+        raf.skipBytes(keyLength);
+        deadBytes += 3 + keyLength + 4 + raf.readInt() + CHECKSUM_SIZE;
+    }
+
+    private static void writeFileHeader(RandomAccessFile raf) throws IOException {
+        raf.seek(0);
+        raf.writeInt(MAGIC);
+        raf.writeShort(VERSION);
+    }
+
+    private static byte[] encodeRecord(String key, byte[] payload) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + key.length() + 16);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(STATUS_LIVE);
+        out.writeUTF(key);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.flush();
+        final CRC32C crc = new CRC32C();
+        crc.update(bytes.toByteArray(), 1, bytes.size() - 1);
+        out.writeInt((int) crc.getValue());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a string written by {@link DataOutputStream#writeUTF(String)} from a buffer.
+     */
+    private static String readUTF(ByteBuffer buffer) throws IOException {
+        final int length = buffer.getShort() & 0xFFFF;
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        for (byte b : bytes) {
+            if (b <= 0) {
+                // Not plain ASCII, let DataInputStream handle modified UTF-8.
+                final ByteArrayOutputStream prefixed = new ByteArrayOutputStream(length + 2);
+                prefixed.write(length >>> 8);
+                prefixed.write(length);
+                prefixed.write(bytes);
+                return new DataInputStream(new ByteArrayInputStream(prefixed.toByteArray())).readUTF();
+            }
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
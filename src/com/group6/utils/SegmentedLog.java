@@ -0,0 +1,468 @@
+package com.group6.utils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * An append-only log of keyed binary records, split into segment files in a directory.
+ * <p>
+ * Records are appended to the last segment, and a new segment is started once it
+ * reaches {@link #segmentSizeLimit} bytes. Each segment has a key to offsets index, so
+ * the records of a key are read straight from the segments without reading the rest of the log.
+ * When a segment is full, its index is written next to it, so opening the log only
+ * reads the index files and the last segment.
+ * </p>
+ * Segment layout: [int magic][short version] followed by records of
+ * [UTF key][int payload length][payload].
+ * Index layout: [int magic][short version][int key count] followed by entries of
+ * [UTF key][int offset count][int offset]...
+ */
+public class SegmentedLog implements Closeable {
+
+    private static final int SEGMENT_MAGIC = 0x42544F53; // "BTOS"
+    private static final int INDEX_MAGIC = 0x42544F49; // "BTOI"
+    private static final short VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 6;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private final File directory;
+    private final long segmentSizeLimit;
+    private final List<Segment> segments = new ArrayList<>();
+    private FileChannel channel;
+    private long recordCount = 0;
+    private boolean isOpen = false;
+
+    /**
+     * A segment file and its index.
+     */
+    private static class Segment {
+        private final long number;
+        private final File file;
+        // Map<Key, Offsets of the key's records>
+        private final Map<String, int[]> index = new HashMap<>();
+        private long length = FILE_HEADER_SIZE;
+        private int recordCount = 0;
+
+        private Segment(File directory, long number) {
+            this.number = number;
+            this.file = new File(directory, String.format("%08d", number) + SEGMENT_SUFFIX);
+        }
+
+        private File getIndexFile() {
+            return new File(file.getParentFile(), String.format("%08d", number) + INDEX_SUFFIX);
+        }
+
+        private void addToIndex(String key, int offset) {
+            final int[] offsets = index.get(key);
+            if (offsets == null) {
+                index.put(key, new int[] { offset });
+                return;
+            }
+            final int[] newOffsets = Arrays.copyOf(offsets, offsets.length + 1);
+            newOffsets[offsets.length] = offset;
+            index.put(key, newOffsets);
+        }
+    }
+
+    /**
+     * Reads records from the log.
+     */
+    @FunctionalInterface
+    public interface RecordConsumer {
+        /**
+         * Accept a record.
+         *
+         * @param key     key of the record.
+         * @param payload record payload.
+         * @throws IOException if the record cannot be handled.
+         */
+        void accept(String key, byte[] payload) throws IOException;
+    }
+
+    /**
+     * Constructor for SegmentedLog.
+     *
+     * @param directory        name of the directory to store segments in.
+     * @param segmentSizeLimit size in bytes after which a new segment is started.
+     */
+    public SegmentedLog(String directory, long segmentSizeLimit) {
+        if (segmentSizeLimit <= FILE_HEADER_SIZE || segmentSizeLimit > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size limit must fit a segment header and an int offset.");
+        }
+        this.directory = new File(directory);
+        this.segmentSizeLimit = segmentSizeLimit;
+    }
+
+    /**
+     * Directory getter.
+     *
+     * @return {@link #directory}
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Open the log, loading the index of every segment.
+     * Full segments load their index file, rebuilding it if it is missing.
+     * The last segment is scanned, and a partially written record at its end is cut off.
+     *
+     * @throws IOException if the log cannot be read.
+     */
+    public synchronized void open() throws IOException {
+        if (isOpen) {
+            return;
+        }
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory.getPath());
+        }
+        final File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        final List<Long> numbers = new ArrayList<>();
+        if (files != null) {
+            for (File file : files) {
+                final String name = file.getName();
+                try {
+                    numbers.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not a segment of this log.
+                }
+            }
+        }
+        Collections.sort(numbers);
+
+        segments.clear();
+        recordCount = 0;
+        for (int i = 0; i < numbers.size(); i++) {
+            final Segment segment = new Segment(directory, numbers.get(i));
+            final boolean isLast = i == numbers.size() - 1;
+            if (isLast && segment.file.length() < FILE_HEADER_SIZE) {
+                // Crashed while starting the segment.
+                writeSegmentHeader(segment);
+            }
+            if (isLast || !readIndex(segment)) {
+                scan(segment, isLast);
+                if (!isLast) {
+                    writeIndex(segment);
+                }
+            }
+            segments.add(segment);
+            recordCount += segment.recordCount;
+        }
+        if (segments.isEmpty()) {
+            startSegment(1);
+        }
+        isOpen = true;
+    }
+
+    /**
+     * Number of records in the log.
+     *
+     * @return number of records.
+     * @throws IOException if the log cannot be opened.
+     */
+    public synchronized long size() throws IOException {
+        open();
+        return recordCount;
+    }
+
+    /**
+     * Number of segments in the log.
+     *
+     * @return number of segments.
+     * @throws IOException if the log cannot be opened.
+     */
+    public synchronized int getSegmentCount() throws IOException {
+        open();
+        return segments.size();
+    }
+
+    /**
+     * Append a record to the log, forcing it to disk.
+     * Starts a new segment first if the last one is full.
+     *
+     * @param key     key of the record.
+     * @param payload record payload.
+     * @throws IOException if the record cannot be written.
+     */
+    public synchronized void append(String key, byte[] payload) throws IOException {
+        append(key, payload, true);
+    }
+
+    /**
+     * Append a record to the log.
+     * Starts a new segment first if the last one is full.
+     *
+     * @param key     key of the record.
+     * @param payload record payload.
+     * @param force   true to force the record to disk, otherwise call {@link #force()}
+     *                after appending a batch of records.
+     * @throws IOException if the record cannot be written.
+     */
+    public synchronized void append(String key, byte[] payload, boolean force) throws IOException {
+        open();
+        final byte[] record = encodeRecord(key, payload);
+        Segment segment = segments.get(segments.size() - 1);
+        if (segment.recordCount > 0 && segment.length + record.length > segmentSizeLimit) {
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+                channel = null;
+            }
+            writeIndex(segment);
+            segment = startSegment(segment.number + 1);
+        }
+        final FileChannel channel = getChannel(segment);
+        final ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, segment.length + buffer.position());
+        }
+        if (force) {
+            channel.force(false);
+        }
+        segment.addToIndex(key, (int) segment.length);
+        segment.length += record.length;
+        segment.recordCount++;
+        recordCount++;
+    }
+
+    /**
+     * Force appended records to disk.
+     *
+     * @throws IOException if the records cannot be forced.
+     */
+    public synchronized void force() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Reads every record of a key through the segment indexes, in the order they were appended.
+     *
+     * @param key key of the records.
+     * @return record payloads.
+     * @throws IOException if the log cannot be read.
+     */
+    public synchronized List<byte[]> read(String key) throws IOException {
+        open();
+        final List<byte[]> payloads = new ArrayList<>();
+        for (Segment segment : segments) {
+            final int[] offsets = segment.index.get(key);
+            if (offsets == null) {
+                continue;
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(segment.file, "r")) {
+                for (int offset : offsets) {
+                    raf.seek(offset);
+                    raf.readUTF();
+                    final byte[] payload = new byte[raf.readInt()];
+                    raf.readFully(payload);
+                    payloads.add(payload);
+                }
+            }
+        }
+        return payloads;
+    }
+
+    /**
+     * Reads every record in the log, in the order they were appended.
+     * Records are streamed segment by segment, so the log is never held in memory.
+     *
+     * @param consumer consumer of the records.
+     * @throws IOException if the log cannot be read.
+     */
+    public synchronized void forEach(RecordConsumer consumer) throws IOException {
+        open();
+        for (Segment segment : segments) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.file)))) {
+                in.skipNBytes(FILE_HEADER_SIZE);
+                for (int i = 0; i < segment.recordCount; i++) {
+                    final String key = in.readUTF();
+                    final byte[] payload = new byte[in.readInt()];
+                    in.readFully(payload);
+                    consumer.accept(key, payload);
+                }
+            }
+        }
+    }
+
+    /**
+     * Close the log. It is opened again on the next use.
+     *
+     * @throws IOException if the last segment cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        segments.clear();
+        isOpen = false;
+    }
+
+    private Segment startSegment(long number) throws IOException {
+        final Segment segment = new Segment(directory, number);
+        writeSegmentHeader(segment);
+        segments.add(segment);
+        return segment;
+    }
+
+    private static void writeSegmentHeader(Segment segment) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(segment.file))) {
+            out.writeInt(SEGMENT_MAGIC);
+            out.writeShort(VERSION);
+        }
+    }
+
+    /**
+     * Channel of the last segment, the only one that is appended to.
+     */
+    private FileChannel getChannel(Segment segment) throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(segment.file.toPath(), StandardOpenOption.WRITE);
+        }
+        return channel;
+    }
+
+    /**
+     * Rebuild a segment's index by scanning it.
+     *
+     * @param segment  segment to scan.
+     * @param truncate true to cut off a partially written record at the end,
+     *                 otherwise it is an error.
+     */
+    private void scan(Segment segment, boolean truncate) throws IOException {
+        final long fileLength = segment.file.length();
+        long offset = FILE_HEADER_SIZE;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.file)))) {
+            if (fileLength < FILE_HEADER_SIZE || in.readInt() != SEGMENT_MAGIC) {
+                throw new IOException(segment.file.getName() + " is not a log segment.");
+            }
+            final short version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported log segment version " + version + " in " + segment.file.getName());
+            }
+            while (offset < fileLength) {
+                final String key;
+                final int length;
+                try {
+                    key = in.readUTF();
+                    length = in.readInt();
+                } catch (EOFException | UTFDataFormatException e) {
+                    break;
+                }
+                final long recordLength = 2 + utfLength(key) + 4 + (long) length;
+                if (length < 0 || offset + recordLength > fileLength) {
+                    break;
+                }
+                in.skipNBytes(length);
+                segment.addToIndex(key, (int) offset);
+                segment.recordCount++;
+                offset += recordLength;
+            }
+        }
+        if (offset < fileLength) {
+            if (!truncate) {
+                throw new EOFException(segment.file.getName() + " is truncated.");
+            }
+            try (FileChannel truncateChannel = FileChannel.open(segment.file.toPath(), StandardOpenOption.WRITE)) {
+                truncateChannel.truncate(offset);
+            }
+        }
+        segment.length = offset;
+    }
+
+    /**
+     * Load a segment's index from its index file.
+     *
+     * @return false if the index file is missing or invalid.
+     */
+    private boolean readIndex(Segment segment) {
+        final File indexFile = segment.getIndexFile();
+        if (!indexFile.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != INDEX_MAGIC || in.readShort() != VERSION) {
+                return false;
+            }
+            final int keyCount = in.readInt();
+            int records = 0;
+            for (int i = 0; i < keyCount; i++) {
+                final String key = in.readUTF();
+                final int[] offsets = new int[in.readInt()];
+                for (int j = 0; j < offsets.length; j++) {
+                    offsets[j] = in.readInt();
+                }
+                segment.index.put(key, offsets);
+                records += offsets.length;
+            }
+            segment.recordCount = records;
+            segment.length = segment.file.length();
+            return true;
+        } catch (IOException e) {
+            segment.index.clear();
+            return false;
+        }
+    }
+
+    /**
+     * Write a full segment's index file, replacing it atomically.
+     */
+    private void writeIndex(Segment segment) throws IOException {
+        final File indexFile = segment.getIndexFile();
+        final File tempFile = new File(indexFile.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tempFile);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(segment.index.size());
+            for (Map.Entry<String, int[]> entry : segment.index.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                for (int offset : entry.getValue()) {
+                    out.writeInt(offset);
+                }
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+        Files.move(tempFile.toPath(), indexFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static byte[] encodeRecord(String key, byte[] payload) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + key.length() + 8);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(key);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Length of a string in modified UTF-8, as written by {@link DataOutputStream#writeUTF(String)}.
+     */
+    private static int utfLength(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                length++;
+            } else if (c > 0x07FF) {
+                length += 3;
+            } else {
+                length += 2;
+            }
+        }
+        return length;
+    }
+}
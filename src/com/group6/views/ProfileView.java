@@ -112,6 +112,7 @@ public class ProfileView implements AuthenticatedView {
         }
 
         user.setPassword(newPassword);
+        ctx.getBtoSystem().getUserManager().updateUser(user);
         System.out.println(BashColors.format(
                 "Password changed successfully. You have been logged out, please sign in again.", BashColors.GREEN));
         System.out.println("Type anything to continue.");
@@ -141,6 +142,7 @@ public class ProfileView implements AuthenticatedView {
                     continue;
                 }
                 user.setAge(age);
+                ctx.getBtoSystem().getUserManager().updateUser(user);
                 System.out.println(BashColors.format("Age changed to " + age + ".", BashColors.GREEN));
                 System.out.println("Type anything to continue.");
                 scanner.nextLine();
@@ -187,6 +189,7 @@ public class ProfileView implements AuthenticatedView {
             }
 
             user.setMartialStatus(status);
+            ctx.getBtoSystem().getUserManager().updateUser(user);
             System.out.println(
                     BashColors.format("Marital status changed to " + status.getName() + ".", BashColors.GREEN));
             System.out.println("Type anything to continue.");
@@ -296,7 +296,7 @@ public class ProjectEnquiryView implements PaginatedView, AuthenticatedView {
         if (newMessage.isEmpty()) {
             return;
         }
-        enquiry.setResponseMessage(new BTOEnquiryMessage(user.getId(), newMessage, System.currentTimeMillis())); //Sets a Response Message to the enquiry
+        project.setEnquiryResponseMessage(enquiry, new BTOEnquiryMessage(user.getId(), newMessage, System.currentTimeMillis())); //Sets a Response Message to the enquiry
         this.enquiries = enquiriesSupplier.get();
         System.out.println(BashColors.format("Message responded!", BashColors.GREEN));
         System.out.println("Type anything to continue.");
@@ -352,7 +352,7 @@ public class ProjectEnquiryView implements PaginatedView, AuthenticatedView {
         if (newMessage.isEmpty()) {
             return;
         }
-        enquiry.setSenderMessage(new BTOEnquiryMessage(user.getId(), newMessage, System.currentTimeMillis()));
+        project.setEnquirySenderMessage(enquiry, new BTOEnquiryMessage(user.getId(), newMessage, System.currentTimeMillis()));
         this.enquiries = enquiriesSupplier.get();
         System.out.println(BashColors.format("Message updated!", BashColors.GREEN));
         System.out.println("Type anything to continue.");
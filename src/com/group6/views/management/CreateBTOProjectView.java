@@ -345,9 +345,7 @@ public class CreateBTOProjectView implements AuthenticatedView {
     private Optional<Date[]> requestApplicationWindow() {
         final Scanner scanner = ctx.getScanner();
         final BTOProjectManager projectManager = ctx.getBtoSystem().getProjectManager();
-        final List<BTOProject> managingProjects = projectManager.getProjects().values().stream()
-                .filter((project) -> project.getManagerUserId().equals(user.getId()))
-                .toList();
+        final List<BTOProject> managingProjects = projectManager.getManagerProjects(user.getId());
 
         while (true) {
             System.out.println(BashColors.format(
@@ -423,24 +421,19 @@ public class CreateBTOProjectView implements AuthenticatedView {
                 continue;
             }
 
-            boolean isOverlapping = false;
-            for (BTOProject project : managingProjects) {
-                if (Utils.isDateRangeIntersecting(
-                        openDate, closeDate,
-                        project.getApplicationOpenDate(), project.getApplicationCloseDate())) {
-                    isOverlapping = true;
-                    System.out.println(BashColors.format(
-                            "Invalid input, the application window overlaps with a project you are managing.",
-                            BashColors.RED));
-                    System.out.println(BashColors.format("Project " + project.getName().trim() + " with window "
-                            + Utils.formatToDDMMYYYY(project.getApplicationOpenDate()) + " to "
-                            + Utils.formatToDDMMYYYY(project.getApplicationCloseDate()), BashColors.RED));
-                    System.out.println("Type anything to continue.");
-                    scanner.nextLine();
-                    break;
-                }
-            }
-            if (isOverlapping) {
+            final Optional<BTOProject> overlappingProject = projectManager
+                    .getOverlappingManagerProjects(user.getId(), openDate, closeDate).stream()
+                    .findFirst();
+            if (overlappingProject.isPresent()) {
+                final BTOProject project = overlappingProject.get();
+                System.out.println(BashColors.format(
+                        "Invalid input, the application window overlaps with a project you are managing.",
+                        BashColors.RED));
+                System.out.println(BashColors.format("Project " + project.getName().trim() + " with window "
+                        + Utils.formatToDDMMYYYY(project.getApplicationOpenDate()) + " to "
+                        + Utils.formatToDDMMYYYY(project.getApplicationCloseDate()), BashColors.RED));
+                System.out.println("Type anything to continue.");
+                scanner.nextLine();
                 continue;
             }
 
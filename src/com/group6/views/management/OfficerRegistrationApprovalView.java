@@ -1,6 +1,5 @@
 package com.group6.views.management;
 
-import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
@@ -259,18 +258,9 @@ public class OfficerRegistrationApprovalView implements AuthenticatedView, Pagin
         if (project.getManagingOfficerRegistrations().size() >= project.getOfficerLimit()) {
             approvalIssues.add("Officer limit reached");
         }
-        final Date startDate = project.getApplicationOpenDate();
-        final Date endDate = project.getApplicationCloseDate();
-        final List<BTOProject> managedByOfficer = projectManager
-                .getOfficerManagingProjects(application.getOfficerUserId());
-        for (BTOProject managedProject : managedByOfficer) {
-            Date _startDate = managedProject.getApplicationOpenDate();
-            Date _endDate = managedProject.getApplicationCloseDate();
-            if (Utils.isDateRangeIntersecting(
-                    startDate, endDate,
-                    _startDate, _endDate)) {
-                approvalIssues.add("Officer already managing another project in the same time period");
-            }
+        if (!projectManager.getOverlappingOfficerManagingProjects(application.getOfficerUserId(),
+                project.getApplicationOpenDate(), project.getApplicationCloseDate()).isEmpty()) {
+            approvalIssues.add("Officer already managing another project in the same time period");
         }
 
         while (true) {
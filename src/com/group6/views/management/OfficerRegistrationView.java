@@ -1,7 +1,5 @@
 package com.group6.views.management;
 
-import java.util.Date;
-import java.util.List;
 import java.util.Optional;
 import java.util.Scanner;
 
@@ -121,28 +119,21 @@ public class OfficerRegistrationView implements AuthenticatedView {
                 scanner.nextLine();
             }
 
-            final Date startDate = project.getApplicationOpenDate();
-            final Date endDate = project.getApplicationCloseDate();
-            final List<BTOProject> managingProjects = projectManager
-                    .getOfficerManagingProjects(user.getId());
-            boolean isOverlapping = false;
-            for (BTOProject _project : managingProjects) {
-                if (Utils.isDateRangeIntersecting(
-                        startDate, endDate,
-                        _project.getApplicationOpenDate(), _project.getApplicationCloseDate())) {
-                    isOverlapping = true;
-                    System.out.println(BashColors.format(
-                            "You are already managing another project that overlaps with this project.",
-                            BashColors.RED));
-                    System.out.println(BashColors.format("Project " + _project.getName().trim() + " with window "
-                            + Utils.formatToDDMMYYYY(_project.getApplicationOpenDate()) + " to "
-                            + Utils.formatToDDMMYYYY(_project.getApplicationCloseDate()), BashColors.RED));
-                    System.out.println("Type anything to continue.");
-                    scanner.nextLine();
-                    break;
-                }
-            }
-            if (isOverlapping) {
+            final Optional<BTOProject> overlappingProject = projectManager
+                    .getOverlappingOfficerManagingProjects(user.getId(),
+                            project.getApplicationOpenDate(), project.getApplicationCloseDate())
+                    .stream()
+                    .findFirst();
+            if (overlappingProject.isPresent()) {
+                final BTOProject _project = overlappingProject.get();
+                System.out.println(BashColors.format(
+                        "You are already managing another project that overlaps with this project.",
+                        BashColors.RED));
+                System.out.println(BashColors.format("Project " + _project.getName().trim() + " with window "
+                        + Utils.formatToDDMMYYYY(_project.getApplicationOpenDate()) + " to "
+                        + Utils.formatToDDMMYYYY(_project.getApplicationCloseDate()), BashColors.RED));
+                System.out.println("Type anything to continue.");
+                scanner.nextLine();
                 continue;
             }
 